@@ -17,7 +17,9 @@
 package org.springframework.cloud.gcp.autoconfigure.pubsub;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -37,6 +39,9 @@ import com.google.cloud.pubsub.v1.SubscriptionAdminClient;
 import com.google.cloud.pubsub.v1.SubscriptionAdminSettings;
 import com.google.cloud.pubsub.v1.TopicAdminClient;
 import com.google.cloud.pubsub.v1.TopicAdminSettings;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.stub.MetadataUtils;
 import org.threeten.bp.Duration;
 
 import org.springframework.beans.factory.ObjectProvider;
@@ -54,11 +59,15 @@ import org.springframework.cloud.gcp.pubsub.PubSubAdmin;
 import org.springframework.cloud.gcp.pubsub.core.PubSubException;
 import org.springframework.cloud.gcp.pubsub.core.PubSubTemplate;
 import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherTemplate;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PublishFlowController;
 import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberTemplate;
 import org.springframework.cloud.gcp.pubsub.support.DefaultPublisherFactory;
 import org.springframework.cloud.gcp.pubsub.support.DefaultSubscriberFactory;
+import org.springframework.cloud.gcp.pubsub.support.PubSubChannelPool;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.pubsub.support.PublisherFactory;
 import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
 import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -123,21 +132,74 @@ public class GcpPubSubAutoConfiguration {
 	@Bean
 	@ConditionalOnMissingBean
 	public PubSubPublisherTemplate pubSubPublisherTemplate(PublisherFactory publisherFactory,
-			ObjectProvider<PubSubMessageConverter> pubSubMessageConverter) {
+			ObjectProvider<PubSubMessageConverter> pubSubMessageConverter,
+			ObjectProvider<PubSubMetrics> pubSubMetrics) {
 		PubSubPublisherTemplate pubSubPublisherTemplate = new PubSubPublisherTemplate(publisherFactory);
 		pubSubMessageConverter.ifUnique(pubSubPublisherTemplate::setMessageConverter);
+		pubSubPublisherTemplate.setMessageConverter(compressing(pubSubPublisherTemplate.getMessageConverter()));
+		pubSubMetrics.ifUnique(pubSubPublisherTemplate::setPubSubMetrics);
+
+		GcpPubSubProperties.PublishFlowControl flowControl = this.gcpPubSubProperties.getPublisher()
+				.getFlowControl();
+		if (flowControl.getMaxOutstandingElementCount() != null
+				|| flowControl.getMaxOutstandingRequestBytes() != null) {
+			pubSubPublisherTemplate.setFlowController(new PublishFlowController(
+					flowControl.getMaxOutstandingElementCount(), flowControl.getMaxOutstandingRequestBytes(),
+					flowControl.getLimitExceededBehavior(), flowControl.getScope()));
+		}
 		return pubSubPublisherTemplate;
 	}
 
 	@Bean
 	@ConditionalOnMissingBean
 	public PubSubSubscriberTemplate pubSubSubscriberTemplate(SubscriberFactory subscriberFactory,
-			ObjectProvider<PubSubMessageConverter> pubSubMessageConverter) {
+			ObjectProvider<PubSubMessageConverter> pubSubMessageConverter,
+			@Qualifier("subscriberAckBatchingSettings") ObjectProvider<BatchingSettings> ackBatchingSettings,
+			ObjectProvider<PubSubMetrics> pubSubMetrics) {
 		PubSubSubscriberTemplate pubSubSubscriberTemplate = new PubSubSubscriberTemplate(subscriberFactory);
 		pubSubMessageConverter.ifUnique(pubSubSubscriberTemplate::setMessageConverter);
+		pubSubSubscriberTemplate.setMessageConverter(
+				decompressing(pubSubSubscriberTemplate.getMessageConverter()));
+		pubSubMetrics.ifUnique(pubSubSubscriberTemplate::setPubSubMetrics);
+		ackBatchingSettings.ifAvailable(pubSubSubscriberTemplate::setAckBatchingSettings);
+
+		GcpPubSubProperties.PullAckExtension pullAckExtension = this.gcpPubSubProperties.getSubscriber()
+				.getPullAckExtension();
+		if (pullAckExtension.getMaxPeriodSeconds() != null && pullAckExtension.getMaxPeriodSeconds() > 0) {
+			pubSubSubscriberTemplate.setAckDeadlineLeaseExtension(pullAckExtension.getAckDeadlineSeconds(),
+					Duration.ofSeconds(pullAckExtension.getMaxPeriodSeconds()));
+		}
+
+		GcpPubSubProperties.Deduplication deduplication = this.gcpPubSubProperties.getSubscriber()
+				.getDeduplication();
+		if (deduplication.isEnabled()) {
+			pubSubSubscriberTemplate.setMessageDeduplication(deduplication.getMaxEntries(),
+					Duration.ofSeconds(deduplication.getWindowSeconds()));
+		}
 		return pubSubSubscriberTemplate;
 	}
 
+	@Bean
+	@ConditionalOnMissingBean(name = "subscriberAckBatchingSettings")
+	public BatchingSettings subscriberAckBatchingSettings() {
+		GcpPubSubProperties.AckBatching ackBatching = this.gcpPubSubProperties.getSubscriber()
+				.getAckBatching();
+
+		if (!ackBatching.isEnabled()) {
+			return null;
+		}
+
+		BatchingSettings.Builder builder = BatchingSettings.newBuilder()
+				.setElementCountThreshold(ackBatching.getElementCountThreshold())
+				.setRequestByteThreshold(ackBatching.getRequestByteThreshold());
+
+		if (ackBatching.getDelayThresholdMillis() != null) {
+			builder.setDelayThreshold(Duration.ofMillis(ackBatching.getDelayThresholdMillis()));
+		}
+
+		return builder.build();
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public PubSubTemplate pubSubTemplate(PubSubPublisherTemplate pubSubPublisherTemplate,
@@ -180,7 +242,8 @@ public class GcpPubSubAutoConfiguration {
 					ObjectProvider<FlowControlSettings> flowControlSettings,
 			@Qualifier("subscriberApiClock") ObjectProvider<ApiClock> apiClock,
 			@Qualifier("subscriberRetrySettings") ObjectProvider<RetrySettings> retrySettings,
-			TransportChannelProvider transportChannelProvider) {
+			TransportChannelProvider transportChannelProvider,
+			ObjectProvider<PubSubMetrics> pubSubMetrics) {
 		DefaultSubscriberFactory factory = new DefaultSubscriberFactory(this.finalProjectIdProvider);
 		factory.setExecutorProvider(executorProvider);
 		factory.setCredentialsProvider(this.finalCredentialsProvider);
@@ -203,6 +266,13 @@ public class GcpPubSubAutoConfiguration {
 			factory.setPullEndpoint(
 					this.gcpPubSubProperties.getSubscriber().getPullEndpoint());
 		}
+		pubSubMetrics.ifUnique(factory::setPubSubMetrics);
+		GcpPubSubProperties.AdaptiveConcurrency adaptiveConcurrency = this.gcpPubSubProperties.getSubscriber()
+				.getAdaptiveConcurrency();
+		if (adaptiveConcurrency.isEnabled()) {
+			factory.setAdaptiveConcurrency(adaptiveConcurrency.getMinLimit(), adaptiveConcurrency.getMaxLimit(),
+					adaptiveConcurrency.getLatencyTolerance(), adaptiveConcurrency.getBackoffRatio());
+		}
 		return factory;
 	}
 
@@ -282,6 +352,11 @@ public class GcpPubSubAutoConfiguration {
 		factory.setChannelProvider(transportChannelProvider);
 		retrySettings.ifAvailable(factory::setRetrySettings);
 		batchingSettings.ifAvailable(factory::setBatchingSettings);
+		factory.setCacheMaxSize(this.gcpPubSubProperties.getPublisher().getCacheMaxSize());
+		Long cacheIdleTimeoutSeconds = this.gcpPubSubProperties.getPublisher().getCacheIdleTimeoutSeconds();
+		if (cacheIdleTimeoutSeconds != null) {
+			factory.setCacheIdleTimeout(Duration.ofSeconds(cacheIdleTimeoutSeconds));
+		}
 		return factory;
 	}
 
@@ -340,8 +415,79 @@ public class GcpPubSubAutoConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public TransportChannelProvider transportChannelProvider() {
-		return InstantiatingGrpcChannelProvider.newBuilder().build();
+	public TransportChannelProvider transportChannelProvider(ObjectProvider<PubSubChannelPool> pubSubChannelPool) {
+		PubSubChannelPool channelPool = pubSubChannelPool.getIfAvailable();
+		return (channelPool != null)
+				? channelPool.getTransportChannelProvider()
+				: InstantiatingGrpcChannelProvider.newBuilder().build();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("spring.cloud.gcp.pubsub.channel-pool.enabled")
+	public PubSubChannelPool pubSubChannelPool() {
+		GcpPubSubProperties.ChannelPool channelPool = this.gcpPubSubProperties.getChannelPool();
+
+		// Pooled channels are handed to clients as-is, so the headers clients would otherwise add to
+		// the channels they create are set on the pooled channels instead.
+		Metadata headers = new Metadata();
+		String userAgent = null;
+		for (Map.Entry<String, String> header : this.headerProvider.getHeaders().entrySet()) {
+			if ("user-agent".equalsIgnoreCase(header.getKey())) {
+				userAgent = header.getValue();
+			}
+			else {
+				headers.put(Metadata.Key.of(header.getKey(), Metadata.ASCII_STRING_MARSHALLER), header.getValue());
+			}
+		}
+		String finalUserAgent = userAgent;
+
+		return new PubSubChannelPool(channelPool.getSize(), channelPool.getSelectionStrategy(), () -> {
+			ManagedChannelBuilder<?> channelBuilder = ManagedChannelBuilder
+					.forTarget(TopicAdminSettings.getDefaultEndpoint())
+					.userAgent(finalUserAgent)
+					.maxInboundMessageSize(Integer.MAX_VALUE)
+					.intercept(MetadataUtils.newAttachHeadersInterceptor(headers))
+					.keepAliveWithoutCalls(channelPool.isKeepAliveWithoutCalls());
+
+			if (channelPool.getKeepAliveTimeSeconds() != null) {
+				channelBuilder.keepAliveTime(channelPool.getKeepAliveTimeSeconds(), TimeUnit.SECONDS);
+			}
+			if (channelPool.getKeepAliveTimeoutSeconds() != null) {
+				channelBuilder.keepAliveTimeout(channelPool.getKeepAliveTimeoutSeconds(), TimeUnit.SECONDS);
+			}
+
+			return channelBuilder.build();
+		});
+	}
+
+	private PubSubMessageConverter compressing(PubSubMessageConverter messageConverter) {
+		GcpPubSubProperties.Compression compression = this.gcpPubSubProperties.getCompression();
+
+		if (!compression.isEnabled()) {
+			return messageConverter;
+		}
+
+		CompressingPubSubMessageConverter compressingConverter = new CompressingPubSubMessageConverter(
+				messageConverter, compression.getCodec(), compression.getThresholdBytes());
+		compressingConverter.setMaxDecompressedBytes(compression.getMaxDecompressedBytes());
+		return compressingConverter;
 	}
 
+	/**
+	 * Received payloads are decompressed whenever they carry the content encoding of a supported
+	 * codec, so that subscribers can consume messages of publishers that compress regardless of
+	 * this application's compression settings.
+	 */
+	private PubSubMessageConverter decompressing(PubSubMessageConverter messageConverter) {
+		if (messageConverter instanceof CompressingPubSubMessageConverter) {
+			return messageConverter;
+		}
+
+		CompressingPubSubMessageConverter decompressingConverter =
+				new CompressingPubSubMessageConverter(messageConverter);
+		decompressingConverter.setMaxDecompressedBytes(
+				this.gcpPubSubProperties.getCompression().getMaxDecompressedBytes());
+		return decompressingConverter;
+	}
 }
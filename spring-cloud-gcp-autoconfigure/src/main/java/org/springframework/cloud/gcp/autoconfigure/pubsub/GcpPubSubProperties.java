@@ -23,6 +23,9 @@ import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.cloud.gcp.core.Credentials;
 import org.springframework.cloud.gcp.core.CredentialsSupplier;
 import org.springframework.cloud.gcp.core.GcpScope;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PublishFlowController;
+import org.springframework.cloud.gcp.pubsub.support.PubSubChannelPool;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
 
 /**
  * @author João André Martins
@@ -42,6 +45,16 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 	 */
 	private final Publisher publisher = new Publisher();
 
+	/**
+	 * Contains settings for the compression of message payloads.
+	 */
+	private final Compression compression = new Compression();
+
+	/**
+	 * Contains settings for the gRPC channel pool shared by all Pub/Sub clients.
+	 */
+	private final ChannelPool channelPool = new ChannelPool();
+
 	/**
 	 * Overrides the GCP project ID specified in the Core module.
 	 */
@@ -67,6 +80,14 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 		return this.publisher;
 	}
 
+	public Compression getCompression() {
+		return this.compression;
+	}
+
+	public ChannelPool getChannelPool() {
+		return this.channelPool;
+	}
+
 	public String getProjectId() {
 		return this.projectId;
 	}
@@ -104,10 +125,47 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 		 */
 		private final Batching batching = new Batching();
 
+		/**
+		 * Flow control properties for the messages being published.
+		 */
+		private final PublishFlowControl flowControl = new PublishFlowControl();
+
+		/**
+		 * Maximum number of cached publishers, one per topic. When exceeded, the least recently
+		 * used publisher is shut down. Unbounded if not set.
+		 */
+		private Long cacheMaxSize;
+
+		/**
+		 * Number of seconds after which a publisher that hasn't been used is shut down. Publishers
+		 * are kept indefinitely if not set.
+		 */
+		private Long cacheIdleTimeoutSeconds;
+
 		public Batching getBatching() {
 			return this.batching;
 		}
 
+		public PublishFlowControl getFlowControl() {
+			return this.flowControl;
+		}
+
+		public Long getCacheMaxSize() {
+			return this.cacheMaxSize;
+		}
+
+		public void setCacheMaxSize(Long cacheMaxSize) {
+			this.cacheMaxSize = cacheMaxSize;
+		}
+
+		public Long getCacheIdleTimeoutSeconds() {
+			return this.cacheIdleTimeoutSeconds;
+		}
+
+		public void setCacheIdleTimeoutSeconds(Long cacheIdleTimeoutSeconds) {
+			this.cacheIdleTimeoutSeconds = cacheIdleTimeoutSeconds;
+		}
+
 		public Retry getRetry() {
 			return this.retry;
 		}
@@ -153,6 +211,26 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 		 */
 		private final FlowControl flowControl = new FlowControl();
 
+		/**
+		 * Batching settings for acknowledging individually pulled messages.
+		 */
+		private final AckBatching ackBatching = new AckBatching();
+
+		/**
+		 * Ack deadline extension settings for synchronously pulled messages.
+		 */
+		private final PullAckExtension pullAckExtension = new PullAckExtension();
+
+		/**
+		 * Message ID deduplication settings for subscribers.
+		 */
+		private final Deduplication deduplication = new Deduplication();
+
+		/**
+		 * Adaptive concurrency limiting settings for subscribers.
+		 */
+		private final AdaptiveConcurrency adaptiveConcurrency = new AdaptiveConcurrency();
+
 		public Retry getRetry() {
 			return this.retry;
 		}
@@ -161,6 +239,22 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 			return this.flowControl;
 		}
 
+		public AckBatching getAckBatching() {
+			return this.ackBatching;
+		}
+
+		public PullAckExtension getPullAckExtension() {
+			return this.pullAckExtension;
+		}
+
+		public Deduplication getDeduplication() {
+			return this.deduplication;
+		}
+
+		public AdaptiveConcurrency getAdaptiveConcurrency() {
+			return this.adaptiveConcurrency;
+		}
+
 		public String getPullEndpoint() {
 			return this.pullEndpoint;
 		}
@@ -370,6 +464,65 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 		}
 	}
 
+	public static class PublishFlowControl {
+
+		/**
+		 * Maximum number of messages being published but not yet acknowledged by Pub/Sub.
+		 * Unlimited if not set.
+		 */
+		private Long maxOutstandingElementCount;
+
+		/**
+		 * Maximum total size in bytes of the messages being published but not yet acknowledged by
+		 * Pub/Sub. Unlimited if not set.
+		 */
+		private Long maxOutstandingRequestBytes;
+
+		/**
+		 * The behavior when publishing a message would exceed the limits: block the caller, throw
+		 * an exception, or drop the message.
+		 */
+		private PublishFlowController.LimitExceededBehavior limitExceededBehavior =
+				PublishFlowController.LimitExceededBehavior.BLOCK;
+
+		/**
+		 * Whether the limits apply to each topic or to all topics together.
+		 */
+		private PublishFlowController.Scope scope = PublishFlowController.Scope.TOPIC;
+
+		public Long getMaxOutstandingElementCount() {
+			return this.maxOutstandingElementCount;
+		}
+
+		public void setMaxOutstandingElementCount(Long maxOutstandingElementCount) {
+			this.maxOutstandingElementCount = maxOutstandingElementCount;
+		}
+
+		public Long getMaxOutstandingRequestBytes() {
+			return this.maxOutstandingRequestBytes;
+		}
+
+		public void setMaxOutstandingRequestBytes(Long maxOutstandingRequestBytes) {
+			this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+		}
+
+		public PublishFlowController.LimitExceededBehavior getLimitExceededBehavior() {
+			return this.limitExceededBehavior;
+		}
+
+		public void setLimitExceededBehavior(PublishFlowController.LimitExceededBehavior limitExceededBehavior) {
+			this.limitExceededBehavior = limitExceededBehavior;
+		}
+
+		public PublishFlowController.Scope getScope() {
+			return this.scope;
+		}
+
+		public void setScope(PublishFlowController.Scope scope) {
+			this.scope = scope;
+		}
+	}
+
 	public static class Batching {
 
 		/**
@@ -434,4 +587,344 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 			return this.flowControl;
 		}
 	}
+
+	public static class AckBatching {
+
+		/**
+		 * Enables coalescing of acks, nacks and ack deadline modifications of individually acknowledged
+		 * pulled messages into per-subscription requests if true.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The number of ack IDs that triggers sending a batch.
+		 */
+		private Long elementCountThreshold = 1000L;
+
+		/**
+		 * The request size in bytes that triggers sending a batch.
+		 */
+		private Long requestByteThreshold = 256L * 1024L;
+
+		/**
+		 * The delay threshold in milliseconds. After this amount of time has elapsed (counting
+		 * from the first ack ID added), the batch is sent.
+		 */
+		private Long delayThresholdMillis = 100L;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Long getElementCountThreshold() {
+			return this.elementCountThreshold;
+		}
+
+		public void setElementCountThreshold(Long elementCountThreshold) {
+			this.elementCountThreshold = elementCountThreshold;
+		}
+
+		public Long getRequestByteThreshold() {
+			return this.requestByteThreshold;
+		}
+
+		public void setRequestByteThreshold(Long requestByteThreshold) {
+			this.requestByteThreshold = requestByteThreshold;
+		}
+
+		public Long getDelayThresholdMillis() {
+			return this.delayThresholdMillis;
+		}
+
+		public void setDelayThresholdMillis(Long delayThresholdMillis) {
+			this.delayThresholdMillis = delayThresholdMillis;
+		}
+	}
+
+	public static class PullAckExtension {
+
+		/**
+		 * The maximum period in seconds during which the ack deadline of synchronously pulled
+		 * messages keeps being extended. Extension is disabled if 0.
+		 */
+		private Long maxPeriodSeconds = 0L;
+
+		/**
+		 * The ack deadline in seconds set on every extension.
+		 */
+		private int ackDeadlineSeconds = 60;
+
+		public Long getMaxPeriodSeconds() {
+			return this.maxPeriodSeconds;
+		}
+
+		public void setMaxPeriodSeconds(Long maxPeriodSeconds) {
+			this.maxPeriodSeconds = maxPeriodSeconds;
+		}
+
+		public int getAckDeadlineSeconds() {
+			return this.ackDeadlineSeconds;
+		}
+
+		public void setAckDeadlineSeconds(int ackDeadlineSeconds) {
+			this.ackDeadlineSeconds = ackDeadlineSeconds;
+		}
+	}
+
+	public static class Deduplication {
+
+		/**
+		 * Skips messages redelivered to subscribers while they are processed or within the window
+		 * after they were acked if true.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The number of message IDs remembered per subscription within the window.
+		 */
+		private int maxEntries = 100000;
+
+		/**
+		 * How long in seconds an acked message ID is remembered for.
+		 */
+		private Long windowSeconds = 600L;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxEntries() {
+			return this.maxEntries;
+		}
+
+		public void setMaxEntries(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		public Long getWindowSeconds() {
+			return this.windowSeconds;
+		}
+
+		public void setWindowSeconds(Long windowSeconds) {
+			this.windowSeconds = windowSeconds;
+		}
+	}
+
+	public static class AdaptiveConcurrency {
+
+		/**
+		 * Adjusts the number of messages each subscriber processes at once to its processing
+		 * latency and failures if true.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The lowest and initial number of messages each subscriber processes at once.
+		 */
+		private int minLimit = 1;
+
+		/**
+		 * The highest number of messages each subscriber processes at once.
+		 */
+		private int maxLimit = 1000;
+
+		/**
+		 * How many times its recent lowest value the smoothed processing latency may reach before
+		 * the limit is cut.
+		 */
+		private double latencyTolerance = 2.0;
+
+		/**
+		 * The factor the limit is multiplied by when it's cut.
+		 */
+		private double backoffRatio = 0.9;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMinLimit() {
+			return this.minLimit;
+		}
+
+		public void setMinLimit(int minLimit) {
+			this.minLimit = minLimit;
+		}
+
+		public int getMaxLimit() {
+			return this.maxLimit;
+		}
+
+		public void setMaxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+		}
+
+		public double getLatencyTolerance() {
+			return this.latencyTolerance;
+		}
+
+		public void setLatencyTolerance(double latencyTolerance) {
+			this.latencyTolerance = latencyTolerance;
+		}
+
+		public double getBackoffRatio() {
+			return this.backoffRatio;
+		}
+
+		public void setBackoffRatio(double backoffRatio) {
+			this.backoffRatio = backoffRatio;
+		}
+	}
+
+	public static class ChannelPool {
+
+		/**
+		 * Shares a fixed pool of gRPC channels between all Pub/Sub publishers, subscribers and
+		 * admin clients if true, instead of each client opening its own channels.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The number of channels in the pool.
+		 */
+		private int size = 4;
+
+		/**
+		 * How a pooled channel is chosen for each call.
+		 */
+		private PubSubChannelPool.SelectionStrategy selectionStrategy =
+				PubSubChannelPool.SelectionStrategy.ROUND_ROBIN;
+
+		/**
+		 * The time in seconds without read activity after which a keep-alive ping is sent.
+		 */
+		private Long keepAliveTimeSeconds = 300L;
+
+		/**
+		 * The time in seconds to wait for a keep-alive ping acknowledgement before closing the
+		 * connection.
+		 */
+		private Long keepAliveTimeoutSeconds = 20L;
+
+		/**
+		 * Sends keep-alive pings even when there are no calls in progress if true.
+		 */
+		private boolean keepAliveWithoutCalls;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getSize() {
+			return this.size;
+		}
+
+		public void setSize(int size) {
+			this.size = size;
+		}
+
+		public PubSubChannelPool.SelectionStrategy getSelectionStrategy() {
+			return this.selectionStrategy;
+		}
+
+		public void setSelectionStrategy(PubSubChannelPool.SelectionStrategy selectionStrategy) {
+			this.selectionStrategy = selectionStrategy;
+		}
+
+		public Long getKeepAliveTimeSeconds() {
+			return this.keepAliveTimeSeconds;
+		}
+
+		public void setKeepAliveTimeSeconds(Long keepAliveTimeSeconds) {
+			this.keepAliveTimeSeconds = keepAliveTimeSeconds;
+		}
+
+		public Long getKeepAliveTimeoutSeconds() {
+			return this.keepAliveTimeoutSeconds;
+		}
+
+		public void setKeepAliveTimeoutSeconds(Long keepAliveTimeoutSeconds) {
+			this.keepAliveTimeoutSeconds = keepAliveTimeoutSeconds;
+		}
+
+		public boolean isKeepAliveWithoutCalls() {
+			return this.keepAliveWithoutCalls;
+		}
+
+		public void setKeepAliveWithoutCalls(boolean keepAliveWithoutCalls) {
+			this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+		}
+	}
+
+	public static class Compression {
+
+		/**
+		 * Compresses the payloads of published messages if true. Received payloads are
+		 * decompressed regardless, when they carry the content encoding of a supported codec.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The codec used to compress payloads.
+		 */
+		private CompressingPubSubMessageConverter.Codec codec = CompressingPubSubMessageConverter.Codec.GZIP;
+
+		/**
+		 * The minimum payload size in bytes for a payload to be compressed.
+		 */
+		private int thresholdBytes = 1024;
+
+		/**
+		 * The maximum size in bytes of a decompressed payload.
+		 */
+		private int maxDecompressedBytes = 64 * 1024 * 1024;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public CompressingPubSubMessageConverter.Codec getCodec() {
+			return this.codec;
+		}
+
+		public void setCodec(CompressingPubSubMessageConverter.Codec codec) {
+			this.codec = codec;
+		}
+
+		public int getThresholdBytes() {
+			return this.thresholdBytes;
+		}
+
+		public void setThresholdBytes(int thresholdBytes) {
+			this.thresholdBytes = thresholdBytes;
+		}
+
+		public int getMaxDecompressedBytes() {
+			return this.maxDecompressedBytes;
+		}
+
+		public void setMaxDecompressedBytes(int maxDecompressedBytes) {
+			this.maxDecompressedBytes = maxDecompressedBytes;
+		}
+	}
 }
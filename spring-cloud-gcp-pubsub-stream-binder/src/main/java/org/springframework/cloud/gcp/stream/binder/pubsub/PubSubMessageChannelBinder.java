@@ -16,9 +16,26 @@
 
 package org.springframework.cloud.gcp.stream.binder.pubsub;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.core.InstantiatingExecutorProvider;
+import org.threeten.bp.Duration;
+
 import org.springframework.cloud.gcp.pubsub.core.PubSubTemplate;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherOperations;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherTemplate;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PublishFlowController;
 import org.springframework.cloud.gcp.pubsub.integration.inbound.PubSubInboundChannelAdapter;
 import org.springframework.cloud.gcp.pubsub.integration.outbound.PubSubMessageHandler;
+import org.springframework.cloud.gcp.pubsub.support.DefaultPublisherFactory;
+import org.springframework.cloud.gcp.pubsub.support.DefaultSubscriberFactory;
+import org.springframework.cloud.gcp.pubsub.support.PublisherFactory;
+import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubConsumerProperties;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubProducerProperties;
@@ -33,6 +50,7 @@ import org.springframework.cloud.stream.provisioning.ProducerDestination;
 import org.springframework.integration.core.MessageProducer;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
+import org.springframework.util.Assert;
 
 /**
  * @author João André Martins
@@ -47,12 +65,29 @@ public class PubSubMessageChannelBinder
 	implements ExtendedPropertiesBinder<MessageChannel, PubSubConsumerProperties,
 		PubSubProducerProperties> {
 
+	/**
+	 * The batching the Pub/Sub client library applies when none is configured, completed by the
+	 * binding's batching properties when the application doesn't configure batching either.
+	 */
+	private static final BatchingSettings DEFAULT_PUBLISHER_BATCHING_SETTINGS = BatchingSettings.newBuilder()
+			.setElementCountThreshold(100L)
+			.setRequestByteThreshold(1000L)
+			.setDelayThreshold(Duration.ofMillis(1))
+			.build();
+
 	private final PubSubTemplate pubSubTemplate;
 
 	private final PubSubExtendedBindingProperties pubSubExtendedBindingProperties;
 
 	private final PubSubChannelProvisioner pubSubChannelProvisioner;
 
+	/**
+	 * Publisher factories created for producer bindings with their own publisher settings, to be
+	 * destroyed when the bindings are unbound.
+	 */
+	private final Map<ProducerDestination, DefaultPublisherFactory> bindingPublisherFactories =
+			new ConcurrentHashMap<>();
+
 	public PubSubMessageChannelBinder(String[] headersToEmbed,
 			PubSubChannelProvisioner provisioningProvider, PubSubTemplate pubSubTemplate,
 			PubSubExtendedBindingProperties pubSubExtendedBindingProperties) {
@@ -68,16 +103,160 @@ public class PubSubMessageChannelBinder
 			ExtendedProducerProperties<PubSubProducerProperties> producerProperties,
 			MessageChannel errorChannel) {
 
-		PubSubMessageHandler messageHandler = new PubSubMessageHandler(this.pubSubTemplate, destination.getName());
+		PubSubProducerProperties pubSubProducerProperties = producerProperties.getExtension();
+		PubSubMessageHandler messageHandler = new PubSubMessageHandler(
+				getPublisherOperations(destination, pubSubProducerProperties), destination.getName());
+		messageHandler.setSync(pubSubProducerProperties.isSync());
+		messageHandler.setMaxOutstandingPublishes(pubSubProducerProperties.getMaxOutstandingPublishes());
+		messageHandler.setFailureChannel(errorChannel);
 		messageHandler.setBeanFactory(getBeanFactory());
 		return messageHandler;
 	}
 
+	/**
+	 * Return the shared template, unless the binding compresses payloads with its own codec,
+	 * limits its outstanding messages or has its own publisher settings, in which case a template
+	 * configured for the binding is returned instead.
+	 */
+	private PubSubPublisherOperations getPublisherOperations(ProducerDestination destination,
+			PubSubProducerProperties producerProperties) {
+		if (producerProperties.getCompressionCodec() == null && !producerProperties.hasFlowControlLimits()
+				&& !producerProperties.hasPublisherSettings()) {
+			return this.pubSubTemplate;
+		}
+
+		PubSubPublisherTemplate sharedTemplate = this.pubSubTemplate.getPubSubPublisherTemplate();
+		PublisherFactory publisherFactory = sharedTemplate.getPublisherFactory();
+		if (producerProperties.hasPublisherSettings()) {
+			DefaultPublisherFactory bindingFactory = createPublisherFactory(publisherFactory, producerProperties);
+			this.bindingPublisherFactories.put(destination, bindingFactory);
+			publisherFactory = bindingFactory;
+		}
+		PubSubPublisherTemplate bindingTemplate = new PubSubPublisherTemplate(publisherFactory);
+		bindingTemplate.setPubSubMetrics(sharedTemplate.getPubSubMetrics());
+
+		PubSubMessageConverter messageConverter = sharedTemplate.getMessageConverter();
+		if (producerProperties.getCompressionCodec() != null) {
+			if (messageConverter instanceof CompressingPubSubMessageConverter) {
+				messageConverter = ((CompressingPubSubMessageConverter) messageConverter).getDelegate();
+			}
+			messageConverter = new CompressingPubSubMessageConverter(messageConverter,
+					producerProperties.getCompressionCodec(), producerProperties.getCompressionThresholdBytes());
+		}
+		bindingTemplate.setMessageConverter(messageConverter);
+
+		// A binding publishes to a single topic, so its limits don't need a per-topic scope.
+		bindingTemplate.setFlowController(producerProperties.hasFlowControlLimits()
+				? new PublishFlowController(producerProperties.getMaxOutstandingElementCount(),
+						producerProperties.getMaxOutstandingRequestBytes(),
+						producerProperties.getLimitExceededBehavior(), PublishFlowController.Scope.GLOBAL)
+				: sharedTemplate.getFlowController());
+		return bindingTemplate;
+	}
+
+	/**
+	 * Return a publisher factory with the application's settings, overridden by the binding's
+	 * batching and executor threads.
+	 */
+	private DefaultPublisherFactory createPublisherFactory(PublisherFactory sharedFactory,
+			PubSubProducerProperties producerProperties) {
+		Assert.state(sharedFactory instanceof DefaultPublisherFactory,
+				"Publisher settings can only be set per binding when the application's PublisherFactory "
+						+ "is a DefaultPublisherFactory.");
+
+		DefaultPublisherFactory bindingFactory = DefaultPublisherFactory.copyOf((DefaultPublisherFactory) sharedFactory);
+
+		if (producerProperties.hasBatchingSettings()) {
+			BatchingSettings sharedBatching = bindingFactory.getBatchingSettings();
+			BatchingSettings.Builder batching = (sharedBatching != null)
+					? sharedBatching.toBuilder()
+					: DEFAULT_PUBLISHER_BATCHING_SETTINGS.toBuilder();
+			if (producerProperties.getBatchElementCountThreshold() != null) {
+				batching.setElementCountThreshold(producerProperties.getBatchElementCountThreshold());
+			}
+			if (producerProperties.getBatchRequestByteThreshold() != null) {
+				batching.setRequestByteThreshold(producerProperties.getBatchRequestByteThreshold());
+			}
+			if (producerProperties.getBatchDelayThresholdMillis() != null) {
+				batching.setDelayThreshold(Duration.ofMillis(producerProperties.getBatchDelayThresholdMillis()));
+			}
+			bindingFactory.setBatchingSettings(batching.build());
+		}
+
+		if (producerProperties.getExecutorThreads() != null) {
+			bindingFactory.setExecutorProvider(InstantiatingExecutorProvider.newBuilder()
+					.setExecutorThreadCount(producerProperties.getExecutorThreads())
+					.build());
+		}
+		return bindingFactory;
+	}
+
 	@Override
 	protected MessageProducer createConsumerEndpoint(ConsumerDestination destination, String group,
 			ExtendedConsumerProperties<PubSubConsumerProperties> properties) {
 
-		return new PubSubInboundChannelAdapter(this.pubSubTemplate, destination.getName());
+		PubSubConsumerProperties consumerProperties = properties.getExtension();
+		if (consumerProperties.hasSubscriberSettings()) {
+			this.pubSubTemplate.getPubSubSubscriberTemplate().setSubscriberFactory(destination.getName(),
+					createSubscriberFactory(consumerProperties));
+		}
+
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(this.pubSubTemplate,
+				destination.getName());
+		adapter.setAckMode(consumerProperties.getAckMode());
+		adapter.setPubSubMetrics(this.pubSubTemplate.getPubSubSubscriberTemplate().getPubSubMetrics());
+		if (consumerProperties.isBatchDelivery()) {
+			// Unset thresholds are cleared, rather than left at the builder's defaults of one.
+			adapter.setBatchingSettings(BatchingSettings.newBuilder()
+					.setElementCountThreshold(consumerProperties.getBatchMaxMessages())
+					.setRequestByteThreshold(consumerProperties.getBatchMaxBytes())
+					.setDelayThreshold((consumerProperties.getBatchDelayMillis() != null)
+							? Duration.ofMillis(consumerProperties.getBatchDelayMillis())
+							: null)
+					.build());
+		}
+		adapter.setBeanFactory(getBeanFactory());
+		return adapter;
+	}
+
+	/**
+	 * Return a subscriber factory with the application's settings, overridden by the binding's
+	 * flow control, parallel pull count and executor threads.
+	 */
+	private SubscriberFactory createSubscriberFactory(PubSubConsumerProperties consumerProperties) {
+		SubscriberFactory sharedFactory = this.pubSubTemplate.getSubscriberFactory();
+		Assert.state(sharedFactory instanceof DefaultSubscriberFactory,
+				"Subscriber settings can only be set per binding when the application's SubscriberFactory "
+						+ "is a DefaultSubscriberFactory.");
+
+		DefaultSubscriberFactory bindingFactory = DefaultSubscriberFactory.copyOf((DefaultSubscriberFactory) sharedFactory);
+
+		if (consumerProperties.getMaxOutstandingElementCount() != null
+				|| consumerProperties.getMaxOutstandingRequestBytes() != null) {
+			FlowControlSettings sharedFlowControl = bindingFactory.getFlowControlSettings();
+			FlowControlSettings.Builder flowControl = (sharedFlowControl != null)
+					? sharedFlowControl.toBuilder()
+					: FlowControlSettings.newBuilder();
+			if (consumerProperties.getMaxOutstandingElementCount() != null) {
+				flowControl.setMaxOutstandingElementCount(consumerProperties.getMaxOutstandingElementCount());
+			}
+			if (consumerProperties.getMaxOutstandingRequestBytes() != null) {
+				flowControl.setMaxOutstandingRequestBytes(consumerProperties.getMaxOutstandingRequestBytes());
+			}
+			bindingFactory.setFlowControlSettings(flowControl.build());
+		}
+
+		if (consumerProperties.getParallelPullCount() != null) {
+			bindingFactory.setParallelPullCount(consumerProperties.getParallelPullCount());
+		}
+
+		if (consumerProperties.getExecutorThreads() != null) {
+			// Not a fixed provider, so each subscriber shuts its executor down when it stops.
+			bindingFactory.setExecutorProvider(InstantiatingExecutorProvider.newBuilder()
+					.setExecutorThreadCount(consumerProperties.getExecutorThreads())
+					.build());
+		}
+		return bindingFactory;
 	}
 
 	@Override
@@ -100,10 +279,28 @@ public class PubSubMessageChannelBinder
 		return this.pubSubExtendedBindingProperties.getExtendedPropertiesEntryClass();
 	}
 
+	@Override
+	protected void afterUnbindProducer(ProducerDestination destination,
+			ExtendedProducerProperties<PubSubProducerProperties> producerProperties) {
+		super.afterUnbindProducer(destination, producerProperties);
+		DefaultPublisherFactory bindingFactory = this.bindingPublisherFactories.remove(destination);
+		if (bindingFactory != null) {
+			try {
+				bindingFactory.destroy();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	@Override
 	protected void afterUnbindConsumer(ConsumerDestination destination, String group,
 			ExtendedConsumerProperties<PubSubConsumerProperties> consumerProperties) {
 		super.afterUnbindConsumer(destination, group, consumerProperties);
+		if (consumerProperties.getExtension() != null && consumerProperties.getExtension().hasSubscriberSettings()) {
+			this.pubSubTemplate.getPubSubSubscriberTemplate().setSubscriberFactory(destination.getName(), null);
+		}
 		this.pubSubChannelProvisioner.afterUnbindConsumer(destination);
 	}
 }
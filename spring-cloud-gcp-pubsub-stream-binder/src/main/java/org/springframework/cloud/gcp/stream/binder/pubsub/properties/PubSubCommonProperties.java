@@ -26,6 +26,12 @@ public class PubSubCommonProperties {
 
 	private boolean autoCreateResources = true;
 
+	/**
+	 * Whether to assume that the topic and subscription of the binding exist, without checking
+	 * or creating them. Subscriptions for anonymous consumer groups are still created.
+	 */
+	private boolean trustExistingResources;
+
 	public boolean isAutoCreateResources() {
 		return this.autoCreateResources;
 	}
@@ -33,4 +39,12 @@ public class PubSubCommonProperties {
 	public void setAutoCreateResources(boolean autoCreateResources) {
 		this.autoCreateResources = autoCreateResources;
 	}
+
+	public boolean isTrustExistingResources() {
+		return this.trustExistingResources;
+	}
+
+	public void setTrustExistingResources(boolean trustExistingResources) {
+		this.trustExistingResources = trustExistingResources;
+	}
 }
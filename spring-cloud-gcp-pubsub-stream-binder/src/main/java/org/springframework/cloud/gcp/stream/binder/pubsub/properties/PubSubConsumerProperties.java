@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.gcp.stream.binder.pubsub.properties;
 
+import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+
 /**
  * @author João André Martins
  * @author Daniel Zou
@@ -23,4 +25,121 @@ package org.springframework.cloud.gcp.stream.binder.pubsub.properties;
  */
 public class PubSubConsumerProperties extends PubSubCommonProperties {
 
+	/**
+	 * Maximum number of messages received by the binding but not yet acked or nacked. The flow
+	 * control configured for the application applies if neither limit is set.
+	 */
+	private Long maxOutstandingElementCount;
+
+	/**
+	 * Maximum total size in bytes of the messages received by the binding but not yet acked or
+	 * nacked.
+	 */
+	private Long maxOutstandingRequestBytes;
+
+	/**
+	 * Number of streams the binding pulls messages over.
+	 */
+	private Integer parallelPullCount;
+
+	/**
+	 * Number of threads the binding processes messages on. The executor configured for the
+	 * application is shared if not set.
+	 */
+	private Integer executorThreads;
+
+	/**
+	 * How received messages are acknowledged.
+	 */
+	private AckMode ackMode = AckMode.AUTO;
+
+	/**
+	 * Number of messages after which a batch is delivered. Messages are delivered one at a time
+	 * if not set.
+	 */
+	private Long batchMaxMessages;
+
+	/**
+	 * Total size in bytes of the messages after which a batch is delivered.
+	 */
+	private Long batchMaxBytes;
+
+	/**
+	 * Time in milliseconds after the first message of a batch was received, after which the batch
+	 * is delivered even if it isn't full.
+	 */
+	private Long batchDelayMillis;
+
+	public Long getMaxOutstandingElementCount() {
+		return this.maxOutstandingElementCount;
+	}
+
+	public void setMaxOutstandingElementCount(Long maxOutstandingElementCount) {
+		this.maxOutstandingElementCount = maxOutstandingElementCount;
+	}
+
+	public Long getMaxOutstandingRequestBytes() {
+		return this.maxOutstandingRequestBytes;
+	}
+
+	public void setMaxOutstandingRequestBytes(Long maxOutstandingRequestBytes) {
+		this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+	}
+
+	public Integer getParallelPullCount() {
+		return this.parallelPullCount;
+	}
+
+	public void setParallelPullCount(Integer parallelPullCount) {
+		this.parallelPullCount = parallelPullCount;
+	}
+
+	public Integer getExecutorThreads() {
+		return this.executorThreads;
+	}
+
+	public void setExecutorThreads(Integer executorThreads) {
+		this.executorThreads = executorThreads;
+	}
+
+	public AckMode getAckMode() {
+		return this.ackMode;
+	}
+
+	public void setAckMode(AckMode ackMode) {
+		this.ackMode = ackMode;
+	}
+
+	public Long getBatchMaxMessages() {
+		return this.batchMaxMessages;
+	}
+
+	public void setBatchMaxMessages(Long batchMaxMessages) {
+		this.batchMaxMessages = batchMaxMessages;
+	}
+
+	public Long getBatchMaxBytes() {
+		return this.batchMaxBytes;
+	}
+
+	public void setBatchMaxBytes(Long batchMaxBytes) {
+		this.batchMaxBytes = batchMaxBytes;
+	}
+
+	public Long getBatchDelayMillis() {
+		return this.batchDelayMillis;
+	}
+
+	public void setBatchDelayMillis(Long batchDelayMillis) {
+		this.batchDelayMillis = batchDelayMillis;
+	}
+
+	public boolean hasSubscriberSettings() {
+		return this.maxOutstandingElementCount != null || this.maxOutstandingRequestBytes != null
+				|| this.parallelPullCount != null || this.executorThreads != null;
+	}
+
+	public boolean isBatchDelivery() {
+		return this.batchMaxMessages != null || this.batchMaxBytes != null;
+	}
 }
@@ -16,9 +16,176 @@
 
 package org.springframework.cloud.gcp.stream.binder.pubsub.properties;
 
+import org.springframework.cloud.gcp.pubsub.core.publisher.PublishFlowController;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
+
 /**
  * @author João André Martins
  * @author Daniel Zou
  */
 public class PubSubProducerProperties extends PubSubCommonProperties {
+
+	/**
+	 * The codec used to compress the payloads published by the binding. Payloads are compressed
+	 * as configured for the application if not set.
+	 */
+	private CompressingPubSubMessageConverter.Codec compressionCodec;
+
+	/**
+	 * The minimum payload size in bytes for a payload to be compressed with the compression codec.
+	 */
+	private int compressionThresholdBytes = 1024;
+
+	/**
+	 * Maximum number of messages published by the binding but not yet acknowledged by Pub/Sub.
+	 * The flow control configured for the application applies if neither limit is set.
+	 */
+	private Long maxOutstandingElementCount;
+
+	/**
+	 * Maximum total size in bytes of the messages published by the binding but not yet
+	 * acknowledged by Pub/Sub.
+	 */
+	private Long maxOutstandingRequestBytes;
+
+	/**
+	 * The behavior when publishing a message would exceed the binding's limits.
+	 */
+	private PublishFlowController.LimitExceededBehavior limitExceededBehavior =
+			PublishFlowController.LimitExceededBehavior.BLOCK;
+
+	/**
+	 * The number of messages that makes the binding's publisher send a batch. The batching
+	 * configured for the application applies if no batching property is set.
+	 */
+	private Long batchElementCountThreshold;
+
+	/**
+	 * The size in bytes that makes the binding's publisher send a batch.
+	 */
+	private Long batchRequestByteThreshold;
+
+	/**
+	 * How long in milliseconds the binding's publisher waits for a batch to fill up before
+	 * sending it.
+	 */
+	private Long batchDelayThresholdMillis;
+
+	/**
+	 * Number of threads used by the binding's publisher. The executor configured for the
+	 * application is used if not set.
+	 */
+	private Integer executorThreads;
+
+	/**
+	 * Whether sending a message waits for Pub/Sub to acknowledge it.
+	 */
+	private boolean sync;
+
+	/**
+	 * Number of messages a synchronous binding may have published but not yet acknowledged by
+	 * Pub/Sub before sending waits for the oldest one.
+	 */
+	private int maxOutstandingPublishes = 1;
+
+	public CompressingPubSubMessageConverter.Codec getCompressionCodec() {
+		return this.compressionCodec;
+	}
+
+	public void setCompressionCodec(CompressingPubSubMessageConverter.Codec compressionCodec) {
+		this.compressionCodec = compressionCodec;
+	}
+
+	public int getCompressionThresholdBytes() {
+		return this.compressionThresholdBytes;
+	}
+
+	public void setCompressionThresholdBytes(int compressionThresholdBytes) {
+		this.compressionThresholdBytes = compressionThresholdBytes;
+	}
+
+	public Long getMaxOutstandingElementCount() {
+		return this.maxOutstandingElementCount;
+	}
+
+	public void setMaxOutstandingElementCount(Long maxOutstandingElementCount) {
+		this.maxOutstandingElementCount = maxOutstandingElementCount;
+	}
+
+	public Long getMaxOutstandingRequestBytes() {
+		return this.maxOutstandingRequestBytes;
+	}
+
+	public void setMaxOutstandingRequestBytes(Long maxOutstandingRequestBytes) {
+		this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+	}
+
+	public PublishFlowController.LimitExceededBehavior getLimitExceededBehavior() {
+		return this.limitExceededBehavior;
+	}
+
+	public void setLimitExceededBehavior(PublishFlowController.LimitExceededBehavior limitExceededBehavior) {
+		this.limitExceededBehavior = limitExceededBehavior;
+	}
+
+	public Long getBatchElementCountThreshold() {
+		return this.batchElementCountThreshold;
+	}
+
+	public void setBatchElementCountThreshold(Long batchElementCountThreshold) {
+		this.batchElementCountThreshold = batchElementCountThreshold;
+	}
+
+	public Long getBatchRequestByteThreshold() {
+		return this.batchRequestByteThreshold;
+	}
+
+	public void setBatchRequestByteThreshold(Long batchRequestByteThreshold) {
+		this.batchRequestByteThreshold = batchRequestByteThreshold;
+	}
+
+	public Long getBatchDelayThresholdMillis() {
+		return this.batchDelayThresholdMillis;
+	}
+
+	public void setBatchDelayThresholdMillis(Long batchDelayThresholdMillis) {
+		this.batchDelayThresholdMillis = batchDelayThresholdMillis;
+	}
+
+	public Integer getExecutorThreads() {
+		return this.executorThreads;
+	}
+
+	public void setExecutorThreads(Integer executorThreads) {
+		this.executorThreads = executorThreads;
+	}
+
+	public boolean isSync() {
+		return this.sync;
+	}
+
+	public void setSync(boolean sync) {
+		this.sync = sync;
+	}
+
+	public int getMaxOutstandingPublishes() {
+		return this.maxOutstandingPublishes;
+	}
+
+	public void setMaxOutstandingPublishes(int maxOutstandingPublishes) {
+		this.maxOutstandingPublishes = maxOutstandingPublishes;
+	}
+
+	public boolean hasFlowControlLimits() {
+		return this.maxOutstandingElementCount != null || this.maxOutstandingRequestBytes != null;
+	}
+
+	public boolean hasBatchingSettings() {
+		return this.batchElementCountThreshold != null || this.batchRequestByteThreshold != null
+				|| this.batchDelayThresholdMillis != null;
+	}
+
+	public boolean hasPublisherSettings() {
+		return hasBatchingSettings() || this.executorThreads != null;
+	}
 }
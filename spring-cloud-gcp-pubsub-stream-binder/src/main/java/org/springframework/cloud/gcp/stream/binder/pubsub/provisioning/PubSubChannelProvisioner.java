@@ -16,9 +16,13 @@
 
 package org.springframework.cloud.gcp.stream.binder.pubsub.provisioning;
 
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import com.google.pubsub.v1.Subscription;
 import com.google.pubsub.v1.Topic;
@@ -34,9 +38,17 @@ import org.springframework.cloud.stream.provisioning.ConsumerDestination;
 import org.springframework.cloud.stream.provisioning.ProducerDestination;
 import org.springframework.cloud.stream.provisioning.ProvisioningException;
 import org.springframework.cloud.stream.provisioning.ProvisioningProvider;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 /**
+ * Provisions the topics and subscriptions of the Pub/Sub bindings.
+ *
+ * <p>Topics and subscriptions that were found or created are remembered, so that bindings sharing
+ * them don't look them up again. A consumer binding's subscription is looked up while its topic is
+ * being checked.
+ *
  * @author João André Martins
  * @author Mike Eltsufin
  */
@@ -48,17 +60,42 @@ public class PubSubChannelProvisioner
 
 	private final PubSubAdmin pubSubAdmin;
 
-	private final Set<String> anonymousGroupSubscriptionNames = new HashSet<>();
+	private final Set<String> anonymousGroupSubscriptionNames = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Topics found or created by this provisioner, by name.
+	 */
+	private final Map<String, Topic> provisionedTopics = new ConcurrentHashMap<>();
+
+	/**
+	 * Names of the subscriptions found or created by this provisioner, for the expected topic.
+	 */
+	private final Set<String> provisionedSubscriptions = ConcurrentHashMap.newKeySet();
+
+	private Executor provisioningExecutor = new SimpleAsyncTaskExecutor("gcp-pubsub-provisioning-");
 
 	public PubSubChannelProvisioner(PubSubAdmin pubSubAdmin) {
 		this.pubSubAdmin = pubSubAdmin;
 	}
 
+	/**
+	 * Set the executor that looks up subscriptions while their topics are being checked.
+	 * A new thread is used for each lookup by default.
+	 * @param provisioningExecutor the executor for subscription lookups
+	 * @since 1.1
+	 */
+	public void setProvisioningExecutor(Executor provisioningExecutor) {
+		Assert.notNull(provisioningExecutor, "The provisioningExecutor can't be null.");
+		this.provisioningExecutor = provisioningExecutor;
+	}
+
 	@Override
 	public ProducerDestination provisionProducerDestination(String topic,
 			ExtendedProducerProperties<PubSubProducerProperties> properties)
 			throws ProvisioningException {
-		makeSureTopicExists(topic, properties.getExtension().isAutoCreateResources());
+		if (!properties.getExtension().isTrustExistingResources()) {
+			makeSureTopicExists(topic, properties.getExtension().isAutoCreateResources());
+		}
 
 		return new PubSubProducerDestination(topic);
 	}
@@ -67,26 +104,35 @@ public class PubSubChannelProvisioner
 	public ConsumerDestination provisionConsumerDestination(String topicName, String group,
 			ExtendedConsumerProperties<PubSubConsumerProperties> properties)
 			throws ProvisioningException {
+		PubSubConsumerProperties consumerProperties = properties.getExtension();
 
-		Topic topic = makeSureTopicExists(topicName, properties.getExtension().isAutoCreateResources());
+		if (!StringUtils.hasText(group)) {
+			if (!consumerProperties.isTrustExistingResources()) {
+				makeSureTopicExists(topicName, consumerProperties.isAutoCreateResources());
+			}
 
-		String subscriptionName;
-		Subscription subscription;
-		if (StringUtils.hasText(group)) {
-			// Use <topicName>.<group> as subscription name
-			subscriptionName = topicName + "." + group;
-			subscription = this.pubSubAdmin.getSubscription(subscriptionName);
-		}
-		else {
 			// Generate anonymous random group since one wasn't provided
-			subscriptionName = "anonymous." + topicName + "." + UUID.randomUUID().toString();
-			subscription = this.pubSubAdmin.createSubscription(subscriptionName, topicName);
+			String subscriptionName = "anonymous." + topicName + "." + UUID.randomUUID().toString();
+			this.pubSubAdmin.createSubscription(subscriptionName, topicName);
 			this.anonymousGroupSubscriptionNames.add(subscriptionName);
+			return new PubSubConsumerDestination(subscriptionName);
 		}
 
+		// Use <topicName>.<group> as subscription name
+		String subscriptionName = topicName + "." + group;
+		if (consumerProperties.isTrustExistingResources()
+				|| this.provisionedSubscriptions.contains(subscriptionName)) {
+			return new PubSubConsumerDestination(subscriptionName);
+		}
+
+		CompletableFuture<Subscription> subscriptionFuture = CompletableFuture.supplyAsync(
+				() -> this.pubSubAdmin.getSubscription(subscriptionName), this.provisioningExecutor);
+		Topic topic = makeSureTopicExists(topicName, consumerProperties.isAutoCreateResources());
+		Subscription subscription = join(subscriptionFuture, subscriptionName);
+
 		// make sure subscription exists
 		if (subscription == null) {
-			if (properties.getExtension().isAutoCreateResources()) {
+			if (consumerProperties.isAutoCreateResources()) {
 				this.pubSubAdmin.createSubscription(subscriptionName, topicName);
 			}
 			else {
@@ -98,6 +144,7 @@ public class PubSubChannelProvisioner
 					"Existing '" + subscriptionName + "' subscription is for a different topic '"
 							+ subscription.getTopic() + "'.");
 		}
+		this.provisionedSubscriptions.add(subscriptionName);
 		return new PubSubConsumerDestination(subscriptionName);
 	}
 
@@ -113,7 +160,12 @@ public class PubSubChannelProvisioner
 	}
 
 	private Topic makeSureTopicExists(String topicName, boolean autoCreate) {
-		Topic topic = this.pubSubAdmin.getTopic(topicName);
+		Topic topic = this.provisionedTopics.get(topicName);
+		if (topic != null) {
+			return topic;
+		}
+
+		topic = this.pubSubAdmin.getTopic(topicName);
 		if (topic == null) {
 			if (autoCreate) {
 				topic = this.pubSubAdmin.createTopic(topicName);
@@ -123,6 +175,20 @@ public class PubSubChannelProvisioner
 			}
 		}
 
+		this.provisionedTopics.put(topicName, topic);
 		return topic;
 	}
+
+	private static <T> T join(CompletableFuture<T> future, String subscriptionName) {
+		try {
+			return future.join();
+		}
+		catch (CompletionException ce) {
+			if (ce.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ce.getCause();
+			}
+			throw new ProvisioningException("Failed to look up the '" + subscriptionName + "' subscription.",
+					ce.getCause());
+		}
+	}
 }
@@ -23,13 +23,30 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import org.springframework.cloud.gcp.pubsub.core.PubSubTemplate;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherTemplate;
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+import org.springframework.cloud.gcp.pubsub.integration.inbound.PubSubInboundChannelAdapter;
+import org.springframework.cloud.gcp.pubsub.integration.outbound.PubSubMessageHandler;
+import org.springframework.cloud.gcp.pubsub.support.DefaultPublisherFactory;
+import org.springframework.cloud.gcp.pubsub.support.DefaultSubscriberFactory;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubConsumerProperties;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
+import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubProducerProperties;
 import org.springframework.cloud.gcp.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
 import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
 import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.integration.channel.QueueChannel;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Mike Eltsufin
@@ -56,6 +73,18 @@ public class PubSubMessageChannelBinderTests {
 	@Mock
 	ExtendedConsumerProperties<PubSubConsumerProperties> consumerProperties;
 
+	@Mock
+	PubSubSubscriberTemplate pubSubSubscriberTemplate;
+
+	@Mock
+	PubSubMetrics pubSubMetrics;
+
+	@Mock
+	ProducerDestination producerDestination;
+
+	@Mock
+	ExtendedProducerProperties<PubSubProducerProperties> producerProperties;
+
 	@Before
 	public void before() {
 		this.binder = new PubSubMessageChannelBinder(new String[0], this.channelProvisioner, this.pubSubTemplate,
@@ -69,4 +98,57 @@ public class PubSubMessageChannelBinderTests {
 		verify(this.channelProvisioner).afterUnbindConsumer(this.consumerDestination);
 	}
 
+	@Test
+	public void testConsumerEndpointWithBindingSubscriberSettings() {
+		PubSubConsumerProperties extension = new PubSubConsumerProperties();
+		extension.setMaxOutstandingElementCount(500L);
+		extension.setExecutorThreads(8);
+		extension.setAckMode(AckMode.AUTO_ACK);
+		extension.setBatchMaxMessages(50L);
+		when(this.consumerProperties.getExtension()).thenReturn(extension);
+		when(this.consumerDestination.getName()).thenReturn("hot-subscription");
+		when(this.pubSubTemplate.getSubscriberFactory()).thenReturn(new DefaultSubscriberFactory(() -> "project"));
+		when(this.pubSubTemplate.getPubSubSubscriberTemplate()).thenReturn(this.pubSubSubscriberTemplate);
+		when(this.pubSubSubscriberTemplate.getPubSubMetrics()).thenReturn(this.pubSubMetrics);
+		this.binder.setApplicationContext(new GenericApplicationContext());
+
+		PubSubInboundChannelAdapter adapter = (PubSubInboundChannelAdapter) this.binder.createConsumerEndpoint(
+				this.consumerDestination, "group1", this.consumerProperties);
+
+		assertThat(adapter.getAckMode()).isEqualTo(AckMode.AUTO_ACK);
+		assertThat(adapter.getPubSubMetrics()).isSameAs(this.pubSubMetrics);
+		assertThat(adapter.getBatchingSettings().getElementCountThreshold()).isEqualTo(50L);
+		assertThat(adapter.getBatchingSettings().getRequestByteThreshold()).isNull();
+		assertThat(adapter.getBatchingSettings().getDelayThreshold()).isNull();
+		verify(this.pubSubSubscriberTemplate).setSubscriberFactory(eq("hot-subscription"),
+				isA(DefaultSubscriberFactory.class));
+
+		this.binder.afterUnbindConsumer(this.consumerDestination, "group1", this.consumerProperties);
+		verify(this.pubSubSubscriberTemplate).setSubscriberFactory("hot-subscription", null);
+	}
+
+	@Test
+	public void testProducerMessageHandlerWithBindingPublisherSettings() {
+		PubSubProducerProperties extension = new PubSubProducerProperties();
+		extension.setBatchElementCountThreshold(1000L);
+		extension.setExecutorThreads(2);
+		extension.setSync(true);
+		extension.setMaxOutstandingPublishes(10);
+		when(this.producerProperties.getExtension()).thenReturn(extension);
+		when(this.producerDestination.getName()).thenReturn("telemetry");
+		DefaultPublisherFactory sharedFactory = new DefaultPublisherFactory(() -> "project");
+		when(this.pubSubTemplate.getPubSubPublisherTemplate()).thenReturn(new PubSubPublisherTemplate(sharedFactory));
+		this.binder.setApplicationContext(new GenericApplicationContext());
+		QueueChannel errorChannel = new QueueChannel();
+
+		PubSubMessageHandler messageHandler = (PubSubMessageHandler) this.binder.createProducerMessageHandler(
+				this.producerDestination, this.producerProperties, errorChannel);
+
+		assertThat(messageHandler.isSync()).isTrue();
+		assertThat(messageHandler.getMaxOutstandingPublishes()).isEqualTo(10);
+		assertThat(messageHandler.getFailureChannel()).isSameAs(errorChannel);
+
+		this.binder.afterUnbindProducer(this.producerDestination, this.producerProperties);
+	}
+
 }
@@ -91,6 +91,31 @@ public class PubSubChannelProvisionerTests {
 		verify(this.pubSubAdminMock).createSubscription("topic_A.group_A", "topic_A");
 	}
 
+	@Test
+	public void testProvisionConsumerDestination_sharedTopicLookedUpOnce() {
+		this.pubSubChannelProvisioner.provisionConsumerDestination("topic_A", "group_A", this.properties);
+		this.pubSubChannelProvisioner.provisionConsumerDestination("topic_A", "group_A", this.properties);
+		this.pubSubChannelProvisioner.provisionConsumerDestination("topic_A", "group_B", this.properties);
+
+		verify(this.pubSubAdminMock, times(1)).getTopic("topic_A");
+		verify(this.pubSubAdminMock, times(1)).getSubscription("topic_A.group_A");
+		verify(this.pubSubAdminMock, times(1)).createSubscription("topic_A.group_A", "topic_A");
+		verify(this.pubSubAdminMock, times(1)).createSubscription("topic_A.group_B", "topic_A");
+	}
+
+	@Test
+	public void testProvisionConsumerDestination_trustExistingResources() {
+		when(this.pubSubConsumerProperties.isTrustExistingResources()).thenReturn(true);
+
+		PubSubConsumerDestination result = (PubSubConsumerDestination) this.pubSubChannelProvisioner
+				.provisionConsumerDestination("topic_A", "group_A", this.properties);
+
+		assertThat(result.getName()).isEqualTo("topic_A.group_A");
+		verify(this.pubSubAdminMock, never()).getTopic(any());
+		verify(this.pubSubAdminMock, never()).getSubscription(any());
+		verify(this.pubSubAdminMock, never()).createSubscription(any(), any());
+	}
+
 	@Test
 	public void testProvisionConsumerDestination_noTopicException() {
 		this.expectedEx.expect(ProvisioningException.class);
@@ -0,0 +1,899 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.google.api.gax.core.CredentialsProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.cloud.pubsub.v1.SubscriptionAdminClient;
+import com.google.cloud.pubsub.v1.SubscriptionAdminSettings;
+import com.google.cloud.pubsub.v1.TopicAdminClient;
+import com.google.cloud.pubsub.v1.TopicAdminSettings;
+import com.google.protobuf.Empty;
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.DeleteSubscriptionRequest;
+import com.google.pubsub.v1.DeleteTopicRequest;
+import com.google.pubsub.v1.GetSubscriptionRequest;
+import com.google.pubsub.v1.GetTopicRequest;
+import com.google.pubsub.v1.ListSubscriptionsRequest;
+import com.google.pubsub.v1.ListSubscriptionsResponse;
+import com.google.pubsub.v1.ListTopicsRequest;
+import com.google.pubsub.v1.ListTopicsResponse;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.ProjectTopicName;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.PullRequest;
+import com.google.pubsub.v1.PullResponse;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.google.pubsub.v1.StreamingPullResponse;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.SubscriberGrpc;
+import com.google.pubsub.v1.Topic;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.threeten.bp.Duration;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gcp.pubsub.PubSubAdmin;
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.cloud.gcp.pubsub.support.DefaultPublisherFactory;
+import org.springframework.cloud.gcp.pubsub.support.DefaultSubscriberFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * An in-memory stand-in for Google Cloud Pub/Sub, for tests and benchmarks that need neither
+ * the service nor its emulator.
+ *
+ * <p>The topics, subscriptions and messages are kept in memory, and served over an in-process
+ * gRPC channel. The regular Pub/Sub clients, and so the publisher and subscriber factories, the
+ * templates, the channel adapters and the binder, work against it unchanged, with all of their
+ * executor, flow control and batching settings.
+ *
+ * <p>A published message is delivered to every subscription of its topic existing at the time,
+ * through either synchronous or streaming pulls. Messages that are nacked, or whose ack deadline
+ * expires, are delivered again. To mimic the behavior of the service, publish calls and message
+ * deliveries can be delayed, publish and pull calls can fail with {@code UNAVAILABLE}, which the
+ * clients retry, and acknowledged messages can be delivered again.
+ *
+ * @since 1.1
+ */
+public class InMemoryPubSub implements DisposableBean {
+
+	/**
+	 * The ack deadline of subscriptions created without one.
+	 */
+	private static final int DEFAULT_ACK_DEADLINE_SECONDS = 10;
+
+	/**
+	 * The maximum number of messages in a streaming pull response.
+	 */
+	private static final int MAX_MESSAGES_PER_RESPONSE = 1000;
+
+	/**
+	 * How long a synchronous pull that doesn't return immediately waits for messages.
+	 */
+	private static final long PULL_WAIT_MILLIS = 100;
+
+	/**
+	 * How often expired ack deadlines are looked for.
+	 */
+	private static final long ACK_DEADLINE_CHECK_MILLIS = 100;
+
+	private final String projectId;
+
+	private final Server server;
+
+	private final ManagedChannel channel;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+	private final Map<String, SubscriptionState> subscriptions = new ConcurrentHashMap<>();
+
+	private final AtomicLong messageIds = new AtomicLong();
+
+	private final AtomicLong ackIds = new AtomicLong();
+
+	private final AtomicLong injectedFailures = new AtomicLong();
+
+	private volatile Duration publishLatency = Duration.ZERO;
+
+	private volatile Duration deliveryLatency = Duration.ZERO;
+
+	private volatile double publishErrorRate;
+
+	private volatile double pullErrorRate;
+
+	private volatile double redeliveryRate;
+
+	/**
+	 * Start an in-memory Pub/Sub for the given project.
+	 * @param projectId the project the topics and subscriptions belong to
+	 */
+	public InMemoryPubSub(String projectId) {
+		Assert.hasText(projectId, "The project ID can't be null or empty.");
+		this.projectId = projectId;
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("in-memory-pubsub-");
+		threadFactory.setDaemon(true);
+		this.scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(),
+				threadFactory);
+
+		String serverName = "in-memory-pubsub-" + UUID.randomUUID();
+		try {
+			this.server = InProcessServerBuilder.forName(serverName)
+					.addService(new PublisherService())
+					.addService(new SubscriberService())
+					.build()
+					.start();
+		}
+		catch (IOException ioe) {
+			this.scheduler.shutdownNow();
+			throw new PubSubException("Couldn't start the in-memory Pub/Sub server.", ioe);
+		}
+		this.channel = InProcessChannelBuilder.forName(serverName).build();
+
+		this.scheduler.scheduleWithFixedDelay(this::expireAckDeadlines, ACK_DEADLINE_CHECK_MILLIS,
+				ACK_DEADLINE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	public String getProjectId() {
+		return this.projectId;
+	}
+
+	/**
+	 * Return a provider of the channel to this Pub/Sub, for clients configured by hand.
+	 * @return the transport channel provider
+	 */
+	public TransportChannelProvider getTransportChannelProvider() {
+		return FixedTransportChannelProvider.create(GrpcTransportChannel.create(this.channel));
+	}
+
+	public CredentialsProvider getCredentialsProvider() {
+		return NoCredentialsProvider.create();
+	}
+
+	/**
+	 * Create a publisher factory connected to this Pub/Sub, which can be further configured like
+	 * any other.
+	 * @return the publisher factory, which should be destroyed once no longer needed
+	 */
+	public DefaultPublisherFactory createPublisherFactory() {
+		DefaultPublisherFactory publisherFactory = new DefaultPublisherFactory(this::getProjectId);
+		publisherFactory.setChannelProvider(getTransportChannelProvider());
+		publisherFactory.setCredentialsProvider(getCredentialsProvider());
+		return publisherFactory;
+	}
+
+	/**
+	 * Create a subscriber factory connected to this Pub/Sub, which can be further configured like
+	 * any other. Its subscribers stream messages, and its subscriber stubs pull them.
+	 * @return the subscriber factory
+	 */
+	public DefaultSubscriberFactory createSubscriberFactory() {
+		DefaultSubscriberFactory subscriberFactory = new DefaultSubscriberFactory(this::getProjectId);
+		subscriberFactory.setChannelProvider(getTransportChannelProvider());
+		subscriberFactory.setCredentialsProvider(getCredentialsProvider());
+		return subscriberFactory;
+	}
+
+	/**
+	 * Create an admin connected to this Pub/Sub.
+	 * @return the admin, which should be closed once no longer needed
+	 */
+	public PubSubAdmin createPubSubAdmin() {
+		try {
+			TopicAdminClient topicAdminClient = TopicAdminClient.create(TopicAdminSettings.newBuilder()
+					.setTransportChannelProvider(getTransportChannelProvider())
+					.setCredentialsProvider(getCredentialsProvider())
+					.build());
+			SubscriptionAdminClient subscriptionAdminClient = SubscriptionAdminClient.create(
+					SubscriptionAdminSettings.newBuilder()
+							.setTransportChannelProvider(getTransportChannelProvider())
+							.setCredentialsProvider(getCredentialsProvider())
+							.build());
+			return new PubSubAdmin(this::getProjectId, topicAdminClient, subscriptionAdminClient);
+		}
+		catch (IOException ioe) {
+			throw new PubSubException("Couldn't create the Pub/Sub admin clients.", ioe);
+		}
+	}
+
+	/**
+	 * Create a topic, unless it already exists.
+	 * @param topicName the short name of the topic
+	 */
+	public void createTopic(String topicName) {
+		String name = ProjectTopicName.of(this.projectId, topicName).toString();
+		this.topics.putIfAbsent(name, Topic.newBuilder().setName(name).build());
+	}
+
+	/**
+	 * Create a subscription with the default ack deadline, unless it already exists.
+	 * @param subscriptionName the short name of the subscription
+	 * @param topicName the short name of the existing topic to subscribe to
+	 */
+	public void createSubscription(String subscriptionName, String topicName) {
+		String topic = ProjectTopicName.of(this.projectId, topicName).toString();
+		Assert.isTrue(this.topics.containsKey(topic), "The topic " + topicName + " doesn't exist.");
+		String name = ProjectSubscriptionName.of(this.projectId, subscriptionName).toString();
+		this.subscriptions.computeIfAbsent(name, key -> new SubscriptionState(Subscription.newBuilder()
+				.setName(name)
+				.setTopic(topic)
+				.setAckDeadlineSeconds(DEFAULT_ACK_DEADLINE_SECONDS)
+				.build()));
+	}
+
+	/**
+	 * Return the number of messages of a subscription that weren't acknowledged yet, whether
+	 * they're waiting to be delivered or are being processed.
+	 * @param subscriptionName the short name of the subscription
+	 * @return the number of unacknowledged messages
+	 */
+	public int getUnackedMessageCount(String subscriptionName) {
+		SubscriptionState subscription = this.subscriptions.get(
+				ProjectSubscriptionName.of(this.projectId, subscriptionName).toString());
+		Assert.notNull(subscription, "The subscription " + subscriptionName + " doesn't exist.");
+		return subscription.getUnackedMessageCount();
+	}
+
+	/**
+	 * Return the number of publish and pull calls that were failed on purpose.
+	 * @return the number of injected failures
+	 */
+	public long getInjectedFailureCount() {
+		return this.injectedFailures.get();
+	}
+
+	public Duration getPublishLatency() {
+		return this.publishLatency;
+	}
+
+	/**
+	 * Set how long publish calls take to complete. Published messages are delivered regardless.
+	 * @param publishLatency the publish latency
+	 */
+	public void setPublishLatency(Duration publishLatency) {
+		Assert.isTrue(publishLatency != null && !publishLatency.isNegative(),
+				"The publish latency can't be null or negative.");
+		this.publishLatency = publishLatency;
+	}
+
+	public Duration getDeliveryLatency() {
+		return this.deliveryLatency;
+	}
+
+	/**
+	 * Set how long published messages take to become available to subscribers.
+	 * @param deliveryLatency the delivery latency
+	 */
+	public void setDeliveryLatency(Duration deliveryLatency) {
+		Assert.isTrue(deliveryLatency != null && !deliveryLatency.isNegative(),
+				"The delivery latency can't be null or negative.");
+		this.deliveryLatency = deliveryLatency;
+	}
+
+	public double getPublishErrorRate() {
+		return this.publishErrorRate;
+	}
+
+	/**
+	 * Set the fraction of publish calls that fail with {@code UNAVAILABLE} without publishing
+	 * anything.
+	 * @param publishErrorRate the publish error rate, between 0 and 1
+	 */
+	public void setPublishErrorRate(double publishErrorRate) {
+		Assert.isTrue(publishErrorRate >= 0 && publishErrorRate <= 1,
+				"The publish error rate must be between 0 and 1.");
+		this.publishErrorRate = publishErrorRate;
+	}
+
+	public double getPullErrorRate() {
+		return this.pullErrorRate;
+	}
+
+	/**
+	 * Set the fraction of synchronous pull calls, and of streaming pulls being opened, that fail
+	 * with {@code UNAVAILABLE}.
+	 * @param pullErrorRate the pull error rate, between 0 and 1
+	 */
+	public void setPullErrorRate(double pullErrorRate) {
+		Assert.isTrue(pullErrorRate >= 0 && pullErrorRate <= 1, "The pull error rate must be between 0 and 1.");
+		this.pullErrorRate = pullErrorRate;
+	}
+
+	public double getRedeliveryRate() {
+		return this.redeliveryRate;
+	}
+
+	/**
+	 * Set the fraction of delivered messages that are delivered once more shortly after, even if
+	 * they're acknowledged, like the service occasionally does.
+	 * @param redeliveryRate the redelivery rate, between 0 and 1
+	 */
+	public void setRedeliveryRate(double redeliveryRate) {
+		Assert.isTrue(redeliveryRate >= 0 && redeliveryRate <= 1, "The redelivery rate must be between 0 and 1.");
+		this.redeliveryRate = redeliveryRate;
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		this.channel.shutdownNow();
+		this.server.shutdownNow();
+		this.scheduler.shutdownNow();
+		this.server.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	private void publish(String topic, List<PubsubMessage> messages) {
+		for (SubscriptionState subscription : this.subscriptions.values()) {
+			if (subscription.getTopic().equals(topic)) {
+				subscription.add(messages);
+			}
+		}
+	}
+
+	private void expireAckDeadlines() {
+		long nowNanos = System.nanoTime();
+		for (SubscriptionState subscription : this.subscriptions.values()) {
+			subscription.expireAckDeadlines(nowNanos);
+		}
+	}
+
+	private void runAfter(Duration delay, Runnable task) {
+		if (delay.isZero()) {
+			task.run();
+		}
+		else {
+			this.scheduler.schedule(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private boolean injectFailure(double errorRate) {
+		if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+			this.injectedFailures.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	private static StatusRuntimeException injectedFailure() {
+		return Status.UNAVAILABLE.withDescription("Injected failure.").asRuntimeException();
+	}
+
+	private static StatusRuntimeException notFound(String name) {
+		return Status.NOT_FOUND.withDescription("Resource not found (resource=" + name + ").")
+				.asRuntimeException();
+	}
+
+	private static StatusRuntimeException alreadyExists(String name) {
+		return Status.ALREADY_EXISTS.withDescription("Resource already exists (resource=" + name + ").")
+				.asRuntimeException();
+	}
+
+	private static <T> void complete(StreamObserver<T> responseObserver, T response) {
+		responseObserver.onNext(response);
+		responseObserver.onCompleted();
+	}
+
+	/**
+	 * Serves the topic management and publish calls.
+	 */
+	private class PublisherService extends PublisherGrpc.PublisherImplBase {
+
+		@Override
+		public void createTopic(Topic request, StreamObserver<Topic> responseObserver) {
+			if (InMemoryPubSub.this.topics.putIfAbsent(request.getName(), request) != null) {
+				responseObserver.onError(alreadyExists(request.getName()));
+				return;
+			}
+			complete(responseObserver, request);
+		}
+
+		@Override
+		public void getTopic(GetTopicRequest request, StreamObserver<Topic> responseObserver) {
+			Topic topic = InMemoryPubSub.this.topics.get(request.getTopic());
+			if (topic == null) {
+				responseObserver.onError(notFound(request.getTopic()));
+				return;
+			}
+			complete(responseObserver, topic);
+		}
+
+		@Override
+		public void listTopics(ListTopicsRequest request, StreamObserver<ListTopicsResponse> responseObserver) {
+			String prefix = request.getProject() + "/topics/";
+			complete(responseObserver, ListTopicsResponse.newBuilder()
+					.addAllTopics(InMemoryPubSub.this.topics.values().stream()
+							.filter(topic -> topic.getName().startsWith(prefix))
+							.collect(Collectors.toList()))
+					.build());
+		}
+
+		@Override
+		public void deleteTopic(DeleteTopicRequest request, StreamObserver<Empty> responseObserver) {
+			if (InMemoryPubSub.this.topics.remove(request.getTopic()) == null) {
+				responseObserver.onError(notFound(request.getTopic()));
+				return;
+			}
+			complete(responseObserver, Empty.getDefaultInstance());
+		}
+
+		@Override
+		public void publish(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+			if (!InMemoryPubSub.this.topics.containsKey(request.getTopic())) {
+				responseObserver.onError(notFound(request.getTopic()));
+				return;
+			}
+			if (injectFailure(InMemoryPubSub.this.publishErrorRate)) {
+				responseObserver.onError(injectedFailure());
+				return;
+			}
+
+			long nowMillis = System.currentTimeMillis();
+			Timestamp publishTime = Timestamp.newBuilder()
+					.setSeconds(nowMillis / 1000)
+					.setNanos((int) (nowMillis % 1000) * 1000000)
+					.build();
+			List<PubsubMessage> messages = new ArrayList<>(request.getMessagesCount());
+			PublishResponse.Builder response = PublishResponse.newBuilder();
+			for (PubsubMessage message : request.getMessagesList()) {
+				String messageId = Long.toString(InMemoryPubSub.this.messageIds.incrementAndGet());
+				messages.add(message.toBuilder().setMessageId(messageId).setPublishTime(publishTime).build());
+				response.addMessageIds(messageId);
+			}
+
+			runAfter(InMemoryPubSub.this.deliveryLatency, () -> InMemoryPubSub.this.publish(request.getTopic(),
+					messages));
+			runAfter(InMemoryPubSub.this.publishLatency, () -> complete(responseObserver, response.build()));
+		}
+
+	}
+
+	/**
+	 * Serves the subscription management, pull and acknowledgement calls.
+	 */
+	private class SubscriberService extends SubscriberGrpc.SubscriberImplBase {
+
+		@Override
+		public void createSubscription(Subscription request, StreamObserver<Subscription> responseObserver) {
+			if (!InMemoryPubSub.this.topics.containsKey(request.getTopic())) {
+				responseObserver.onError(notFound(request.getTopic()));
+				return;
+			}
+			Subscription subscription = (request.getAckDeadlineSeconds() > 0) ? request
+					: request.toBuilder().setAckDeadlineSeconds(DEFAULT_ACK_DEADLINE_SECONDS).build();
+			if (InMemoryPubSub.this.subscriptions.putIfAbsent(request.getName(),
+					new SubscriptionState(subscription)) != null) {
+				responseObserver.onError(alreadyExists(request.getName()));
+				return;
+			}
+			complete(responseObserver, subscription);
+		}
+
+		@Override
+		public void getSubscription(GetSubscriptionRequest request,
+				StreamObserver<Subscription> responseObserver) {
+			SubscriptionState subscription = InMemoryPubSub.this.subscriptions.get(request.getSubscription());
+			if (subscription == null) {
+				responseObserver.onError(notFound(request.getSubscription()));
+				return;
+			}
+			complete(responseObserver, subscription.getSubscription());
+		}
+
+		@Override
+		public void listSubscriptions(ListSubscriptionsRequest request,
+				StreamObserver<ListSubscriptionsResponse> responseObserver) {
+			String prefix = request.getProject() + "/subscriptions/";
+			complete(responseObserver, ListSubscriptionsResponse.newBuilder()
+					.addAllSubscriptions(InMemoryPubSub.this.subscriptions.values().stream()
+							.map(SubscriptionState::getSubscription)
+							.filter(subscription -> subscription.getName().startsWith(prefix))
+							.collect(Collectors.toList()))
+					.build());
+		}
+
+		@Override
+		public void deleteSubscription(DeleteSubscriptionRequest request, StreamObserver<Empty> responseObserver) {
+			SubscriptionState subscription = InMemoryPubSub.this.subscriptions.remove(request.getSubscription());
+			if (subscription == null) {
+				responseObserver.onError(notFound(request.getSubscription()));
+				return;
+			}
+			subscription.close();
+			complete(responseObserver, Empty.getDefaultInstance());
+		}
+
+		@Override
+		public void acknowledge(AcknowledgeRequest request, StreamObserver<Empty> responseObserver) {
+			SubscriptionState subscription = InMemoryPubSub.this.subscriptions.get(request.getSubscription());
+			if (subscription == null) {
+				responseObserver.onError(notFound(request.getSubscription()));
+				return;
+			}
+			subscription.acknowledge(request.getAckIdsList());
+			complete(responseObserver, Empty.getDefaultInstance());
+		}
+
+		@Override
+		public void modifyAckDeadline(ModifyAckDeadlineRequest request, StreamObserver<Empty> responseObserver) {
+			SubscriptionState subscription = InMemoryPubSub.this.subscriptions.get(request.getSubscription());
+			if (subscription == null) {
+				responseObserver.onError(notFound(request.getSubscription()));
+				return;
+			}
+			subscription.modifyAckDeadlines(request.getAckIdsList(),
+					Collections.nCopies(request.getAckIdsCount(), request.getAckDeadlineSeconds()));
+			complete(responseObserver, Empty.getDefaultInstance());
+		}
+
+		@Override
+		public void pull(PullRequest request, StreamObserver<PullResponse> responseObserver) {
+			SubscriptionState subscription = InMemoryPubSub.this.subscriptions.get(request.getSubscription());
+			if (subscription == null) {
+				responseObserver.onError(notFound(request.getSubscription()));
+				return;
+			}
+			if (injectFailure(InMemoryPubSub.this.pullErrorRate)) {
+				responseObserver.onError(injectedFailure());
+				return;
+			}
+			complete(responseObserver, PullResponse.newBuilder()
+					.addAllReceivedMessages(subscription.pull(request.getMaxMessages(),
+							request.getReturnImmediately() ? 0 : PULL_WAIT_MILLIS))
+					.build());
+		}
+
+		@Override
+		public StreamObserver<StreamingPullRequest> streamingPull(
+				StreamObserver<StreamingPullResponse> responseObserver) {
+			return new StreamingPull((ServerCallStreamObserver<StreamingPullResponse>) responseObserver);
+		}
+
+	}
+
+	/**
+	 * The messages of a subscription, and the streaming pulls they're delivered through.
+	 */
+	private class SubscriptionState {
+
+		private final Subscription subscription;
+
+		private final Deque<PubsubMessage> pending = new ArrayDeque<>();
+
+		private final Map<String, OutstandingMessage> outstanding = new HashMap<>();
+
+		private final List<StreamingPull> streams = new CopyOnWriteArrayList<>();
+
+		private final AtomicInteger nextStream = new AtomicInteger();
+
+		SubscriptionState(Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		Subscription getSubscription() {
+			return this.subscription;
+		}
+
+		String getTopic() {
+			return this.subscription.getTopic();
+		}
+
+		void add(List<PubsubMessage> messages) {
+			synchronized (this) {
+				this.pending.addAll(messages);
+				notifyAll();
+			}
+			dispatch();
+		}
+
+		/**
+		 * Take messages waiting to be delivered, and count them as outstanding until they're
+		 * acknowledged or their ack deadline expires.
+		 */
+		synchronized List<ReceivedMessage> take(int maxMessages, int ackDeadlineSeconds) {
+			List<ReceivedMessage> messages = new ArrayList<>(Math.min(maxMessages, this.pending.size()));
+			List<PubsubMessage> redeliveries = new ArrayList<>();
+			long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(ackDeadlineSeconds);
+			while (messages.size() < maxMessages && !this.pending.isEmpty()) {
+				PubsubMessage message = this.pending.poll();
+				String ackId = Long.toString(InMemoryPubSub.this.ackIds.incrementAndGet());
+				this.outstanding.put(ackId, new OutstandingMessage(message, deadlineNanos));
+				messages.add(ReceivedMessage.newBuilder().setAckId(ackId).setMessage(message).build());
+				double redeliveryRate = InMemoryPubSub.this.redeliveryRate;
+				if (redeliveryRate > 0 && ThreadLocalRandom.current().nextDouble() < redeliveryRate) {
+					redeliveries.add(message);
+				}
+			}
+			this.pending.addAll(redeliveries);
+			return messages;
+		}
+
+		List<ReceivedMessage> pull(int maxMessages, long waitMillis) {
+			synchronized (this) {
+				long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+				long remainingNanos;
+				while (this.pending.isEmpty() && (remainingNanos = deadlineNanos - System.nanoTime()) > 0) {
+					try {
+						TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+					}
+					catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+				return take(maxMessages, this.subscription.getAckDeadlineSeconds());
+			}
+		}
+
+		void acknowledge(List<String> ackIds) {
+			if (ackIds.isEmpty()) {
+				return;
+			}
+			synchronized (this) {
+				ackIds.forEach(this.outstanding::remove);
+			}
+		}
+
+		void modifyAckDeadlines(List<String> ackIds, List<Integer> ackDeadlineSeconds) {
+			if (ackIds.isEmpty()) {
+				return;
+			}
+			boolean nacked = false;
+			synchronized (this) {
+				long nowNanos = System.nanoTime();
+				for (int i = 0; i < ackIds.size(); i++) {
+					int seconds = ackDeadlineSeconds.get(i);
+					if (seconds == 0) {
+						OutstandingMessage message = this.outstanding.remove(ackIds.get(i));
+						if (message != null) {
+							this.pending.addFirst(message.message);
+							nacked = true;
+						}
+					}
+					else {
+						OutstandingMessage message = this.outstanding.get(ackIds.get(i));
+						if (message != null) {
+							message.deadlineNanos = nowNanos + TimeUnit.SECONDS.toNanos(seconds);
+						}
+					}
+				}
+				if (nacked) {
+					notifyAll();
+				}
+			}
+			if (nacked) {
+				dispatch();
+			}
+		}
+
+		void expireAckDeadlines(long nowNanos) {
+			boolean expired = false;
+			synchronized (this) {
+				Iterator<OutstandingMessage> messages = this.outstanding.values().iterator();
+				while (messages.hasNext()) {
+					OutstandingMessage message = messages.next();
+					if (message.deadlineNanos - nowNanos <= 0) {
+						messages.remove();
+						this.pending.add(message.message);
+						expired = true;
+					}
+				}
+				if (expired) {
+					notifyAll();
+				}
+			}
+			if (expired) {
+				dispatch();
+			}
+		}
+
+		synchronized int getUnackedMessageCount() {
+			return this.pending.size() + this.outstanding.size();
+		}
+
+		void addStream(StreamingPull stream) {
+			this.streams.add(stream);
+			dispatch();
+		}
+
+		void removeStream(StreamingPull stream) {
+			this.streams.remove(stream);
+		}
+
+		/**
+		 * Push waiting messages to the streaming pulls ready for them, starting with a different
+		 * one every time so that messages are spread over them.
+		 */
+		void dispatch() {
+			StreamingPull[] streams = this.streams.toArray(new StreamingPull[0]);
+			if (streams.length == 0) {
+				return;
+			}
+			int first = Math.floorMod(this.nextStream.getAndIncrement(), streams.length);
+			for (int i = 0; i < streams.length; i++) {
+				streams[(first + i) % streams.length].dispatch();
+			}
+		}
+
+		void close() {
+			for (StreamingPull stream : this.streams) {
+				stream.fail(notFound(this.subscription.getName()));
+			}
+		}
+
+	}
+
+	/**
+	 * A message being processed by a subscriber.
+	 */
+	private static final class OutstandingMessage {
+
+		private final PubsubMessage message;
+
+		private long deadlineNanos;
+
+		OutstandingMessage(PubsubMessage message, long deadlineNanos) {
+			this.message = message;
+			this.deadlineNanos = deadlineNanos;
+		}
+
+	}
+
+	/**
+	 * A streaming pull, through which messages are pushed as long as the client is ready for
+	 * them, and acknowledgements and ack deadline changes are received.
+	 */
+	private class StreamingPull implements StreamObserver<StreamingPullRequest> {
+
+		private final ServerCallStreamObserver<StreamingPullResponse> responseObserver;
+
+		private volatile SubscriptionState subscription;
+
+		private int ackDeadlineSeconds;
+
+		private boolean closed;
+
+		StreamingPull(ServerCallStreamObserver<StreamingPullResponse> responseObserver) {
+			this.responseObserver = responseObserver;
+			this.responseObserver.setOnReadyHandler(this::dispatch);
+			this.responseObserver.setOnCancelHandler(this::close);
+		}
+
+		@Override
+		public void onNext(StreamingPullRequest request) {
+			if (this.subscription == null) {
+				SubscriptionState state = InMemoryPubSub.this.subscriptions.get(request.getSubscription());
+				if (state == null) {
+					fail(notFound(request.getSubscription()));
+					return;
+				}
+				if (injectFailure(InMemoryPubSub.this.pullErrorRate)) {
+					fail(injectedFailure());
+					return;
+				}
+				this.ackDeadlineSeconds = (request.getStreamAckDeadlineSeconds() > 0)
+						? request.getStreamAckDeadlineSeconds()
+						: state.getSubscription().getAckDeadlineSeconds();
+				this.subscription = state;
+				state.addStream(this);
+			}
+
+			this.subscription.acknowledge(request.getAckIdsList());
+			this.subscription.modifyAckDeadlines(request.getModifyDeadlineAckIdsList(),
+					request.getModifyDeadlineSecondsList());
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			close();
+		}
+
+		@Override
+		public void onCompleted() {
+			synchronized (this) {
+				if (!this.closed) {
+					close();
+					this.responseObserver.onCompleted();
+				}
+			}
+		}
+
+		void dispatch() {
+			SubscriptionState state = this.subscription;
+			if (state == null) {
+				return;
+			}
+			List<ReceivedMessage> undelivered = null;
+			synchronized (this) {
+				while (!this.closed && this.responseObserver.isReady()) {
+					List<ReceivedMessage> messages = state.take(MAX_MESSAGES_PER_RESPONSE, this.ackDeadlineSeconds);
+					if (messages.isEmpty()) {
+						break;
+					}
+					try {
+						this.responseObserver.onNext(StreamingPullResponse.newBuilder()
+								.addAllReceivedMessages(messages)
+								.build());
+					}
+					catch (RuntimeException ex) {
+						close();
+						undelivered = messages;
+					}
+				}
+			}
+
+			if (undelivered != null) {
+				// The stream was cancelled, so the messages are delivered again through the others.
+				state.modifyAckDeadlines(undelivered.stream().map(ReceivedMessage::getAckId)
+						.collect(Collectors.toList()), Collections.nCopies(undelivered.size(), 0));
+			}
+		}
+
+		synchronized void fail(StatusRuntimeException exception) {
+			if (!this.closed) {
+				close();
+				this.responseObserver.onError(exception);
+			}
+		}
+
+		private synchronized void close() {
+			this.closed = true;
+			if (this.subscription != null) {
+				this.subscription.removeStream(this);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.gcp.pubsub.test.load;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherOperations;
+import org.springframework.cloud.gcp.pubsub.integration.inbound.PubSubInboundChannelAdapter;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * A {@link LoadTestTarget} that publishes through a {@link PubSubPublisherOperations}, and
+ * receives through a {@link PubSubInboundChannelAdapter}, whose output channel it sets.
+ *
+ * @since 1.1
+ */
+public class InboundChannelAdapterLoadTestTarget implements LoadTestTarget {
+
+	private final PubSubPublisherOperations pubSubPublisherOperations;
+
+	private final String topic;
+
+	private final PubSubInboundChannelAdapter adapter;
+
+	/**
+	 * Create a target for the given adapter.
+	 * @param pubSubPublisherOperations the template to publish with
+	 * @param topic the topic to publish to
+	 * @param adapter the adapter to receive with, from a subscription of the topic
+	 */
+	public InboundChannelAdapterLoadTestTarget(PubSubPublisherOperations pubSubPublisherOperations, String topic,
+			PubSubInboundChannelAdapter adapter) {
+		Assert.notNull(pubSubPublisherOperations, "The pubSubPublisherOperations can't be null.");
+		Assert.hasText(topic, "The topic can't be null or empty.");
+		Assert.notNull(adapter, "The adapter can't be null.");
+		this.pubSubPublisherOperations = pubSubPublisherOperations;
+		this.topic = topic;
+		this.adapter = adapter;
+	}
+
+	@Override
+	public void start(Consumer<Map<String, ?>> receivedHeaders) {
+		DirectChannel outputChannel = new DirectChannel();
+		outputChannel.subscribe(message -> receivedHeaders.accept(message.getHeaders()));
+		this.adapter.setOutputChannel(outputChannel);
+		this.adapter.start();
+	}
+
+	@Override
+	public ListenableFuture<?> send(byte[] payload, Map<String, String> headers) {
+		return this.pubSubPublisherOperations.publish(this.topic, payload, headers);
+	}
+
+	@Override
+	public void stop() {
+		this.adapter.stop();
+	}
+
+}
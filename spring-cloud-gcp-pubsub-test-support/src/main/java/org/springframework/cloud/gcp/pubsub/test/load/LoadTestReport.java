@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.gcp.pubsub.test.load;
+
+import java.util.Arrays;
+
+import org.threeten.bp.Duration;
+
+import org.springframework.util.Assert;
+
+/**
+ * The outcome of a {@link PubSubLoadGenerator} run.
+ *
+ * @since 1.1
+ */
+public final class LoadTestReport {
+
+	private final int sentCount;
+
+	private final int failedCount;
+
+	private final int receivedCount;
+
+	private final int duplicateCount;
+
+	private final Duration elapsed;
+
+	/**
+	 * The latencies of the received messages in nanoseconds, in ascending order.
+	 */
+	private final long[] latencies;
+
+	LoadTestReport(int sentCount, int failedCount, int receivedCount, int duplicateCount, Duration elapsed,
+			long[] latencies) {
+		this.sentCount = sentCount;
+		this.failedCount = failedCount;
+		this.receivedCount = receivedCount;
+		this.duplicateCount = duplicateCount;
+		this.elapsed = elapsed;
+		this.latencies = Arrays.copyOf(latencies, receivedCount);
+		Arrays.sort(this.latencies);
+	}
+
+	/**
+	 * Return the number of messages sent, including those whose sending failed.
+	 * @return the number of messages sent
+	 */
+	public int getSentCount() {
+		return this.sentCount;
+	}
+
+	public int getFailedCount() {
+		return this.failedCount;
+	}
+
+	/**
+	 * Return the number of distinct messages received.
+	 * @return the number of messages received
+	 */
+	public int getReceivedCount() {
+		return this.receivedCount;
+	}
+
+	/**
+	 * Return the number of times a message was received again.
+	 * @return the number of duplicate messages
+	 */
+	public int getDuplicateCount() {
+		return this.duplicateCount;
+	}
+
+	/**
+	 * Return the time from the start of the run until the last message was received.
+	 * @return the elapsed time
+	 */
+	public Duration getElapsed() {
+		return this.elapsed;
+	}
+
+	/**
+	 * Return the number of messages received per second.
+	 * @return the throughput
+	 */
+	public double getThroughput() {
+		return this.elapsed.isZero() ? 0 : this.receivedCount * 1e9 / this.elapsed.toNanos();
+	}
+
+	/**
+	 * Return the latency that the given percentage of the received messages didn't exceed.
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the latency, or {@code null} if no messages were received
+	 */
+	public Duration getLatencyPercentile(double percentile) {
+		Assert.isTrue(percentile >= 0 && percentile <= 100, "The percentile must be between 0 and 100.");
+		if (this.latencies.length == 0) {
+			return null;
+		}
+		int index = (int) Math.ceil(percentile / 100 * this.latencies.length) - 1;
+		return Duration.ofNanos(this.latencies[Math.max(0, index)]);
+	}
+
+	public Duration getMaxLatency() {
+		return getLatencyPercentile(100);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder()
+				.append(this.sentCount).append(" sent, ")
+				.append(this.failedCount).append(" failed, ")
+				.append(this.receivedCount).append(" received, ")
+				.append(this.duplicateCount).append(" duplicates in ")
+				.append(this.elapsed.toMillis()).append(" ms (")
+				.append(String.format("%.1f", getThroughput())).append(" messages/s)");
+		if (this.latencies.length > 0) {
+			report.append("; latency p50=").append(formatMillis(getLatencyPercentile(50)))
+					.append(" p90=").append(formatMillis(getLatencyPercentile(90)))
+					.append(" p99=").append(formatMillis(getLatencyPercentile(99)))
+					.append(" p99.9=").append(formatMillis(getLatencyPercentile(99.9)))
+					.append(" max=").append(formatMillis(getMaxLatency()));
+		}
+		return report.toString();
+	}
+
+	private static String formatMillis(Duration latency) {
+		return String.format("%.2f ms", latency.toNanos() / 1e6);
+	}
+
+}
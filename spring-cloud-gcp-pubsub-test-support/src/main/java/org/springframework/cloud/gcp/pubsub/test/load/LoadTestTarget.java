@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.gcp.pubsub.test.load;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * A way of sending and receiving messages through Pub/Sub that {@link PubSubLoadGenerator}
+ * drives.
+ *
+ * @since 1.1
+ */
+public interface LoadTestTarget {
+
+	/**
+	 * Start receiving messages.
+	 * @param receivedHeaders the consumer of the headers of every received message, to be
+	 * called before the message is acknowledged
+	 */
+	void start(Consumer<Map<String, ?>> receivedHeaders);
+
+	/**
+	 * Send a message.
+	 * @param payload the payload of the message
+	 * @param headers the headers of the message, which must be received with it
+	 * @return the future of the send
+	 */
+	ListenableFuture<?> send(byte[] payload, Map<String, String> headers);
+
+	/**
+	 * Stop receiving messages.
+	 */
+	void stop();
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.gcp.pubsub.test.load;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * A {@link LoadTestTarget} that sends to and receives from message channels, such as the
+ * channels bound to Pub/Sub by the Spring Cloud Stream binder, or by outbound and inbound
+ * channel adapters.
+ *
+ * @since 1.1
+ */
+public class MessageChannelLoadTestTarget implements LoadTestTarget {
+
+	private final MessageChannel outputChannel;
+
+	private final SubscribableChannel inputChannel;
+
+	private MessageHandler handler;
+
+	/**
+	 * Create a target for the given channels.
+	 * @param outputChannel the channel whose messages are published
+	 * @param inputChannel the channel the messages are received on
+	 */
+	public MessageChannelLoadTestTarget(MessageChannel outputChannel, SubscribableChannel inputChannel) {
+		Assert.notNull(outputChannel, "The output channel can't be null.");
+		Assert.notNull(inputChannel, "The input channel can't be null.");
+		this.outputChannel = outputChannel;
+		this.inputChannel = inputChannel;
+	}
+
+	@Override
+	public void start(Consumer<Map<String, ?>> receivedHeaders) {
+		this.handler = message -> receivedHeaders.accept(message.getHeaders());
+		this.inputChannel.subscribe(this.handler);
+	}
+
+	@Override
+	public ListenableFuture<?> send(byte[] payload, Map<String, String> headers) {
+		SettableListenableFuture<Void> future = new SettableListenableFuture<>();
+		try {
+			if (this.outputChannel.send(MessageBuilder.withPayload(payload).copyHeaders(headers).build())) {
+				future.set(null);
+			}
+			else {
+				future.setException(new MessagingException("The output channel didn't accept the message."));
+			}
+		}
+		catch (MessagingException ex) {
+			future.setException(ex);
+		}
+		return future;
+	}
+
+	@Override
+	public void stop() {
+		if (this.handler != null) {
+			this.inputChannel.unsubscribe(this.handler);
+			this.handler = null;
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.gcp.pubsub.test.load;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.threeten.bp.Duration;
+
+import org.springframework.util.Assert;
+
+/**
+ * Sends messages through a {@link LoadTestTarget} at a steady rate, and measures how many of
+ * them are received and how long that takes.
+ *
+ * <p>The latency of a message is measured from the time it was due to be sent until it's
+ * received, so that it includes any time spent waiting to be sent when sending can't keep up
+ * with the rate. The sequence number and due time of every message are sent in its
+ * {@link #SEQUENCE_HEADER} and {@link #SENT_NANOS_HEADER} headers, which the target must
+ * receive it with.
+ *
+ * @since 1.1
+ */
+public class PubSubLoadGenerator {
+
+	/**
+	 * The header holding the sequence number of a message.
+	 */
+	public static final String SEQUENCE_HEADER = "load-test-sequence";
+
+	/**
+	 * The header holding the {@link System#nanoTime()} at which a message was due to be sent.
+	 */
+	public static final String SENT_NANOS_HEADER = "load-test-sent-nanos";
+
+	private int messagesPerSecond = 1000;
+
+	private Duration duration = Duration.ofSeconds(10);
+
+	private int payloadSize = 1024;
+
+	private Duration drainTimeout = Duration.ofSeconds(30);
+
+	public int getMessagesPerSecond() {
+		return this.messagesPerSecond;
+	}
+
+	public void setMessagesPerSecond(int messagesPerSecond) {
+		Assert.isTrue(messagesPerSecond > 0, "The rate must be greater than zero.");
+		this.messagesPerSecond = messagesPerSecond;
+	}
+
+	public Duration getDuration() {
+		return this.duration;
+	}
+
+	/**
+	 * Set how long messages are sent for.
+	 * @param duration the duration of the load
+	 */
+	public void setDuration(Duration duration) {
+		Assert.isTrue(duration != null && !duration.isNegative() && !duration.isZero(),
+				"The duration must be positive.");
+		this.duration = duration;
+	}
+
+	public int getPayloadSize() {
+		return this.payloadSize;
+	}
+
+	/**
+	 * Set the size in bytes of the random payload of every message.
+	 * @param payloadSize the payload size
+	 */
+	public void setPayloadSize(int payloadSize) {
+		Assert.isTrue(payloadSize >= 0, "The payload size can't be negative.");
+		this.payloadSize = payloadSize;
+	}
+
+	public Duration getDrainTimeout() {
+		return this.drainTimeout;
+	}
+
+	/**
+	 * Set how long to wait for the messages still being delivered once all of them are sent.
+	 * @param drainTimeout the drain timeout
+	 */
+	public void setDrainTimeout(Duration drainTimeout) {
+		Assert.isTrue(drainTimeout != null && !drainTimeout.isNegative(),
+				"The drain timeout can't be null or negative.");
+		this.drainTimeout = drainTimeout;
+	}
+
+	/**
+	 * Send messages through the target for the configured duration, and wait until all of them
+	 * are received, their sending failed, or the drain timeout elapses.
+	 * @param target the target to send and receive messages through
+	 * @return the report of the run
+	 * @throws InterruptedException if interrupted while sending or waiting for messages
+	 */
+	public LoadTestReport run(LoadTestTarget target) throws InterruptedException {
+		Assert.notNull(target, "The target can't be null.");
+
+		int messageCount = (int) Math.max(1, this.messagesPerSecond * this.duration.toMillis() / 1000);
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / this.messagesPerSecond;
+		byte[] payload = new byte[this.payloadSize];
+		new Random().nextBytes(payload);
+
+		Recorder recorder = new Recorder(messageCount);
+		target.start(recorder::received);
+		try {
+			long startNanos = System.nanoTime();
+			recorder.start(startNanos);
+			for (int sequence = 0; sequence < messageCount; sequence++) {
+				long dueNanos = startNanos + sequence * intervalNanos;
+				long waitNanos;
+				while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(waitNanos);
+				}
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+
+				Map<String, String> headers = new HashMap<>();
+				headers.put(SEQUENCE_HEADER, Integer.toString(sequence));
+				headers.put(SENT_NANOS_HEADER, Long.toString(dueNanos));
+				try {
+					target.send(payload, headers).addCallback(result -> { }, ex -> recorder.failed());
+				}
+				catch (RuntimeException ex) {
+					recorder.failed();
+				}
+			}
+
+			recorder.awaitDrained(this.drainTimeout);
+			return recorder.report();
+		}
+		finally {
+			target.stop();
+		}
+	}
+
+	/**
+	 * Records the latency of every received message.
+	 */
+	private static final class Recorder {
+
+		private final int messageCount;
+
+		private final long[] latencies;
+
+		private final BitSet received;
+
+		private long startNanos;
+
+		private long lastReceivedNanos;
+
+		private int receivedCount;
+
+		private int duplicateCount;
+
+		private int failedCount;
+
+		Recorder(int messageCount) {
+			this.messageCount = messageCount;
+			this.latencies = new long[messageCount];
+			this.received = new BitSet(messageCount);
+		}
+
+		synchronized void start(long startNanos) {
+			this.startNanos = startNanos;
+		}
+
+		void received(Map<String, ?> headers) {
+			long receivedNanos = System.nanoTime();
+			Object sequence = headers.get(SEQUENCE_HEADER);
+			Object sentNanos = headers.get(SENT_NANOS_HEADER);
+			if (sequence == null || sentNanos == null) {
+				// Not sent by this run.
+				return;
+			}
+			int index = Integer.parseInt(sequence.toString());
+
+			synchronized (this) {
+				if (index < 0 || index >= this.messageCount) {
+					return;
+				}
+				if (this.received.get(index)) {
+					this.duplicateCount++;
+					return;
+				}
+				this.received.set(index);
+				this.latencies[this.receivedCount++] = receivedNanos - Long.parseLong(sentNanos.toString());
+				this.lastReceivedNanos = receivedNanos;
+				if (isDrained()) {
+					notifyAll();
+				}
+			}
+		}
+
+		synchronized void failed() {
+			this.failedCount++;
+			if (isDrained()) {
+				notifyAll();
+			}
+		}
+
+		synchronized void awaitDrained(Duration timeout) throws InterruptedException {
+			long deadlineNanos = System.nanoTime() + timeout.toNanos();
+			long remainingNanos;
+			while (!isDrained() && (remainingNanos = deadlineNanos - System.nanoTime()) > 0) {
+				TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+			}
+		}
+
+		synchronized LoadTestReport report() {
+			long elapsedNanos = (this.receivedCount > 0) ? this.lastReceivedNanos - this.startNanos : 0;
+			return new LoadTestReport(this.messageCount, this.failedCount, this.receivedCount, this.duplicateCount,
+					Duration.ofNanos(elapsedNanos), this.latencies);
+		}
+
+		private boolean isDrained() {
+			return this.receivedCount + this.failedCount >= this.messageCount;
+		}
+
+	}
+
+}
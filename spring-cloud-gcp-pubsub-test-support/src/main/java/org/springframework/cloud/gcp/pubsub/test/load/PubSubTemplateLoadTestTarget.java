@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.gcp.pubsub.test.load;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.google.cloud.pubsub.v1.Subscriber;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubOperations;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * A {@link LoadTestTarget} that publishes and subscribes through a {@link PubSubOperations}.
+ *
+ * @since 1.1
+ */
+public class PubSubTemplateLoadTestTarget implements LoadTestTarget {
+
+	private final PubSubOperations pubSubOperations;
+
+	private final String topic;
+
+	private final String subscription;
+
+	private Subscriber subscriber;
+
+	/**
+	 * Create a target for the given template.
+	 * @param pubSubOperations the template to publish and subscribe with
+	 * @param topic the topic to publish to
+	 * @param subscription the subscription of the topic to subscribe to
+	 */
+	public PubSubTemplateLoadTestTarget(PubSubOperations pubSubOperations, String topic, String subscription) {
+		Assert.notNull(pubSubOperations, "The pubSubOperations can't be null.");
+		Assert.hasText(topic, "The topic can't be null or empty.");
+		Assert.hasText(subscription, "The subscription can't be null or empty.");
+		this.pubSubOperations = pubSubOperations;
+		this.topic = topic;
+		this.subscription = subscription;
+	}
+
+	@Override
+	public void start(Consumer<Map<String, ?>> receivedHeaders) {
+		this.subscriber = this.pubSubOperations.subscribe(this.subscription, message -> {
+			receivedHeaders.accept(message.getPubsubMessage().getAttributesMap());
+			message.ack();
+		});
+	}
+
+	@Override
+	public ListenableFuture<?> send(byte[] payload, Map<String, String> headers) {
+		return this.pubSubOperations.publish(this.topic, payload, headers);
+	}
+
+	@Override
+	public void stop() {
+		if (this.subscriber != null) {
+			this.subscriber.stopAsync().awaitTerminated();
+			this.subscriber = null;
+		}
+	}
+
+}
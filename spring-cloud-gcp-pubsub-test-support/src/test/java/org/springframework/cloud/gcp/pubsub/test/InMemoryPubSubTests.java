@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.gcp.pubsub.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Topic;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.pubsub.PubSubAdmin;
+import org.springframework.cloud.gcp.pubsub.core.PubSubTemplate;
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.DefaultPublisherFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Tests for {@link InMemoryPubSub}.
+ */
+public class InMemoryPubSubTests {
+
+	private InMemoryPubSub inMemoryPubSub;
+
+	private PubSubAdmin pubSubAdmin;
+
+	private DefaultPublisherFactory publisherFactory;
+
+	private PubSubTemplate pubSubTemplate;
+
+	@Before
+	public void setUp() {
+		this.inMemoryPubSub = new InMemoryPubSub("test-project");
+		this.pubSubAdmin = this.inMemoryPubSub.createPubSubAdmin();
+		this.publisherFactory = this.inMemoryPubSub.createPublisherFactory();
+		this.pubSubTemplate = new PubSubTemplate(this.publisherFactory,
+				this.inMemoryPubSub.createSubscriberFactory());
+		this.pubSubAdmin.createTopic("topic");
+		this.pubSubAdmin.createSubscription("subscription", "topic", 1);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.publisherFactory.destroy();
+		this.pubSubAdmin.close();
+		this.inMemoryPubSub.destroy();
+	}
+
+	@Test
+	public void testAdmin() {
+		assertThat(this.pubSubAdmin.getTopic("topic").getName()).isEqualTo("projects/test-project/topics/topic");
+		assertThat(this.pubSubAdmin.getTopic("missing")).isNull();
+		assertThat(this.pubSubAdmin.listTopics()).extracting(Topic::getName)
+				.containsExactly("projects/test-project/topics/topic");
+		assertThat(this.pubSubAdmin.getSubscription("subscription").getAckDeadlineSeconds()).isEqualTo(1);
+
+		this.pubSubAdmin.deleteSubscription("subscription");
+		assertThat(this.pubSubAdmin.getSubscription("subscription")).isNull();
+		assertThat(this.pubSubAdmin.listSubscriptions()).isEmpty();
+	}
+
+	@Test
+	public void testPublishAndPull() throws Exception {
+		String messageId = this.pubSubTemplate.publish("topic", "hello").get(10, TimeUnit.SECONDS);
+
+		List<PubsubMessage> messages = this.pubSubTemplate.pullAndAck("subscription", 10, false);
+
+		assertThat(messages).hasSize(1);
+		assertThat(messages.get(0).getMessageId()).isEqualTo(messageId);
+		assertThat(messages.get(0).getData().toStringUtf8()).isEqualTo("hello");
+		assertThat(this.inMemoryPubSub.getUnackedMessageCount("subscription")).isZero();
+	}
+
+	@Test
+	public void testSubscribe() throws Exception {
+		List<String> payloads = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch received = new CountDownLatch(100);
+		Subscriber subscriber = this.pubSubTemplate.subscribe("subscription", message -> {
+			payloads.add(message.getPubsubMessage().getData().toStringUtf8());
+			message.ack();
+			received.countDown();
+		});
+
+		for (int i = 0; i < 100; i++) {
+			this.pubSubTemplate.publish("topic", "message " + i);
+		}
+
+		assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+		subscriber.stopAsync().awaitTerminated();
+		assertThat(payloads).hasSize(100).contains("message 0", "message 99");
+		await().atMost(5, TimeUnit.SECONDS)
+				.until(() -> this.inMemoryPubSub.getUnackedMessageCount("subscription") == 0);
+	}
+
+	@Test
+	public void testNackedMessageIsRedelivered() throws Exception {
+		AtomicInteger deliveries = new AtomicInteger();
+		CountDownLatch acked = new CountDownLatch(1);
+		Subscriber subscriber = this.pubSubTemplate.subscribe("subscription", message -> {
+			if (deliveries.incrementAndGet() == 1) {
+				message.nack();
+			}
+			else {
+				message.ack();
+				acked.countDown();
+			}
+		});
+
+		this.pubSubTemplate.publish("topic", "hello");
+
+		assertThat(acked.await(10, TimeUnit.SECONDS)).isTrue();
+		subscriber.stopAsync().awaitTerminated();
+		assertThat(deliveries.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void testMessageIsRedeliveredAfterAckDeadline() throws Exception {
+		this.pubSubTemplate.publish("topic", "hello").get(10, TimeUnit.SECONDS);
+
+		List<AcknowledgeablePubsubMessage> messages = this.pubSubTemplate.pull("subscription", 10, false);
+		assertThat(messages).hasSize(1);
+		assertThat(this.pubSubTemplate.pull("subscription", 10, true)).isEmpty();
+
+		await().atMost(5, TimeUnit.SECONDS).until(() -> !this.pubSubTemplate.pullAndAck("subscription", 10, true)
+				.isEmpty());
+		assertThat(this.inMemoryPubSub.getUnackedMessageCount("subscription")).isZero();
+	}
+
+	@Test
+	public void testInjectedPublishFailuresAreRetried() throws Exception {
+		this.inMemoryPubSub.setPublishErrorRate(0.3);
+
+		for (int i = 0; i < 20; i++) {
+			this.pubSubTemplate.publish("topic", "message " + i).get(30, TimeUnit.SECONDS);
+		}
+
+		assertThat(this.inMemoryPubSub.getInjectedFailureCount()).isPositive();
+		assertThat(this.inMemoryPubSub.getUnackedMessageCount("subscription")).isEqualTo(20);
+	}
+
+	@Test
+	public void testRedelivery() throws Exception {
+		this.inMemoryPubSub.setRedeliveryRate(1);
+		this.pubSubTemplate.publish("topic", "hello").get(10, TimeUnit.SECONDS);
+
+		List<PubsubMessage> first = this.pubSubTemplate.pullAndAck("subscription", 10, false);
+		this.inMemoryPubSub.setRedeliveryRate(0);
+		List<PubsubMessage> second = this.pubSubTemplate.pullAndAck("subscription", 10, false);
+
+		assertThat(first).hasSize(1);
+		assertThat(second).extracting(PubsubMessage::getMessageId).containsExactly(first.get(0).getMessageId());
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.test.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.springframework.cloud.gcp.pubsub.support.converter.JacksonPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConversionException;
+import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
+
+/**
+ * Compares {@link JacksonPubSubMessageConverter} with its former implementation, which copied
+ * payloads through an intermediate byte array and created an object reader for every message.
+ *
+ * <p>Run it with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.springframework.cloud.gcp.pubsub.test.benchmark.JacksonPubSubMessageConverterBenchmark}
+ * from the {@code spring-cloud-gcp-pubsub-test-support} module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JacksonPubSubMessageConverterBenchmark {
+
+	@Param({ "copying", "streaming" })
+	public String implementation;
+
+	@Param({ "10", "1000" })
+	public int lineCount;
+
+	private PubSubMessageConverter converter;
+
+	private Order order;
+
+	private PubsubMessage message;
+
+	@Setup
+	public void setUp() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		this.converter = "copying".equals(this.implementation)
+				? new CopyingJacksonPubSubMessageConverter(objectMapper)
+				: new JacksonPubSubMessageConverter(objectMapper);
+		this.order = Order.withLines(this.lineCount);
+		this.message = this.converter.toPubSubMessage(this.order, null);
+	}
+
+	@Benchmark
+	public PubsubMessage toPubSubMessage() {
+		return this.converter.toPubSubMessage(this.order, null);
+	}
+
+	@Benchmark
+	public Order fromPubSubMessage() {
+		return this.converter.fromPubSubMessage(this.message, Order.class);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(JacksonPubSubMessageConverterBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+
+	/**
+	 * The implementation of {@link JacksonPubSubMessageConverter} before it stopped copying payloads.
+	 */
+	private static final class CopyingJacksonPubSubMessageConverter implements PubSubMessageConverter {
+
+		private final ObjectMapper objectMapper;
+
+		CopyingJacksonPubSubMessageConverter(ObjectMapper objectMapper) {
+			this.objectMapper = objectMapper;
+		}
+
+		@Override
+		public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+			try {
+				PubsubMessage.Builder pubsubMessageBuilder = PubsubMessage.newBuilder()
+						.setData(ByteString.copyFrom(this.objectMapper.writeValueAsBytes(payload)));
+				if (headers != null) {
+					pubsubMessageBuilder.putAllAttributes(headers);
+				}
+				return pubsubMessageBuilder.build();
+			}
+			catch (IOException e) {
+				throw new PubSubMessageConversionException("JSON serialization failed.", e);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+			try {
+				return (T) this.objectMapper.readerFor(payloadType).readValue(message.getData().toByteArray());
+			}
+			catch (IOException e) {
+				throw new PubSubMessageConversionException("JSON deserialization failed.", e);
+			}
+		}
+
+	}
+
+	/**
+	 * A payload whose size grows with its number of lines.
+	 */
+	public static class Order {
+
+		private String id;
+
+		private List<String> lines = new ArrayList<>();
+
+		static Order withLines(int count) {
+			Order order = new Order();
+			order.setId("order");
+			for (int i = 0; i < count; i++) {
+				order.getLines().add("line " + i + " of a reasonably sized order");
+			}
+			return order;
+		}
+
+		public String getId() {
+			return this.id;
+		}
+
+		public void setId(String id) {
+			this.id = id;
+		}
+
+		public List<String> getLines() {
+			return this.lines;
+		}
+
+		public void setLines(List<String> lines) {
+			this.lines = lines;
+		}
+
+	}
+
+}
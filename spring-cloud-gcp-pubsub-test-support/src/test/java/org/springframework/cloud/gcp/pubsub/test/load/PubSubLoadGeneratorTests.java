@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.gcp.pubsub.test.load;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+import org.springframework.cloud.gcp.pubsub.PubSubAdmin;
+import org.springframework.cloud.gcp.pubsub.core.PubSubTemplate;
+import org.springframework.cloud.gcp.pubsub.integration.inbound.PubSubInboundChannelAdapter;
+import org.springframework.cloud.gcp.pubsub.support.DefaultPublisherFactory;
+import org.springframework.cloud.gcp.pubsub.test.InMemoryPubSub;
+import org.springframework.cloud.gcp.stream.binder.pubsub.PubSubMessageChannelBinder;
+import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubConsumerProperties;
+import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
+import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubProducerProperties;
+import org.springframework.cloud.gcp.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
+import org.springframework.cloud.stream.binder.Binding;
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.messaging.MessageChannel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PubSubLoadGenerator}.
+ */
+public class PubSubLoadGeneratorTests {
+
+	private final PubSubLoadGenerator loadGenerator = new PubSubLoadGenerator();
+
+	private InMemoryPubSub inMemoryPubSub;
+
+	private DefaultPublisherFactory publisherFactory;
+
+	private PubSubTemplate pubSubTemplate;
+
+	@Before
+	public void setUp() {
+		this.inMemoryPubSub = new InMemoryPubSub("test-project");
+		this.inMemoryPubSub.createTopic("topic");
+		this.inMemoryPubSub.createSubscription("subscription", "topic");
+		this.publisherFactory = this.inMemoryPubSub.createPublisherFactory();
+		this.pubSubTemplate = new PubSubTemplate(this.publisherFactory,
+				this.inMemoryPubSub.createSubscriberFactory());
+
+		this.loadGenerator.setMessagesPerSecond(500);
+		this.loadGenerator.setDuration(Duration.ofSeconds(1));
+		this.loadGenerator.setPayloadSize(256);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.publisherFactory.destroy();
+		this.inMemoryPubSub.destroy();
+	}
+
+	@Test
+	public void testPubSubTemplate() throws InterruptedException {
+		LoadTestReport report = this.loadGenerator.run(
+				new PubSubTemplateLoadTestTarget(this.pubSubTemplate, "topic", "subscription"));
+
+		assertReceivedAll(report);
+	}
+
+	@Test
+	public void testInboundChannelAdapter() throws InterruptedException {
+		LoadTestReport report = this.loadGenerator.run(new InboundChannelAdapterLoadTestTarget(
+				this.pubSubTemplate, "topic", new PubSubInboundChannelAdapter(this.pubSubTemplate, "subscription")));
+
+		assertReceivedAll(report);
+	}
+
+	@Test
+	public void testStreamBinder() throws Exception {
+		PubSubAdmin pubSubAdmin = this.inMemoryPubSub.createPubSubAdmin();
+		PubSubMessageChannelBinder binder = new PubSubMessageChannelBinder(null,
+				new PubSubChannelProvisioner(pubSubAdmin), this.pubSubTemplate, new PubSubExtendedBindingProperties());
+		binder.setApplicationContext(new GenericApplicationContext());
+		binder.afterPropertiesSet();
+
+		DirectChannel outputChannel = new DirectChannel();
+		DirectChannel inputChannel = new DirectChannel();
+		Binding<MessageChannel> producerBinding = binder.bindProducer("binder-topic", outputChannel,
+				new ExtendedProducerProperties<>(new PubSubProducerProperties()));
+		Binding<MessageChannel> consumerBinding = binder.bindConsumer("binder-topic", "group", inputChannel,
+				new ExtendedConsumerProperties<>(new PubSubConsumerProperties()));
+
+		try {
+			LoadTestReport report = this.loadGenerator.run(
+					new MessageChannelLoadTestTarget(outputChannel, inputChannel));
+
+			assertReceivedAll(report);
+		}
+		finally {
+			consumerBinding.unbind();
+			producerBinding.unbind();
+			pubSubAdmin.close();
+		}
+	}
+
+	@Test
+	public void testReportsFailuresAndDuplicates() throws InterruptedException {
+		this.inMemoryPubSub.setRedeliveryRate(0.1);
+		this.loadGenerator.setDrainTimeout(Duration.ofSeconds(1));
+
+		LoadTestReport report = this.loadGenerator.run(new PubSubTemplateLoadTestTarget(this.pubSubTemplate,
+				"missing-topic", "subscription"));
+
+		assertThat(report.getSentCount()).isEqualTo(500);
+		assertThat(report.getFailedCount()).isEqualTo(500);
+		assertThat(report.getReceivedCount()).isZero();
+		assertThat(report.getLatencyPercentile(50)).isNull();
+		assertThat(report.getThroughput()).isZero();
+
+		report = this.loadGenerator.run(new PubSubTemplateLoadTestTarget(this.pubSubTemplate, "topic",
+				"subscription"));
+
+		assertReceivedAll(report);
+		assertThat(report.getDuplicateCount()).isPositive();
+	}
+
+	private static void assertReceivedAll(LoadTestReport report) {
+		assertThat(report.getSentCount()).isEqualTo(500);
+		assertThat(report.getFailedCount()).isZero();
+		assertThat(report.getReceivedCount()).isEqualTo(500);
+		assertThat(report.getThroughput()).isPositive();
+		assertThat(report.getLatencyPercentile(50)).isLessThanOrEqualTo(report.getLatencyPercentile(99));
+		assertThat(report.getLatencyPercentile(99)).isLessThanOrEqualTo(report.getMaxLatency());
+		assertThat(report.toString()).startsWith("500 sent, 0 failed, 500 received");
+	}
+
+}
@@ -17,8 +17,22 @@
 package org.springframework.cloud.gcp.pubsub;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode;
@@ -27,6 +41,13 @@ import com.google.cloud.pubsub.v1.SubscriptionAdminSettings;
 import com.google.cloud.pubsub.v1.TopicAdminClient;
 import com.google.cloud.pubsub.v1.TopicAdminSettings;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.DeleteSubscriptionRequest;
+import com.google.pubsub.v1.DeleteTopicRequest;
+import com.google.pubsub.v1.GetSubscriptionRequest;
+import com.google.pubsub.v1.GetTopicRequest;
+import com.google.pubsub.v1.ListSubscriptionsRequest;
+import com.google.pubsub.v1.ListTopicsRequest;
 import com.google.pubsub.v1.ProjectName;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.ProjectTopicName;
@@ -35,7 +56,10 @@ import com.google.pubsub.v1.Subscription;
 import com.google.pubsub.v1.Topic;
 
 import org.springframework.cloud.gcp.core.GcpProjectIdProvider;
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
 import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 /**
  * Pub/Sub admin utility that creates new topics and subscriptions on Google Cloud Pub/Sub.
@@ -144,6 +168,74 @@ public class PubSubAdmin implements AutoCloseable {
 		return Lists.newArrayList(topicListPage.iterateAll());
 	}
 
+	/**
+	 * Return the topics in a project as a stream that fetches them a page at a time, as it's
+	 * consumed. No page is fetched until the stream is consumed.
+	 *
+	 * @param pageSize the maximum number of topics fetched at a time
+	 * @return the stream of topics
+	 * @since 1.1
+	 */
+	public Stream<Topic> streamTopics(int pageSize) {
+		Assert.isTrue(pageSize > 0, "The page size must be greater than zero.");
+
+		ListTopicsRequest request = ListTopicsRequest.newBuilder()
+				.setProject(ProjectName.of(this.projectId).toString())
+				.setPageSize(pageSize)
+				.build();
+		return lazyStream(() -> this.topicAdminClient.listTopics(request).iterateAll());
+	}
+
+	/**
+	 * Create a new topic on Google Cloud Pub/Sub, without waiting for it to be created.
+	 *
+	 * @param topicName the name for the new topic
+	 * @return a future for the created topic
+	 * @since 1.1
+	 */
+	public ListenableFuture<Topic> createTopicAsync(String topicName) {
+		Assert.hasText(topicName, "No topic name was specified.");
+
+		return toListenableFuture(this.topicAdminClient.createTopicCallable().futureCall(
+				Topic.newBuilder().setName(ProjectTopicName.of(this.projectId, topicName).toString()).build()),
+				Function.identity(), false);
+	}
+
+	/**
+	 * Get the configuration of a Google Cloud Pub/Sub topic, without waiting for it.
+	 *
+	 * @param topicName canonical topic name, e.g., "topicName"
+	 * @return a future for the topic configuration, completed with {@code null} if the topic
+	 * doesn't exist
+	 * @since 1.1
+	 */
+	public ListenableFuture<Topic> getTopicAsync(String topicName) {
+		Assert.hasText(topicName, "No topic name was specified.");
+
+		return toListenableFuture(this.topicAdminClient.getTopicCallable().futureCall(
+				GetTopicRequest.newBuilder()
+						.setTopic(ProjectTopicName.of(this.projectId, topicName).toString())
+						.build()),
+				Function.identity(), true);
+	}
+
+	/**
+	 * Delete a topic from Google Cloud Pub/Sub, without waiting for it to be deleted.
+	 *
+	 * @param topicName the name of the topic to be deleted
+	 * @return a future completed when the topic is deleted
+	 * @since 1.1
+	 */
+	public ListenableFuture<Void> deleteTopicAsync(String topicName) {
+		Assert.hasText(topicName, "No topic name was specified.");
+
+		return toListenableFuture(this.topicAdminClient.deleteTopicCallable().futureCall(
+				DeleteTopicRequest.newBuilder()
+						.setTopic(ProjectTopicName.of(this.projectId, topicName).toString())
+						.build()),
+				(empty) -> null, false);
+	}
+
 	/**
 	 * Create a new subscription on Google Cloud Pub/Sub.
 	 *
@@ -196,25 +288,68 @@ public class PubSubAdmin implements AutoCloseable {
 	 */
 	public Subscription createSubscription(String subscriptionName, String topicName,
 			Integer ackDeadline, String pushEndpoint) {
-		Assert.hasText(subscriptionName, "No subscription name was specified.");
-		Assert.hasText(topicName, "No topic name was specified.");
-
-		int finalAckDeadline = this.defaultAckDeadline;
-		if (ackDeadline != null) {
-			validateAckDeadline(ackDeadline);
-			finalAckDeadline = ackDeadline;
-		}
-
-		PushConfig.Builder pushConfigBuilder = PushConfig.newBuilder();
-		if (pushEndpoint != null) {
-			pushConfigBuilder.setPushEndpoint(pushEndpoint);
-		}
+		Subscription subscription = buildSubscription(subscriptionName, topicName, ackDeadline, pushEndpoint);
 
 		return this.subscriptionAdminClient.createSubscription(
 				ProjectSubscriptionName.of(this.projectId, subscriptionName),
 				ProjectTopicName.of(this.projectId, topicName),
-				pushConfigBuilder.build(),
-				finalAckDeadline);
+				subscription.getPushConfig(),
+				subscription.getAckDeadlineSeconds());
+	}
+
+	/**
+	 * Create a new subscription on Google Cloud Pub/Sub, without waiting for it to be created.
+	 *
+	 * @param subscriptionName the name of the new subscription
+	 * @param topicName the name of the topic being subscribed to
+	 * @return a future for the created subscription
+	 * @since 1.1
+	 */
+	public ListenableFuture<Subscription> createSubscriptionAsync(String subscriptionName, String topicName) {
+		return createSubscriptionAsync(subscriptionName, topicName, null, null);
+	}
+
+	/**
+	 * Create a new subscription on Google Cloud Pub/Sub, without waiting for it to be created.
+	 *
+	 * @param subscriptionName the name of the new subscription
+	 * @param topicName the name of the topic being subscribed to
+	 * @param ackDeadline deadline in seconds before a message is resent, must be between 10 and 600 seconds.
+	 *                    If not provided, set to default of 10 seconds
+	 * @param pushEndpoint URL of the service receiving the push messages. If not provided, uses
+	 *                     message pulling by default
+	 * @return a future for the created subscription
+	 * @since 1.1
+	 */
+	public ListenableFuture<Subscription> createSubscriptionAsync(String subscriptionName, String topicName,
+			Integer ackDeadline, String pushEndpoint) {
+		Subscription subscription = buildSubscription(subscriptionName, topicName, ackDeadline, pushEndpoint);
+
+		return toListenableFuture(this.subscriptionAdminClient.createSubscriptionCallable().futureCall(subscription),
+				Function.identity(), false);
+	}
+
+	/**
+	 * Create many subscriptions on Google Cloud Pub/Sub, with at most {@code maxConcurrency}
+	 * creation requests in flight at once, and wait for all of them to complete.
+	 *
+	 * @param topicNamesBySubscriptionName the name of the topic to subscribe to, by the name of the
+	 * new subscription
+	 * @param maxConcurrency the maximum number of requests in flight at once
+	 * @return the created subscriptions
+	 * @throws PubSubException if any of the subscriptions could not be created, once all requests
+	 * have completed
+	 * @since 1.1
+	 */
+	public List<Subscription> createSubscriptions(Map<String, String> topicNamesBySubscriptionName,
+			int maxConcurrency) {
+		Assert.notNull(topicNamesBySubscriptionName, "The subscriptions to create can't be null.");
+
+		return callAll(topicNamesBySubscriptionName.keySet(),
+				(subscriptionName) -> this.subscriptionAdminClient.createSubscriptionCallable().futureCall(
+						buildSubscription(subscriptionName, topicNamesBySubscriptionName.get(subscriptionName),
+								null, null)),
+				maxConcurrency, "create");
 	}
 
 	/**
@@ -239,6 +374,24 @@ public class PubSubAdmin implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Get the configuration of a Google Cloud Pub/Sub subscription, without waiting for it.
+	 *
+	 * @param subscriptionName canonical subscription name, e.g., "subscriptionName"
+	 * @return a future for the subscription configuration, completed with {@code null} if the
+	 * subscription doesn't exist
+	 * @since 1.1
+	 */
+	public ListenableFuture<Subscription> getSubscriptionAsync(String subscriptionName) {
+		Assert.hasText(subscriptionName, "No subscription name was specified");
+
+		return toListenableFuture(this.subscriptionAdminClient.getSubscriptionCallable().futureCall(
+				GetSubscriptionRequest.newBuilder()
+						.setSubscription(ProjectSubscriptionName.of(this.projectId, subscriptionName).toString())
+						.build()),
+				Function.identity(), true);
+	}
+
 	/**
 	 * Delete a subscription from Google Cloud Pub/Sub.
 	 *
@@ -251,6 +404,39 @@ public class PubSubAdmin implements AutoCloseable {
 				ProjectSubscriptionName.of(this.projectId, subscriptionName));
 	}
 
+	/**
+	 * Delete a subscription from Google Cloud Pub/Sub, without waiting for it to be deleted.
+	 *
+	 * @param subscriptionName canonical subscription name, e.g., "subscriptionName"
+	 * @return a future completed when the subscription is deleted
+	 * @since 1.1
+	 */
+	public ListenableFuture<Void> deleteSubscriptionAsync(String subscriptionName) {
+		Assert.hasText(subscriptionName, "No subscription name was specified");
+
+		return toListenableFuture(this.subscriptionAdminClient.deleteSubscriptionCallable().futureCall(
+				deleteSubscriptionRequest(subscriptionName)), (empty) -> null, false);
+	}
+
+	/**
+	 * Delete many subscriptions from Google Cloud Pub/Sub, with at most {@code maxConcurrency}
+	 * deletion requests in flight at once, and wait for all of them to complete.
+	 *
+	 * @param subscriptionNames canonical names of the subscriptions to delete
+	 * @param maxConcurrency the maximum number of requests in flight at once
+	 * @throws PubSubException if any of the subscriptions could not be deleted, once all requests
+	 * have completed
+	 * @since 1.1
+	 */
+	public void deleteSubscriptions(Collection<String> subscriptionNames, int maxConcurrency) {
+		Assert.notNull(subscriptionNames, "The subscriptions to delete can't be null.");
+
+		callAll(subscriptionNames,
+				(subscriptionName) -> this.subscriptionAdminClient.deleteSubscriptionCallable().futureCall(
+						deleteSubscriptionRequest(subscriptionName)),
+				maxConcurrency, "delete");
+	}
+
 	/**
 	 * Return every subscription in a project.
 	 *
@@ -263,6 +449,24 @@ public class PubSubAdmin implements AutoCloseable {
 		return Lists.newArrayList(subscriptionsPage.iterateAll());
 	}
 
+	/**
+	 * Return the subscriptions in a project as a stream that fetches them a page at a time, as
+	 * it's consumed. No page is fetched until the stream is consumed.
+	 *
+	 * @param pageSize the maximum number of subscriptions fetched at a time
+	 * @return the stream of subscriptions
+	 * @since 1.1
+	 */
+	public Stream<Subscription> streamSubscriptions(int pageSize) {
+		Assert.isTrue(pageSize > 0, "The page size must be greater than zero.");
+
+		ListSubscriptionsRequest request = ListSubscriptionsRequest.newBuilder()
+				.setProject(ProjectName.of(this.projectId).toString())
+				.setPageSize(pageSize)
+				.build();
+		return lazyStream(() -> this.subscriptionAdminClient.listSubscriptions(request).iterateAll());
+	}
+
 	/**
 	 * @return the default acknowledgement deadline value in seconds
 	 */
@@ -281,6 +485,116 @@ public class PubSubAdmin implements AutoCloseable {
 		this.defaultAckDeadline = defaultAckDeadline;
 	}
 
+	private Subscription buildSubscription(String subscriptionName, String topicName, Integer ackDeadline,
+			String pushEndpoint) {
+		Assert.hasText(subscriptionName, "No subscription name was specified.");
+		Assert.hasText(topicName, "No topic name was specified.");
+
+		int finalAckDeadline = this.defaultAckDeadline;
+		if (ackDeadline != null) {
+			validateAckDeadline(ackDeadline);
+			finalAckDeadline = ackDeadline;
+		}
+
+		PushConfig.Builder pushConfigBuilder = PushConfig.newBuilder();
+		if (pushEndpoint != null) {
+			pushConfigBuilder.setPushEndpoint(pushEndpoint);
+		}
+
+		return Subscription.newBuilder()
+				.setName(ProjectSubscriptionName.of(this.projectId, subscriptionName).toString())
+				.setTopic(ProjectTopicName.of(this.projectId, topicName).toString())
+				.setPushConfig(pushConfigBuilder)
+				.setAckDeadlineSeconds(finalAckDeadline)
+				.build();
+	}
+
+	private DeleteSubscriptionRequest deleteSubscriptionRequest(String subscriptionName) {
+		Assert.hasText(subscriptionName, "No subscription name was specified");
+
+		return DeleteSubscriptionRequest.newBuilder()
+				.setSubscription(ProjectSubscriptionName.of(this.projectId, subscriptionName).toString())
+				.build();
+	}
+
+	/**
+	 * Make a call for each of the given resource names, with at most {@code maxConcurrency} calls
+	 * in flight at once, and return their results once all of them have completed.
+	 */
+	private <T> List<T> callAll(Collection<String> names, Function<String, ApiFuture<T>> call,
+			int maxConcurrency, String action) {
+		Assert.isTrue(maxConcurrency > 0, "The maxConcurrency must be greater than zero.");
+
+		Semaphore permits = new Semaphore(maxConcurrency);
+		Map<String, ApiFuture<T>> futures = new LinkedHashMap<>();
+		try {
+			for (String name : names) {
+				permits.acquire();
+				ApiFuture<T> future;
+				try {
+					future = call.apply(name);
+				}
+				catch (RuntimeException ex) {
+					future = ApiFutures.immediateFailedFuture(ex);
+				}
+				future.addListener(permits::release, MoreExecutors.directExecutor());
+				futures.put(name, future);
+			}
+
+			List<T> results = new ArrayList<>(futures.size());
+			Map<String, Throwable> failures = new LinkedHashMap<>();
+			for (Map.Entry<String, ApiFuture<T>> future : futures.entrySet()) {
+				try {
+					results.add(future.getValue().get());
+				}
+				catch (ExecutionException ee) {
+					failures.put(future.getKey(), ee.getCause());
+				}
+			}
+
+			if (!failures.isEmpty()) {
+				throw new PubSubException("Failed to " + action + " " + failures.size() + " of " + names.size()
+						+ " subscriptions: " + failures.keySet() + ".", failures.values().iterator().next());
+			}
+			return results;
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new PubSubException("Interrupted while waiting for the subscriptions to " + action + ".", ie);
+		}
+	}
+
+	private static <T, R> ListenableFuture<R> toListenableFuture(ApiFuture<T> apiFuture, Function<T, R> mapper,
+			boolean notFoundAsNull) {
+		SettableListenableFuture<R> future = new SettableListenableFuture<>();
+		ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+			@Override
+			public void onFailure(Throwable throwable) {
+				if (notFoundAsNull && throwable instanceof ApiException
+						&& ((ApiException) throwable).getStatusCode().getCode() == StatusCode.Code.NOT_FOUND) {
+					future.set(null);
+				}
+				else {
+					future.setException(throwable);
+				}
+			}
+
+			@Override
+			public void onSuccess(T result) {
+				future.set(mapper.apply(result));
+			}
+		}, MoreExecutors.directExecutor());
+		return future;
+	}
+
+	/**
+	 * Return a stream of the elements of an {@link Iterable} that is only obtained once the stream
+	 * is consumed.
+	 */
+	private static <T> Stream<T> lazyStream(Supplier<Iterable<T>> iterable) {
+		return StreamSupport.stream(() -> iterable.get().spliterator(), Spliterator.ORDERED, false);
+	}
+
 	private void validateAckDeadline(int ackDeadline) {
 		Assert.isTrue(ackDeadline >= MIN_ACK_DEADLINE_SECONDS
 						&& ackDeadline <= MAX_ACK_DEADLINE_SECONDS,
@@ -133,6 +133,17 @@ public class PubSubTemplate implements PubSubOperations, InitializingBean {
 		return this.pubSubPublisherTemplate.publish(topic, pubsubMessage);
 	}
 
+	@Override
+	public <T> ListenableFuture<List<String>> publishAll(String topic, Collection<T> payloads,
+			Map<String, String> headers) {
+		return this.pubSubPublisherTemplate.publishAll(topic, payloads, headers);
+	}
+
+	@Override
+	public ListenableFuture<List<String>> publishAll(String topic, Collection<PubsubMessage> pubsubMessages) {
+		return this.pubSubPublisherTemplate.publishAll(topic, pubsubMessages);
+	}
+
 	@Override
 	@Deprecated
 	public Subscriber subscribe(String subscription, MessageReceiver messageReceiver) {
@@ -170,6 +181,25 @@ public class PubSubTemplate implements PubSubOperations, InitializingBean {
 		return this.pubSubSubscriberTemplate.pullAndAck(subscription, maxMessages, returnImmediately);
 	}
 
+	@Override
+	public ListenableFuture<List<AcknowledgeablePubsubMessage>> pullAsync(String subscription, Integer maxMessages,
+			Boolean returnImmediately) {
+		return this.pubSubSubscriberTemplate.pullAsync(subscription, maxMessages, returnImmediately);
+	}
+
+	@Override
+	public <T> ListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<T>>> pullAndConvertAsync(
+			String subscription, Integer maxMessages, Boolean returnImmediately, Class<T> payloadType) {
+		return this.pubSubSubscriberTemplate.pullAndConvertAsync(subscription, maxMessages, returnImmediately,
+				payloadType);
+	}
+
+	@Override
+	public ListenableFuture<List<PubsubMessage>> pullAndAckAsync(String subscription, Integer maxMessages,
+			Boolean returnImmediately) {
+		return this.pubSubSubscriberTemplate.pullAndAckAsync(subscription, maxMessages, returnImmediately);
+	}
+
 	@Override
 	public PubsubMessage pullNext(String subscription) {
 		return this.pubSubSubscriberTemplate.pullNext(subscription);
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.gcp.pubsub.core.publisher;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import com.google.pubsub.v1.PubsubMessage;
@@ -59,4 +61,25 @@ public interface PubSubPublisherOperations {
 	 */
 	ListenableFuture<String> publish(String topic, PubsubMessage pubsubMessage);
 
+	/**
+	 * Send a number of messages to Pub/Sub, all carrying the same headers.
+	 * @param topic    the name of an existing topic
+	 * @param payloads objects that will be serialized and sent
+	 * @param headers  the headers added to every message
+	 * @return the listenable future of the IDs of the published messages, in the order of the
+	 * payloads, or the first failure
+	 * @since 1.1
+	 */
+	<T> ListenableFuture<List<String>> publishAll(String topic, Collection<T> payloads, Map<String, String> headers);
+
+	/**
+	 * Send a number of messages to Pub/Sub.
+	 * @param topic          the name of an existing topic
+	 * @param pubsubMessages Google Cloud Pub/Sub API messages
+	 * @return the listenable future of the IDs of the published messages, in the order of the
+	 * messages, or the first failure
+	 * @since 1.1
+	 */
+	ListenableFuture<List<String>> publishAll(String topic, Collection<PubsubMessage> pubsubMessages);
+
 }
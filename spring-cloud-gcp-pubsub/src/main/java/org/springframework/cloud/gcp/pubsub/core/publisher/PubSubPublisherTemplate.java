@@ -16,6 +16,9 @@
 
 package org.springframework.cloud.gcp.pubsub.core.publisher;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import com.google.api.core.ApiFuture;
@@ -25,6 +28,8 @@ import com.google.pubsub.v1.PubsubMessage;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.pubsub.support.PublisherFactory;
 import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
 import org.springframework.cloud.gcp.pubsub.support.converter.SimplePubSubMessageConverter;
@@ -52,6 +57,10 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 
 	private final PublisherFactory publisherFactory;
 
+	private PubSubMetrics pubSubMetrics = PubSubMetrics.NONE;
+
+	private PublishFlowController flowController;
+
 	/**
 	 * Default {@link PubSubPublisherTemplate} constructor that uses {@link SimplePubSubMessageConverter}
 	 * to serialize and deserialize payloads.
@@ -75,13 +84,44 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 		this.pubSubMessageConverter = pubSubMessageConverter;
 	}
 
+	public PubSubMetrics getPubSubMetrics() {
+		return this.pubSubMetrics;
+	}
+
+	/**
+	 * Set the {@link PubSubMetrics} that records publish latencies, message counts and failures, as well
+	 * as payload conversion times.
+	 * @param pubSubMetrics the metrics recorder
+	 * @since 1.1
+	 */
+	public void setPubSubMetrics(PubSubMetrics pubSubMetrics) {
+		Assert.notNull(pubSubMetrics, "The pubSubMetrics can't be null.");
+
+		this.pubSubMetrics = pubSubMetrics;
+	}
+
+	public PublishFlowController getFlowController() {
+		return this.flowController;
+	}
+
+	/**
+	 * Set the {@link PublishFlowController} that limits the messages being published but not yet
+	 * acknowledged by Pub/Sub. Messages it drops fail the returned future with a
+	 * {@link PubSubException}.
+	 * @param flowController the flow controller, or {@code null} to publish without limits
+	 * @since 1.1
+	 */
+	public void setFlowController(PublishFlowController flowController) {
+		this.flowController = flowController;
+	}
+
 	/**
 	 * Uses the configured message converter to first convert the payload and headers to a
 	 * {@code PubsubMessage} and then publish it.
 	 */
 	@Override
 	public <T> ListenableFuture<String> publish(String topic, T payload, Map<String, String> headers) {
-		return publish(topic, this.pubSubMessageConverter.toPubSubMessage(payload, headers));
+		return publish(topic, convert(topic, payload, headers));
 	}
 
 	@Override
@@ -94,8 +134,21 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 		Assert.hasText(topic, "The topic can't be null or empty.");
 		Assert.notNull(pubsubMessage, "The pubsubMessage can't be null.");
 
-		ApiFuture<String> publishFuture =
-				this.publisherFactory.createPublisher(topic).publish(pubsubMessage);
+		long byteCount = pubsubMessage.getSerializedSize();
+		if (!reserve(topic, 1, byteCount)) {
+			return droppedFuture(topic, 1);
+		}
+
+		long startNanos = System.nanoTime();
+		ApiFuture<String> publishFuture;
+		try {
+			publishFuture = this.publisherFactory.withPublisher(topic,
+					(publisher) -> publisher.publish(pubsubMessage));
+		}
+		catch (RuntimeException re) {
+			release(topic, 1, byteCount);
+			throw re;
+		}
 
 		final SettableListenableFuture<String> settableFuture = new SettableListenableFuture<>();
 		ApiFutures.addCallback(publishFuture, new ApiFutureCallback<String>() {
@@ -103,6 +156,7 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 			@Override
 			public void onFailure(Throwable throwable) {
 				LOGGER.warn("Publishing to " + topic + " topic failed.", throwable);
+				recordPublish(false);
 				settableFuture.setException(throwable);
 			}
 
@@ -112,14 +166,136 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 					LOGGER.debug(
 							"Publishing to " + topic + " was successful. Message ID: " + result);
 				}
+				recordPublish(true);
+				settableFuture.set(result);
+			}
+
+			private void recordPublish(boolean success) {
+				release(topic, 1, byteCount);
+				PubSubPublisherTemplate.this.pubSubMetrics.recordPublish(topic, 1,
+						byteCount, System.nanoTime() - startNanos, success);
+			}
+
+		});
+
+		return settableFuture;
+	}
+
+	/**
+	 * Uses the configured message converter to convert every payload to a {@code PubsubMessage}
+	 * with the given headers and then publishes them all.
+	 */
+	@Override
+	public <T> ListenableFuture<List<String>> publishAll(String topic, Collection<T> payloads,
+			Map<String, String> headers) {
+		Assert.notNull(payloads, "The payloads can't be null.");
+
+		List<PubsubMessage> pubsubMessages = new ArrayList<>(payloads.size());
+		for (T payload : payloads) {
+			pubsubMessages.add(convert(topic, payload, headers));
+		}
+
+		return publishAll(topic, pubsubMessages);
+	}
+
+	/**
+	 * Looks up the topic's publisher once and publishes all the messages with it. The returned
+	 * future is completed by a single callback on the aggregate of the individual publish futures.
+	 */
+	@Override
+	public ListenableFuture<List<String>> publishAll(final String topic, Collection<PubsubMessage> pubsubMessages) {
+		Assert.hasText(topic, "The topic can't be null or empty.");
+		Assert.notNull(pubsubMessages, "The pubsubMessages can't be null.");
+
+		long byteCount = 0;
+		for (PubsubMessage pubsubMessage : pubsubMessages) {
+			Assert.notNull(pubsubMessage, "The pubsubMessages can't contain null elements.");
+			byteCount += pubsubMessage.getSerializedSize();
+		}
+		final int messageCount = pubsubMessages.size();
+		final long totalBytes = byteCount;
+		if (!reserve(topic, messageCount, totalBytes)) {
+			return droppedFuture(topic, messageCount);
+		}
+
+		long startNanos = System.nanoTime();
+		List<ApiFuture<String>> publishFutures = new ArrayList<>(messageCount);
+		try {
+			this.publisherFactory.withPublisher(topic, (publisher) -> {
+				for (PubsubMessage pubsubMessage : pubsubMessages) {
+					publishFutures.add(publisher.publish(pubsubMessage));
+				}
+				return null;
+			});
+		}
+		catch (RuntimeException re) {
+			release(topic, messageCount, totalBytes);
+			throw re;
+		}
+
+		final SettableListenableFuture<List<String>> settableFuture = new SettableListenableFuture<>();
+		ApiFutures.addCallback(ApiFutures.allAsList(publishFutures), new ApiFutureCallback<List<String>>() {
+
+			@Override
+			public void onFailure(Throwable throwable) {
+				LOGGER.warn("Publishing " + messageCount + " messages to " + topic + " topic failed.",
+						throwable);
+				recordPublish(false);
+				settableFuture.setException(throwable);
+			}
+
+			@Override
+			public void onSuccess(List<String> result) {
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("Publishing " + result.size() + " messages to " + topic + " was successful.");
+				}
+				recordPublish(true);
 				settableFuture.set(result);
 			}
 
+			private void recordPublish(boolean success) {
+				release(topic, messageCount, totalBytes);
+				PubSubPublisherTemplate.this.pubSubMetrics.recordPublish(topic, messageCount, totalBytes,
+						System.nanoTime() - startNanos, success);
+			}
+
 		});
 
 		return settableFuture;
 	}
 
+	private boolean reserve(String topic, int messageCount, long byteCount) {
+		if (this.flowController == null || this.flowController.reserve(topic, messageCount, byteCount)) {
+			return true;
+		}
+		this.pubSubMetrics.recordPublishDropped(topic, messageCount);
+		return false;
+	}
+
+	private void release(String topic, int messageCount, long byteCount) {
+		if (this.flowController != null) {
+			this.flowController.release(topic, messageCount, byteCount);
+		}
+	}
+
+	private static <T> ListenableFuture<T> droppedFuture(String topic, int messageCount) {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Dropped " + messageCount + " messages to " + topic
+					+ " because the publisher flow control limits were exceeded.");
+		}
+		SettableListenableFuture<T> droppedFuture = new SettableListenableFuture<>();
+		droppedFuture.setException(new PubSubException("Publishing " + messageCount + " messages to "
+				+ topic + " was dropped because the publisher flow control limits were exceeded."));
+		return droppedFuture;
+	}
+
+	private PubsubMessage convert(String topic, Object payload, Map<String, String> headers) {
+		long startNanos = System.nanoTime();
+		PubsubMessage pubsubMessage = this.pubSubMessageConverter.toPubSubMessage(payload, headers);
+		this.pubSubMetrics.recordToPubSubConversion(topic, System.nanoTime() - startNanos);
+		return pubsubMessage;
+	}
+
 	public PublisherFactory getPublisherFactory() {
 		return this.publisherFactory;
 	}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.publisher;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.util.Assert;
+
+/**
+ * Limits the number of messages and bytes that are being published, but haven't been
+ * acknowledged by Pub/Sub yet, either per topic or across all topics.
+ *
+ * <p>When publishing more messages would exceed a limit, the caller is blocked until enough
+ * outstanding messages complete, the publish call fails immediately, or the messages are dropped,
+ * depending on the {@link LimitExceededBehavior}. A publish call exceeding the limits on its own is
+ * let through once nothing else is outstanding, so that it can't wait forever.
+ *
+ * @since 1.1
+ */
+public class PublishFlowController {
+
+	private final Long maxOutstandingElementCount;
+
+	private final Long maxOutstandingRequestBytes;
+
+	private final LimitExceededBehavior limitExceededBehavior;
+
+	private final Scope scope;
+
+	private final Limiter globalLimiter = new Limiter();
+
+	private final Map<String, Limiter> topicLimiters = new ConcurrentHashMap<>();
+
+	private final AtomicLong droppedMessageCount = new AtomicLong();
+
+	/**
+	 * Create a flow controller.
+	 * @param maxOutstandingElementCount the maximum number of outstanding messages, or {@code null}
+	 * for no limit
+	 * @param maxOutstandingRequestBytes the maximum serialized size of the outstanding messages, or
+	 * {@code null} for no limit
+	 * @param limitExceededBehavior what happens to publish calls that would exceed a limit
+	 * @param scope whether the limits apply to each topic or to all topics together
+	 */
+	public PublishFlowController(Long maxOutstandingElementCount, Long maxOutstandingRequestBytes,
+			LimitExceededBehavior limitExceededBehavior, Scope scope) {
+		Assert.isTrue(maxOutstandingElementCount == null || maxOutstandingElementCount > 0,
+				"The maxOutstandingElementCount must be greater than zero.");
+		Assert.isTrue(maxOutstandingRequestBytes == null || maxOutstandingRequestBytes > 0,
+				"The maxOutstandingRequestBytes must be greater than zero.");
+		Assert.notNull(limitExceededBehavior, "The limitExceededBehavior can't be null.");
+		Assert.notNull(scope, "The scope can't be null.");
+
+		this.maxOutstandingElementCount = maxOutstandingElementCount;
+		this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+		this.limitExceededBehavior = limitExceededBehavior;
+		this.scope = scope;
+	}
+
+	/**
+	 * Reserve room for messages about to be published.
+	 * @param topic the topic the messages are published to
+	 * @param messageCount the number of messages
+	 * @param byteCount the total serialized size of the messages
+	 * @return {@code true} if the messages can be published, or {@code false} if they must be
+	 * dropped
+	 * @throws PubSubException if the limits are exceeded and the behavior is
+	 * {@link LimitExceededBehavior#FAIL_FAST}, or if interrupted while blocked
+	 */
+	public boolean reserve(String topic, int messageCount, long byteCount) {
+		boolean reserved;
+		try {
+			reserved = getLimiter(topic).reserve(messageCount, byteCount,
+					this.limitExceededBehavior == LimitExceededBehavior.BLOCK);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new PubSubException("Interrupted while waiting to publish to " + topic + ".", ie);
+		}
+
+		if (reserved) {
+			return true;
+		}
+		if (this.limitExceededBehavior == LimitExceededBehavior.FAIL_FAST) {
+			throw new PubSubException("Publishing " + messageCount + " messages to " + topic
+					+ " would exceed the publisher flow control limits.");
+		}
+		this.droppedMessageCount.addAndGet(messageCount);
+		return false;
+	}
+
+	/**
+	 * Release the room reserved for messages that were published or failed to be.
+	 * @param topic the topic the messages were published to
+	 * @param messageCount the number of messages
+	 * @param byteCount the total serialized size of the messages
+	 */
+	public void release(String topic, int messageCount, long byteCount) {
+		getLimiter(topic).release(messageCount, byteCount);
+	}
+
+	public long getDroppedMessageCount() {
+		return this.droppedMessageCount.get();
+	}
+
+	public LimitExceededBehavior getLimitExceededBehavior() {
+		return this.limitExceededBehavior;
+	}
+
+	private Limiter getLimiter(String topic) {
+		return (this.scope == Scope.GLOBAL)
+				? this.globalLimiter
+				: this.topicLimiters.computeIfAbsent(topic, key -> new Limiter());
+	}
+
+	/**
+	 * What happens to publish calls that would exceed the flow control limits.
+	 */
+	public enum LimitExceededBehavior {
+
+		/**
+		 * Block the caller until enough outstanding messages complete.
+		 */
+		BLOCK,
+
+		/**
+		 * Throw a {@link PubSubException} from the publish call.
+		 */
+		FAIL_FAST,
+
+		/**
+		 * Don't publish the messages, fail the future returned by the publish call and count them
+		 * as dropped.
+		 */
+		DROP
+
+	}
+
+	/**
+	 * What the flow control limits apply to.
+	 */
+	public enum Scope {
+
+		/**
+		 * Each topic has its own limits.
+		 */
+		TOPIC,
+
+		/**
+		 * The limits are shared by all topics.
+		 */
+		GLOBAL
+
+	}
+
+	private final class Limiter {
+
+		private long outstandingElementCount;
+
+		private long outstandingRequestBytes;
+
+		synchronized boolean reserve(int messageCount, long byteCount, boolean block) throws InterruptedException {
+			while (wouldExceedLimits(messageCount, byteCount)) {
+				if (!block) {
+					return false;
+				}
+				wait();
+			}
+
+			this.outstandingElementCount += messageCount;
+			this.outstandingRequestBytes += byteCount;
+			return true;
+		}
+
+		synchronized void release(int messageCount, long byteCount) {
+			this.outstandingElementCount -= messageCount;
+			this.outstandingRequestBytes -= byteCount;
+			notifyAll();
+		}
+
+		private boolean wouldExceedLimits(int messageCount, long byteCount) {
+			if (this.outstandingElementCount == 0) {
+				return false;
+			}
+
+			Long maxElementCount = PublishFlowController.this.maxOutstandingElementCount;
+			Long maxRequestBytes = PublishFlowController.this.maxOutstandingRequestBytes;
+			return (maxElementCount != null && this.outstandingElementCount + messageCount > maxElementCount)
+					|| (maxRequestBytes != null && this.outstandingRequestBytes + byteCount > maxRequestBytes);
+		}
+	}
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Coalesces acks, nacks and ack deadline modifications of individual pulled messages into
+ * per-subscription batches, so that acknowledging messages one by one doesn't cost one RPC per message.
+ *
+ * <p>Acks and modifications to different ack deadlines go into separate batches, since they're sent as
+ * different requests. A batch is sent as soon as its element count or request byte threshold is reached,
+ * or once the delay threshold has elapsed since its first element was added, whichever comes first.
+ * The future returned for each message completes when the request carrying its batch completes.
+ * Once the scheduler is shut down, each message is sent on its own right away.
+ *
+ * @since 1.1
+ */
+class AckBatcher {
+
+	private final BatchingSettings batchingSettings;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final AckOperation ackOperation;
+
+	/**
+	 * Batches being accumulated, guarded by its own monitor.
+	 */
+	private final Map<BatchKey, Batch> batches = new HashMap<>();
+
+	/**
+	 * Create an {@link AckBatcher}.
+	 * @param batchingSettings thresholds that trigger a batch to be sent
+	 * @param scheduler executor that sends batches once the delay threshold elapses
+	 * @param ackOperation sends an ack or modify ack deadline request for a batch
+	 */
+	AckBatcher(BatchingSettings batchingSettings, ScheduledExecutorService scheduler,
+			AckOperation ackOperation) {
+		Assert.notNull(batchingSettings, "The batchingSettings can't be null.");
+		Assert.notNull(scheduler, "The scheduler can't be null.");
+		Assert.notNull(ackOperation, "The ackOperation can't be null.");
+
+		this.batchingSettings = batchingSettings;
+		this.scheduler = scheduler;
+		this.ackOperation = ackOperation;
+	}
+
+	/**
+	 * Add a message to the batch of acks.
+	 * @param message the message to acknowledge
+	 * @return future that completes when the batch containing the ack completes
+	 */
+	ListenableFuture<Void> ack(AcknowledgeablePubsubMessage message) {
+		return add(message, null);
+	}
+
+	/**
+	 * Add a message to the batch of ack deadline modifications to the given deadline.
+	 * @param message the message whose ack deadline is to be modified
+	 * @param ackDeadlineSeconds the new ack deadline in seconds. A deadline of 0 nacks the message.
+	 * @return future that completes when the batch containing the modification completes
+	 */
+	ListenableFuture<Void> modifyAckDeadline(AcknowledgeablePubsubMessage message, int ackDeadlineSeconds) {
+		return add(message, ackDeadlineSeconds);
+	}
+
+	/**
+	 * Send all pending batches immediately, regardless of their thresholds.
+	 */
+	void flush() {
+		List<Batch> readyBatches;
+
+		synchronized (this.batches) {
+			readyBatches = new ArrayList<>(this.batches.values());
+			this.batches.clear();
+		}
+
+		readyBatches.forEach(this::send);
+	}
+
+	private ListenableFuture<Void> add(AcknowledgeablePubsubMessage message, Integer ackDeadlineSeconds) {
+		BatchKey key = new BatchKey(message.getProjectSubscriptionName(), ackDeadlineSeconds);
+		SettableListenableFuture<Void> future = new SettableListenableFuture<>();
+		Batch readyBatch = null;
+
+		synchronized (this.batches) {
+			Batch batch = this.batches.get(key);
+			boolean sendNow = false;
+			if (batch == null) {
+				batch = new Batch(key);
+				this.batches.put(key, batch);
+				sendNow = !scheduleDelayedSend(batch);
+			}
+
+			batch.add(message.getAckId(), future);
+
+			if (sendNow || isFull(batch)) {
+				this.batches.remove(key);
+				readyBatch = batch;
+			}
+		}
+
+		if (readyBatch != null) {
+			send(readyBatch);
+		}
+
+		return future;
+	}
+
+	/**
+	 * Schedule the batch to be sent once the delay threshold elapses.
+	 * @return false if the scheduler is shut down, in which case the batch has to be sent right away
+	 */
+	private boolean scheduleDelayedSend(Batch batch) {
+		if (this.batchingSettings.getDelayThreshold() == null) {
+			return true;
+		}
+
+		try {
+			batch.delayedSend = this.scheduler.schedule(() -> {
+				boolean removed;
+				synchronized (this.batches) {
+					removed = this.batches.remove(batch.key, batch);
+				}
+				if (removed) {
+					send(batch);
+				}
+			}, this.batchingSettings.getDelayThreshold().toMillis(), TimeUnit.MILLISECONDS);
+			return true;
+		}
+		catch (RejectedExecutionException ree) {
+			return false;
+		}
+	}
+
+	private boolean isFull(Batch batch) {
+		Long elementCountThreshold = this.batchingSettings.getElementCountThreshold();
+		Long requestByteThreshold = this.batchingSettings.getRequestByteThreshold();
+
+		return (elementCountThreshold != null && batch.ackIds.size() >= elementCountThreshold)
+				|| (requestByteThreshold != null && batch.byteSize >= requestByteThreshold);
+	}
+
+	private void send(Batch batch) {
+		if (batch.delayedSend != null) {
+			batch.delayedSend.cancel(false);
+		}
+
+		ApiFuture<Empty> apiFuture;
+		try {
+			apiFuture = this.ackOperation.send(
+					batch.key.projectSubscriptionName.getSubscription(), batch.ackIds,
+					batch.key.ackDeadlineSeconds);
+		}
+		catch (RuntimeException re) {
+			batch.futures.forEach(future -> future.setException(re));
+			return;
+		}
+
+		ApiFutures.addCallback(apiFuture, new ApiFutureCallback<Empty>() {
+			@Override
+			public void onFailure(Throwable throwable) {
+				batch.futures.forEach(future -> future.setException(throwable));
+			}
+
+			@Override
+			public void onSuccess(Empty empty) {
+				batch.futures.forEach(future -> future.set(null));
+			}
+		}, MoreExecutors.directExecutor());
+	}
+
+	/**
+	 * Sends an acknowledge request if {@code ackDeadlineSeconds} is null, or a modify ack deadline request
+	 * otherwise.
+	 */
+	@FunctionalInterface
+	interface AckOperation {
+		ApiFuture<Empty> send(String subscriptionName, List<String> ackIds, Integer ackDeadlineSeconds);
+	}
+
+	private static final class BatchKey {
+
+		private final ProjectSubscriptionName projectSubscriptionName;
+
+		private final Integer ackDeadlineSeconds;
+
+		BatchKey(ProjectSubscriptionName projectSubscriptionName, Integer ackDeadlineSeconds) {
+			this.projectSubscriptionName = projectSubscriptionName;
+			this.ackDeadlineSeconds = ackDeadlineSeconds;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			BatchKey that = (BatchKey) o;
+			return Objects.equals(this.projectSubscriptionName, that.projectSubscriptionName)
+					&& Objects.equals(this.ackDeadlineSeconds, that.ackDeadlineSeconds);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.projectSubscriptionName, this.ackDeadlineSeconds);
+		}
+	}
+
+	private static final class Batch {
+
+		private final BatchKey key;
+
+		private final List<String> ackIds = new ArrayList<>();
+
+		private final List<SettableListenableFuture<Void>> futures = new ArrayList<>();
+
+		private long byteSize;
+
+		private ScheduledFuture<?> delayedSend;
+
+		Batch(BatchKey key) {
+			this.key = key;
+			this.byteSize = CodedOutputStream.computeStringSize(1, key.projectSubscriptionName.getSubscription());
+		}
+
+		void add(String ackId, SettableListenableFuture<Void> future) {
+			this.ackIds.add(ackId);
+			this.futures.add(future);
+			this.byteSize += CodedOutputStream.computeStringSize(2, ackId);
+		}
+	}
+
+}
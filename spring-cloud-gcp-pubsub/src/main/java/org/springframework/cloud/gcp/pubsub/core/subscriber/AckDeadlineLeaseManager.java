@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.threeten.bp.Duration;
+
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Keeps extending the ack deadline of pulled messages until they are acked, nacked or have their ack
+ * deadline modified by the application, or until the maximum extension period has passed since they
+ * were pulled.
+ *
+ * <p>The deadline of newly tracked messages is extended right away, since the subscription's own
+ * deadline may be shorter than the renewal period. From then on, the deadlines of all tracked messages
+ * are extended together every half ack deadline.
+ *
+ * @since 1.1
+ */
+class AckDeadlineLeaseManager {
+
+	private static final Log LOGGER = LogFactory.getLog(AckDeadlineLeaseManager.class);
+
+	private final int ackDeadlineSeconds;
+
+	private final long maxExtensionPeriodNanos;
+
+	private final ExtendOperation extendOperation;
+
+	/**
+	 * Leases of the tracked messages, by ack ID.
+	 */
+	private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+	private final ScheduledFuture<?> renewal;
+
+	/**
+	 * Create an {@link AckDeadlineLeaseManager} and start renewing leases.
+	 * @param ackDeadlineSeconds the ack deadline set on every extension
+	 * @param maxExtensionPeriod how long after being pulled a message stops being extended
+	 * @param scheduler executor that periodically renews the leases
+	 * @param extendOperation sends batched modify ack deadline requests
+	 */
+	AckDeadlineLeaseManager(int ackDeadlineSeconds, Duration maxExtensionPeriod,
+			ScheduledExecutorService scheduler, ExtendOperation extendOperation) {
+		Assert.isTrue(ackDeadlineSeconds > 0, "The ackDeadlineSeconds must be greater than zero.");
+		Assert.notNull(maxExtensionPeriod, "The maxExtensionPeriod can't be null.");
+		Assert.notNull(scheduler, "The scheduler can't be null.");
+		Assert.notNull(extendOperation, "The extendOperation can't be null.");
+
+		this.ackDeadlineSeconds = ackDeadlineSeconds;
+		this.maxExtensionPeriodNanos = maxExtensionPeriod.toNanos();
+		this.extendOperation = extendOperation;
+
+		long renewalPeriodMillis = Math.max(1000L, TimeUnit.SECONDS.toMillis(ackDeadlineSeconds) / 2);
+		this.renewal = scheduler.scheduleAtFixedRate(this::renewLeases, renewalPeriodMillis, renewalPeriodMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Start extending the ack deadline of pulled messages.
+	 * @param messages the pulled messages
+	 */
+	void track(Collection<? extends AcknowledgeablePubsubMessage> messages) {
+		if (messages.isEmpty()) {
+			return;
+		}
+
+		long expiry = System.nanoTime() + this.maxExtensionPeriodNanos;
+		for (AcknowledgeablePubsubMessage message : messages) {
+			this.leases.put(message.getAckId(), new Lease(message, expiry));
+		}
+
+		extend(new ArrayList<>(messages));
+	}
+
+	/**
+	 * Stop extending the ack deadline of a message.
+	 * @param message the message that was acked, nacked or had its ack deadline modified
+	 */
+	void release(AcknowledgeablePubsubMessage message) {
+		this.leases.remove(message.getAckId());
+	}
+
+	/**
+	 * Stop extending the ack deadline of messages.
+	 * @param messages the messages that were acked, nacked or had their ack deadline modified
+	 */
+	void release(Collection<? extends AcknowledgeablePubsubMessage> messages) {
+		messages.forEach(this::release);
+	}
+
+	/**
+	 * Stop renewing leases, letting the deadlines of all tracked messages lapse.
+	 */
+	void shutdown() {
+		this.renewal.cancel(false);
+		this.leases.clear();
+	}
+
+	int getLeaseCount() {
+		return this.leases.size();
+	}
+
+	void renewLeases() {
+		long now = System.nanoTime();
+		List<AcknowledgeablePubsubMessage> messages = new ArrayList<>();
+
+		for (Iterator<Lease> it = this.leases.values().iterator(); it.hasNext(); ) {
+			Lease lease = it.next();
+			if (now - lease.expiry >= 0) {
+				it.remove();
+			}
+			else {
+				messages.add(lease.message);
+			}
+		}
+
+		if (!messages.isEmpty()) {
+			extend(messages);
+		}
+	}
+
+	private void extend(List<AcknowledgeablePubsubMessage> messages) {
+		try {
+			this.extendOperation.extend(messages, this.ackDeadlineSeconds).addCallback(
+					result -> { },
+					throwable -> LOGGER.warn("Extending the ack deadline of " + messages.size()
+							+ " messages failed.", throwable));
+		}
+		catch (RuntimeException re) {
+			LOGGER.warn("Extending the ack deadline of " + messages.size() + " messages failed.", re);
+		}
+	}
+
+	/**
+	 * Sets the ack deadline of messages, potentially from different subscriptions.
+	 */
+	@FunctionalInterface
+	interface ExtendOperation {
+		ListenableFuture<Void> extend(Collection<AcknowledgeablePubsubMessage> messages, int ackDeadlineSeconds);
+	}
+
+	private static final class Lease {
+
+		private final AcknowledgeablePubsubMessage message;
+
+		private final long expiry;
+
+		Lease(AcknowledgeablePubsubMessage message, long expiry) {
+			this.message = message;
+			this.expiry = expiry;
+		}
+	}
+
+}
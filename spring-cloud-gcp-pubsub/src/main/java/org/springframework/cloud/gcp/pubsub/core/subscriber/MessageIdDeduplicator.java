@@ -0,0 +1,352 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import org.threeten.bp.Duration;
+
+import org.springframework.util.Assert;
+
+/**
+ * Tracks the messages being processed and a bounded, time-windowed set of recently acked message
+ * IDs, used to skip messages that Pub/Sub redelivers while, or shortly after, they are processed.
+ *
+ * <p>A redelivery of a message that is still being processed is held until the original is acked
+ * or nacked, and is then acked or nacked along with it. A redelivery of a recently acked message
+ * is acked right away. A nacked message isn't remembered, so its redelivery is processed.
+ * A message that is neither acked nor nacked within the window, for example because it is left to
+ * its ack deadline to be retried, stops being tracked: its held redeliveries are nacked, and its
+ * next redelivery is processed.
+ *
+ * <p>Only a 64-bit hash of each acked message ID is kept, in open-addressing hash tables split
+ * into independently locked stripes, which also track the messages being processed. Each stripe
+ * holds a current and a previous generation; the generations rotate once the window has elapsed or
+ * the current one is full, so a message ID is remembered for at least the window, unless more
+ * than {@code maxEntries} other IDs are acked in the meantime.
+ *
+ * @since 1.1
+ */
+class MessageIdDeduplicator {
+
+	private static final int STRIPE_COUNT = 16;
+
+	private static final long EMPTY = 0L;
+
+	private final long windowNanos;
+
+	private final LongSupplier nanoTime;
+
+	private final int stripeCapacity;
+
+	private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+	/**
+	 * Create a deduplicator.
+	 * @param maxEntries the number of message IDs remembered within a window
+	 * @param window how long a message ID is remembered for
+	 */
+	MessageIdDeduplicator(int maxEntries, Duration window) {
+		this(maxEntries, window, System::nanoTime);
+	}
+
+	/**
+	 * Create a deduplicator reading the time from the given clock.
+	 * @param maxEntries the number of message IDs remembered within a window
+	 * @param window how long a message ID is remembered for
+	 * @param nanoTime the source of {@link System#nanoTime()} values
+	 */
+	MessageIdDeduplicator(int maxEntries, Duration window, LongSupplier nanoTime) {
+		Assert.notNull(nanoTime, "The nanoTime can't be null.");
+		Assert.isTrue(maxEntries > 0, "The maxEntries must be greater than zero.");
+		Assert.notNull(window, "The window can't be null.");
+		Assert.isTrue(!window.isNegative() && !window.isZero(), "The window must be positive.");
+
+		this.windowNanos = window.toNanos();
+		this.nanoTime = nanoTime;
+		this.stripeCapacity = Math.max(1, (maxEntries + STRIPE_COUNT - 1) / STRIPE_COUNT);
+
+		// Keep the tables at most half full, so that probe sequences stay short.
+		int tableSize = Integer.highestOneBit(this.stripeCapacity * 2 - 1) << 1;
+		for (int i = 0; i < STRIPE_COUNT; i++) {
+			this.stripes[i] = new Stripe(tableSize, nanoTime.getAsLong());
+		}
+	}
+
+	/**
+	 * Start tracking a received message.
+	 * @param messageId the ID of the received message
+	 * @param ackReplyConsumer the consumer acking or nacking the message
+	 * @return the consumer to process the message with, which records whether it's acked or
+	 * nacked, or {@code null} if the message is a duplicate, which is then settled by the
+	 * deduplicator
+	 */
+	AckReplyConsumer track(String messageId, AckReplyConsumer ackReplyConsumer) {
+		long hash = hash(messageId);
+		List<AckReplyConsumer> expired = new ArrayList<>(0);
+		InFlight inFlight = getStripe(hash).receive(hash, messageId, ackReplyConsumer, this.nanoTime.getAsLong(),
+				expired);
+		expired.forEach(AckReplyConsumer::nack);
+
+		if (inFlight == InFlight.ACKED) {
+			ackReplyConsumer.ack();
+			return null;
+		}
+		return (inFlight != null) ? new TrackingAckReplyConsumer(messageId, inFlight, ackReplyConsumer) : null;
+	}
+
+	/**
+	 * Record that processing a message failed, and nack its redeliveries received in the meantime.
+	 * @param trackingConsumer the consumer returned by {@link #track(String, AckReplyConsumer)} for
+	 * the message
+	 */
+	void failed(AckReplyConsumer trackingConsumer) {
+		Assert.isInstanceOf(TrackingAckReplyConsumer.class, trackingConsumer,
+				"The consumer wasn't returned by this deduplicator.");
+		TrackingAckReplyConsumer tracking = (TrackingAckReplyConsumer) trackingConsumer;
+		nacked(tracking.messageId, tracking.inFlight);
+	}
+
+	/**
+	 * Record that a message was acked, and ack its redeliveries received in the meantime.
+	 * @param messageId the ID of the message
+	 * @param inFlight the tracking of the message
+	 */
+	private void acked(String messageId, InFlight inFlight) {
+		long hash = hash(messageId);
+		List<AckReplyConsumer> expired = new ArrayList<>(0);
+		List<AckReplyConsumer> duplicates = getStripe(hash).acked(hash, messageId, inFlight, this.nanoTime.getAsLong(),
+				expired);
+		expired.forEach(AckReplyConsumer::nack);
+		if (duplicates != null) {
+			duplicates.forEach(AckReplyConsumer::ack);
+		}
+	}
+
+	/**
+	 * Record that a message was nacked, and nack its redeliveries received in the meantime.
+	 * @param messageId the ID of the message
+	 * @param inFlight the tracking of the message
+	 */
+	private void nacked(String messageId, InFlight inFlight) {
+		List<AckReplyConsumer> duplicates = getStripe(hash(messageId)).nacked(messageId, inFlight);
+		if (duplicates != null) {
+			duplicates.forEach(AckReplyConsumer::nack);
+		}
+	}
+
+	private Stripe getStripe(long hash) {
+		return this.stripes[(int) (hash >>> 60)];
+	}
+
+	/**
+	 * Hash a message ID to 64 bits, FNV-1a followed by the MurmurHash3 finalizer, never returning
+	 * the value reserved for empty slots.
+	 */
+	static long hash(String messageId) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < messageId.length(); i++) {
+			hash ^= messageId.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return (hash == EMPTY) ? hash + 1 : hash;
+	}
+
+	/**
+	 * A message being processed, and the redeliveries of it held in the meantime.
+	 */
+	private static final class InFlight {
+
+		/**
+		 * Stands for a recently acked message.
+		 */
+		static final InFlight ACKED = new InFlight(0L);
+
+		private final long startNanos;
+
+		private final List<AckReplyConsumer> duplicates = new ArrayList<>(0);
+
+		InFlight(long startNanos) {
+			this.startNanos = startNanos;
+		}
+	}
+
+	/**
+	 * Records whether a message is acked or nacked before passing the reply on.
+	 */
+	private final class TrackingAckReplyConsumer implements AckReplyConsumer {
+
+		private final String messageId;
+
+		private final InFlight inFlight;
+
+		private final AckReplyConsumer delegate;
+
+		TrackingAckReplyConsumer(String messageId, InFlight inFlight, AckReplyConsumer delegate) {
+			this.messageId = messageId;
+			this.inFlight = inFlight;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void ack() {
+			acked(this.messageId, this.inFlight);
+			this.delegate.ack();
+		}
+
+		@Override
+		public void nack() {
+			nacked(this.messageId, this.inFlight);
+			this.delegate.nack();
+		}
+	}
+
+	private final class Stripe {
+
+		private final int mask;
+
+		private long[] current;
+
+		private long[] previous;
+
+		private int currentCount;
+
+		private long generationStartNanos;
+
+		/**
+		 * The messages being processed, by message ID.
+		 */
+		private final Map<String, InFlight> inFlight = new HashMap<>();
+
+		Stripe(int tableSize, long nowNanos) {
+			this.mask = tableSize - 1;
+			this.generationStartNanos = nowNanos;
+			this.current = new long[tableSize];
+			this.previous = new long[tableSize];
+		}
+
+		/**
+		 * Track a received message.
+		 * @return the tracking of the message if it's to be processed, {@link InFlight#ACKED} if
+		 * it was recently acked, or {@code null} if it's held as a redelivery of a message being
+		 * processed
+		 */
+		synchronized InFlight receive(long hash, String messageId, AckReplyConsumer ackReplyConsumer,
+				long nowNanos, List<AckReplyConsumer> expired) {
+			rotateIfNeeded(nowNanos, expired);
+
+			if (isAcked(hash)) {
+				return InFlight.ACKED;
+			}
+
+			InFlight original = this.inFlight.get(messageId);
+			if (original != null) {
+				if (!isExpired(original, nowNanos)) {
+					original.duplicates.add(ackReplyConsumer);
+					return null;
+				}
+				expired.addAll(original.duplicates);
+			}
+
+			InFlight received = new InFlight(nowNanos);
+			this.inFlight.put(messageId, received);
+			return received;
+		}
+
+		synchronized List<AckReplyConsumer> acked(long hash, String messageId, InFlight inFlight, long nowNanos,
+				List<AckReplyConsumer> expired) {
+			rotateIfNeeded(nowNanos, expired);
+
+			if (!isAcked(hash)) {
+				int index = (int) hash & this.mask;
+				while (this.current[index] != EMPTY) {
+					index = (index + 1) & this.mask;
+				}
+				this.current[index] = hash;
+				this.currentCount++;
+			}
+			return this.inFlight.remove(messageId, inFlight) ? inFlight.duplicates : null;
+		}
+
+		synchronized List<AckReplyConsumer> nacked(String messageId, InFlight inFlight) {
+			return this.inFlight.remove(messageId, inFlight) ? inFlight.duplicates : null;
+		}
+
+		private boolean isExpired(InFlight inFlight, long nowNanos) {
+			return nowNanos - inFlight.startNanos >= MessageIdDeduplicator.this.windowNanos;
+		}
+
+		private boolean isAcked(long hash) {
+			return indexOf(this.current, hash) >= 0 || indexOf(this.previous, hash) >= 0;
+		}
+
+		private void rotateIfNeeded(long nowNanos, List<AckReplyConsumer> expired) {
+			long age = nowNanos - this.generationStartNanos;
+			if (age >= 2 * MessageIdDeduplicator.this.windowNanos) {
+				Arrays.fill(this.current, EMPTY);
+				Arrays.fill(this.previous, EMPTY);
+			}
+			else if (age >= MessageIdDeduplicator.this.windowNanos
+					|| this.currentCount >= MessageIdDeduplicator.this.stripeCapacity) {
+				long[] recycled = this.previous;
+				Arrays.fill(recycled, EMPTY);
+				this.previous = this.current;
+				this.current = recycled;
+			}
+			else {
+				return;
+			}
+			this.currentCount = 0;
+			this.generationStartNanos = nowNanos;
+
+			// Stop tracking the messages left unsettled for longer than the window.
+			Iterator<InFlight> inFlightIterator = this.inFlight.values().iterator();
+			while (inFlightIterator.hasNext()) {
+				InFlight candidate = inFlightIterator.next();
+				if (isExpired(candidate, nowNanos)) {
+					expired.addAll(candidate.duplicates);
+					inFlightIterator.remove();
+				}
+			}
+		}
+
+		private int indexOf(long[] table, long hash) {
+			int index = (int) hash & this.mask;
+			long slot;
+			while ((slot = table[index]) != EMPTY) {
+				if (slot == hash) {
+					return index;
+				}
+				index = (index + 1) & this.mask;
+			}
+			return -1;
+		}
+	}
+
+}
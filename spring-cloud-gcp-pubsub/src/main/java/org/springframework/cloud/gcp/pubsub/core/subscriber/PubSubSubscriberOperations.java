@@ -92,6 +92,31 @@ public interface PubSubSubscriberOperations {
 	 */
 	List<AcknowledgeablePubsubMessage> pull(String subscription, Integer maxMessages, Boolean returnImmediately);
 
+	/**
+	 * Asynchronously pull and auto-acknowledge a number of messages from a Google Cloud Pub/Sub subscription.
+	 * @param subscription the subscription name
+	 * @param maxMessages the maximum number of pulled messages
+	 * @param returnImmediately returns immediately even if subscription doesn't contain enough
+	 * messages to satisfy {@code maxMessages}
+	 * @return the ListenableFuture for the asynchronous execution, returning the list of received messages
+	 * @since 1.1
+	 */
+	ListenableFuture<List<PubsubMessage>> pullAndAckAsync(String subscription, Integer maxMessages,
+			Boolean returnImmediately);
+
+	/**
+	 * Asynchronously pull a number of messages from a Google Cloud Pub/Sub subscription.
+	 * @param subscription the subscription name
+	 * @param maxMessages the maximum number of pulled messages
+	 * @param returnImmediately returns immediately even if subscription doesn't contain enough
+	 * messages to satisfy {@code maxMessages}
+	 * @return the ListenableFuture for the asynchronous execution, returning the list of received acknowledgeable
+	 * messages
+	 * @since 1.1
+	 */
+	ListenableFuture<List<AcknowledgeablePubsubMessage>> pullAsync(String subscription, Integer maxMessages,
+			Boolean returnImmediately);
+
 	/**
 	 * Pull a number of messages from a Google Cloud Pub/Sub subscription and convert them to Spring messages with
 	 * the desired payload type.
@@ -106,6 +131,21 @@ public interface PubSubSubscriberOperations {
 	<T> List<ConvertedAcknowledgeablePubsubMessage<T>> pullAndConvert(String subscription, Integer maxMessages,
 			Boolean returnImmediately, Class<T> payloadType);
 
+	/**
+	 * Asynchronously pull a number of messages from a Google Cloud Pub/Sub subscription and convert them to Spring
+	 * messages with the desired payload type.
+	 * @param subscription the subscription name
+	 * @param maxMessages the maximum number of pulled messages
+	 * @param returnImmediately returns immediately even if subscription doesn't contain enough
+	 * messages to satisfy {@code maxMessages}
+	 * @param payloadType the type to which the payload of the Pub/Sub messages should be converted
+	 * @return the ListenableFuture for the asynchronous execution, returning the list of received acknowledgeable
+	 * messages
+	 * @since 1.1
+	 */
+	<T> ListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<T>>> pullAndConvertAsync(String subscription,
+			Integer maxMessages, Boolean returnImmediately, Class<T> payloadType);
+
 
 	/**
 	 * Pull and auto-acknowledge a message from a Google Cloud Pub/Sub subscription.
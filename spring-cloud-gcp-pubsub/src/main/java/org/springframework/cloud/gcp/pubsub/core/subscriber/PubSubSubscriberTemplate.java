@@ -16,10 +16,14 @@
 
 package org.springframework.cloud.gcp.pubsub.core.subscriber;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -28,6 +32,7 @@ import java.util.stream.Collectors;
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
@@ -40,14 +45,21 @@ import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.PullRequest;
 import com.google.pubsub.v1.PullResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.threeten.bp.Duration;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.converter.PayloadNotFoundException;
 import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
 import org.springframework.cloud.gcp.pubsub.support.converter.SimplePubSubMessageConverter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.SettableListenableFuture;
@@ -67,14 +79,38 @@ import org.springframework.util.concurrent.SettableListenableFuture;
  *
  * @since 1.1
  */
-public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
+public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(PubSubSubscriberTemplate.class);
 
 	private final SubscriberFactory subscriberFactory;
 
+	/**
+	 * Factories creating the subscribers of particular subscriptions instead of the default one.
+	 */
+	private final Map<String, SubscriberFactory> subscriptionSubscriberFactories = new ConcurrentHashMap<>();
+
 	private final SubscriberStub subscriberStub;
 
 	private PubSubMessageConverter pubSubMessageConverter = new SimplePubSubMessageConverter();
 
+	private PubSubMetrics pubSubMetrics = PubSubMetrics.NONE;
+
+	private volatile AckBatcher ackBatcher;
+
+	private volatile AckDeadlineLeaseManager leaseManager;
+
+	private ScheduledExecutorService ackExecutor;
+
+	private int deduplicationMaxEntries;
+
+	private Duration deduplicationWindow;
+
+	/**
+	 * Message ID deduplicators shared by the subscribers of each subscription.
+	 */
+	private final Map<String, MessageIdDeduplicator> deduplicators = new ConcurrentHashMap<>();
+
 	/**
 	 * Default {@link PubSubSubscriberTemplate} constructor
 	 *
@@ -98,6 +134,133 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		this.pubSubMessageConverter = pubSubMessageConverter;
 	}
 
+	public PubSubMetrics getPubSubMetrics() {
+		return this.pubSubMetrics;
+	}
+
+	/**
+	 * Set the {@link PubSubMetrics} that records pull latencies and batch sizes, acknowledgement request
+	 * counts and latencies, as well as payload conversion times.
+	 * @param pubSubMetrics the metrics recorder
+	 * @since 1.1
+	 */
+	public void setPubSubMetrics(PubSubMetrics pubSubMetrics) {
+		Assert.notNull(pubSubMetrics, "The pubSubMetrics can't be null.");
+
+		this.pubSubMetrics = pubSubMetrics;
+	}
+
+	/**
+	 * Coalesce the acks, nacks and ack deadline modifications of individually acknowledged pulled messages
+	 * into per-subscription batches, instead of sending one request per message.
+	 * <p>The future returned by each message's {@code ack()}, {@code nack()} or {@code modifyAckDeadline()}
+	 * completes when the request carrying its batch completes. Acknowledging a collection of messages
+	 * through {@link #ack(Collection)}, {@link #nack(Collection)} or
+	 * {@link #modifyAckDeadline(Collection, int)} is not affected.
+	 * @param ackBatchingSettings the element count, request byte and delay thresholds that trigger sending
+	 * a batch. Batching is disabled if {@code null} or not enabled.
+	 * @since 1.1
+	 */
+	public synchronized void setAckBatchingSettings(BatchingSettings ackBatchingSettings) {
+		if (this.ackBatcher != null) {
+			this.ackBatcher.flush();
+			this.ackBatcher = null;
+		}
+
+		if (ackBatchingSettings != null && ackBatchingSettings.getIsEnabled()) {
+			this.ackBatcher = new AckBatcher(ackBatchingSettings, getAckExecutor(),
+					(subscriptionName, ackIds, ackDeadlineSeconds) -> (ackDeadlineSeconds == null)
+							? ack(subscriptionName, ackIds)
+							: modifyAckDeadline(subscriptionName, ackIds, ackDeadlineSeconds));
+		}
+	}
+
+	/**
+	 * Keep extending the ack deadline of messages returned by {@link #pull(String, Integer, Boolean)},
+	 * {@link #pullAsync(String, Integer, Boolean)} and their converting variants, so that they aren't
+	 * redelivered while they're being processed.
+	 * <p>A message's deadline stops being extended once it is acked, nacked or has its ack deadline
+	 * modified through this template, or once the maximum extension period has passed since it was pulled.
+	 * @param ackDeadlineSeconds the ack deadline set on every extension
+	 * @param maxExtensionPeriod how long after being pulled a message stops being extended. Extension is
+	 * disabled if {@code null} or zero.
+	 * @since 1.1
+	 */
+	public synchronized void setAckDeadlineLeaseExtension(int ackDeadlineSeconds, Duration maxExtensionPeriod) {
+		if (this.leaseManager != null) {
+			this.leaseManager.shutdown();
+			this.leaseManager = null;
+		}
+
+		if (maxExtensionPeriod != null && !maxExtensionPeriod.isZero()) {
+			this.leaseManager = new AckDeadlineLeaseManager(ackDeadlineSeconds, maxExtensionPeriod,
+					getAckExecutor(), this::extendAckDeadline);
+		}
+	}
+
+	/**
+	 * Skip messages delivered more than once to the subscribers created by the {@code subscribe}
+	 * methods, by tracking the messages being processed and remembering the IDs of recently acked
+	 * messages. Duplicates aren't passed on. A duplicate of a message still being processed is held
+	 * until that message is acked or nacked, and is then acked or nacked along with it. A duplicate of
+	 * an acked message is acked if it arrives within the window. A message that is nacked, or whose
+	 * processing throws an exception, isn't remembered, so that its redelivery is processed.
+	 * A message that is neither acked nor nacked within the window stops being tracked, so that its
+	 * redelivery is processed.
+	 * @param maxEntries the number of message IDs remembered per subscription within a window
+	 * @param window how long a message ID is remembered for. Deduplication is disabled if {@code null}
+	 * or zero.
+	 * @since 1.1
+	 */
+	public synchronized void setMessageDeduplication(int maxEntries, Duration window) {
+		Assert.isTrue(window == null || window.isZero() || maxEntries > 0,
+				"The maxEntries must be greater than zero.");
+
+		this.deduplicators.clear();
+		this.deduplicationMaxEntries = maxEntries;
+		this.deduplicationWindow = (window == null || window.isZero()) ? null : window;
+	}
+
+	private ScheduledExecutorService getAckExecutor() {
+		if (this.ackExecutor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("gcp-pubsub-ack-");
+			threadFactory.setDaemon(true);
+			this.ackExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		}
+		return this.ackExecutor;
+	}
+
+	/**
+	 * Send any pending batched acks, nacks and ack deadline modifications immediately.
+	 * @since 1.1
+	 */
+	public void flushAcks() {
+		AckBatcher batcher = this.ackBatcher;
+		if (batcher != null) {
+			batcher.flush();
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+		// Acks made from now on are sent directly, since the executor that sends delayed batches is shut down.
+		AckBatcher batcher = this.ackBatcher;
+		this.ackBatcher = null;
+		if (batcher != null) {
+			batcher.flush();
+		}
+
+		if (this.leaseManager != null) {
+			this.leaseManager.shutdown();
+			this.leaseManager = null;
+		}
+
+		if (this.ackExecutor != null) {
+			this.ackExecutor.shutdown();
+			this.ackExecutor = null;
+		}
+	}
+
 	@Override
 	@Deprecated
 	public Subscriber subscribe(String subscription, MessageReceiver messageReceiver) {
@@ -105,7 +268,8 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		Assert.notNull(messageReceiver, "The messageReceiver can't be null.");
 
 		Subscriber subscriber =
-				this.subscriberFactory.createSubscriber(subscription, messageReceiver);
+				getSubscriberFactory(subscription).createSubscriber(subscription,
+						deduplicating(subscription, messageReceiver));
 		subscriber.startAsync();
 		return subscriber;
 	}
@@ -116,12 +280,12 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		Assert.notNull(messageConsumer, "The messageConsumer can't be null.");
 
 		Subscriber subscriber =
-				this.subscriberFactory.createSubscriber(subscription,
+				getSubscriberFactory(subscription).createSubscriber(subscription, deduplicating(subscription,
 						(message, ackReplyConsumer) -> messageConsumer.accept(
 								new PushedAcknowledgeablePubsubMessage(
 										ProjectSubscriptionName.of(this.subscriberFactory.getProjectId(), subscription),
 										message,
-										ackReplyConsumer)));
+										ackReplyConsumer))));
 		subscriber.startAsync();
 		return subscriber;
 	}
@@ -132,17 +296,64 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		Assert.notNull(messageConsumer, "The messageConsumer can't be null.");
 
 		Subscriber subscriber =
-				this.subscriberFactory.createSubscriber(subscription,
-						(message, ackReplyConsumer) -> messageConsumer.accept(
-								new ConvertedPushedAcknowledgeablePubsubMessage<>(
-										ProjectSubscriptionName.of(this.subscriberFactory.getProjectId(), subscription),
-										message,
-										this.getMessageConverter().fromPubSubMessage(message, payloadType),
-										ackReplyConsumer)));
+				getSubscriberFactory(subscription).createSubscriber(subscription, deduplicating(subscription,
+						(message, ackReplyConsumer) -> {
+							T payload;
+							try {
+								payload = convert(subscription, message, payloadType);
+							}
+							catch (PayloadNotFoundException pnfe) {
+								skipConsumed(message, pnfe);
+								ackReplyConsumer.ack();
+								return;
+							}
+							messageConsumer.accept(new ConvertedPushedAcknowledgeablePubsubMessage<>(
+									ProjectSubscriptionName.of(this.subscriberFactory.getProjectId(), subscription),
+									message,
+									payload,
+									ackReplyConsumer));
+						}));
 		subscriber.startAsync();
 		return subscriber;
 	}
 
+	/**
+	 * Log a message that is acked without being passed on, because its payload was already
+	 * consumed.
+	 */
+	private void skipConsumed(PubsubMessage message, PayloadNotFoundException pnfe) {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Acking message " + message.getMessageId() + " without passing it on: "
+					+ pnfe.getMessage());
+		}
+	}
+
+	private synchronized MessageReceiver deduplicating(String subscription, MessageReceiver messageReceiver) {
+		if (this.deduplicationWindow == null) {
+			return messageReceiver;
+		}
+
+		MessageIdDeduplicator deduplicator = this.deduplicators.computeIfAbsent(subscription,
+				key -> new MessageIdDeduplicator(this.deduplicationMaxEntries, this.deduplicationWindow));
+
+		return (message, ackReplyConsumer) -> {
+			AckReplyConsumer trackingConsumer = deduplicator.track(message.getMessageId(), ackReplyConsumer);
+			if (trackingConsumer == null) {
+				this.pubSubMetrics.recordDuplicate(subscription);
+				return;
+			}
+
+			try {
+				messageReceiver.receiveMessage(message, trackingConsumer);
+			}
+			catch (RuntimeException re) {
+				// The subscriber nacks the message itself, so only its duplicates are nacked here.
+				deduplicator.failed(trackingConsumer);
+				throw re;
+			}
+		};
+	}
+
 	/**
 	 * Pulls messages synchronously, on demand, using the pull request in argument.
 	 *
@@ -153,11 +364,66 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 	private List<AcknowledgeablePubsubMessage> pull(PullRequest pullRequest) {
 		Assert.notNull(pullRequest, "The pull request can't be null.");
 
-		PullResponse pullResponse = this.subscriberStub.pullCallable().call(pullRequest);
+		long startNanos = System.nanoTime();
+		PullResponse pullResponse;
+		try {
+			pullResponse = this.subscriberStub.pullCallable().call(pullRequest);
+		}
+		catch (RuntimeException re) {
+			this.pubSubMetrics.recordPull(pullRequest.getSubscription(), 0, System.nanoTime() - startNanos, false);
+			throw re;
+		}
+		this.pubSubMetrics.recordPull(pullRequest.getSubscription(), pullResponse.getReceivedMessagesCount(),
+				System.nanoTime() - startNanos, true);
+
+		return toAcknowledgeablePubsubMessageList(pullResponse, pullRequest.getSubscription());
+	}
+
+	/**
+	 * Pulls messages asynchronously, on demand, using the pull request in argument.
+	 *
+	 * @param pullRequest pull request containing the subscription name
+	 * @return the ListenableFuture for the asynchronous execution, returning the list of
+	 * {@link AcknowledgeablePubsubMessage} containing the ack ID, subscription and acknowledger
+	 */
+	private ListenableFuture<List<AcknowledgeablePubsubMessage>> pullAsync(PullRequest pullRequest) {
+		Assert.notNull(pullRequest, "The pull request can't be null.");
+
+		long startNanos = System.nanoTime();
+		ApiFuture<PullResponse> pullFuture = this.subscriberStub.pullCallable().futureCall(pullRequest);
+
+		SettableListenableFuture<List<AcknowledgeablePubsubMessage>> settableFuture =
+				new SettableListenableFuture<>();
+		ApiFutures.addCallback(pullFuture, new ApiFutureCallback<PullResponse>() {
+
+			@Override
+			public void onFailure(Throwable throwable) {
+				PubSubSubscriberTemplate.this.pubSubMetrics.recordPull(pullRequest.getSubscription(), 0,
+						System.nanoTime() - startNanos, false);
+				settableFuture.setException(throwable);
+			}
+
+			@Override
+			public void onSuccess(PullResponse pullResponse) {
+				PubSubSubscriberTemplate.this.pubSubMetrics.recordPull(pullRequest.getSubscription(),
+						pullResponse.getReceivedMessagesCount(), System.nanoTime() - startNanos, true);
+				settableFuture.set(
+						toAcknowledgeablePubsubMessageList(pullResponse, pullRequest.getSubscription()));
+			}
+
+		}, MoreExecutors.directExecutor());
+
+		return settableFuture;
+	}
+
+	private List<AcknowledgeablePubsubMessage> toAcknowledgeablePubsubMessageList(PullResponse pullResponse,
+			String subscriptionName) {
+		ProjectSubscriptionName projectSubscriptionName =
+				ProjectSubscriptionName.of(this.subscriberFactory.getProjectId(), subscriptionName);
+
 		return pullResponse.getReceivedMessagesList().stream()
 						.map(message -> new PulledAcknowledgeablePubsubMessage(
-								ProjectSubscriptionName.of(
-										this.subscriberFactory.getProjectId(), pullRequest.getSubscription()),
+								projectSubscriptionName,
 								message.getMessage(),
 								message.getAckId()))
 						.collect(Collectors.toList());
@@ -166,8 +432,33 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 	@Override
 	public List<AcknowledgeablePubsubMessage> pull(
 			String subscription, Integer maxMessages, Boolean returnImmediately) {
-		return pull(this.subscriberFactory.createPullRequest(subscription, maxMessages,
-				returnImmediately));
+		List<AcknowledgeablePubsubMessage> ackableMessages = pull(this.subscriberFactory.createPullRequest(
+				subscription, maxMessages, returnImmediately));
+		trackLeases(ackableMessages);
+		return ackableMessages;
+	}
+
+	@Override
+	public ListenableFuture<List<AcknowledgeablePubsubMessage>> pullAsync(
+			String subscription, Integer maxMessages, Boolean returnImmediately) {
+		ListenableFuture<List<AcknowledgeablePubsubMessage>> pullFuture = pullAsync(
+				this.subscriberFactory.createPullRequest(subscription, maxMessages, returnImmediately));
+		pullFuture.addCallback(this::trackLeases, throwable -> { });
+		return pullFuture;
+	}
+
+	private void trackLeases(List<AcknowledgeablePubsubMessage> ackableMessages) {
+		AckDeadlineLeaseManager manager = this.leaseManager;
+		if (manager != null) {
+			manager.track(ackableMessages);
+		}
+	}
+
+	private void releaseLeases(Collection<AcknowledgeablePubsubMessage> ackableMessages) {
+		AckDeadlineLeaseManager manager = this.leaseManager;
+		if (manager != null) {
+			manager.release(ackableMessages);
+		}
 	}
 
 	@Override
@@ -175,23 +466,63 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 			Boolean returnImmediately, Class<T> payloadType) {
 		List<AcknowledgeablePubsubMessage> ackableMessages = this.pull(subscription, maxMessages, returnImmediately);
 
-		return ackableMessages.stream().map(
-				m -> new ConvertedPulledAcknowledgeablePubsubMessage<>(m,
-						this.pubSubMessageConverter.fromPubSubMessage(m.getPubsubMessage(), payloadType))
-		).collect(Collectors.toList());
+		return convert(ackableMessages, payloadType);
 	}
 
 	@Override
-	public List<PubsubMessage> pullAndAck(String subscription, Integer maxMessages,
-			Boolean returnImmediately) {
-		Assert.hasText(subscription, "The subscription can't be null or empty.");
+	public <T> ListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<T>>> pullAndConvertAsync(
+			String subscription, Integer maxMessages, Boolean returnImmediately, Class<T> payloadType) {
+		SettableListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<T>>> settableFuture =
+				new SettableListenableFuture<>();
+
+		this.pullAsync(subscription, maxMessages, returnImmediately).addCallback(
+				ackableMessages -> {
+					try {
+						settableFuture.set(convert(ackableMessages, payloadType));
+					}
+					catch (RuntimeException re) {
+						settableFuture.setException(re);
+					}
+				},
+				settableFuture::setException);
 
-		if (maxMessages != null) {
-			Assert.isTrue(maxMessages > 0, "The maxMessages must be greater than 0.");
+		return settableFuture;
+	}
+
+	private <T> List<ConvertedAcknowledgeablePubsubMessage<T>> convert(
+			List<AcknowledgeablePubsubMessage> ackableMessages, Class<T> payloadType) {
+		List<ConvertedAcknowledgeablePubsubMessage<T>> convertedMessages = new ArrayList<>(ackableMessages.size());
+		List<AcknowledgeablePubsubMessage> consumedMessages = new ArrayList<>(0);
+		for (AcknowledgeablePubsubMessage message : ackableMessages) {
+			try {
+				convertedMessages.add(new ConvertedPulledAcknowledgeablePubsubMessage<>(message,
+						convert(message.getProjectSubscriptionName().getSubscription(), message.getPubsubMessage(),
+								payloadType)));
+			}
+			catch (PayloadNotFoundException pnfe) {
+				skipConsumed(message.getPubsubMessage(), pnfe);
+				consumedMessages.add(message);
+			}
 		}
 
-		PullRequest pullRequest = this.subscriberFactory.createPullRequest(
-				subscription, maxMessages, returnImmediately);
+		if (!consumedMessages.isEmpty()) {
+			releaseLeases(consumedMessages);
+			doBatchedAsyncOperation(consumedMessages, this::ack);
+		}
+		return convertedMessages;
+	}
+
+	private <T> T convert(String subscription, PubsubMessage message, Class<T> payloadType) {
+		long startNanos = System.nanoTime();
+		T payload = this.pubSubMessageConverter.fromPubSubMessage(message, payloadType);
+		this.pubSubMetrics.recordFromPubSubConversion(subscription, System.nanoTime() - startNanos);
+		return payload;
+	}
+
+	@Override
+	public List<PubsubMessage> pullAndAck(String subscription, Integer maxMessages,
+			Boolean returnImmediately) {
+		PullRequest pullRequest = createPullAndAckRequest(subscription, maxMessages, returnImmediately);
 
 		List<AcknowledgeablePubsubMessage> ackableMessages = pull(pullRequest);
 
@@ -203,6 +534,49 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 				.collect(Collectors.toList());
 	}
 
+	/**
+	 * Pull and acknowledge messages asynchronously.
+	 * <p>The returned {@link ListenableFuture} completes once the pulled messages have been acknowledged, or fails
+	 * if either the pull or the acknowledgement fails.
+	 */
+	@Override
+	public ListenableFuture<List<PubsubMessage>> pullAndAckAsync(String subscription, Integer maxMessages,
+			Boolean returnImmediately) {
+		PullRequest pullRequest = createPullAndAckRequest(subscription, maxMessages, returnImmediately);
+
+		SettableListenableFuture<List<PubsubMessage>> settableFuture = new SettableListenableFuture<>();
+
+		pullAsync(pullRequest).addCallback(
+				ackableMessages -> {
+					List<PubsubMessage> messages = ackableMessages.stream()
+							.map(AcknowledgeablePubsubMessage::getPubsubMessage)
+							.collect(Collectors.toList());
+
+					if (ackableMessages.isEmpty()) {
+						settableFuture.set(messages);
+					}
+					else {
+						ack(ackableMessages).addCallback(
+								result -> settableFuture.set(messages),
+								settableFuture::setException);
+					}
+				},
+				settableFuture::setException);
+
+		return settableFuture;
+	}
+
+	private PullRequest createPullAndAckRequest(String subscription, Integer maxMessages,
+			Boolean returnImmediately) {
+		Assert.hasText(subscription, "The subscription can't be null or empty.");
+
+		if (maxMessages != null) {
+			Assert.isTrue(maxMessages > 0, "The maxMessages must be greater than 0.");
+		}
+
+		return this.subscriberFactory.createPullRequest(subscription, maxMessages, returnImmediately);
+	}
+
 	@Override
 	public PubsubMessage pullNext(String subscription) {
 		List<PubsubMessage> receivedMessageList = pullAndAck(subscription, 1, true);
@@ -214,6 +588,34 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		return this.subscriberFactory;
 	}
 
+	/**
+	 * Create the subscribers of a subscription with a factory of its own, such as one with
+	 * different flow control or executor settings, instead of the default factory. Messages
+	 * received by those subscribers are still converted, deduplicated and recorded as configured
+	 * on this template. Subscribers created before are not affected.
+	 * @param subscription the subscription name
+	 * @param subscriberFactory the factory to create the subscription's subscribers with, or
+	 * {@code null} to go back to the default factory
+	 * @since 1.1
+	 */
+	public void setSubscriberFactory(String subscription, SubscriberFactory subscriberFactory) {
+		Assert.hasText(subscription, "The subscription can't be null or empty.");
+
+		if (subscriberFactory != null) {
+			this.subscriptionSubscriberFactories.put(subscription, subscriberFactory);
+		}
+		else {
+			this.subscriptionSubscriberFactories.remove(subscription);
+		}
+	}
+
+	private SubscriberFactory getSubscriberFactory(String subscription) {
+		SubscriberFactory factory = (subscription != null)
+				? this.subscriptionSubscriberFactories.get(subscription)
+				: null;
+		return (factory != null) ? factory : this.subscriberFactory;
+	}
+
 	/**
 	 * Acknowledge messages in per-subscription batches.
 	 * If any batch fails, the returned Future is marked as failed.
@@ -226,7 +628,30 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 			Collection<AcknowledgeablePubsubMessage> acknowledgeablePubsubMessages) {
 		Assert.notEmpty(acknowledgeablePubsubMessages, "The acknowledgeablePubsubMessages can't be empty.");
 
-		return doBatchedAsyncOperation(acknowledgeablePubsubMessages, this::ack);
+		releaseLeases(acknowledgeablePubsubMessages);
+		return afterAck(doBatchedAsyncOperation(acknowledgeablePubsubMessages, this::ack),
+				acknowledgeablePubsubMessages);
+	}
+
+	/**
+	 * Let the message converter know about the messages once they have been acknowledged.
+	 */
+	private ListenableFuture<Void> afterAck(ListenableFuture<Void> ackFuture,
+			Collection<? extends BasicAcknowledgeablePubsubMessage> messages) {
+		ackFuture.addCallback(
+				(result) -> messages.forEach((message) -> notifyAcknowledged(message.getPubsubMessage())),
+				(throwable) -> { });
+		return ackFuture;
+	}
+
+	private void notifyAcknowledged(PubsubMessage message) {
+		try {
+			this.pubSubMessageConverter.onAcknowledged(message);
+		}
+		catch (RuntimeException ex) {
+			LOGGER.warn("The message converter failed to handle the acknowledgement of message "
+					+ message.getMessageId() + ".", ex);
+		}
 	}
 
 	/**
@@ -255,7 +680,15 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		Assert.notEmpty(acknowledgeablePubsubMessages, "The acknowledgeablePubsubMessages can't be empty.");
 		Assert.isTrue(ackDeadlineSeconds >= 0, "The ackDeadlineSeconds must not be negative.");
 
+		releaseLeases(acknowledgeablePubsubMessages);
+		return extendAckDeadline(acknowledgeablePubsubMessages, ackDeadlineSeconds);
+	}
 
+	/**
+	 * Modify multiple messages' ack deadline in per-subscription batches, without affecting their leases.
+	 */
+	private ListenableFuture<Void> extendAckDeadline(
+			Collection<AcknowledgeablePubsubMessage> acknowledgeablePubsubMessages, int ackDeadlineSeconds) {
 		return doBatchedAsyncOperation(acknowledgeablePubsubMessages,
 				(String subscriptionName, List<String> ackIds) ->
 						modifyAckDeadline(subscriptionName, ackIds, ackDeadlineSeconds));
@@ -266,7 +699,9 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 				.addAllAckIds(ackIds)
 				.setSubscription(subscriptionName)
 				.build();
-		return this.subscriberStub.acknowledgeCallable().futureCall(acknowledgeRequest);
+		long startNanos = System.nanoTime();
+		return recordAck(subscriptionName, PubSubMetrics.AckType.ACK, ackIds.size(), startNanos,
+				this.subscriberStub.acknowledgeCallable().futureCall(acknowledgeRequest));
 	}
 
 	private ApiFuture<Empty> modifyAckDeadline(
@@ -277,7 +712,30 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 				.setSubscription(subscriptionName)
 				.build();
 
-		return this.subscriberStub.modifyAckDeadlineCallable().futureCall(modifyAckDeadlineRequest);
+		PubSubMetrics.AckType ackType = (ackDeadlineSeconds == 0)
+				? PubSubMetrics.AckType.NACK
+				: PubSubMetrics.AckType.MODIFY_ACK_DEADLINE;
+		long startNanos = System.nanoTime();
+		return recordAck(subscriptionName, ackType, ackIds.size(), startNanos,
+				this.subscriberStub.modifyAckDeadlineCallable().futureCall(modifyAckDeadlineRequest));
+	}
+
+	private ApiFuture<Empty> recordAck(String subscriptionName, PubSubMetrics.AckType ackType, int ackIdCount,
+			long startNanos, ApiFuture<Empty> ackFuture) {
+		ApiFutures.addCallback(ackFuture, new ApiFutureCallback<Empty>() {
+			@Override
+			public void onFailure(Throwable throwable) {
+				PubSubSubscriberTemplate.this.pubSubMetrics.recordAck(subscriptionName, ackType, ackIdCount,
+						System.nanoTime() - startNanos, false);
+			}
+
+			@Override
+			public void onSuccess(Empty empty) {
+				PubSubSubscriberTemplate.this.pubSubMetrics.recordAck(subscriptionName, ackType, ackIdCount,
+						System.nanoTime() - startNanos, true);
+			}
+		}, MoreExecutors.directExecutor());
+		return ackFuture;
 	}
 
 	/**
@@ -381,7 +839,12 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 
 		@Override
 		public ListenableFuture<Void> ack() {
-			return PubSubSubscriberTemplate.this.ack(Collections.singleton(this));
+			releaseLease();
+
+			AckBatcher batcher = PubSubSubscriberTemplate.this.ackBatcher;
+			return (batcher != null)
+					? afterAck(batcher.ack(this), Collections.singleton(this))
+					: PubSubSubscriberTemplate.this.ack(Collections.singleton(this));
 		}
 
 		@Override
@@ -391,7 +854,21 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 
 		@Override
 		public ListenableFuture<Void> modifyAckDeadline(int ackDeadlineSeconds) {
-			return PubSubSubscriberTemplate.this.modifyAckDeadline(Collections.singleton(this), ackDeadlineSeconds);
+			Assert.isTrue(ackDeadlineSeconds >= 0, "The ackDeadlineSeconds must not be negative.");
+
+			releaseLease();
+
+			AckBatcher batcher = PubSubSubscriberTemplate.this.ackBatcher;
+			return (batcher != null)
+					? batcher.modifyAckDeadline(this, ackDeadlineSeconds)
+					: PubSubSubscriberTemplate.this.modifyAckDeadline(Collections.singleton(this), ackDeadlineSeconds);
+		}
+
+		private void releaseLease() {
+			AckDeadlineLeaseManager manager = PubSubSubscriberTemplate.this.leaseManager;
+			if (manager != null) {
+				manager.release(this);
+			}
 		}
 
 		@Override
@@ -405,7 +882,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		}
 	}
 
-	private static class PushedAcknowledgeablePubsubMessage extends AbstractBasicAcknowledgeablePubsubMessage {
+	private class PushedAcknowledgeablePubsubMessage extends AbstractBasicAcknowledgeablePubsubMessage {
 
 		private final AckReplyConsumer ackReplyConsumer;
 
@@ -422,6 +899,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 			try {
 				this.ackReplyConsumer.ack();
 				settableListenableFuture.set(null);
+				notifyAcknowledged(getPubsubMessage());
 			}
 			catch (Throwable throwable) {
 				settableListenableFuture.setException(throwable);
@@ -472,7 +950,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		}
 	}
 
-	private static class ConvertedPushedAcknowledgeablePubsubMessage<T> extends PushedAcknowledgeablePubsubMessage
+	private class ConvertedPushedAcknowledgeablePubsubMessage<T> extends PushedAcknowledgeablePubsubMessage
 			implements ConvertedBasicAcknowledgeablePubsubMessage<T> {
 
 		private final T payload;
@@ -17,8 +17,9 @@
 package org.springframework.cloud.gcp.pubsub.integration;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
 import org.springframework.integration.mapping.HeaderMapper;
@@ -35,28 +36,37 @@ import org.springframework.util.Assert;
  * "nativeHeaders" on the {@link org.springframework.messaging.Message} to
  * {@link com.google.pubsub.v1.PubsubMessage} header conversion.
  *
+ * <p>Whether a header name matches the patterns is remembered for up to
+ * {@value #MAX_CACHED_HEADER_NAMES} header names in each direction, so that the patterns aren't
+ * matched again for every message.
+ *
  * @author João André Martins
  */
 public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 
+	/**
+	 * The number of header names whose match decision is remembered in each direction.
+	 */
+	public static final int MAX_CACHED_HEADER_NAMES = 1000;
+
 	/**
 	 * Patterns of headers to map in {@link #fromHeaders(MessageHeaders, Map)}.
 	 * First patterns take precedence.
 	 */
 	@SuppressWarnings("deprecation")
-	private String[] outboundHeaderPatterns = {
+	private volatile HeaderMatcher outboundHeaderMatcher = new HeaderMatcher(
 			"!" + MessageHeaders.ID,
 			"!" + MessageHeaders.TIMESTAMP,
 			"!" + GcpPubSubHeaders.ACKNOWLEDGEMENT,
 			"!" + GcpPubSubHeaders.ORIGINAL_MESSAGE,
 			"!" + NativeMessageHeaderAccessor.NATIVE_HEADERS,
-			"*"};
+			"*");
 
 	/**
 	 * Patterns of headers to map in {@link #toHeaders(Map)}.
 	 * First patterns take precedence.
 	 */
-	private String[] inboundHeaderPatterns = {"*"};
+	private volatile HeaderMatcher inboundHeaderMatcher = new HeaderMatcher("*");
 
 	/**
 	 * Set the patterns of the headers to be mapped in {@link #fromHeaders(MessageHeaders, Map)}.
@@ -66,8 +76,8 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 	public void setOutboundHeaderPatterns(String... outboundHeaderPatterns) {
 		Assert.notNull(outboundHeaderPatterns, "Header patterns can't be null.");
 		Assert.noNullElements(outboundHeaderPatterns, "No header pattern can be null.");
-		this.outboundHeaderPatterns =
-				Arrays.copyOf(outboundHeaderPatterns, outboundHeaderPatterns.length);
+		this.outboundHeaderMatcher = new HeaderMatcher(
+				Arrays.copyOf(outboundHeaderPatterns, outboundHeaderPatterns.length));
 	}
 
 	/**
@@ -78,8 +88,8 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 	public void setInboundHeaderPatterns(String... inboundHeaderPatterns) {
 		Assert.notNull(inboundHeaderPatterns, "Header patterns can't be null.");
 		Assert.noNullElements(inboundHeaderPatterns, "No header pattern can be null.");
-		this.inboundHeaderPatterns =
-				Arrays.copyOf(inboundHeaderPatterns, inboundHeaderPatterns.length);
+		this.inboundHeaderMatcher = new HeaderMatcher(
+				Arrays.copyOf(inboundHeaderPatterns, inboundHeaderPatterns.length));
 	}
 
 	/**
@@ -92,12 +102,12 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 	@Override
 	public void fromHeaders(MessageHeaders messageHeaders,
 			final Map<String, String> pubsubMessageHeaders) {
-		messageHeaders.entrySet().stream()
-				.filter(entry -> Boolean.TRUE.equals(
-						PatternMatchUtils.smartMatch(entry.getKey(),
-								this.outboundHeaderPatterns)))
-				.forEach(entry -> pubsubMessageHeaders.put(
-						entry.getKey(), entry.getValue().toString()));
+		HeaderMatcher matcher = this.outboundHeaderMatcher;
+		for (Map.Entry<String, Object> entry : messageHeaders.entrySet()) {
+			if (matcher.matches(entry.getKey())) {
+				pubsubMessageHeaders.put(entry.getKey(), entry.getValue().toString());
+			}
+		}
 	}
 
 	/**
@@ -109,10 +119,51 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 	 */
 	@Override
 	public Map<String, Object> toHeaders(Map<String, String> pubsubMessageHeaders) {
-		return pubsubMessageHeaders.entrySet().stream()
-				.filter(entry -> Boolean.TRUE.equals(
-						PatternMatchUtils.smartMatch(entry.getKey(),
-								this.inboundHeaderPatterns)))
-				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+		HeaderMatcher matcher = this.inboundHeaderMatcher;
+		Map<String, Object> headers = new HashMap<>(capacityFor(pubsubMessageHeaders.size()));
+		for (Map.Entry<String, String> entry : pubsubMessageHeaders.entrySet()) {
+			if (matcher.matches(entry.getKey())) {
+				headers.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return headers;
 	}
+
+	/**
+	 * Return the initial capacity of a {@link HashMap} that holds a number of entries without
+	 * being resized.
+	 * @param size the number of entries
+	 * @return the initial capacity
+	 */
+	private static int capacityFor(int size) {
+		return (int) (size / 0.75f) + 1;
+	}
+
+	/**
+	 * Header name patterns, with the decisions made for the header names seen so far. Replaced
+	 * as a whole when the patterns change, so that no decision outlives its patterns.
+	 */
+	private static final class HeaderMatcher {
+
+		private final String[] patterns;
+
+		private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+		HeaderMatcher(String... patterns) {
+			this.patterns = patterns;
+		}
+
+		boolean matches(String headerName) {
+			Boolean decision = this.decisions.get(headerName);
+			if (decision == null) {
+				decision = Boolean.TRUE.equals(PatternMatchUtils.smartMatch(headerName, this.patterns));
+				// Header names that vary from message to message aren't worth remembering past a point.
+				if (this.decisions.size() < MAX_CACHED_HEADER_NAMES) {
+					this.decisions.put(headerName, decision);
+				}
+			}
+			return decision;
+		}
+	}
+
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.integration.inbound;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Runs tasks on a fixed number of serial lanes, each with its own thread and bounded queue. Tasks
+ * with the same key always run on the same lane, in the order they were dispatched, while tasks
+ * with different keys may run in parallel.
+ *
+ * <p>Dispatching to a lane whose queue is full blocks the caller until the lane catches up.
+ * Tasks without a key are spread over the lanes in turn.
+ *
+ * @since 1.1
+ */
+class KeyOrderedDispatcher {
+
+	private static final Log LOGGER = LogFactory.getLog(KeyOrderedDispatcher.class);
+
+	private final ThreadPoolExecutor[] lanes;
+
+	private final AtomicInteger nextUnkeyedLane = new AtomicInteger();
+
+	/**
+	 * Create the lanes and their threads.
+	 * @param laneCount the number of lanes
+	 * @param laneCapacity the number of tasks each lane queues before dispatching blocks
+	 * @param threadNamePrefix the prefix of the names of the lane threads
+	 */
+	KeyOrderedDispatcher(int laneCount, int laneCapacity, String threadNamePrefix) {
+		Assert.isTrue(laneCount > 0, "The laneCount must be greater than zero.");
+		Assert.isTrue(laneCapacity > 0, "The laneCapacity must be greater than zero.");
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+		threadFactory.setDaemon(true);
+
+		this.lanes = new ThreadPoolExecutor[laneCount];
+		for (int i = 0; i < laneCount; i++) {
+			this.lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(laneCapacity), threadFactory, KeyOrderedDispatcher::waitForRoom);
+		}
+	}
+
+	/**
+	 * Run a task on the lane of its key, blocking while that lane is full.
+	 * @param key the key of the task, or {@code null} if the task doesn't need to be ordered
+	 * @param task the task
+	 */
+	void dispatch(Object key, Runnable task) {
+		int lane = (key != null)
+				? Math.floorMod(spread(key.hashCode()), this.lanes.length)
+				: Math.floorMod(this.nextUnkeyedLane.getAndIncrement(), this.lanes.length);
+
+		this.lanes[lane].execute(() -> {
+			try {
+				task.run();
+			}
+			catch (RuntimeException re) {
+				LOGGER.warn("Processing message with key " + key + " failed.", re);
+			}
+		});
+	}
+
+	/**
+	 * Stop accepting tasks and wait for the queued ones to complete.
+	 * @param timeout how long to wait
+	 * @param unit the unit of the timeout
+	 * @return whether all queued tasks completed in time
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		for (ThreadPoolExecutor lane : this.lanes) {
+			lane.shutdown();
+		}
+
+		long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+		for (ThreadPoolExecutor lane : this.lanes) {
+			long remainingNanos = deadlineNanos - System.nanoTime();
+			if (remainingNanos <= 0 || !lane.awaitTermination(remainingNanos, TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	int getQueuedTaskCount(int lane) {
+		return this.lanes[lane].getQueue().size();
+	}
+
+	private static int spread(int hashCode) {
+		// Mix in the high bits, so that keys differing only in those don't share a lane.
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+	private static void waitForRoom(Runnable task, ThreadPoolExecutor lane) {
+		if (lane.isShutdown()) {
+			throw new RejectedExecutionException("The lane is shut down.");
+		}
+
+		try {
+			lane.getQueue().put(task);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException("Interrupted while waiting for room in the lane.", ie);
+		}
+	}
+
+}
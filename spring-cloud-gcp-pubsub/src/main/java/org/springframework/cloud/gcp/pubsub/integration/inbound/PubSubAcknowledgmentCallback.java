@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.integration.inbound;
+
+import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.util.Assert;
+
+/**
+ * Acks or nacks a message polled by a {@link PubSubMessageSource} once the poller is done with it.
+ *
+ * <p>An accepted message is acked. A rejected message is nacked under {@link AckMode#AUTO}, and
+ * left to be redelivered once its ack deadline expires under {@link AckMode#AUTO_ACK}. A message
+ * requeued explicitly is always nacked.
+ *
+ * @since 1.1
+ */
+public class PubSubAcknowledgmentCallback implements AcknowledgmentCallback {
+
+	private final AcknowledgeablePubsubMessage message;
+
+	private final AckMode ackMode;
+
+	private final String subscriptionName;
+
+	private final PubSubMetrics pubSubMetrics;
+
+	private final long startNanos = System.nanoTime();
+
+	private boolean acknowledged;
+
+	public PubSubAcknowledgmentCallback(AcknowledgeablePubsubMessage message, AckMode ackMode) {
+		this(message, ackMode, null, PubSubMetrics.NONE);
+	}
+
+	/**
+	 * Create a callback that also records how long the poller took from receiving the message to
+	 * acknowledging it, as a success if the message was accepted.
+	 * @param message the polled message
+	 * @param ackMode the acknowledgement mode of the message source
+	 * @param subscriptionName the subscription the metrics are recorded for
+	 * @param pubSubMetrics the metrics recorder
+	 */
+	PubSubAcknowledgmentCallback(AcknowledgeablePubsubMessage message, AckMode ackMode,
+			String subscriptionName, PubSubMetrics pubSubMetrics) {
+		Assert.notNull(message, "The message can't be null.");
+		Assert.notNull(ackMode, "The ackMode can't be null.");
+		Assert.notNull(pubSubMetrics, "The pubSubMetrics can't be null.");
+
+		this.message = message;
+		this.ackMode = ackMode;
+		this.subscriptionName = subscriptionName;
+		this.pubSubMetrics = pubSubMetrics;
+	}
+
+	@Override
+	public void acknowledge(Status status) {
+		Assert.notNull(status, "The status can't be null.");
+
+		this.pubSubMetrics.recordProcessing(this.subscriptionName, System.nanoTime() - this.startNanos,
+				status == Status.ACCEPT);
+		if (status == Status.ACCEPT) {
+			this.message.ack();
+		}
+		else if (status == Status.REQUEUE || this.ackMode == AckMode.AUTO) {
+			this.message.nack();
+		}
+		this.acknowledged = true;
+	}
+
+	@Override
+	public boolean isAcknowledged() {
+		return this.acknowledged;
+	}
+
+	@Override
+	public boolean isAutoAck() {
+		return this.ackMode != AckMode.MANUAL;
+	}
+
+}
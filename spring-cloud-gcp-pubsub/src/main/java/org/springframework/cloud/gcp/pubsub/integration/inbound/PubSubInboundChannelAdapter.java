@@ -16,8 +16,14 @@
 
 package org.springframework.cloud.gcp.pubsub.integration.inbound;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.Subscriber;
 import org.apache.commons.logging.Log;
@@ -28,10 +34,16 @@ import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOper
 import org.springframework.cloud.gcp.pubsub.integration.AckMode;
 import org.springframework.cloud.gcp.pubsub.integration.PubSubHeaderMapper;
 import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
 import org.springframework.integration.endpoint.MessageProducerSupport;
+import org.springframework.integration.expression.ExpressionUtils;
 import org.springframework.integration.mapping.HeaderMapper;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
 import org.springframework.util.Assert;
 
 /**
@@ -46,6 +58,8 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 
 	private static final Log LOGGER = LogFactory.getLog(PubSubInboundChannelAdapter.class);
 
+	private static final long LANE_SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
 	private final String subscriptionName;
 
 	private final PubSubSubscriberOperations pubSubSubscriberOperations;
@@ -58,6 +72,33 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 
 	private Class payloadType = byte[].class;
 
+	private BatchingSettings batchingSettings;
+
+	private PubSubMetrics pubSubMetrics = PubSubMetrics.NONE;
+
+	/**
+	 * Messages gathered into the current batch, guarded by {@link #batchMonitor}.
+	 */
+	private List<ConvertedBasicAcknowledgeablePubsubMessage> batch = new ArrayList<>();
+
+	private long batchByteSize;
+
+	private ScheduledFuture<?> batchTimeout;
+
+	private final Object batchMonitor = new Object();
+
+	private int laneCount;
+
+	private int laneCapacity = 100;
+
+	private String orderingKeyAttribute;
+
+	private Expression orderingKeyExpression;
+
+	private EvaluationContext evaluationContext;
+
+	private KeyOrderedDispatcher dispatcher;
+
 	public PubSubInboundChannelAdapter(PubSubSubscriberOperations pubSubSubscriberOperations, String subscriptionName) {
 		Assert.notNull(pubSubSubscriberOperations, "Pub/Sub subscriber template can't be null.");
 		Assert.notNull(subscriptionName, "Pub/Sub subscription name can't be null.");
@@ -102,12 +143,126 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 		this.headerMapper = headerMapper;
 	}
 
+	public BatchingSettings getBatchingSettings() {
+		return this.batchingSettings;
+	}
+
+	/**
+	 * Enable batch mode, in which received messages are gathered and sent downstream as a single
+	 * {@link org.springframework.messaging.Message} whose payload is the list of converted payloads.
+	 * The headers of each element are carried, in payload order, by the
+	 * {@link GcpPubSubHeaders#BATCH_HEADERS} header. A batch is sent as soon as its element count
+	 * or byte threshold is reached, or once the delay threshold has elapsed since its first element
+	 * was received, whichever comes first. Under {@link AckMode#AUTO}, the whole batch is acked when
+	 * it is sent successfully, and nacked otherwise. Batch mode is disabled by default.
+	 * @param batchingSettings the thresholds that trigger a batch to be sent, or {@code null} to
+	 * send every message individually
+	 * @since 1.1
+	 */
+	public void setBatchingSettings(BatchingSettings batchingSettings) {
+		this.batchingSettings = batchingSettings;
+	}
+
+	public PubSubMetrics getPubSubMetrics() {
+		return this.pubSubMetrics;
+	}
+
+	/**
+	 * Set the {@link PubSubMetrics} that records how long sending each message, or batch of messages,
+	 * downstream takes.
+	 * @param pubSubMetrics the metrics recorder
+	 * @since 1.1
+	 */
+	public void setPubSubMetrics(PubSubMetrics pubSubMetrics) {
+		Assert.notNull(pubSubMetrics, "The pubSubMetrics can't be null.");
+		this.pubSubMetrics = pubSubMetrics;
+	}
+
+	public int getLaneCount() {
+		return this.laneCount;
+	}
+
+	/**
+	 * Send received messages downstream from a number of serial lanes, instead of from the thread
+	 * that received them. Messages with the same ordering key are always sent from the same lane, in
+	 * the order they were received, while messages with different keys are sent in parallel.
+	 * Messages without an ordering key are spread over the lanes in turn. Lanes are disabled by
+	 * default, and can't be combined with batch mode.
+	 * @param laneCount the number of lanes, or 0 to send messages from the receiving thread
+	 * @since 1.1
+	 */
+	public void setLaneCount(int laneCount) {
+		Assert.isTrue(laneCount >= 0, "The lane count can't be negative.");
+		this.laneCount = laneCount;
+	}
+
+	public int getLaneCapacity() {
+		return this.laneCapacity;
+	}
+
+	/**
+	 * Set the number of messages each lane queues. Once a lane is full, the thread that received a
+	 * message for it waits for room, which holds back further messages through the subscriber's
+	 * flow control. The default is 100.
+	 * @param laneCapacity the number of messages queued by each lane
+	 * @since 1.1
+	 */
+	public void setLaneCapacity(int laneCapacity) {
+		Assert.isTrue(laneCapacity > 0, "The lane capacity must be greater than zero.");
+		this.laneCapacity = laneCapacity;
+	}
+
+	/**
+	 * Use the value of a Pub/Sub message attribute as the ordering key of the lanes.
+	 * @param orderingKeyAttribute the name of the attribute
+	 * @since 1.1
+	 */
+	public void setOrderingKeyAttribute(String orderingKeyAttribute) {
+		this.orderingKeyAttribute = orderingKeyAttribute;
+	}
+
+	/**
+	 * Use the result of a SpEL expression, evaluated against the converted Spring message, as the
+	 * ordering key of the lanes. Takes precedence over the ordering key attribute.
+	 * @param orderingKeyExpression the expression
+	 * @since 1.1
+	 */
+	public void setOrderingKeyExpression(Expression orderingKeyExpression) {
+		this.orderingKeyExpression = orderingKeyExpression;
+	}
+
+	/**
+	 * Use the result of a SpEL expression string as the ordering key of the lanes.
+	 * @param orderingKeyExpression the expression string
+	 * @since 1.1
+	 * @see #setOrderingKeyExpression(Expression)
+	 */
+	public void setOrderingKeyExpressionString(String orderingKeyExpression) {
+		Assert.hasText(orderingKeyExpression, "The ordering key expression can't be null or empty.");
+		setOrderingKeyExpression(EXPRESSION_PARSER.parseExpression(orderingKeyExpression));
+	}
+
 	@Override
 	protected void doStart() {
 		super.doStart();
 
-		this.subscriber = this.pubSubSubscriberOperations.subscribeAndConvert(
-				this.subscriptionName, this::consumeMessage, this.payloadType);
+		if (this.laneCount > 0) {
+			Assert.state(this.batchingSettings == null, "Lanes can't be combined with batch mode.");
+			if (this.evaluationContext == null) {
+				this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
+			}
+			this.dispatcher = new KeyOrderedDispatcher(this.laneCount, this.laneCapacity,
+					"gcp-pubsub-lane-" + this.subscriptionName + "-");
+		}
+
+		if (this.batchingSettings != null) {
+			this.subscriber = this.pubSubSubscriberOperations.subscribeAndConvert(
+					this.subscriptionName, this::addToBatch, this.payloadType);
+		}
+		else {
+			this.subscriber = this.pubSubSubscriberOperations.subscribeAndConvert(
+					this.subscriptionName, this::consumeMessage, this.payloadType);
+		}
 	}
 
 	@Override
@@ -116,13 +271,28 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 			this.subscriber.stopAsync();
 		}
 
+		// Messages already received are delivered rather than left to expire.
+		sendPendingBatch();
+
+		if (this.dispatcher != null) {
+			try {
+				if (!this.dispatcher.shutdown(LANE_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					LOGGER.warn("Messages were still queued in the lanes of " + this.subscriptionName
+							+ " after " + LANE_SHUTDOWN_TIMEOUT_SECONDS + " seconds.");
+				}
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			this.dispatcher = null;
+		}
+
 		super.doStop();
 	}
 
 	@SuppressWarnings("deprecation")
 	private void consumeMessage(ConvertedBasicAcknowledgeablePubsubMessage message) {
-		Map<String, Object> messageHeaders =
-				this.headerMapper.toHeaders(message.getPubsubMessage().getAttributesMap());
+		Map<String, Object> messageHeaders = mapHeaders(message);
 
 		if (this.ackMode == AckMode.MANUAL) {
 			// Send the original message downstream so user decides on when to ack/nack.
@@ -144,10 +314,36 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 			});
 		}
 
+		Message<?> springMessage = MessageBuilder.withPayload(message.getPayload()).copyHeaders(messageHeaders).build();
+
+		KeyOrderedDispatcher laneDispatcher = this.dispatcher;
+		if (laneDispatcher != null) {
+			laneDispatcher.dispatch(getOrderingKey(message, springMessage),
+					() -> sendAndAcknowledge(message, springMessage));
+		}
+		else {
+			sendAndAcknowledge(message, springMessage);
+		}
+	}
+
+	private Object getOrderingKey(ConvertedBasicAcknowledgeablePubsubMessage message, Message<?> springMessage) {
+		if (this.orderingKeyExpression != null) {
+			return this.orderingKeyExpression.getValue(this.evaluationContext, springMessage);
+		}
+		if (this.orderingKeyAttribute != null) {
+			return message.getPubsubMessage().getAttributesMap().get(this.orderingKeyAttribute);
+		}
+		return null;
+	}
+
+	private void sendAndAcknowledge(ConvertedBasicAcknowledgeablePubsubMessage message, Message<?> springMessage) {
+		long startNanos = System.nanoTime();
 		try {
-			sendMessage(MessageBuilder.withPayload(message.getPayload()).copyHeaders(messageHeaders).build());
+			sendMessage(springMessage);
+			this.pubSubMetrics.recordProcessing(this.subscriptionName, System.nanoTime() - startNanos, true);
 		}
 		catch (RuntimeException re) {
+			this.pubSubMetrics.recordProcessing(this.subscriptionName, System.nanoTime() - startNanos, false);
 			if (this.ackMode == AckMode.AUTO) {
 				message.nack();
 			}
@@ -159,4 +355,108 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 		}
 	}
 
+	private void addToBatch(ConvertedBasicAcknowledgeablePubsubMessage message) {
+		List<ConvertedBasicAcknowledgeablePubsubMessage> readyBatch = null;
+
+		synchronized (this.batchMonitor) {
+			if (this.batch.isEmpty() && this.batchingSettings.getDelayThreshold() != null) {
+				long delayMillis = this.batchingSettings.getDelayThreshold().toMillis();
+				this.batchTimeout = getTaskScheduler().schedule(this::sendPendingBatch,
+						new Date(System.currentTimeMillis() + delayMillis));
+			}
+
+			this.batch.add(message);
+			this.batchByteSize += message.getPubsubMessage().getSerializedSize();
+
+			if (isBatchFull()) {
+				readyBatch = takeBatch();
+			}
+		}
+
+		if (readyBatch != null) {
+			sendBatch(readyBatch);
+		}
+	}
+
+	private boolean isBatchFull() {
+		Long elementCountThreshold = this.batchingSettings.getElementCountThreshold();
+		Long requestByteThreshold = this.batchingSettings.getRequestByteThreshold();
+
+		return (elementCountThreshold != null && this.batch.size() >= elementCountThreshold)
+				|| (requestByteThreshold != null && this.batchByteSize >= requestByteThreshold);
+	}
+
+	private List<ConvertedBasicAcknowledgeablePubsubMessage> takeBatch() {
+		if (this.batchTimeout != null) {
+			this.batchTimeout.cancel(false);
+			this.batchTimeout = null;
+		}
+
+		List<ConvertedBasicAcknowledgeablePubsubMessage> readyBatch = this.batch;
+		this.batch = new ArrayList<>();
+		this.batchByteSize = 0;
+		return readyBatch;
+	}
+
+	private void sendPendingBatch() {
+		List<ConvertedBasicAcknowledgeablePubsubMessage> readyBatch;
+
+		synchronized (this.batchMonitor) {
+			readyBatch = takeBatch();
+		}
+
+		if (!readyBatch.isEmpty()) {
+			sendBatch(readyBatch);
+		}
+	}
+
+	/**
+	 * Map the message attributes to headers, except for the content encoding of a compressed
+	 * payload, which the subscriber template's converter has already decompressed. An unknown
+	 * content encoding is left for the application to handle.
+	 */
+	private Map<String, Object> mapHeaders(ConvertedBasicAcknowledgeablePubsubMessage message) {
+		Map<String, String> attributes = message.getPubsubMessage().getAttributesMap();
+		Map<String, Object> messageHeaders = this.headerMapper.toHeaders(attributes);
+		if (CompressingPubSubMessageConverter.isCompressed(attributes)) {
+			messageHeaders.remove(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+		}
+		return messageHeaders;
+	}
+
+	private void sendBatch(List<ConvertedBasicAcknowledgeablePubsubMessage> messages) {
+		List<Object> payloads = new ArrayList<>(messages.size());
+		List<Map<String, Object>> batchHeaders = new ArrayList<>(messages.size());
+
+		for (ConvertedBasicAcknowledgeablePubsubMessage message : messages) {
+			Map<String, Object> messageHeaders = mapHeaders(message);
+
+			if (this.ackMode == AckMode.MANUAL) {
+				messageHeaders.put(GcpPubSubHeaders.ORIGINAL_MESSAGE, message);
+			}
+
+			payloads.add(message.getPayload());
+			batchHeaders.add(messageHeaders);
+		}
+
+		long startNanos = System.nanoTime();
+		try {
+			sendMessage(MessageBuilder.withPayload(payloads)
+					.setHeader(GcpPubSubHeaders.BATCH_HEADERS, batchHeaders)
+					.build());
+			this.pubSubMetrics.recordProcessing(this.subscriptionName, System.nanoTime() - startNanos, true);
+		}
+		catch (RuntimeException re) {
+			this.pubSubMetrics.recordProcessing(this.subscriptionName, System.nanoTime() - startNanos, false);
+			if (this.ackMode == AckMode.AUTO) {
+				messages.forEach(ConvertedBasicAcknowledgeablePubsubMessage::nack);
+			}
+			throw new PubSubException("Sending Spring message failed.", re);
+		}
+
+		if ((this.ackMode == AckMode.AUTO) || (this.ackMode == AckMode.AUTO_ACK)) {
+			messages.forEach(ConvertedBasicAcknowledgeablePubsubMessage::ack);
+		}
+	}
+
 }
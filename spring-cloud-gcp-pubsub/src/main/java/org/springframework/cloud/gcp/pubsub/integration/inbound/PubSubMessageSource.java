@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.integration.inbound;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
+import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+import org.springframework.cloud.gcp.pubsub.integration.PubSubHeaderMapper;
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.endpoint.AbstractFetchLimitingMessageSource;
+import org.springframework.integration.mapping.HeaderMapper;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link org.springframework.integration.core.MessageSource} that pulls messages from a
+ * subscription when polled.
+ *
+ * <p>Each pull request asks for up to the {@link #setMaxFetchSize(int) maximum fetch size} of
+ * messages, which are buffered and then handed out one per {@code receive()}, so that a poller
+ * doesn't need one request per message. Every message carries a
+ * {@link PubSubAcknowledgmentCallback}, which acks or nacks it once the poller is done with it
+ * according to the {@link AckMode}. Under {@link AckMode#MANUAL}, the message is also available in
+ * the {@link GcpPubSubHeaders#ORIGINAL_MESSAGE} header and has to be acknowledged by the
+ * application. The acks of a buffer's messages are sent in batches when ack batching is enabled
+ * on the {@link org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberTemplate}.
+ *
+ * <p>Buffered messages count towards their ack deadline, so the maximum fetch size should be small
+ * enough for a buffer to be drained within it, or the ack deadline of pulled messages should be
+ * extended by the template. Messages still buffered when the source is destroyed are nacked.
+ *
+ * @since 1.1
+ */
+public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Object> implements DisposableBean {
+
+	private final String subscriptionName;
+
+	private final PubSubSubscriberOperations pubSubSubscriberOperations;
+
+	private AckMode ackMode = AckMode.AUTO;
+
+	private HeaderMapper<Map<String, String>> headerMapper = new PubSubHeaderMapper();
+
+	private Class<?> payloadType = byte[].class;
+
+	private boolean blockOnPull;
+
+	private PubSubMetrics pubSubMetrics = PubSubMetrics.NONE;
+
+	/**
+	 * Pulled messages not handed out yet, guarded by itself.
+	 */
+	private final Deque<ConvertedAcknowledgeablePubsubMessage<?>> buffer = new ArrayDeque<>();
+
+	public PubSubMessageSource(PubSubSubscriberOperations pubSubSubscriberOperations, String subscriptionName) {
+		Assert.notNull(pubSubSubscriberOperations, "Pub/Sub subscriber template can't be null.");
+		Assert.notNull(subscriptionName, "Pub/Sub subscription name can't be null.");
+		this.pubSubSubscriberOperations = pubSubSubscriberOperations;
+		this.subscriptionName = subscriptionName;
+	}
+
+	public AckMode getAckMode() {
+		return this.ackMode;
+	}
+
+	public void setAckMode(AckMode ackMode) {
+		Assert.notNull(ackMode, "The acknowledgement mode can't be null.");
+		this.ackMode = ackMode;
+	}
+
+	public Class<?> getPayloadType() {
+		return this.payloadType;
+	}
+
+	/**
+	 * Set the desired type of the payload of the {@link org.springframework.messaging.Message}
+	 * constructed by converting the pulled Pub/Sub message. The default payload type is
+	 * {@code byte[].class}.
+	 * @param payloadType the type of the payload of the produced messages
+	 */
+	public void setPayloadType(Class<?> payloadType) {
+		Assert.notNull(payloadType, "The payload type cannot be null.");
+		this.payloadType = payloadType;
+	}
+
+	/**
+	 * Set the header mapper to map headers from pulled {@link com.google.pubsub.v1.PubsubMessage}s
+	 * into {@link org.springframework.messaging.Message}s.
+	 * @param headerMapper the header mapper
+	 */
+	public void setHeaderMapper(HeaderMapper<Map<String, String>> headerMapper) {
+		Assert.notNull(headerMapper, "The header mapper can't be null.");
+		this.headerMapper = headerMapper;
+	}
+
+	public boolean isBlockOnPull() {
+		return this.blockOnPull;
+	}
+
+	/**
+	 * Wait for messages to be available when the subscription is empty, instead of returning
+	 * nothing right away. Disabled by default.
+	 * @param blockOnPull whether pull requests wait for messages
+	 */
+	public void setBlockOnPull(boolean blockOnPull) {
+		this.blockOnPull = blockOnPull;
+	}
+
+	public PubSubMetrics getPubSubMetrics() {
+		return this.pubSubMetrics;
+	}
+
+	/**
+	 * Set the {@link PubSubMetrics} that records how long the poller takes from receiving each
+	 * message to acknowledging it.
+	 * @param pubSubMetrics the metrics recorder
+	 */
+	public void setPubSubMetrics(PubSubMetrics pubSubMetrics) {
+		Assert.notNull(pubSubMetrics, "The pubSubMetrics can't be null.");
+		this.pubSubMetrics = pubSubMetrics;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "gcp-pubsub:message-source";
+	}
+
+	@Override
+	protected Object doReceive(int maxFetchSize) {
+		ConvertedAcknowledgeablePubsubMessage<?> message = nextMessage(maxFetchSize);
+		if (message == null) {
+			return null;
+		}
+
+		Map<String, Object> messageHeaders =
+				this.headerMapper.toHeaders(message.getPubsubMessage().getAttributesMap());
+		if (CompressingPubSubMessageConverter.isCompressed(message.getPubsubMessage().getAttributesMap())) {
+			// The subscriber template's converter has already decompressed the payload.
+			messageHeaders.remove(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+		}
+		messageHeaders.put(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK,
+				new PubSubAcknowledgmentCallback(message, this.ackMode, this.subscriptionName,
+						this.pubSubMetrics));
+		if (this.ackMode == AckMode.MANUAL) {
+			messageHeaders.put(GcpPubSubHeaders.ORIGINAL_MESSAGE, message);
+		}
+
+		return getMessageBuilderFactory()
+				.withPayload(message.getPayload())
+				.copyHeaders(messageHeaders);
+	}
+
+	private ConvertedAcknowledgeablePubsubMessage<?> nextMessage(int maxFetchSize) {
+		synchronized (this.buffer) {
+			if (this.buffer.isEmpty()) {
+				// An unset fetch size is negative.
+				this.buffer.addAll(this.pubSubSubscriberOperations.pullAndConvert(this.subscriptionName,
+						Math.max(maxFetchSize, 1), !this.blockOnPull, this.payloadType));
+			}
+			return this.buffer.poll();
+		}
+	}
+
+	/**
+	 * Nack the messages pulled but not handed out yet, so that they're redelivered right away.
+	 */
+	@Override
+	public void destroy() {
+		List<AcknowledgeablePubsubMessage> bufferedMessages;
+		synchronized (this.buffer) {
+			bufferedMessages = new ArrayList<>(this.buffer);
+			this.buffer.clear();
+		}
+
+		if (!bufferedMessages.isEmpty()) {
+			this.pubSubSubscriberOperations.nack(bufferedMessages);
+		}
+	}
+
+}
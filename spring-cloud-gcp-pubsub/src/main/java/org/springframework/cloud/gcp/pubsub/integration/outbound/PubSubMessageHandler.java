@@ -16,21 +16,37 @@
 
 package org.springframework.cloud.gcp.pubsub.integration.outbound;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherOperations;
 import org.springframework.cloud.gcp.pubsub.integration.PubSubHeaderMapper;
 import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.context.Lifecycle;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.common.LiteralExpression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.integration.MessageTimeoutException;
 import org.springframework.integration.expression.ExpressionUtils;
 import org.springframework.integration.expression.ValueExpression;
 import org.springframework.integration.handler.AbstractMessageHandler;
 import org.springframework.integration.mapping.HeaderMapper;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
 import org.springframework.util.Assert;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
@@ -41,13 +57,26 @@ import org.springframework.util.concurrent.ListenableFutureCallback;
  * <p>It delegates Google Cloud Pub/Sub interaction to
  * {@link org.springframework.cloud.gcp.pubsub.core.PubSubTemplate}.
  *
+ * <p>In synchronous mode, up to {@link #setMaxOutstandingPublishes(int) a number} of publish calls
+ * may be outstanding at once, so that they can be batched by the publisher while every message
+ * is still known to be published, or to have failed, by the time {@link #flush()} returns or the
+ * endpoint stops. A message that fails to be published is then reported on its own, to the
+ * {@link #setFailureChannel(MessageChannel) failure channel}, rather than by handling a later one.
+ *
  * @author João André Martins
  * @author Mike Eltsufin
  */
-public class PubSubMessageHandler extends AbstractMessageHandler {
+public class PubSubMessageHandler extends AbstractMessageHandler implements Lifecycle {
 
 	private static final long DEFAULT_PUBLISH_TIMEOUT = 10000;
 
+	/**
+	 * Parses expression strings into expressions that are compiled to bytecode once they've been
+	 * evaluated, and fall back to interpretation if the compiled code doesn't fit a later message.
+	 */
+	private static final ExpressionParser COMPILING_EXPRESSION_PARSER = new SpelExpressionParser(
+			new SpelParserConfiguration(SpelCompilerMode.MIXED, PubSubMessageHandler.class.getClassLoader()));
+
 	private final PubSubPublisherOperations pubSubPublisherOperations;
 
 	private Expression topicExpression;
@@ -62,6 +91,17 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 
 	private HeaderMapper<Map<String, String>> headerMapper = new PubSubHeaderMapper();
 
+	private int maxOutstandingPublishes = 1;
+
+	private MessageChannel failureChannel;
+
+	/**
+	 * Synchronous publish calls not waited for yet, oldest first, guarded by itself.
+	 */
+	private final Deque<OutstandingPublish> outstandingPublishes = new ArrayDeque<>();
+
+	private volatile boolean running;
+
 	public PubSubMessageHandler(PubSubPublisherOperations pubSubPublisherOperations, String topic) {
 		Assert.notNull(pubSubPublisherOperations, "Pub/Sub publisher template can't be null.");
 		Assert.hasText(topic, "Pub/Sub topic can't be null or empty.");
@@ -84,6 +124,43 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 		this.sync = sync;
 	}
 
+	public int getMaxOutstandingPublishes() {
+		return this.maxOutstandingPublishes;
+	}
+
+	/**
+	 * Set the number of synchronous publish calls that may be outstanding at once. Once that many
+	 * calls are outstanding, handling a message waits for the oldest one to complete. A failed or
+	 * timed out call is reported as a {@link MessagingException} that carries the message that
+	 * wasn't published, either to the {@link #setFailureChannel(MessageChannel) failure channel}
+	 * or, when there is none, by logging it or throwing it from {@link #flush()}.
+	 * <p>The default is 1, which waits for every message to be published before handling the next.
+	 * Only applies in synchronous mode.
+	 * @param maxOutstandingPublishes the number of publish calls that may be outstanding at once
+	 * @since 1.1
+	 */
+	public void setMaxOutstandingPublishes(int maxOutstandingPublishes) {
+		Assert.isTrue(maxOutstandingPublishes > 0, "The maxOutstandingPublishes must be greater than zero.");
+		this.maxOutstandingPublishes = maxOutstandingPublishes;
+	}
+
+	public MessageChannel getFailureChannel() {
+		return this.failureChannel;
+	}
+
+	/**
+	 * Set the channel that an {@link ErrorMessage} is sent to for every message that fails to be
+	 * published while other publish calls are outstanding. Its payload is a
+	 * {@link MessagingException} whose failed message, also the original message of the error
+	 * message, is the message that wasn't published.
+	 * <p>Only applies in synchronous mode with more than one outstanding publish call.
+	 * @param failureChannel the channel failures are sent to
+	 * @since 1.1
+	 */
+	public void setFailureChannel(MessageChannel failureChannel) {
+		this.failureChannel = failureChannel;
+	}
+
 	public Expression getPublishTimeoutExpression() {
 		return this.publishTimeoutExpression;
 	}
@@ -107,7 +184,7 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 	 */
 	public void setPublishTimeoutExpressionString(String publishTimeoutExpression) {
 		Assert.notNull(publishTimeoutExpression, "Publish timeout expression can't be null.");
-		setPublishTimeoutExpression(EXPRESSION_PARSER.parseExpression(publishTimeoutExpression));
+		setPublishTimeoutExpression(COMPILING_EXPRESSION_PARSER.parseExpression(publishTimeoutExpression));
 	}
 
 	/**
@@ -156,7 +233,7 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 	 * @param topicExpressionString topic expression string
 	 */
 	public void setTopicExpressionString(String topicExpressionString) {
-		this.topicExpression = this.EXPRESSION_PARSER.parseExpression(topicExpressionString);
+		this.topicExpression = COMPILING_EXPRESSION_PARSER.parseExpression(topicExpressionString);
 	}
 
 	/**
@@ -172,13 +249,15 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 	@Override
 	protected void handleMessageInternal(Message<?> message) throws Exception {
 		Object payload = message.getPayload();
-		String topic = message.getHeaders().containsKey(GcpPubSubHeaders.TOPIC)
-				? message.getHeaders().get(GcpPubSubHeaders.TOPIC, String.class)
-				: this.topicExpression.getValue(this.evaluationContext, message, String.class);
+		String topic = message.getHeaders().get(GcpPubSubHeaders.TOPIC, String.class);
+		if (topic == null) {
+			topic = this.topicExpression.getValue(this.evaluationContext, message, String.class);
+		}
 
 		ListenableFuture<String> pubsubFuture;
 
-		Map<String, String> headers = new HashMap<>();
+		// Sized for all headers, so that the map is never resized while they're mapped.
+		Map<String, String> headers = new HashMap<>((int) (message.getHeaders().size() / 0.75f) + 1);
 		this.headerMapper.fromHeaders(message.getHeaders(), headers);
 
 		pubsubFuture = this.pubSubPublisherOperations.publish(topic, payload, headers);
@@ -190,18 +269,188 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 		if (this.sync) {
 			Long timeout = this.publishTimeoutExpression.getValue(
 					this.evaluationContext, message, Long.class);
-			if (timeout == null || timeout < 0) {
-				pubsubFuture.get();
+			if (this.maxOutstandingPublishes == 1) {
+				if (timeout == null || timeout < 0) {
+					pubsubFuture.get();
+				}
+				else {
+					pubsubFuture.get(timeout, TimeUnit.MILLISECONDS);
+				}
+			}
+			else {
+				awaitOutstandingPublishes(message, pubsubFuture, timeout);
+			}
+		}
+	}
+
+	/**
+	 * Add a publish call to the outstanding ones, and wait for the oldest ones until the limit is
+	 * respected. Only a failure of the given message is thrown, others are reported on their own.
+	 */
+	private void awaitOutstandingPublishes(Message<?> message, ListenableFuture<String> pubsubFuture,
+			Long timeout) {
+		List<MessagingException> failures = new ArrayList<>();
+		MessagingException thrown = null;
+		synchronized (this.outstandingPublishes) {
+			this.outstandingPublishes.addLast(new OutstandingPublish(message, pubsubFuture, timeout));
+			try {
+				// Completed calls are checked right away, so failures are reported as early as possible.
+				while (!this.outstandingPublishes.isEmpty()
+						&& (this.outstandingPublishes.size() > this.maxOutstandingPublishes
+								|| this.outstandingPublishes.peekFirst().future.isDone())) {
+					MessagingException failure = awaitOldestPublish();
+					if (failure != null) {
+						failures.add(failure);
+					}
+				}
+			}
+			catch (MessagingException me) {
+				thrown = me;
+			}
+		}
+
+		for (MessagingException failure : failures) {
+			if (failure.getFailedMessage() == message && thrown == null) {
+				thrown = failure;
+			}
+			else {
+				reportFailure(failure);
+			}
+		}
+		if (thrown != null) {
+			throw thrown;
+		}
+	}
+
+	/**
+	 * Wait for all outstanding synchronous publish calls to complete. Messages that failed to be
+	 * published are sent to the {@link #setFailureChannel(MessageChannel) failure channel}, if any.
+	 * @throws MessagingException if the thread is interrupted, in which case the calls not completed
+	 * yet are left outstanding, or, when there is no failure channel, for the oldest message that
+	 * failed to be published once all calls have completed, with the failures of the later ones
+	 * {@link Throwable#getSuppressed() suppressed}
+	 * @since 1.1
+	 */
+	public void flush() {
+		List<MessagingException> failures = new ArrayList<>();
+		MessagingException interruption = null;
+		synchronized (this.outstandingPublishes) {
+			try {
+				while (!this.outstandingPublishes.isEmpty()) {
+					MessagingException failure = awaitOldestPublish();
+					if (failure != null) {
+						failures.add(failure);
+					}
+				}
+			}
+			catch (MessagingException me) {
+				interruption = me;
+			}
+		}
+
+		if (this.failureChannel != null) {
+			failures.forEach(this::reportFailure);
+			failures.clear();
+		}
+		MessagingException thrown = (interruption != null || failures.isEmpty()) ? interruption : failures.remove(0);
+		if (thrown != null) {
+			failures.forEach(thrown::addSuppressed);
+			throw thrown;
+		}
+	}
+
+	/**
+	 * Wait for the oldest outstanding publish call, and remove it once it's completed or timed out.
+	 * It stays outstanding if the thread is interrupted while waiting.
+	 * Must be called while holding the lock on the outstanding publishes.
+	 * @return the failure of the call, or null if its message was published
+	 * @throws MessagingException if the thread is interrupted
+	 */
+	private MessagingException awaitOldestPublish() {
+		OutstandingPublish oldest = this.outstandingPublishes.peekFirst();
+		try {
+			if (oldest.deadlineNanos == null) {
+				oldest.future.get();
 			}
 			else {
-				pubsubFuture.get(timeout, TimeUnit.MILLISECONDS);
+				oldest.future.get(Math.max(oldest.deadlineNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
 			}
+			this.outstandingPublishes.pollFirst();
+			return null;
+		}
+		catch (ExecutionException ee) {
+			this.outstandingPublishes.pollFirst();
+			return new MessageHandlingException(oldest.message, "Failed to publish the message.", ee.getCause());
+		}
+		catch (TimeoutException te) {
+			this.outstandingPublishes.pollFirst();
+			return new MessageTimeoutException(oldest.message, "Timed out waiting for the message to be published.");
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new MessageHandlingException(oldest.message,
+					"Interrupted while waiting for the message to be published.", ie);
+		}
+	}
+
+	/**
+	 * Send the failure to the failure channel, or log it if there is none.
+	 */
+	private void reportFailure(MessagingException failure) {
+		if (this.failureChannel != null) {
+			this.failureChannel.send(new ErrorMessage(failure, failure.getFailedMessage()));
+		}
+		else {
+			this.logger.error("Failed to publish a message.", failure);
 		}
 	}
 
+	@Override
+	public void start() {
+		this.running = true;
+	}
+
+	/**
+	 * Wait for the outstanding synchronous publish calls to complete, or until the thread is
+	 * interrupted, logging any failures.
+	 */
+	@Override
+	public void stop() {
+		try {
+			flush();
+		}
+		catch (MessagingException me) {
+			this.logger.warn("Not all outstanding messages were published.", me);
+		}
+		this.running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
 	@Override
 	protected void onInit() throws Exception {
 		super.onInit();
 		this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
 	}
+
+	private static final class OutstandingPublish {
+
+		private final Message<?> message;
+
+		private final ListenableFuture<String> future;
+
+		private final Long deadlineNanos;
+
+		OutstandingPublish(Message<?> message, ListenableFuture<String> future, Long timeoutMillis) {
+			this.message = message;
+			this.future = future;
+			this.deadlineNanos = (timeoutMillis == null || timeoutMillis < 0)
+					? null
+					: System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		}
+	}
+
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.reactive;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.util.Assert;
+
+/**
+ * A factory for reactive {@link Flux} streams of messages pulled from Pub/Sub subscriptions.
+ *
+ * <p>Unlike the streaming {@link com.google.cloud.pubsub.v1.Subscriber}, whose flow control is
+ * fixed by its settings, the streams created here pull messages only when downstream subscribers
+ * request them. Each pull asks for no more messages than the outstanding demand, so messages are
+ * never buffered on behalf of a slow consumer.
+ *
+ * @since 1.1
+ */
+public class PubSubReactiveFactory {
+
+	private static final int DEFAULT_MAX_MESSAGES_PER_PULL = 1000;
+
+	private final PubSubSubscriberOperations subscriberOperations;
+
+	private final Scheduler scheduler;
+
+	private int maxMessagesPerPull = DEFAULT_MAX_MESSAGES_PER_PULL;
+
+	/**
+	 * Create a {@link PubSubReactiveFactory} that schedules idle polls on the
+	 * {@link Schedulers#parallel()} scheduler.
+	 * @param subscriberOperations the operations used to pull messages
+	 */
+	public PubSubReactiveFactory(PubSubSubscriberOperations subscriberOperations) {
+		this(subscriberOperations, Schedulers.parallel());
+	}
+
+	/**
+	 * Create a {@link PubSubReactiveFactory}.
+	 * @param subscriberOperations the operations used to pull messages
+	 * @param scheduler the scheduler on which pulls are rescheduled
+	 */
+	public PubSubReactiveFactory(PubSubSubscriberOperations subscriberOperations, Scheduler scheduler) {
+		Assert.notNull(subscriberOperations, "The subscriberOperations can't be null.");
+		Assert.notNull(scheduler, "The scheduler can't be null.");
+
+		this.subscriberOperations = subscriberOperations;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Set the maximum number of messages requested by a single pull, regardless of how large the
+	 * outstanding demand is. Defaults to 1000.
+	 * @param maxMessagesPerPull the maximum number of messages per pull
+	 */
+	public void setMaxMessagesPerPull(int maxMessagesPerPull) {
+		Assert.isTrue(maxMessagesPerPull > 0, "The maxMessagesPerPull must be greater than zero.");
+		this.maxMessagesPerPull = maxMessagesPerPull;
+	}
+
+	/**
+	 * Create an infinite stream of messages from a subscription.
+	 * <p>Messages are pulled as soon as demand is signalled and for as long as demand remains.
+	 * When a pull returns no messages, the next one is delayed by the polling period. Messages
+	 * have to be acked or nacked by the consumer.
+	 * @param subscriptionName the name of an existing subscription
+	 * @param pollingPeriodMs how long to wait before pulling again from an idle subscription
+	 * @return a stream of messages, which errors out if a pull fails
+	 */
+	public Flux<AcknowledgeablePubsubMessage> poll(String subscriptionName, long pollingPeriodMs) {
+		Assert.hasText(subscriptionName, "The subscriptionName can't be null or empty.");
+		Assert.isTrue(pollingPeriodMs > 0, "The pollingPeriodMs must be greater than zero.");
+
+		return Flux.create(sink -> {
+			DemandDrivenPuller puller = new DemandDrivenPuller(subscriptionName, pollingPeriodMs, sink);
+			sink.onRequest(n -> puller.pullIfDemanded());
+			sink.onDispose(puller::dispose);
+		});
+	}
+
+	/**
+	 * Pulls messages for a single stream, with at most one pull in flight at any time.
+	 */
+	private final class DemandDrivenPuller {
+
+		private final String subscriptionName;
+
+		private final long pollingPeriodMs;
+
+		private final FluxSink<AcknowledgeablePubsubMessage> sink;
+
+		private final AtomicBoolean pulling = new AtomicBoolean();
+
+		private volatile Disposable scheduledPull;
+
+		private volatile boolean disposed;
+
+		DemandDrivenPuller(String subscriptionName, long pollingPeriodMs,
+				FluxSink<AcknowledgeablePubsubMessage> sink) {
+			this.subscriptionName = subscriptionName;
+			this.pollingPeriodMs = pollingPeriodMs;
+			this.sink = sink;
+		}
+
+		void pullIfDemanded() {
+			if (this.disposed || this.sink.requestedFromDownstream() == 0
+					|| !this.pulling.compareAndSet(false, true)) {
+				return;
+			}
+
+			int maxMessages = (int) Math.min(this.sink.requestedFromDownstream(),
+					PubSubReactiveFactory.this.maxMessagesPerPull);
+
+			try {
+				PubSubReactiveFactory.this.subscriberOperations
+						.pullAsync(this.subscriptionName, maxMessages, true)
+						.addCallback(this::onMessages, this::onFailure);
+			}
+			catch (RuntimeException re) {
+				onFailure(re);
+			}
+		}
+
+		private void onMessages(List<AcknowledgeablePubsubMessage> messages) {
+			messages.forEach(this.sink::next);
+			this.pulling.set(false);
+
+			// Pulls are rescheduled rather than chained, so that a long series of immediately
+			// completing pulls doesn't grow the stack.
+			if (messages.isEmpty()) {
+				schedulePull(this.pollingPeriodMs);
+			}
+			else {
+				schedulePull(0);
+			}
+		}
+
+		private void onFailure(Throwable throwable) {
+			this.pulling.set(false);
+			this.sink.error(throwable);
+		}
+
+		private void schedulePull(long delayMs) {
+			if (!this.disposed) {
+				this.scheduledPull = PubSubReactiveFactory.this.scheduler
+						.schedule(this::pullIfDemanded, delayMs, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		void dispose() {
+			this.disposed = true;
+			Disposable pull = this.scheduledPull;
+			if (pull != null) {
+				pull.dispose();
+			}
+		}
+	}
+
+}
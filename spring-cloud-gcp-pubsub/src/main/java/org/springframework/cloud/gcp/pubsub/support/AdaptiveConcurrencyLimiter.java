@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+
+import org.springframework.util.Assert;
+
+/**
+ * Limits the number of messages a subscriber processes at once, adjusting the limit to the
+ * observed processing latency and failures in an additive increase, multiplicative decrease
+ * fashion.
+ *
+ * <p>While the limit is in use, every message processed successfully raises it by
+ * {@code 1 / limit}, so that it grows by about one per round of processing. A failed message, or a
+ * smoothed latency above {@code latencyTolerance} times the lowest recent latency, multiplies the
+ * limit by {@code backoffRatio}, at most once per round of processing. The limit stays within its
+ * minimum and maximum.
+ *
+ * <p>A message counts towards the limit from the time it's handed to the receiver until it's
+ * acked or nacked, so receivers that acknowledge messages asynchronously are limited too.
+ *
+ * @since 1.1
+ */
+class AdaptiveConcurrencyLimiter {
+
+	/**
+	 * The weight of a new sample in the smoothed latency.
+	 */
+	private static final double SMOOTHING_FACTOR = 0.1;
+
+	/**
+	 * The number of samples after which the lowest latency is measured afresh, so that the
+	 * baseline follows lasting changes in processing cost.
+	 */
+	private static final int MIN_LATENCY_SAMPLES = 1000;
+
+	private final String subscription;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double latencyTolerance;
+
+	private final double backoffRatio;
+
+	private final PubSubMetrics pubSubMetrics;
+
+	private final Object monitor = new Object();
+
+	private double limit;
+
+	private int inFlight;
+
+	private long minLatencyNanos = Long.MAX_VALUE;
+
+	private int minLatencySamples;
+
+	private double smoothedLatencyNanos;
+
+	private int samplesUntilDecrease;
+
+	AdaptiveConcurrencyLimiter(String subscription, int minLimit, int maxLimit, double latencyTolerance,
+			double backoffRatio, PubSubMetrics pubSubMetrics) {
+		Assert.isTrue(minLimit > 0, "The minimum limit must be greater than zero.");
+		Assert.isTrue(maxLimit >= minLimit, "The maximum limit can't be less than the minimum limit.");
+		Assert.isTrue(latencyTolerance > 1, "The latency tolerance must be greater than one.");
+		Assert.isTrue(backoffRatio > 0 && backoffRatio < 1, "The backoff ratio must be between zero and one.");
+		Assert.notNull(pubSubMetrics, "The pubSubMetrics can't be null.");
+
+		this.subscription = subscription;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyTolerance = latencyTolerance;
+		this.backoffRatio = backoffRatio;
+		this.pubSubMetrics = pubSubMetrics;
+		this.limit = minLimit;
+		pubSubMetrics.recordConcurrencyLimit(subscription, minLimit, minLimit);
+	}
+
+	/**
+	 * Wrap a receiver, so that it's only handed a message when the limit allows it.
+	 * @param receiver the receiver to limit
+	 * @return the limited receiver
+	 */
+	MessageReceiver limit(MessageReceiver receiver) {
+		return (message, consumer) -> {
+			try {
+				acquire();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				consumer.nack();
+				return;
+			}
+
+			long startNanos = System.nanoTime();
+			AtomicBoolean released = new AtomicBoolean();
+			AckReplyConsumer limitedConsumer = new AckReplyConsumer() {
+				@Override
+				public void ack() {
+					consumer.ack();
+					if (released.compareAndSet(false, true)) {
+						release(System.nanoTime() - startNanos, true);
+					}
+				}
+
+				@Override
+				public void nack() {
+					consumer.nack();
+					if (released.compareAndSet(false, true)) {
+						release(System.nanoTime() - startNanos, false);
+					}
+				}
+			};
+
+			try {
+				receiver.receiveMessage(message, limitedConsumer);
+			}
+			catch (RuntimeException re) {
+				if (released.compareAndSet(false, true)) {
+					release(System.nanoTime() - startNanos, false);
+				}
+				throw re;
+			}
+		};
+	}
+
+	/**
+	 * Wait until fewer messages than the limit are in flight, and count one more.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	void acquire() throws InterruptedException {
+		synchronized (this.monitor) {
+			while (this.inFlight >= (int) this.limit) {
+				this.monitor.wait();
+			}
+			this.inFlight++;
+		}
+	}
+
+	/**
+	 * Count one less message in flight, and adjust the limit to how it was processed.
+	 * @param latencyNanos the time from acquiring until the message was acked or nacked
+	 * @param success whether the message was acked
+	 */
+	void release(long latencyNanos, boolean success) {
+		int previousLimit;
+		int newLimit;
+		synchronized (this.monitor) {
+			boolean saturated = this.inFlight >= (int) this.limit;
+			this.inFlight--;
+			previousLimit = (int) this.limit;
+
+			if (++this.minLatencySamples > MIN_LATENCY_SAMPLES) {
+				this.minLatencyNanos = latencyNanos;
+				this.minLatencySamples = 0;
+			}
+			else {
+				this.minLatencyNanos = Math.min(this.minLatencyNanos, latencyNanos);
+			}
+			this.smoothedLatencyNanos = (this.smoothedLatencyNanos == 0)
+					? latencyNanos
+					: this.smoothedLatencyNanos + SMOOTHING_FACTOR * (latencyNanos - this.smoothedLatencyNanos);
+
+			if (this.samplesUntilDecrease > 0) {
+				this.samplesUntilDecrease--;
+			}
+
+			if (!success || this.smoothedLatencyNanos > this.minLatencyNanos * this.latencyTolerance) {
+				if (this.samplesUntilDecrease == 0) {
+					this.limit = Math.max(this.minLimit, this.limit * this.backoffRatio);
+					// Let the messages already in flight complete before backing off again.
+					this.samplesUntilDecrease = this.inFlight + 1;
+				}
+			}
+			else if (saturated) {
+				this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+			}
+
+			newLimit = (int) this.limit;
+			this.monitor.notifyAll();
+		}
+
+		if (newLimit != previousLimit) {
+			this.pubSubMetrics.recordConcurrencyLimit(this.subscription, newLimit, previousLimit);
+		}
+	}
+
+	int getLimit() {
+		synchronized (this.monitor) {
+			return (int) this.limit;
+		}
+	}
+
+	int getInFlight() {
+		synchronized (this.monitor) {
+			return this.inFlight;
+		}
+	}
+
+}
@@ -18,7 +18,12 @@ package org.springframework.cloud.gcp.pubsub.support;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.core.CredentialsProvider;
@@ -28,27 +33,59 @@ import com.google.api.gax.rpc.HeaderProvider;
 import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.cloud.pubsub.v1.Publisher;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.pubsub.v1.ProjectTopicName;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.threeten.bp.Duration;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.gcp.core.GcpProjectIdProvider;
 import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 
 /**
  * The default {@link PublisherFactory} implementation.
  *
- * <p>Creates {@link Publisher}s for topics once, caches and reuses them.
+ * <p>Creates {@link Publisher}s for topics once, caches and reuses them. The cache is unbounded
+ * by default, but can be limited in size and made to evict publishers that have been idle for a
+ * while. Evicted publishers are shut down, which publishes their outstanding messages first. A
+ * publisher used through {@link #withPublisher(String, Function)} is only shut down once it's no
+ * longer in use, so that evictions never make publishing fail.
  *
  * @author João André Martins
  */
-public class DefaultPublisherFactory implements PublisherFactory {
+public class DefaultPublisherFactory implements PublisherFactory, DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(DefaultPublisherFactory.class);
+
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 60L;
 
 	private final String projectId;
 
 	/**
 	 * {@link Publisher} cache, enforces only one {@link Publisher} per PubSub topic exists.
+	 * Built on first use, after which the cache settings can't be changed anymore.
 	 */
-	private final ConcurrentHashMap<String, Publisher> publishers = new ConcurrentHashMap<>();
+	private volatile Cache<String, CachedPublisher> publishers;
+
+	/**
+	 * Shuts down removed publishers, which blocks until their outstanding messages are published.
+	 */
+	private final ExecutorService shutdownExecutor = Executors.newSingleThreadExecutor(
+			daemonThreadFactory("gcp-pubsub-publisher-shutdown-"));
+
+	private Long cacheMaxSize;
+
+	private Duration cacheIdleTimeout;
+
+	private Ticker ticker = Ticker.systemTicker();
 
 	private ExecutorProvider executorProvider;
 
@@ -75,6 +112,29 @@ public class DefaultPublisherFactory implements PublisherFactory {
 		Assert.hasText(this.projectId, "The project ID can't be null or empty.");
 	}
 
+	/**
+	 * Create a {@link DefaultPublisherFactory} with the same settings as another one, to be
+	 * changed for some publishers without affecting the others. The copy caches its own
+	 * publishers, so it has to be destroyed separately.
+	 * @param defaults the factory to copy the settings of
+	 * @return the copy
+	 * @since 1.1
+	 */
+	public static DefaultPublisherFactory copyOf(DefaultPublisherFactory defaults) {
+		Assert.notNull(defaults, "The factory to copy can't be null.");
+
+		DefaultPublisherFactory copy = new DefaultPublisherFactory(() -> defaults.projectId);
+		copy.cacheMaxSize = defaults.cacheMaxSize;
+		copy.cacheIdleTimeout = defaults.cacheIdleTimeout;
+		copy.executorProvider = defaults.executorProvider;
+		copy.channelProvider = defaults.channelProvider;
+		copy.credentialsProvider = defaults.credentialsProvider;
+		copy.headerProvider = defaults.headerProvider;
+		copy.retrySettings = defaults.retrySettings;
+		copy.batchingSettings = defaults.batchingSettings;
+		return copy;
+	}
+
 	/**
 	 * Set the provider for the executor that will be used by the publisher. Useful to specify the number of threads to
 	 * be used by each executor.
@@ -112,6 +172,10 @@ public class DefaultPublisherFactory implements PublisherFactory {
 		this.retrySettings = retrySettings;
 	}
 
+	public BatchingSettings getBatchingSettings() {
+		return this.batchingSettings;
+	}
+
 	/**
 	 * Set the API call batching configuration.
 	 */
@@ -119,48 +183,266 @@ public class DefaultPublisherFactory implements PublisherFactory {
 		this.batchingSettings = batchingSettings;
 	}
 
+	/**
+	 * Set the maximum number of cached publishers. When the cache is full, the least recently used
+	 * publisher is evicted and shut down. Unbounded by default.
+	 * @param cacheMaxSize the maximum number of cached publishers, or {@code null} for no limit
+	 * @since 1.1
+	 */
+	public void setCacheMaxSize(Long cacheMaxSize) {
+		Assert.isTrue(cacheMaxSize == null || cacheMaxSize > 0, "The cacheMaxSize must be greater than zero.");
+		assertCacheNotBuilt();
+		this.cacheMaxSize = cacheMaxSize;
+	}
+
+	/**
+	 * Set how long a publisher can go without being requested before it is evicted and shut down.
+	 * Publishers are never evicted for being idle by default.
+	 * @param cacheIdleTimeout the idle timeout, or {@code null} for no timeout
+	 * @since 1.1
+	 */
+	public void setCacheIdleTimeout(Duration cacheIdleTimeout) {
+		assertCacheNotBuilt();
+		this.cacheIdleTimeout = cacheIdleTimeout;
+	}
+
+	@VisibleForTesting
+	void setTicker(Ticker ticker) {
+		assertCacheNotBuilt();
+		this.ticker = ticker;
+	}
+
+	/**
+	 * Return the number of times a cached publisher was returned.
+	 * @return the publisher cache hit count
+	 * @since 1.1
+	 */
+	public long getCacheHitCount() {
+		return (this.publishers != null) ? this.publishers.stats().hitCount() : 0;
+	}
+
+	/**
+	 * Return the number of times a publisher had to be created.
+	 * @return the publisher cache miss count
+	 * @since 1.1
+	 */
+	public long getCacheMissCount() {
+		return (this.publishers != null) ? this.publishers.stats().missCount() : 0;
+	}
+
+	/**
+	 * Return the number of publishers evicted because the cache was full or they were idle.
+	 * @return the publisher cache eviction count
+	 * @since 1.1
+	 */
+	public long getCacheEvictionCount() {
+		return (this.publishers != null) ? this.publishers.stats().evictionCount() : 0;
+	}
+
+	/**
+	 * Return the cached publisher for a topic. The publisher is shut down as soon as it's evicted,
+	 * so publishing through {@link #withPublisher(String, Function)} is preferable when the cache
+	 * is bounded.
+	 */
 	@Override
 	public Publisher createPublisher(String topic) {
-		return this.publishers.computeIfAbsent(topic, key -> {
-			try {
-				Publisher.Builder publisherBuilder =
-						Publisher.newBuilder(ProjectTopicName.of(this.projectId, key));
+		return getCachedPublisher(topic).publisher;
+	}
 
-				if (this.executorProvider != null) {
-					publisherBuilder.setExecutorProvider(this.executorProvider);
+	/**
+	 * Apply the action to the cached publisher for a topic, which isn't shut down before the
+	 * action completes, even if it's evicted in the meantime.
+	 */
+	@Override
+	public <T> T withPublisher(String topic, Function<Publisher, T> action) {
+		while (true) {
+			CachedPublisher cachedPublisher = getCachedPublisher(topic);
+			if (cachedPublisher.lease()) {
+				try {
+					return action.apply(cachedPublisher.publisher);
 				}
-
-				if (this.channelProvider != null) {
-					publisherBuilder.setChannelProvider(this.channelProvider);
+				finally {
+					cachedPublisher.release();
 				}
+			}
+			// Evicted since it was looked up, so a new publisher is created for the topic.
+		}
+	}
 
-				if (this.credentialsProvider != null) {
-					publisherBuilder.setCredentialsProvider(this.credentialsProvider);
-				}
+	private CachedPublisher getCachedPublisher(String topic) {
+		try {
+			return getPublishers().get(topic, () -> new CachedPublisher(topic, buildPublisher(topic)));
+		}
+		catch (ExecutionException | UncheckedExecutionException ee) {
+			if (ee.getCause() instanceof PubSubException) {
+				throw (PubSubException) ee.getCause();
+			}
+			throw new PubSubException("An error creating the Google Cloud Pub/Sub publisher " +
+					"occurred.", ee.getCause());
+		}
+	}
 
-				if (this.headerProvider != null) {
-					publisherBuilder.setHeaderProvider(this.headerProvider);
-				}
+	/**
+	 * Shut down all cached publishers, after publishing their outstanding messages.
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		getPublishers().invalidateAll();
+		this.shutdownExecutor.shutdown();
+		if (!this.shutdownExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+			LOGGER.warn("Timed out waiting for publishers to shut down.");
+		}
+	}
 
-				if (this.retrySettings != null) {
-					publisherBuilder.setRetrySettings(this.retrySettings);
-				}
+	Publisher buildPublisher(String topic) {
+		try {
+			Publisher.Builder publisherBuilder =
+					Publisher.newBuilder(ProjectTopicName.of(this.projectId, topic));
 
-				if (this.batchingSettings != null) {
-					publisherBuilder.setBatchingSettings(this.batchingSettings);
-				}
+			if (this.executorProvider != null) {
+				publisherBuilder.setExecutorProvider(this.executorProvider);
+			}
+
+			if (this.channelProvider != null) {
+				publisherBuilder.setChannelProvider(this.channelProvider);
+			}
 
-				return publisherBuilder.build();
+			if (this.credentialsProvider != null) {
+				publisherBuilder.setCredentialsProvider(this.credentialsProvider);
 			}
-			catch (IOException ioe) {
-				throw new PubSubException("An error creating the Google Cloud Pub/Sub publisher " +
-						"occurred.", ioe);
+
+			if (this.headerProvider != null) {
+				publisherBuilder.setHeaderProvider(this.headerProvider);
+			}
+
+			if (this.retrySettings != null) {
+				publisherBuilder.setRetrySettings(this.retrySettings);
 			}
-		});
+
+			if (this.batchingSettings != null) {
+				publisherBuilder.setBatchingSettings(this.batchingSettings);
+			}
+
+			return publisherBuilder.build();
+		}
+		catch (IOException ioe) {
+			throw new PubSubException("An error creating the Google Cloud Pub/Sub publisher " +
+					"occurred.", ioe);
+		}
+	}
+
+	private Cache<String, CachedPublisher> getPublishers() {
+		Cache<String, CachedPublisher> cache = this.publishers;
+		if (cache == null) {
+			synchronized (this) {
+				cache = this.publishers;
+				if (cache == null) {
+					CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+							.ticker(this.ticker)
+							.recordStats();
+					if (this.cacheMaxSize != null) {
+						cacheBuilder.maximumSize(this.cacheMaxSize);
+					}
+					if (this.cacheIdleTimeout != null) {
+						cacheBuilder.expireAfterAccess(this.cacheIdleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+					}
+					RemovalListener<String, CachedPublisher> removalListener =
+							(notification) -> notification.getValue().evict();
+					cache = cacheBuilder.removalListener(removalListener).build();
+					this.publishers = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	private synchronized void assertCacheNotBuilt() {
+		Assert.state(this.publishers == null, "The cache settings can't be changed once publishers were created.");
+	}
+
+	/**
+	 * Shut down a publisher in the background, or right away once the factory is destroyed.
+	 */
+	private void shutdown(String topic, Publisher publisher) {
+		try {
+			this.shutdownExecutor.execute(() -> shutdownPublisher(topic, publisher));
+		}
+		catch (RejectedExecutionException ree) {
+			shutdownPublisher(topic, publisher);
+		}
+	}
+
+	private void shutdownPublisher(String topic, Publisher publisher) {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Shutting down the publisher for topic " + topic + ".");
+		}
+
+		try {
+			publisher.shutdown();
+		}
+		catch (Exception ex) {
+			LOGGER.warn("Failed to shut down the publisher for topic " + topic + ".", ex);
+		}
+	}
+
+	private static CustomizableThreadFactory daemonThreadFactory(String threadNamePrefix) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+		threadFactory.setDaemon(true);
+		return threadFactory;
 	}
 
 	@VisibleForTesting
 	Map<String, Publisher> getCache() {
-		return this.publishers;
+		return Maps.transformValues(getPublishers().asMap(), (cachedPublisher) -> cachedPublisher.publisher);
+	}
+
+	/**
+	 * A cached publisher, which is shut down once it's evicted and no longer leased.
+	 */
+	private final class CachedPublisher {
+
+		private final String topic;
+
+		private final Publisher publisher;
+
+		private int leases;
+
+		private boolean evicted;
+
+		CachedPublisher(String topic, Publisher publisher) {
+			this.topic = topic;
+			this.publisher = publisher;
+		}
+
+		synchronized boolean lease() {
+			if (this.evicted) {
+				return false;
+			}
+			this.leases++;
+			return true;
+		}
+
+		void release() {
+			boolean unused;
+			synchronized (this) {
+				this.leases--;
+				unused = this.evicted && this.leases == 0;
+			}
+			if (unused) {
+				shutdown(this.topic, this.publisher);
+			}
+		}
+
+		void evict() {
+			boolean unused;
+			synchronized (this) {
+				this.evicted = true;
+				unused = this.leases == 0;
+			}
+			if (unused) {
+				shutdown(this.topic, this.publisher);
+			}
+		}
+
 	}
 }
@@ -46,6 +46,10 @@ import org.springframework.util.Assert;
  */
 public class DefaultSubscriberFactory implements SubscriberFactory {
 
+	private static final double DEFAULT_CONCURRENCY_LATENCY_TOLERANCE = 2.0;
+
+	private static final double DEFAULT_CONCURRENCY_BACKOFF_RATIO = 0.9;
+
 	private final String projectId;
 
 	private ExecutorProvider executorProvider;
@@ -70,6 +74,16 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 
 	private RetrySettings subscriberStubRetrySettings;
 
+	private PubSubMetrics pubSubMetrics = PubSubMetrics.NONE;
+
+	private int minConcurrencyLimit;
+
+	private int maxConcurrencyLimit;
+
+	private double concurrencyLatencyTolerance = DEFAULT_CONCURRENCY_LATENCY_TOLERANCE;
+
+	private double concurrencyBackoffRatio = DEFAULT_CONCURRENCY_BACKOFF_RATIO;
+
 	/**
 	 * Default {@link DefaultSubscriberFactory} constructor.
 	 *
@@ -82,6 +96,36 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 		Assert.hasText(this.projectId, "The project ID can't be null or empty.");
 	}
 
+	/**
+	 * Create a {@link DefaultSubscriberFactory} with the same settings as another one, to be
+	 * changed for some subscriptions without affecting the others.
+	 * @param defaults the factory to copy the settings of
+	 * @return the copy
+	 * @since 1.1
+	 */
+	public static DefaultSubscriberFactory copyOf(DefaultSubscriberFactory defaults) {
+		Assert.notNull(defaults, "The factory to copy can't be null.");
+
+		DefaultSubscriberFactory copy = new DefaultSubscriberFactory(defaults::getProjectId);
+		copy.executorProvider = defaults.executorProvider;
+		copy.channelProvider = defaults.channelProvider;
+		copy.credentialsProvider = defaults.credentialsProvider;
+		copy.headerProvider = defaults.headerProvider;
+		copy.systemExecutorProvider = defaults.systemExecutorProvider;
+		copy.flowControlSettings = defaults.flowControlSettings;
+		copy.maxAckExtensionPeriod = defaults.maxAckExtensionPeriod;
+		copy.parallelPullCount = defaults.parallelPullCount;
+		copy.pullEndpoint = defaults.pullEndpoint;
+		copy.apiClock = defaults.apiClock;
+		copy.subscriberStubRetrySettings = defaults.subscriberStubRetrySettings;
+		copy.pubSubMetrics = defaults.pubSubMetrics;
+		copy.minConcurrencyLimit = defaults.minConcurrencyLimit;
+		copy.maxConcurrencyLimit = defaults.maxConcurrencyLimit;
+		copy.concurrencyLatencyTolerance = defaults.concurrencyLatencyTolerance;
+		copy.concurrencyBackoffRatio = defaults.concurrencyBackoffRatio;
+		return copy;
+	}
+
 	@Override
 	public String getProjectId() {
 		return this.projectId;
@@ -123,6 +167,10 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 		this.systemExecutorProvider = systemExecutorProvider;
 	}
 
+	public FlowControlSettings getFlowControlSettings() {
+		return this.flowControlSettings;
+	}
+
 	/**
 	 * Set the flow control for the subscribers, including the behaviour for when the flow limits
 	 * are hit.
@@ -168,10 +216,69 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 		this.subscriberStubRetrySettings = subscriberStubRetrySettings;
 	}
 
+	/**
+	 * Set the {@link PubSubMetrics} to record the concurrency limits of adaptively limited
+	 * subscribers with.
+	 * @param pubSubMetrics the metrics to record to
+	 * @since 1.1
+	 */
+	public void setPubSubMetrics(PubSubMetrics pubSubMetrics) {
+		Assert.notNull(pubSubMetrics, "The pubSubMetrics can't be null.");
+		this.pubSubMetrics = pubSubMetrics;
+	}
+
+	/**
+	 * Limit the number of messages each subscriber processes at once, adjusting the limit to the
+	 * subscription's processing latency and failures. The limit starts at the minimum, grows by
+	 * about one per round of processing while it's fully used and latency stays within twice its
+	 * recent lowest value, and is cut by 10% when a message is nacked or latency exceeds that.
+	 * <p>A message counts towards the limit until it's acked or nacked. The flow control settings
+	 * still apply, and should allow at least the maximum limit of outstanding messages.
+	 * @param minLimit the lowest and initial limit
+	 * @param maxLimit the highest limit
+	 * @since 1.1
+	 */
+	public void setAdaptiveConcurrency(int minLimit, int maxLimit) {
+		setAdaptiveConcurrency(minLimit, maxLimit, DEFAULT_CONCURRENCY_LATENCY_TOLERANCE,
+				DEFAULT_CONCURRENCY_BACKOFF_RATIO);
+	}
+
+	/**
+	 * Limit the number of messages each subscriber processes at once, adjusting the limit to the
+	 * subscription's processing latency and failures.
+	 * @param minLimit the lowest and initial limit
+	 * @param maxLimit the highest limit
+	 * @param latencyTolerance how many times its recent lowest value the smoothed processing
+	 * latency may reach before the limit is cut
+	 * @param backoffRatio the factor the limit is multiplied by when it's cut
+	 * @since 1.1
+	 * @see #setAdaptiveConcurrency(int, int)
+	 */
+	public void setAdaptiveConcurrency(int minLimit, int maxLimit, double latencyTolerance,
+			double backoffRatio) {
+		Assert.isTrue(minLimit > 0, "The minimum concurrency limit must be greater than zero.");
+		Assert.isTrue(maxLimit >= minLimit,
+				"The maximum concurrency limit can't be less than the minimum concurrency limit.");
+		Assert.isTrue(latencyTolerance > 1, "The latency tolerance must be greater than one.");
+		Assert.isTrue(backoffRatio > 0 && backoffRatio < 1, "The backoff ratio must be between zero and one.");
+
+		this.minConcurrencyLimit = minLimit;
+		this.maxConcurrencyLimit = maxLimit;
+		this.concurrencyLatencyTolerance = latencyTolerance;
+		this.concurrencyBackoffRatio = backoffRatio;
+	}
+
 	@Override
 	public Subscriber createSubscriber(String subscriptionName, MessageReceiver receiver) {
+		MessageReceiver limitedReceiver = receiver;
+		if (this.minConcurrencyLimit > 0) {
+			limitedReceiver = new AdaptiveConcurrencyLimiter(subscriptionName, this.minConcurrencyLimit,
+					this.maxConcurrencyLimit, this.concurrencyLatencyTolerance, this.concurrencyBackoffRatio,
+					this.pubSubMetrics).limit(receiver);
+		}
+
 		Subscriber.Builder subscriberBuilder = Subscriber.newBuilder(
-				ProjectSubscriptionName.of(this.projectId, subscriptionName), receiver);
+				ProjectSubscriptionName.of(this.projectId, subscriptionName), limitedReceiver);
 
 		if (this.channelProvider != null) {
 			subscriberBuilder.setChannelProvider(this.channelProvider);
@@ -35,4 +35,10 @@ public abstract class GcpPubSubHeaders {
 	public static final String TOPIC = PREFIX + "topic";
 
 	public static final String ORIGINAL_MESSAGE = PREFIX + "original_message";
+
+	/**
+	 * Header of a batch message holding the list of per-element header maps, in payload order.
+	 * @since 1.1
+	 */
+	public static final String BATCH_HEADERS = PREFIX + "batch_headers";
 }
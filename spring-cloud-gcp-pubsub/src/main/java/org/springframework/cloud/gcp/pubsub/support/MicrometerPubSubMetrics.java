@@ -0,0 +1,337 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.ProjectTopicName;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link PubSubMetrics} that registers Micrometer meters, tagged by the short name of the
+ * topic or subscription.
+ *
+ * <p>The following meters are registered:
+ * <ul>
+ * <li>{@code gcp.pubsub.publish}: timer of publish calls, tagged by {@code topic} and {@code result}</li>
+ * <li>{@code gcp.pubsub.publish.messages}: counter of published messages, tagged by {@code topic}
+ * and {@code result}</li>
+ * <li>{@code gcp.pubsub.publish.bytes}: counter of the serialized size of the published messages,
+ * tagged by {@code topic}</li>
+ * <li>{@code gcp.pubsub.publish.dropped}: counter of messages dropped by publisher flow control,
+ * tagged by {@code topic}</li>
+ * <li>{@code gcp.pubsub.pull}: timer of pull requests, tagged by {@code subscription} and
+ * {@code result}</li>
+ * <li>{@code gcp.pubsub.pull.messages}: distribution of the number of messages returned by pull
+ * requests, tagged by {@code subscription}</li>
+ * <li>{@code gcp.pubsub.ack}: timer of acknowledge and modify ack deadline requests, tagged by
+ * {@code subscription}, {@code type} and {@code result}</li>
+ * <li>{@code gcp.pubsub.ack.ids}: counter of acknowledged ack IDs, tagged by {@code subscription}
+ * and {@code type}</li>
+ * <li>{@code gcp.pubsub.duplicates}: counter of redelivered messages skipped by message
+ * deduplication, tagged by {@code subscription}</li>
+ * <li>{@code gcp.pubsub.conversion}: timer of payload conversions, tagged by {@code destination}
+ * and {@code direction}</li>
+ * <li>{@code gcp.pubsub.processing}: timer of the processing of received messages, tagged by
+ * {@code subscription} and {@code result}</li>
+ * <li>{@code gcp.pubsub.subscriber.concurrency.limit}: gauge of the concurrency limit of adaptively
+ * limited subscribers, tagged by {@code subscription}</li>
+ * <li>{@code gcp.pubsub.subscriber.concurrency.adjustments}: counter of concurrency limit
+ * adjustments, tagged by {@code subscription} and {@code direction}</li>
+ * </ul>
+ *
+ * @since 1.1
+ */
+public class MicrometerPubSubMetrics implements PubSubMetrics {
+
+	private static final String SUCCESS = "success";
+
+	private static final String FAILURE = "failure";
+
+	private final MeterRegistry meterRegistry;
+
+	private final Map<String, TopicMeters> topicMeters = new ConcurrentHashMap<>();
+
+	private final Map<String, SubscriptionMeters> subscriptionMeters = new ConcurrentHashMap<>();
+
+	public MicrometerPubSubMetrics(MeterRegistry meterRegistry) {
+		Assert.notNull(meterRegistry, "The meterRegistry can't be null.");
+
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void recordPublish(String topic, int messageCount, long byteCount, long durationNanos,
+			boolean success) {
+		TopicMeters meters = getTopicMeters(topic);
+		if (success) {
+			meters.publishSuccess.record(durationNanos, TimeUnit.NANOSECONDS);
+			meters.publishedMessages.increment(messageCount);
+			meters.publishedBytes.increment(byteCount);
+		}
+		else {
+			meters.publishFailure.record(durationNanos, TimeUnit.NANOSECONDS);
+			meters.failedMessages.increment(messageCount);
+		}
+	}
+
+	@Override
+	public void recordPublishDropped(String topic, int messageCount) {
+		getTopicMeters(topic).droppedMessages.increment(messageCount);
+	}
+
+	@Override
+	public void recordPull(String subscription, int messageCount, long durationNanos, boolean success) {
+		SubscriptionMeters meters = getSubscriptionMeters(subscription);
+		if (success) {
+			meters.pullSuccess.record(durationNanos, TimeUnit.NANOSECONDS);
+			meters.pulledMessages.record(messageCount);
+		}
+		else {
+			meters.pullFailure.record(durationNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public void recordAck(String subscription, AckType ackType, int ackIdCount, long durationNanos,
+			boolean success) {
+		SubscriptionMeters meters = getSubscriptionMeters(subscription);
+		(success ? meters.ackSuccess : meters.ackFailure)[ackType.ordinal()]
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+		meters.ackIds[ackType.ordinal()].increment(ackIdCount);
+	}
+
+	@Override
+	public void recordDuplicate(String subscription) {
+		getSubscriptionMeters(subscription).duplicates.increment();
+	}
+
+	@Override
+	public void recordToPubSubConversion(String topic, long durationNanos) {
+		getTopicMeters(topic).conversion.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void recordFromPubSubConversion(String subscription, long durationNanos) {
+		getSubscriptionMeters(subscription).conversion.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void recordProcessing(String subscription, long durationNanos, boolean success) {
+		SubscriptionMeters meters = getSubscriptionMeters(subscription);
+		(success ? meters.processingSuccess : meters.processingFailure)
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void recordConcurrencyLimit(String subscription, int limit, int previousLimit) {
+		SubscriptionMeters meters = getSubscriptionMeters(subscription);
+		meters.setConcurrencyLimit(this.meterRegistry, limit);
+		if (limit > previousLimit) {
+			meters.concurrencyIncreases.increment();
+		}
+		else if (limit < previousLimit) {
+			meters.concurrencyDecreases.increment();
+		}
+	}
+
+	private TopicMeters getTopicMeters(String topic) {
+		TopicMeters meters = this.topicMeters.get(topic);
+		if (meters == null) {
+			meters = this.topicMeters.computeIfAbsent(topic, key -> new TopicMeters(this.meterRegistry,
+					ProjectTopicName.isParsableFrom(key) ? ProjectTopicName.parse(key).getTopic() : key));
+		}
+		return meters;
+	}
+
+	private SubscriptionMeters getSubscriptionMeters(String subscription) {
+		SubscriptionMeters meters = this.subscriptionMeters.get(subscription);
+		if (meters == null) {
+			meters = this.subscriptionMeters.computeIfAbsent(subscription,
+					key -> new SubscriptionMeters(this.meterRegistry, ProjectSubscriptionName.isParsableFrom(key)
+							? ProjectSubscriptionName.parse(key).getSubscription()
+							: key));
+		}
+		return meters;
+	}
+
+	private static Timer conversionTimer(MeterRegistry registry, String destination, String direction) {
+		return Timer.builder("gcp.pubsub.conversion")
+				.description("Time spent converting payloads")
+				.tags("destination", destination, "direction", direction)
+				.register(registry);
+	}
+
+	private static final class TopicMeters {
+
+		private final Timer publishSuccess;
+
+		private final Timer publishFailure;
+
+		private final Counter publishedMessages;
+
+		private final Counter failedMessages;
+
+		private final Counter publishedBytes;
+
+		private final Counter droppedMessages;
+
+		private final Timer conversion;
+
+		TopicMeters(MeterRegistry registry, String topic) {
+			this.publishSuccess = publishTimer(registry, topic, SUCCESS);
+			this.publishFailure = publishTimer(registry, topic, FAILURE);
+			this.publishedMessages = publishCounter(registry, topic, SUCCESS);
+			this.failedMessages = publishCounter(registry, topic, FAILURE);
+			this.publishedBytes = Counter.builder("gcp.pubsub.publish.bytes")
+					.description("Serialized size of the published messages")
+					.baseUnit("bytes")
+					.tags("topic", topic)
+					.register(registry);
+			this.droppedMessages = Counter.builder("gcp.pubsub.publish.dropped")
+					.description("Number of messages dropped by publisher flow control")
+					.tags("topic", topic)
+					.register(registry);
+			this.conversion = conversionTimer(registry, topic, "to_pubsub");
+		}
+
+		private static Timer publishTimer(MeterRegistry registry, String topic, String result) {
+			return Timer.builder("gcp.pubsub.publish")
+					.description("Time until published messages are acknowledged by Pub/Sub")
+					.tags("topic", topic, "result", result)
+					.register(registry);
+		}
+
+		private static Counter publishCounter(MeterRegistry registry, String topic, String result) {
+			return Counter.builder("gcp.pubsub.publish.messages")
+					.description("Number of published messages")
+					.tags("topic", topic, "result", result)
+					.register(registry);
+		}
+	}
+
+	private static final class SubscriptionMeters {
+
+		private final Timer pullSuccess;
+
+		private final Timer pullFailure;
+
+		private final DistributionSummary pulledMessages;
+
+		private final Timer[] ackSuccess = new Timer[AckType.values().length];
+
+		private final Timer[] ackFailure = new Timer[AckType.values().length];
+
+		private final Counter[] ackIds = new Counter[AckType.values().length];
+
+		private final Counter duplicates;
+
+		private final Timer conversion;
+
+		private final Timer processingSuccess;
+
+		private final Timer processingFailure;
+
+		private final Counter concurrencyIncreases;
+
+		private final Counter concurrencyDecreases;
+
+		private final String subscription;
+
+		private final AtomicInteger concurrencyLimit = new AtomicInteger();
+
+		SubscriptionMeters(MeterRegistry registry, String subscription) {
+			this.subscription = subscription;
+			this.pullSuccess = pullTimer(registry, subscription, SUCCESS);
+			this.pullFailure = pullTimer(registry, subscription, FAILURE);
+			this.pulledMessages = DistributionSummary.builder("gcp.pubsub.pull.messages")
+					.description("Number of messages returned by pull requests")
+					.tags("subscription", subscription)
+					.register(registry);
+
+			for (AckType ackType : AckType.values()) {
+				String type = ackType.name().toLowerCase(Locale.ROOT);
+				this.ackSuccess[ackType.ordinal()] = ackTimer(registry, subscription, type, SUCCESS);
+				this.ackFailure[ackType.ordinal()] = ackTimer(registry, subscription, type, FAILURE);
+				this.ackIds[ackType.ordinal()] = Counter.builder("gcp.pubsub.ack.ids")
+						.description("Number of ack IDs sent in acknowledgement requests")
+						.tags("subscription", subscription, "type", type)
+						.register(registry);
+			}
+
+			this.duplicates = Counter.builder("gcp.pubsub.duplicates")
+					.description("Number of redelivered messages skipped by message deduplication")
+					.tags("subscription", subscription)
+					.register(registry);
+			this.conversion = conversionTimer(registry, subscription, "from_pubsub");
+			this.processingSuccess = processingTimer(registry, subscription, SUCCESS);
+			this.processingFailure = processingTimer(registry, subscription, FAILURE);
+			this.concurrencyIncreases = concurrencyCounter(registry, subscription, "increase");
+			this.concurrencyDecreases = concurrencyCounter(registry, subscription, "decrease");
+		}
+
+		private void setConcurrencyLimit(MeterRegistry registry, int limit) {
+			this.concurrencyLimit.set(limit);
+			// Registering is idempotent, and only done here so that subscribers that aren't limited
+			// don't report a limit.
+			Gauge.builder("gcp.pubsub.subscriber.concurrency.limit", this.concurrencyLimit, AtomicInteger::get)
+					.description("Number of messages an adaptively limited subscriber may process at once")
+					.tags("subscription", this.subscription)
+					.register(registry);
+		}
+
+		private static Timer pullTimer(MeterRegistry registry, String subscription, String result) {
+			return Timer.builder("gcp.pubsub.pull")
+					.description("Duration of pull requests")
+					.tags("subscription", subscription, "result", result)
+					.register(registry);
+		}
+
+		private static Timer ackTimer(MeterRegistry registry, String subscription, String type, String result) {
+			return Timer.builder("gcp.pubsub.ack")
+					.description("Duration of acknowledge and modify ack deadline requests")
+					.tags("subscription", subscription, "type", type, "result", result)
+					.register(registry);
+		}
+
+		private static Counter concurrencyCounter(MeterRegistry registry, String subscription, String direction) {
+			return Counter.builder("gcp.pubsub.subscriber.concurrency.adjustments")
+					.description("Number of adjustments of the concurrency limit of adaptively limited subscribers")
+					.tags("subscription", subscription, "direction", direction)
+					.register(registry);
+		}
+
+		private static Timer processingTimer(MeterRegistry registry, String subscription, String result) {
+			return Timer.builder("gcp.pubsub.processing")
+					.description("Time spent processing received messages")
+					.tags("subscription", subscription, "result", result)
+					.register(registry);
+		}
+	}
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+/**
+ * A fixed-size pool of gRPC channels, shared by all the Pub/Sub clients it is given to.
+ *
+ * <p>Each Pub/Sub client created from an {@code InstantiatingGrpcChannelProvider} opens its own
+ * channels, and so its own HTTP/2 connections. Clients created from the
+ * {@link #getTransportChannelProvider() provider of this pool} instead spread their calls over the
+ * pooled channels, either in turn or on the channel with the fewest calls in progress. Clients
+ * don't close the pool; it is shut down with the application context.
+ *
+ * @since 1.1
+ */
+public class PubSubChannelPool extends ManagedChannel implements DisposableBean {
+
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+	private final List<ManagedChannel> channels;
+
+	private final AtomicInteger[] activeCalls;
+
+	private final SelectionStrategy selectionStrategy;
+
+	private final AtomicInteger nextIndex = new AtomicInteger();
+
+	/**
+	 * Create a pool of channels.
+	 * @param poolSize the number of channels in the pool
+	 * @param selectionStrategy how a channel is chosen for each call
+	 * @param channelFactory creates each pooled channel
+	 */
+	public PubSubChannelPool(int poolSize, SelectionStrategy selectionStrategy,
+			Supplier<ManagedChannel> channelFactory) {
+		Assert.isTrue(poolSize > 0, "The poolSize must be greater than zero.");
+		Assert.notNull(selectionStrategy, "The selectionStrategy can't be null.");
+		Assert.notNull(channelFactory, "The channelFactory can't be null.");
+
+		List<ManagedChannel> pooledChannels = new ArrayList<>(poolSize);
+		this.activeCalls = new AtomicInteger[poolSize];
+		for (int i = 0; i < poolSize; i++) {
+			pooledChannels.add(channelFactory.get());
+			this.activeCalls[i] = new AtomicInteger();
+		}
+		this.channels = Collections.unmodifiableList(pooledChannels);
+		this.selectionStrategy = selectionStrategy;
+	}
+
+	/**
+	 * Return a provider that hands this pool to every client, without letting them close it.
+	 * @return the transport channel provider to give Pub/Sub clients
+	 */
+	public TransportChannelProvider getTransportChannelProvider() {
+		return FixedTransportChannelProvider.create(GrpcTransportChannel.create(this));
+	}
+
+	public int getSize() {
+		return this.channels.size();
+	}
+
+	public SelectionStrategy getSelectionStrategy() {
+		return this.selectionStrategy;
+	}
+
+	@Override
+	public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> methodDescriptor,
+			CallOptions callOptions) {
+		int index = selectChannel();
+		ClientCall<ReqT, RespT> call = this.channels.get(index).newCall(methodDescriptor, callOptions);
+		return (this.selectionStrategy == SelectionStrategy.LEAST_LOADED)
+				? new CountingClientCall<>(call, this.activeCalls[index])
+				: call;
+	}
+
+	private int selectChannel() {
+		int start = Math.floorMod(this.nextIndex.getAndIncrement(), this.channels.size());
+
+		if (this.selectionStrategy == SelectionStrategy.ROUND_ROBIN) {
+			return start;
+		}
+
+		// Scan from a rotating start so that ties are spread over the channels.
+		int selected = start;
+		int fewestCalls = this.activeCalls[start].get();
+		for (int i = 1; i < this.channels.size() && fewestCalls > 0; i++) {
+			int index = (start + i) % this.channels.size();
+			int calls = this.activeCalls[index].get();
+			if (calls < fewestCalls) {
+				selected = index;
+				fewestCalls = calls;
+			}
+		}
+		return selected;
+	}
+
+	int getActiveCallCount(int index) {
+		return this.activeCalls[index].get();
+	}
+
+	@Override
+	public String authority() {
+		return this.channels.get(0).authority();
+	}
+
+	@Override
+	public ManagedChannel shutdown() {
+		this.channels.forEach(ManagedChannel::shutdown);
+		return this;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return this.channels.stream().allMatch(ManagedChannel::isShutdown);
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return this.channels.stream().allMatch(ManagedChannel::isTerminated);
+	}
+
+	@Override
+	public ManagedChannel shutdownNow() {
+		this.channels.forEach(ManagedChannel::shutdownNow);
+		return this;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+		for (ManagedChannel channel : this.channels) {
+			long remainingNanos = deadlineNanos - System.nanoTime();
+			if (remainingNanos <= 0 || !channel.awaitTermination(remainingNanos, TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Shut down the pooled channels, cancelling the calls still in progress after 10 seconds.
+	 * @throws InterruptedException if interrupted while waiting for the channels to terminate
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		shutdown();
+		if (!awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+			shutdownNow();
+		}
+	}
+
+	/**
+	 * How a pooled channel is chosen for each call.
+	 */
+	public enum SelectionStrategy {
+
+		/**
+		 * Use the channels in turn.
+		 */
+		ROUND_ROBIN,
+
+		/**
+		 * Use the channel with the fewest calls in progress, which keeps long-lived streaming pulls
+		 * evenly spread.
+		 */
+		LEAST_LOADED
+
+	}
+
+	/**
+	 * Keeps count of the calls in progress on a channel, from when they are started until they close.
+	 */
+	private static final class CountingClientCall<ReqT, RespT>
+			extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+		private final AtomicInteger activeCalls;
+
+		CountingClientCall(ClientCall<ReqT, RespT> delegate, AtomicInteger activeCalls) {
+			super(delegate);
+			this.activeCalls = activeCalls;
+		}
+
+		@Override
+		public void start(Listener<RespT> responseListener, Metadata headers) {
+			this.activeCalls.incrementAndGet();
+			try {
+				super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+						responseListener) {
+					@Override
+					public void onClose(Status status, Metadata trailers) {
+						CountingClientCall.this.activeCalls.decrementAndGet();
+						super.onClose(status, trailers);
+					}
+				}, headers);
+			}
+			catch (RuntimeException re) {
+				this.activeCalls.decrementAndGet();
+				throw re;
+			}
+		}
+	}
+
+}
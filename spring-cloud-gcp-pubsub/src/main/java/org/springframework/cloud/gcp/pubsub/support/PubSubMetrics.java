@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+/**
+ * Records timings and counts of the Pub/Sub operations performed by the templates and channel
+ * adapters.
+ *
+ * <p>Every method does nothing by default, so implementations only need to override the
+ * events they are interested in. Methods are called on the hot path, often from gRPC threads,
+ * and must not block.
+ *
+ * @since 1.1
+ */
+public interface PubSubMetrics {
+
+	/**
+	 * A {@link PubSubMetrics} that doesn't record anything.
+	 */
+	PubSubMetrics NONE = new PubSubMetrics() { };
+
+	/**
+	 * Record the completion of a publish call.
+	 * @param topic the topic the messages were published to
+	 * @param messageCount the number of messages published by the call
+	 * @param byteCount the total serialized size of the messages
+	 * @param durationNanos the time from the call until all messages were published or failed
+	 * @param success whether all messages were published
+	 */
+	default void recordPublish(String topic, int messageCount, long byteCount, long durationNanos,
+			boolean success) {
+	}
+
+	/**
+	 * Record messages that weren't published because the publisher flow control limits were
+	 * exceeded.
+	 * @param topic the topic the messages were to be published to
+	 * @param messageCount the number of dropped messages
+	 */
+	default void recordPublishDropped(String topic, int messageCount) {
+	}
+
+	/**
+	 * Record the completion of a pull request.
+	 * @param subscription the subscription that was pulled from
+	 * @param messageCount the number of pulled messages
+	 * @param durationNanos the duration of the request
+	 * @param success whether the request succeeded
+	 */
+	default void recordPull(String subscription, int messageCount, long durationNanos, boolean success) {
+	}
+
+	/**
+	 * Record the completion of an acknowledge or modify ack deadline request.
+	 * @param subscription the subscription of the acknowledged messages
+	 * @param ackType the kind of request
+	 * @param ackIdCount the number of ack IDs carried by the request
+	 * @param durationNanos the duration of the request
+	 * @param success whether the request succeeded
+	 */
+	default void recordAck(String subscription, AckType ackType, int ackIdCount, long durationNanos,
+			boolean success) {
+	}
+
+	/**
+	 * Record a redelivered message that was acked and skipped by message deduplication.
+	 * @param subscription the subscription the message was received from
+	 */
+	default void recordDuplicate(String subscription) {
+	}
+
+	/**
+	 * Record the conversion of a payload into a Pub/Sub message.
+	 * @param topic the topic the message is published to
+	 * @param durationNanos the duration of the conversion
+	 */
+	default void recordToPubSubConversion(String topic, long durationNanos) {
+	}
+
+	/**
+	 * Record the conversion of a received Pub/Sub message into a payload.
+	 * @param subscription the subscription the message was received from
+	 * @param durationNanos the duration of the conversion
+	 */
+	default void recordFromPubSubConversion(String subscription, long durationNanos) {
+	}
+
+	/**
+	 * Record the processing of a received message, or batch of messages, by the application.
+	 * @param subscription the subscription the message was received from
+	 * @param durationNanos the duration of the processing
+	 * @param success whether the processing succeeded
+	 */
+	default void recordProcessing(String subscription, long durationNanos, boolean success) {
+	}
+
+	/**
+	 * Record the concurrency limit of an adaptively limited subscriber, when the subscriber is
+	 * created and whenever the limit is adjusted.
+	 * @param subscription the subscription of the subscriber
+	 * @param limit the number of messages the subscriber may now process at once
+	 * @param previousLimit the limit before the adjustment, or the same as {@code limit} when the
+	 * subscriber is created
+	 */
+	default void recordConcurrencyLimit(String subscription, int limit, int previousLimit) {
+	}
+
+	/**
+	 * The kinds of acknowledgement requests.
+	 */
+	enum AckType {
+
+		/**
+		 * Acknowledge requests.
+		 */
+		ACK,
+
+		/**
+		 * Modify ack deadline requests with a deadline of zero.
+		 */
+		NACK,
+
+		/**
+		 * Modify ack deadline requests with a non-zero deadline.
+		 */
+		MODIFY_ACK_DEADLINE
+
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.gcp.pubsub.support;
 
+import java.util.function.Function;
+
 import com.google.cloud.pubsub.v1.Publisher;
 
 /**
@@ -24,4 +26,17 @@ import com.google.cloud.pubsub.v1.Publisher;
 public interface PublisherFactory {
 
 	Publisher createPublisher(String topic);
+
+	/**
+	 * Apply an action to the publisher for a topic. Factories that shut publishers down while
+	 * they're in use should make sure the publisher stays usable until the action completes.
+	 * @param topic the topic to get the publisher for
+	 * @param action the action to apply to the publisher, e.g. publishing messages with it
+	 * @param <T> the type of the action's result
+	 * @return the action's result
+	 * @since 1.1
+	 */
+	default <T> T withPublisher(String topic, Function<Publisher, T> action) {
+		return action.apply(createPublisher(topic));
+	}
 }
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link PubSubMessageConverter} decorator that offloads large payloads to Google Cloud
+ * Storage, and publishes a reference to them instead.
+ *
+ * <p>Payloads produced by the delegate converter that are at least the threshold size are
+ * uploaded to the configured bucket, and published as an empty message whose
+ * {@link #CLAIM_CHECK_ATTRIBUTE} attribute holds the {@code gs://} location of the payload.
+ * Received messages carrying that attribute are read back from Cloud Storage before being handed
+ * to the delegate converter, regardless of the bucket configured for sending, so a converter
+ * created without a bucket only reads offloaded payloads. When an {@link InputStream} payload is
+ * requested, the payload is streamed from Cloud Storage as the stream is read instead.
+ *
+ * <p>Offloaded payloads can be deleted once their messages are acknowledged through the subscriber
+ * template. Otherwise, they are left for the bucket's lifecycle rules to clean up, which is also
+ * what happens to payloads of messages that are never acknowledged. A received message whose
+ * offloaded payload no longer exists raises a {@link PayloadNotFoundException}, so that the
+ * subscriber template acknowledges it as already consumed.
+ *
+ * @since 1.1
+ */
+public class ClaimCheckPubSubMessageConverter implements PubSubMessageConverter, DisposableBean {
+
+	/**
+	 * The message attribute holding the Cloud Storage location of an offloaded payload.
+	 */
+	public static final String CLAIM_CHECK_ATTRIBUTE = "claim-check";
+
+	private static final Log LOGGER = LogFactory.getLog(ClaimCheckPubSubMessageConverter.class);
+
+	private static final String GCS_SCHEME = "gs://";
+
+	private static final int DEFAULT_THRESHOLD_BYTES = 1024 * 1024;
+
+	private final PubSubMessageConverter delegate;
+
+	private final Storage storage;
+
+	private final String bucketName;
+
+	private final int thresholdBytes;
+
+	private String objectNamePrefix = "";
+
+	private boolean deleteAfterAck;
+
+	private Executor deleteExecutor;
+
+	private ExecutorService defaultDeleteExecutor;
+
+	/**
+	 * Create a converter that only reads offloaded payloads of received messages.
+	 * @param delegate the converter of the payloads
+	 * @param storage the Cloud Storage client to read payloads with
+	 */
+	public ClaimCheckPubSubMessageConverter(PubSubMessageConverter delegate, Storage storage) {
+		this(delegate, storage, null, DEFAULT_THRESHOLD_BYTES);
+	}
+
+	/**
+	 * Create a converter that offloads payloads of at least 1 MB.
+	 * @param delegate the converter of the payloads
+	 * @param storage the Cloud Storage client to write and read payloads with
+	 * @param bucketName the bucket to offload payloads to
+	 */
+	public ClaimCheckPubSubMessageConverter(PubSubMessageConverter delegate, Storage storage, String bucketName) {
+		this(delegate, storage, bucketName, DEFAULT_THRESHOLD_BYTES);
+	}
+
+	/**
+	 * Create a converter that offloads payloads of at least the given size.
+	 * @param delegate the converter of the payloads
+	 * @param storage the Cloud Storage client to write and read payloads with
+	 * @param bucketName the bucket to offload payloads to, or {@code null} to only read offloaded
+	 * payloads
+	 * @param thresholdBytes the minimum size in bytes of an offloaded payload
+	 */
+	public ClaimCheckPubSubMessageConverter(PubSubMessageConverter delegate, Storage storage, String bucketName,
+			int thresholdBytes) {
+		Assert.notNull(delegate, "The delegate converter can't be null.");
+		Assert.notNull(storage, "The storage can't be null.");
+		Assert.isTrue(bucketName == null || !bucketName.isEmpty(), "The bucket name can't be empty.");
+		Assert.isTrue(thresholdBytes > 0, "The threshold must be greater than zero.");
+
+		this.delegate = delegate;
+		this.storage = storage;
+		this.bucketName = bucketName;
+		this.thresholdBytes = thresholdBytes;
+	}
+
+	public PubSubMessageConverter getDelegate() {
+		return this.delegate;
+	}
+
+	public String getObjectNamePrefix() {
+		return this.objectNamePrefix;
+	}
+
+	/**
+	 * Set the prefix of the names of the objects holding offloaded payloads, e.g. {@code pubsub/}.
+	 * @param objectNamePrefix the object name prefix
+	 */
+	public void setObjectNamePrefix(String objectNamePrefix) {
+		Assert.notNull(objectNamePrefix, "The object name prefix can't be null.");
+		this.objectNamePrefix = objectNamePrefix;
+	}
+
+	public boolean isDeleteAfterAck() {
+		return this.deleteAfterAck;
+	}
+
+	/**
+	 * Set whether the offloaded payload of a received message is deleted once the message is
+	 * acknowledged through the subscriber template. Offloaded payloads are kept by default.
+	 * <p>Only enable this when every message is acknowledged by a single subscription, since the
+	 * payload is gone for any other subscription of the topic once it's deleted.
+	 * <p>Pub/Sub may still redeliver a message after it was acknowledged, for example when the
+	 * acknowledgement is lost or arrives after the ack deadline. The payload of such a redelivery
+	 * is already deleted, so it raises a {@link PayloadNotFoundException} and is acknowledged
+	 * without being passed on by the subscriber template.
+	 * @param deleteAfterAck whether to delete offloaded payloads after acknowledgement
+	 */
+	public void setDeleteAfterAck(boolean deleteAfterAck) {
+		this.deleteAfterAck = deleteAfterAck;
+	}
+
+	/**
+	 * Set the executor deleting offloaded payloads after acknowledgement, so that the blocking
+	 * Cloud Storage requests don't hold up the thread acknowledging the message. Defaults to a
+	 * single daemon thread, which is shut down when the converter is destroyed.
+	 * @param deleteExecutor the executor deleting offloaded payloads
+	 */
+	public void setDeleteExecutor(Executor deleteExecutor) {
+		Assert.notNull(deleteExecutor, "The delete executor can't be null.");
+		this.deleteExecutor = deleteExecutor;
+	}
+
+	@Override
+	public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+		PubsubMessage message = this.delegate.toPubSubMessage(payload, headers);
+		if (this.bucketName == null || message.getData().size() < this.thresholdBytes) {
+			return message;
+		}
+
+		BlobInfo blobInfo = BlobInfo.newBuilder(this.bucketName, this.objectNamePrefix + UUID.randomUUID())
+				.build();
+		try (WriteChannel writer = this.storage.writer(blobInfo)) {
+			for (ByteBuffer buffer : message.getData().asReadOnlyByteBufferList()) {
+				while (buffer.hasRemaining()) {
+					writer.write(buffer);
+				}
+			}
+		}
+		catch (IOException | StorageException ex) {
+			throw new PubSubMessageConversionException("Failed to offload a payload of "
+					+ message.getData().size() + " bytes to bucket " + this.bucketName + ".", ex);
+		}
+
+		return message.toBuilder()
+				.setData(ByteString.EMPTY)
+				.putAttributes(CLAIM_CHECK_ATTRIBUTE, GCS_SCHEME + this.bucketName + "/" + blobInfo.getName())
+				.build();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+		String location = message.getAttributesOrDefault(CLAIM_CHECK_ATTRIBUTE, null);
+		if (location == null) {
+			return this.delegate.fromPubSubMessage(message, payloadType);
+		}
+
+		BlobId blobId = toBlobId(location);
+		if (payloadType == InputStream.class) {
+			return (T) openPayload(blobId, location);
+		}
+
+		ByteString data;
+		try (InputStream inputStream = openPayload(blobId, location)) {
+			data = ByteString.readFrom(inputStream);
+		}
+		catch (StorageException ex) {
+			throw readFailure(location, ex);
+		}
+		catch (IOException ex) {
+			throw new PubSubMessageConversionException("Failed to read the offloaded payload at " + location + ".",
+					ex);
+		}
+
+		return this.delegate.fromPubSubMessage(message.toBuilder()
+				.setData(data)
+				.removeAttributes(CLAIM_CHECK_ATTRIBUTE)
+				.build(), payloadType);
+	}
+
+	@Override
+	public void onAcknowledged(PubsubMessage message) {
+		this.delegate.onAcknowledged(message);
+
+		String location = message.getAttributesOrDefault(CLAIM_CHECK_ATTRIBUTE, null);
+		if (!this.deleteAfterAck || location == null) {
+			return;
+		}
+
+		BlobId blobId = toBlobId(location);
+		getDeleteExecutor().execute(() -> deletePayload(blobId, location));
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (this.defaultDeleteExecutor != null) {
+			this.defaultDeleteExecutor.shutdown();
+		}
+	}
+
+	private InputStream openPayload(BlobId blobId, String location) {
+		Blob blob;
+		try {
+			blob = this.storage.get(blobId);
+		}
+		catch (StorageException ex) {
+			throw readFailure(location, ex);
+		}
+		if (blob == null) {
+			throw new PayloadNotFoundException("The offloaded payload at " + location + " doesn't exist.");
+		}
+		return Channels.newInputStream(blob.reader());
+	}
+
+	/**
+	 * The payload may also be deleted between looking it up and reading it.
+	 */
+	private static PubSubMessageConversionException readFailure(String location, StorageException ex) {
+		if (ex.getCode() == 404) {
+			return new PayloadNotFoundException("The offloaded payload at " + location + " doesn't exist.", ex);
+		}
+		return new PubSubMessageConversionException("Failed to read the offloaded payload at " + location + ".",
+				ex);
+	}
+
+	private void deletePayload(BlobId blobId, String location) {
+		try {
+			if (!this.storage.delete(blobId)) {
+				LOGGER.warn("The offloaded payload at " + location + " was already deleted.");
+			}
+		}
+		catch (StorageException ex) {
+			LOGGER.warn("Failed to delete the offloaded payload at " + location + ".", ex);
+		}
+	}
+
+	private synchronized Executor getDeleteExecutor() {
+		if (this.deleteExecutor != null) {
+			return this.deleteExecutor;
+		}
+		if (this.defaultDeleteExecutor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("gcp-pubsub-claim-check-");
+			threadFactory.setDaemon(true);
+			this.defaultDeleteExecutor = Executors.newSingleThreadExecutor(threadFactory);
+		}
+		return this.defaultDeleteExecutor;
+	}
+
+	private static BlobId toBlobId(String location) {
+		int bucketEnd = location.indexOf('/', GCS_SCHEME.length());
+		if (!location.startsWith(GCS_SCHEME) || bucketEnd <= GCS_SCHEME.length()
+				|| bucketEnd == location.length() - 1) {
+			throw new PubSubMessageConversionException("Invalid offloaded payload location: " + location + ".");
+		}
+		return BlobId.of(location.substring(GCS_SCHEME.length(), bucketEnd), location.substring(bucketEnd + 1));
+	}
+
+}
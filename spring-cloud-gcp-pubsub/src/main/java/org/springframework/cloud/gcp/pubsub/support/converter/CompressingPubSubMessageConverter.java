@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link PubSubMessageConverter} decorator that compresses the payloads produced by another
+ * converter, and decompresses payloads before handing them to it.
+ *
+ * <p>Payloads of at least the threshold size are compressed with the configured {@link Codec},
+ * as long as that makes them smaller. The codec is recorded in the
+ * {@link #CONTENT_ENCODING_ATTRIBUTE} message attribute. Received messages carrying the encoding
+ * of a supported codec in that attribute are decompressed regardless of the codec configured for
+ * sending, so a converter created without a codec only decompresses. Messages with an unknown
+ * encoding, or without data, such as the claim check of a payload compressed by a converter
+ * further down the chain, are handed to the delegate unchanged.
+ *
+ * <p>Decompressed payloads are limited to {@link #setMaxDecompressedBytes(int) a maximum size},
+ * so that a small message can't expand into a payload that exhausts the heap.
+ *
+ * @since 1.1
+ */
+public class CompressingPubSubMessageConverter implements PubSubMessageConverter {
+
+	/**
+	 * The message attribute holding the content encoding of a compressed payload.
+	 */
+	public static final String CONTENT_ENCODING_ATTRIBUTE = "gcp_pubsub_content_encoding";
+
+	private static final int DEFAULT_THRESHOLD_BYTES = 1024;
+
+	private static final int DEFAULT_MAX_DECOMPRESSED_BYTES = 64 * 1024 * 1024;
+
+	private final PubSubMessageConverter delegate;
+
+	private final Codec codec;
+
+	private final int thresholdBytes;
+
+	private int maxDecompressedBytes = DEFAULT_MAX_DECOMPRESSED_BYTES;
+
+	/**
+	 * Create a converter that only decompresses received payloads.
+	 * @param delegate the converter of the uncompressed payloads
+	 */
+	public CompressingPubSubMessageConverter(PubSubMessageConverter delegate) {
+		this(delegate, null, DEFAULT_THRESHOLD_BYTES);
+	}
+
+	/**
+	 * Create a converter that compresses payloads of at least 1024 bytes.
+	 * @param delegate the converter of the uncompressed payloads
+	 * @param codec the codec used to compress payloads
+	 */
+	public CompressingPubSubMessageConverter(PubSubMessageConverter delegate, Codec codec) {
+		this(delegate, codec, DEFAULT_THRESHOLD_BYTES);
+	}
+
+	/**
+	 * Create a converter that compresses payloads of at least the given size.
+	 * @param delegate the converter of the uncompressed payloads
+	 * @param codec the codec used to compress payloads, or {@code null} to only decompress
+	 * @param thresholdBytes the minimum size of the payloads to compress
+	 */
+	public CompressingPubSubMessageConverter(PubSubMessageConverter delegate, Codec codec, int thresholdBytes) {
+		Assert.notNull(delegate, "The delegate converter can't be null.");
+		Assert.isTrue(thresholdBytes >= 0, "The thresholdBytes can't be negative.");
+
+		this.delegate = delegate;
+		this.codec = codec;
+		this.thresholdBytes = thresholdBytes;
+	}
+
+	public PubSubMessageConverter getDelegate() {
+		return this.delegate;
+	}
+
+	public int getMaxDecompressedBytes() {
+		return this.maxDecompressedBytes;
+	}
+
+	/**
+	 * Set the maximum size of a decompressed payload. Decompressing a larger payload fails with a
+	 * {@link PubSubMessageConversionException}. The default is 64 MiB.
+	 * @param maxDecompressedBytes the maximum size of a decompressed payload
+	 */
+	public void setMaxDecompressedBytes(int maxDecompressedBytes) {
+		Assert.isTrue(maxDecompressedBytes > 0, "The maxDecompressedBytes must be greater than zero.");
+		this.maxDecompressedBytes = maxDecompressedBytes;
+	}
+
+	/**
+	 * Return whether a message carries the content encoding of a codec that received payloads are
+	 * decompressed with.
+	 * @param attributes the attributes of the message
+	 * @return whether the payload is decompressed on receipt
+	 */
+	public static boolean isCompressed(Map<String, String> attributes) {
+		return attributes != null && Codec.forEncoding(attributes.get(CONTENT_ENCODING_ATTRIBUTE)) != null;
+	}
+
+	@Override
+	public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+		PubsubMessage message = this.delegate.toPubSubMessage(payload, headers);
+
+		if (this.codec == null || message.getData().size() < this.thresholdBytes
+				|| message.containsAttributes(CONTENT_ENCODING_ATTRIBUTE)) {
+			return message;
+		}
+
+		ByteString compressed = this.codec.compress(message.getData());
+		if (compressed.size() >= message.getData().size()) {
+			return message;
+		}
+
+		return message.toBuilder()
+				.setData(compressed)
+				.putAttributes(CONTENT_ENCODING_ATTRIBUTE, this.codec.getEncoding())
+				.build();
+	}
+
+	@Override
+	public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+		Codec codec = Codec.forEncoding(message.getAttributesOrDefault(CONTENT_ENCODING_ATTRIBUTE, null));
+
+		if (codec == null || message.getData().isEmpty()) {
+			return this.delegate.fromPubSubMessage(message, payloadType);
+		}
+
+		PubsubMessage decompressed = message.toBuilder()
+				.setData(codec.decompress(message.getData(), this.maxDecompressedBytes))
+				.removeAttributes(CONTENT_ENCODING_ATTRIBUTE)
+				.build();
+
+		return this.delegate.fromPubSubMessage(decompressed, payloadType);
+	}
+
+	@Override
+	public void onAcknowledged(PubsubMessage message) {
+		this.delegate.onAcknowledged(message);
+	}
+
+	/**
+	 * The JDK compression codecs that can be used to compress payloads.
+	 */
+	public enum Codec {
+
+		/**
+		 * The GZIP format.
+		 */
+		GZIP("gzip") {
+			@Override
+			OutputStream compressingStream(OutputStream out) throws IOException {
+				return new GZIPOutputStream(out);
+			}
+
+			@Override
+			InputStream decompressingStream(InputStream in) throws IOException {
+				return new GZIPInputStream(in);
+			}
+		},
+
+		/**
+		 * The ZLIB format, compressed with the DEFLATE algorithm.
+		 */
+		DEFLATE("deflate") {
+			@Override
+			OutputStream compressingStream(OutputStream out) {
+				return new DeflaterOutputStream(out);
+			}
+
+			@Override
+			InputStream decompressingStream(InputStream in) {
+				return new InflaterInputStream(in);
+			}
+		};
+
+		private final String encoding;
+
+		Codec(String encoding) {
+			this.encoding = encoding;
+		}
+
+		/**
+		 * Return the content encoding recorded in the
+		 * {@link CompressingPubSubMessageConverter#CONTENT_ENCODING_ATTRIBUTE} for this codec.
+		 * @return the content encoding
+		 */
+		public String getEncoding() {
+			return this.encoding;
+		}
+
+		abstract OutputStream compressingStream(OutputStream out) throws IOException;
+
+		abstract InputStream decompressingStream(InputStream in) throws IOException;
+
+		ByteString compress(ByteString data) {
+			ByteString.Output output = ByteString.newOutput();
+			try (OutputStream out = compressingStream(output)) {
+				data.writeTo(out);
+			}
+			catch (IOException ioe) {
+				throw new PubSubMessageConversionException("Compressing the payload with " + this.encoding
+						+ " failed.", ioe);
+			}
+			return output.toByteString();
+		}
+
+		ByteString decompress(ByteString data, int maxBytes) {
+			try (InputStream in = decompressingStream(data.newInput())) {
+				ByteString.Output output = ByteString.newOutput();
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					if (read > maxBytes - output.size()) {
+						throw new PubSubMessageConversionException("The payload decompressed with " + this.encoding
+								+ " is larger than " + maxBytes + " bytes.");
+					}
+					output.write(buffer, 0, read);
+				}
+				return output.toByteString();
+			}
+			catch (IOException ioe) {
+				throw new PubSubMessageConversionException("Decompressing the payload with " + this.encoding
+						+ " failed.", ioe);
+			}
+		}
+
+		/**
+		 * Return the codec recorded with the given content encoding.
+		 * @return the codec, or {@code null} if none is
+		 */
+		static Codec forEncoding(String encoding) {
+			for (Codec codec : values()) {
+				if (codec.encoding.equals(encoding)) {
+					return codec;
+				}
+			}
+			return null;
+		}
+	}
+
+}
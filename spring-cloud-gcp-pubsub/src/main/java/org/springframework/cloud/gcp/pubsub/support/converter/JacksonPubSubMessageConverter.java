@@ -18,9 +18,11 @@ package org.springframework.cloud.gcp.pubsub.support.converter;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
 
@@ -29,6 +31,11 @@ import org.springframework.util.Assert;
 /**
  * A converter using Jackson JSON.
  *
+ * <p>Payloads are read straight from, and written straight into, the message data
+ * {@link ByteString}, without intermediate byte array copies. The {@link ObjectReader} and
+ * {@link ObjectWriter} for each payload type are created once and reused, so changes made to the
+ * {@link ObjectMapper} configuration after a payload type has been converted don't apply to it.
+ *
  * @author Chengyuan Zhao
  * @author Mike Eltsufin
  */
@@ -36,6 +43,10 @@ public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
 
 	private final ObjectMapper objectMapper;
 
+	private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+	private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
 	/**
 	 * Constructor
 	 * @param objectMapper the object mapper used to create and read JSON.
@@ -48,8 +59,11 @@ public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
 	@Override
 	public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
 		try {
+			ByteString.Output output = ByteString.newOutput();
+			getWriter(payload).writeValue(output, payload);
+
 			PubsubMessage.Builder pubsubMessageBuilder = PubsubMessage.newBuilder()
-					.setData(ByteString.copyFrom(this.objectMapper.writeValueAsBytes(payload)));
+					.setData(output.toByteString());
 
 			if (headers != null) {
 				pubsubMessageBuilder.putAllAttributes(headers);
@@ -57,7 +71,7 @@ public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
 
 			return pubsubMessageBuilder.build();
 		}
-		catch (JsonProcessingException e) {
+		catch (IOException e) {
 			throw new PubSubMessageConversionException("JSON serialization of an object of type " +
 					payload.getClass().getName() + " failed.", e);
 		}
@@ -66,7 +80,8 @@ public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
 	@Override
 	public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
 		try {
-			return (T) this.objectMapper.readerFor(payloadType).readValue(message.getData().toByteArray());
+			return (T) this.readers.computeIfAbsent(payloadType, this.objectMapper::readerFor)
+					.readValue(message.getData().newInput());
 		}
 		catch (IOException e) {
 			throw new PubSubMessageConversionException("JSON deserialization of an object of type " +
@@ -74,4 +89,11 @@ public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
 		}
 	}
 
+	private ObjectWriter getWriter(Object payload) {
+		if (payload == null) {
+			return this.objectMapper.writer();
+		}
+		return this.writers.computeIfAbsent(payload.getClass(), this.objectMapper::writerFor);
+	}
+
 }
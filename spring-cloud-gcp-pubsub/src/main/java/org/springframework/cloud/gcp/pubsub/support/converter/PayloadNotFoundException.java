@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+/**
+ * An exception raised when the payload a message refers to no longer exists, e.g. an offloaded
+ * payload that was deleted once an earlier delivery of the message was acknowledged.
+ *
+ * <p>The message has already been consumed, so the subscriber template acknowledges it instead of
+ * passing it on, rather than having it redelivered over and over.
+ *
+ * @since 1.1
+ */
+public class PayloadNotFoundException extends PubSubMessageConversionException {
+
+	public PayloadNotFoundException(String msg) {
+		super(msg);
+	}
+
+	public PayloadNotFoundException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+}
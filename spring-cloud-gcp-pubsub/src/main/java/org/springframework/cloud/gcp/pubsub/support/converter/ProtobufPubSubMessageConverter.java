@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import com.google.pubsub.v1.PubsubMessage;
+
+import org.springframework.util.Assert;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * A converter of Protocol Buffers {@link Message} payloads.
+ *
+ * <p>Payloads are written in the binary wire format straight into the message data, and parsed
+ * straight from it, with the parser of each payload type looked up once and reused. When the
+ * {@link #CONTENT_TYPE_ATTRIBUTE} message attribute is {@code application/json}, payloads are
+ * written and parsed in the JSON format for Protocol Buffers instead, ignoring unknown fields. A
+ * malformed content type is treated like any other than {@code application/json}.
+ *
+ * <p>Payloads and payload types that aren't Protocol Buffers messages are handed to a delegate
+ * converter, which is a {@link SimplePubSubMessageConverter} by default.
+ *
+ * @since 1.1
+ */
+public class ProtobufPubSubMessageConverter implements PubSubMessageConverter {
+
+	/**
+	 * The message attribute holding the content type of the payload. Payloads are in the binary
+	 * format unless it's {@code application/json}.
+	 */
+	public static final String CONTENT_TYPE_ATTRIBUTE = "content-type";
+
+	private static final JsonFormat.Printer JSON_PRINTER = JsonFormat.printer();
+
+	private static final JsonFormat.Parser JSON_PARSER = JsonFormat.parser().ignoringUnknownFields();
+
+	private final PubSubMessageConverter delegate;
+
+	/**
+	 * The default instance of each payload type, which provides its parser and builders.
+	 */
+	private final Map<Class<?>, Message> defaultInstances = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a converter that hands other payloads to a {@link SimplePubSubMessageConverter}.
+	 */
+	public ProtobufPubSubMessageConverter() {
+		this(new SimplePubSubMessageConverter());
+	}
+
+	/**
+	 * Create a converter that hands other payloads to the given converter.
+	 * @param delegate the converter of payloads that aren't Protocol Buffers messages
+	 */
+	public ProtobufPubSubMessageConverter(PubSubMessageConverter delegate) {
+		Assert.notNull(delegate, "The delegate converter can't be null.");
+		this.delegate = delegate;
+	}
+
+	public PubSubMessageConverter getDelegate() {
+		return this.delegate;
+	}
+
+	@Override
+	public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+		if (!(payload instanceof Message)) {
+			return this.delegate.toPubSubMessage(payload, headers);
+		}
+
+		Message protoPayload = (Message) payload;
+		ByteString data;
+		if (headers != null && isJson(headers.get(CONTENT_TYPE_ATTRIBUTE))) {
+			try {
+				data = ByteString.copyFromUtf8(JSON_PRINTER.print(protoPayload));
+			}
+			catch (InvalidProtocolBufferException ipbe) {
+				throw new PubSubMessageConversionException("JSON serialization of a Protocol Buffers message "
+						+ "of type " + payload.getClass().getName() + " failed.", ipbe);
+			}
+		}
+		else {
+			data = protoPayload.toByteString();
+		}
+
+		PubsubMessage.Builder pubsubMessageBuilder = PubsubMessage.newBuilder().setData(data);
+		if (headers != null) {
+			pubsubMessageBuilder.putAllAttributes(headers);
+		}
+		return pubsubMessageBuilder.build();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+		if (!Message.class.isAssignableFrom(payloadType)) {
+			return this.delegate.fromPubSubMessage(message, payloadType);
+		}
+
+		Message defaultInstance = this.defaultInstances.computeIfAbsent(payloadType,
+				ProtobufPubSubMessageConverter::getDefaultInstance);
+		try {
+			if (isJson(message.getAttributesOrDefault(CONTENT_TYPE_ATTRIBUTE, null))) {
+				Message.Builder builder = defaultInstance.newBuilderForType();
+				JSON_PARSER.merge(message.getData().toStringUtf8(), builder);
+				return (T) builder.build();
+			}
+			return (T) defaultInstance.getParserForType().parseFrom(message.getData());
+		}
+		catch (InvalidProtocolBufferException ipbe) {
+			throw new PubSubMessageConversionException("Deserialization of a Protocol Buffers message of type "
+					+ payloadType.getName() + " failed.", ipbe);
+		}
+	}
+
+	@Override
+	public void onAcknowledged(PubsubMessage message) {
+		this.delegate.onAcknowledged(message);
+	}
+
+	private static boolean isJson(String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		MimeType mimeType;
+		try {
+			mimeType = MimeTypeUtils.parseMimeType(contentType);
+		}
+		catch (InvalidMimeTypeException imte) {
+			return false;
+		}
+		return MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(mimeType);
+	}
+
+	private static Message getDefaultInstance(Class<?> payloadType) {
+		Method getDefaultInstance = ReflectionUtils.findMethod(payloadType, "getDefaultInstance");
+		if (getDefaultInstance == null) {
+			throw new PubSubMessageConversionException("The payload type " + payloadType.getName()
+					+ " isn't a generated Protocol Buffers message class.");
+		}
+		return (Message) ReflectionUtils.invokeMethod(getDefaultInstance, null);
+	}
+
+}
@@ -43,4 +43,13 @@ public interface PubSubMessageConverter {
 	 * @return the object converted from the message's payload
 	 */
 	<T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType);
+
+	/**
+	 * Called once a received message has been acknowledged through the subscriber template, so
+	 * that resources kept for its payload can be released. Does nothing by default.
+	 * @param message the acknowledged message
+	 * @since 1.1
+	 */
+	default void onAcknowledged(PubsubMessage message) {
+	}
 }
@@ -16,13 +16,41 @@
 
 package org.springframework.cloud.gcp.pubsub;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.NotFoundException;
+import com.google.api.gax.rpc.UnaryCallable;
 import com.google.cloud.pubsub.v1.SubscriptionAdminClient;
 import com.google.cloud.pubsub.v1.TopicAdminClient;
+import com.google.pubsub.v1.GetSubscriptionRequest;
+import com.google.pubsub.v1.GetTopicRequest;
+import com.google.pubsub.v1.ListTopicsRequest;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.Topic;
+import io.grpc.Status;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
 /**
  * @author João André Martins
  */
@@ -35,6 +63,15 @@ public class PubSubAdminTests {
 	@Mock
 	private SubscriptionAdminClient mockSubscriptionAdminClient;
 
+	@Mock
+	private UnaryCallable<GetTopicRequest, Topic> mockGetTopicCallable;
+
+	@Mock
+	private UnaryCallable<GetSubscriptionRequest, Subscription> mockGetSubscriptionCallable;
+
+	@Mock
+	private UnaryCallable<Subscription, Subscription> mockCreateSubscriptionCallable;
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testNewPubSubAdmin_nullProjectProvider() {
 		new PubSubAdmin(null, this.mockTopicAdminClient, this.mockSubscriptionAdminClient);
@@ -49,4 +86,102 @@ public class PubSubAdminTests {
 	public void testNewPubSubAdmin_nullSubscriptionAdminClient() {
 		new PubSubAdmin(() -> "test-project", this.mockTopicAdminClient, null);
 	}
+
+	@Test
+	public void testGetTopicAsync() throws ExecutionException, InterruptedException {
+		Topic topic = Topic.newBuilder().setName("projects/test-project/topics/test-topic").build();
+		when(this.mockTopicAdminClient.getTopicCallable()).thenReturn(this.mockGetTopicCallable);
+		when(this.mockGetTopicCallable.futureCall(GetTopicRequest.newBuilder().setTopic(topic.getName()).build()))
+				.thenReturn(ApiFutures.immediateFuture(topic));
+
+		PubSubAdmin pubSubAdmin = new PubSubAdmin(() -> "test-project", this.mockTopicAdminClient,
+				this.mockSubscriptionAdminClient);
+
+		assertThat(pubSubAdmin.getTopicAsync("test-topic").get()).isEqualTo(topic);
+	}
+
+	@Test
+	public void testGetSubscriptionAsync_notFound() throws ExecutionException, InterruptedException {
+		when(this.mockSubscriptionAdminClient.getSubscriptionCallable()).thenReturn(this.mockGetSubscriptionCallable);
+		when(this.mockGetSubscriptionCallable.futureCall(any())).thenReturn(ApiFutures.immediateFailedFuture(
+				new NotFoundException(new RuntimeException(), GrpcStatusCode.of(Status.Code.NOT_FOUND), false)));
+
+		PubSubAdmin pubSubAdmin = new PubSubAdmin(() -> "test-project", this.mockTopicAdminClient,
+				this.mockSubscriptionAdminClient);
+
+		assertThat(pubSubAdmin.getSubscriptionAsync("test-subscription").get()).isNull();
+	}
+
+	@Test
+	public void testCreateSubscriptions_boundedConcurrency() {
+		SettableApiFuture<Subscription> first = SettableApiFuture.create();
+		SettableApiFuture<Subscription> second = SettableApiFuture.create();
+		when(this.mockSubscriptionAdminClient.createSubscriptionCallable())
+				.thenReturn(this.mockCreateSubscriptionCallable);
+		when(this.mockCreateSubscriptionCallable.futureCall(any())).thenAnswer((invocation) -> {
+			Subscription subscription = invocation.getArgument(0);
+			if (subscription.getName().endsWith("sub1")) {
+				assertThat(second.isDone()).isFalse();
+				first.set(subscription);
+				return first;
+			}
+			// Only called once the first request has completed, with a single request in flight.
+			assertThat(first.isDone()).isTrue();
+			second.set(subscription);
+			return second;
+		});
+
+		PubSubAdmin pubSubAdmin = new PubSubAdmin(() -> "test-project", this.mockTopicAdminClient,
+				this.mockSubscriptionAdminClient);
+		Map<String, String> subscriptions = new LinkedHashMap<>();
+		subscriptions.put("sub1", "topic");
+		subscriptions.put("sub2", "topic");
+
+		List<Subscription> created = pubSubAdmin.createSubscriptions(subscriptions, 1);
+
+		assertThat(created).extracting(Subscription::getName).containsExactly(
+				"projects/test-project/subscriptions/sub1", "projects/test-project/subscriptions/sub2");
+		assertThat(created).extracting(Subscription::getTopic).containsOnly("projects/test-project/topics/topic");
+	}
+
+	@Test
+	public void testCreateSubscriptions_reportsFailures() {
+		when(this.mockSubscriptionAdminClient.createSubscriptionCallable())
+				.thenReturn(this.mockCreateSubscriptionCallable);
+		when(this.mockCreateSubscriptionCallable.futureCall(any())).thenAnswer((invocation) -> {
+			Subscription subscription = invocation.getArgument(0);
+			return subscription.getName().endsWith("sub2")
+					? ApiFutures.immediateFailedFuture(new IllegalStateException("boom"))
+					: ApiFutures.immediateFuture(subscription);
+		});
+
+		PubSubAdmin pubSubAdmin = new PubSubAdmin(() -> "test-project", this.mockTopicAdminClient,
+				this.mockSubscriptionAdminClient);
+		Map<String, String> subscriptions = new LinkedHashMap<>();
+		subscriptions.put("sub1", "topic");
+		subscriptions.put("sub2", "topic");
+		subscriptions.put("sub3", "topic");
+
+		assertThatThrownBy(() -> pubSubAdmin.createSubscriptions(subscriptions, 2))
+				.isInstanceOf(PubSubException.class)
+				.hasMessage("Failed to create 1 of 3 subscriptions: [sub2].")
+				.hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testStreamTopics_isLazy() {
+		Topic topic = Topic.newBuilder().setName("projects/test-project/topics/test-topic").build();
+		TopicAdminClient.ListTopicsPagedResponse response = mock(TopicAdminClient.ListTopicsPagedResponse.class);
+		when(response.iterateAll()).thenReturn(Collections.singletonList(topic));
+		when(this.mockTopicAdminClient.listTopics(ListTopicsRequest.newBuilder()
+				.setProject("projects/test-project").setPageSize(100).build())).thenReturn(response);
+
+		PubSubAdmin pubSubAdmin = new PubSubAdmin(() -> "test-project", this.mockTopicAdminClient,
+				this.mockSubscriptionAdminClient);
+
+		Stream<Topic> topics = pubSubAdmin.streamTopics(100);
+		verifyZeroInteractions(this.mockTopicAdminClient);
+
+		assertThat(topics.collect(Collectors.toList())).containsExactly(topic);
+	}
 }
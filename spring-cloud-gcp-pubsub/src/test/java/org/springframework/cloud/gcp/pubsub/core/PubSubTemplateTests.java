@@ -17,7 +17,9 @@
 package org.springframework.cloud.gcp.pubsub.core;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
@@ -32,19 +34,25 @@ import com.google.pubsub.v1.PubsubMessage;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherTemplate;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PublishFlowController;
 import org.springframework.cloud.gcp.pubsub.core.test.allowed.AllowedPayload;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.pubsub.support.PublisherFactory;
 import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
 import org.springframework.cloud.gcp.pubsub.support.converter.JacksonPubSubMessageConverter;
 import org.springframework.util.concurrent.ListenableFuture;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
@@ -64,7 +72,7 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class PubSubTemplateTests {
 
-	@Mock
+	@Mock(answer = Answers.CALLS_REAL_METHODS)
 	private PublisherFactory mockPublisherFactory;
 
 	@Mock
@@ -196,6 +204,96 @@ public class PubSubTemplateTests {
 		}
 	}
 
+	@Test
+	public void testPublishAll() throws ExecutionException, InterruptedException {
+		SettableApiFuture<String> secondApiFuture = SettableApiFuture.create();
+		when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+				.thenReturn(this.settableApiFuture, secondApiFuture);
+
+		ListenableFuture<List<String>> future = this.pubSubTemplate.publishAll("testTopic",
+				Arrays.asList("payload1", "payload2"), null);
+		this.settableApiFuture.set("result1");
+
+		assertFalse(future.isDone());
+
+		secondApiFuture.set("result2");
+
+		assertEquals(Arrays.asList("result1", "result2"), future.get());
+		verify(this.mockPublisherFactory, times(1)).createPublisher("testTopic");
+		verify(this.mockPublisher, times(2)).publish(isA(PubsubMessage.class));
+	}
+
+	@Test
+	public void testPublishAll_onFailure() {
+		when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+				.thenReturn(SettableApiFuture.create(), this.settableApiFuture);
+
+		ListenableFuture<List<String>> future = this.pubSubTemplate.publishAll("testTopic",
+				Arrays.asList(this.pubsubMessage, this.pubsubMessage));
+		this.settableApiFuture.setException(new Exception("future failed."));
+
+		try {
+			future.get();
+			fail("Test should fail.");
+		}
+		catch (InterruptedException ie) {
+			fail("get() should fail with an ExecutionException.");
+		}
+		catch (ExecutionException ee) {
+			assertEquals("future failed.", ee.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testPublishRecordsMetrics() throws ExecutionException, InterruptedException {
+		PubSubMetrics pubSubMetrics = mock(PubSubMetrics.class);
+		PubSubPublisherTemplate pubSubPublisherTemplate = createPublisherTemplate();
+		pubSubPublisherTemplate.setPubSubMetrics(pubSubMetrics);
+		this.settableApiFuture.set("result");
+
+		pubSubPublisherTemplate.publish("testTopic", new AllowedPayload()).get();
+
+		verify(pubSubMetrics).recordToPubSubConversion(eq("testTopic"), anyLong());
+		verify(pubSubMetrics).recordPublish(eq("testTopic"), eq(1), anyLong(), anyLong(), eq(true));
+	}
+
+	@Test
+	public void testPublishDroppedByFlowControl() throws InterruptedException {
+		PubSubMetrics pubSubMetrics = mock(PubSubMetrics.class);
+		PubSubPublisherTemplate pubSubPublisherTemplate = createPublisherTemplate();
+		pubSubPublisherTemplate.setPubSubMetrics(pubSubMetrics);
+		pubSubPublisherTemplate.setFlowController(new PublishFlowController(1L, null,
+				PublishFlowController.LimitExceededBehavior.DROP, PublishFlowController.Scope.TOPIC));
+
+		ListenableFuture<String> publishedFuture = pubSubPublisherTemplate.publish("testTopic", this.pubsubMessage);
+		ListenableFuture<String> droppedFuture = pubSubPublisherTemplate.publish("testTopic", this.pubsubMessage);
+
+		try {
+			droppedFuture.get();
+			fail("Expected the publish call to be dropped.");
+		}
+		catch (ExecutionException ee) {
+			assertThat(ee.getCause()).isInstanceOf(PubSubException.class);
+		}
+		verify(this.mockPublisher, times(1)).publish(this.pubsubMessage);
+		verify(pubSubMetrics).recordPublishDropped("testTopic", 1);
+		assertFalse(publishedFuture.isDone());
+
+		this.settableApiFuture.set("result");
+		pubSubPublisherTemplate.publish("testTopic", this.pubsubMessage);
+		verify(this.mockPublisher, times(2)).publish(this.pubsubMessage);
+	}
+
+	@Test(expected = PubSubException.class)
+	public void testPublishFailsFastWhenFlowControlLimitsExceeded() {
+		PubSubPublisherTemplate pubSubPublisherTemplate = createPublisherTemplate();
+		pubSubPublisherTemplate.setFlowController(new PublishFlowController(null, 1L,
+				PublishFlowController.LimitExceededBehavior.FAIL_FAST, PublishFlowController.Scope.GLOBAL));
+
+		pubSubPublisherTemplate.publish("testTopic", this.pubsubMessage);
+		pubSubPublisherTemplate.publish("testTopic", this.pubsubMessage);
+	}
+
 	@Test
 	public void testSubscribe() {
 		Subscriber subscriber = this.pubSubTemplate.subscribe("testSubscription",
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.publisher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link PublishFlowController}.
+ */
+public class PublishFlowControllerTests {
+
+	@Test
+	public void testDropCountsDroppedMessages() {
+		PublishFlowController flowController = new PublishFlowController(2L, null,
+				PublishFlowController.LimitExceededBehavior.DROP, PublishFlowController.Scope.TOPIC);
+
+		assertThat(flowController.reserve("topic1", 2, 100L)).isTrue();
+		assertThat(flowController.reserve("topic1", 1, 100L)).isFalse();
+		assertThat(flowController.reserve("topic2", 1, 100L)).isTrue();
+		assertThat(flowController.getDroppedMessageCount()).isEqualTo(1L);
+
+		flowController.release("topic1", 2, 100L);
+		assertThat(flowController.reserve("topic1", 1, 100L)).isTrue();
+	}
+
+	@Test
+	public void testFailFastWithGlobalScope() {
+		PublishFlowController flowController = new PublishFlowController(null, 150L,
+				PublishFlowController.LimitExceededBehavior.FAIL_FAST, PublishFlowController.Scope.GLOBAL);
+
+		assertThat(flowController.reserve("topic1", 1, 100L)).isTrue();
+		assertThatThrownBy(() -> flowController.reserve("topic2", 1, 100L))
+				.isInstanceOf(PubSubException.class);
+	}
+
+	@Test
+	public void testOversizedPublishAllowedWhenNothingOutstanding() {
+		PublishFlowController flowController = new PublishFlowController(1L, 10L,
+				PublishFlowController.LimitExceededBehavior.FAIL_FAST, PublishFlowController.Scope.TOPIC);
+
+		assertThat(flowController.reserve("topic1", 5, 1000L)).isTrue();
+	}
+
+	@Test
+	public void testBlockWaitsForRelease() throws Exception {
+		PublishFlowController flowController = new PublishFlowController(1L, null,
+				PublishFlowController.LimitExceededBehavior.BLOCK, PublishFlowController.Scope.TOPIC);
+		flowController.reserve("topic1", 1, 100L);
+
+		CompletableFuture<Boolean> blockedReserve =
+				CompletableFuture.supplyAsync(() -> flowController.reserve("topic1", 1, 100L));
+		Thread.sleep(100L);
+		assertThat(blockedReserve).isNotDone();
+
+		flowController.release("topic1", 1, 100L);
+		assertThat(blockedReserve.get(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+}
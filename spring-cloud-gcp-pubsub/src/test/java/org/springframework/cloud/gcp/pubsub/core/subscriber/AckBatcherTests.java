@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link AckBatcher}.
+ */
+public class AckBatcherTests {
+
+	private ScheduledExecutorService scheduler;
+
+	private List<SentBatch> sentBatches;
+
+	private AckBatcher.AckOperation ackOperation;
+
+	@Before
+	public void setUp() {
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		this.sentBatches = new ArrayList<>();
+		this.ackOperation = (subscriptionName, ackIds, ackDeadlineSeconds) -> {
+			synchronized (this.sentBatches) {
+				this.sentBatches.add(new SentBatch(subscriptionName, new ArrayList<>(ackIds), ackDeadlineSeconds));
+			}
+			return ApiFutures.immediateFuture(Empty.getDefaultInstance());
+		};
+	}
+
+	@After
+	public void tearDown() {
+		this.scheduler.shutdownNow();
+	}
+
+	@Test
+	public void testElementCountThresholdSendsBatch() throws Exception {
+		AckBatcher ackBatcher = new AckBatcher(settings(3L, null, Duration.ofHours(1)),
+				this.scheduler, this.ackOperation);
+
+		ListenableFuture<Void> future1 = ackBatcher.ack(message("sub1", "ack1"));
+		ListenableFuture<Void> future2 = ackBatcher.ack(message("sub1", "ack2"));
+
+		assertThat(this.sentBatches).isEmpty();
+		assertThat(future1.isDone()).isFalse();
+
+		ListenableFuture<Void> future3 = ackBatcher.ack(message("sub1", "ack3"));
+
+		assertThat(this.sentBatches).hasSize(1);
+		assertThat(this.sentBatches.get(0).subscriptionName).isEqualTo("sub1");
+		assertThat(this.sentBatches.get(0).ackIds).containsExactly("ack1", "ack2", "ack3");
+		assertThat(this.sentBatches.get(0).ackDeadlineSeconds).isNull();
+		future1.get(1L, TimeUnit.SECONDS);
+		future2.get(1L, TimeUnit.SECONDS);
+		future3.get(1L, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testRequestByteThresholdSendsBatch() {
+		AckBatcher ackBatcher = new AckBatcher(settings(null, 1L, Duration.ofHours(1)),
+				this.scheduler, this.ackOperation);
+
+		ackBatcher.ack(message("sub1", "ack1"));
+
+		assertThat(this.sentBatches).hasSize(1);
+	}
+
+	@Test
+	public void testDelayThresholdSendsBatch() throws Exception {
+		AckBatcher ackBatcher = new AckBatcher(settings(100L, null, Duration.ofMillis(10)),
+				this.scheduler, this.ackOperation);
+
+		ackBatcher.ack(message("sub1", "ack1")).get(10L, TimeUnit.SECONDS);
+
+		synchronized (this.sentBatches) {
+			assertThat(this.sentBatches).hasSize(1);
+			assertThat(this.sentBatches.get(0).ackIds).containsExactly("ack1");
+		}
+	}
+
+	@Test
+	public void testShutDownSchedulerSendsRightAway() throws Exception {
+		AckBatcher ackBatcher = new AckBatcher(settings(100L, null, Duration.ofHours(1)),
+				this.scheduler, this.ackOperation);
+		this.scheduler.shutdown();
+
+		ackBatcher.ack(message("sub1", "ack1")).get(1L, TimeUnit.SECONDS);
+		ackBatcher.ack(message("sub1", "ack2")).get(1L, TimeUnit.SECONDS);
+
+		assertThat(this.sentBatches).hasSize(2);
+		assertThat(this.sentBatches.get(1).ackIds).containsExactly("ack2");
+	}
+
+	@Test
+	public void testSeparateBatchesPerSubscriptionAndDeadline() {
+		AckBatcher ackBatcher = new AckBatcher(settings(100L, null, Duration.ofHours(1)),
+				this.scheduler, this.ackOperation);
+
+		ackBatcher.ack(message("sub1", "ack1"));
+		ackBatcher.ack(message("sub2", "ack2"));
+		ackBatcher.modifyAckDeadline(message("sub1", "ack3"), 0);
+		ackBatcher.modifyAckDeadline(message("sub1", "ack4"), 0);
+		ackBatcher.modifyAckDeadline(message("sub1", "ack5"), 30);
+
+		assertThat(this.sentBatches).isEmpty();
+
+		ackBatcher.flush();
+
+		assertThat(this.sentBatches).hasSize(4);
+		assertThat(this.sentBatches)
+				.filteredOn(batch -> Integer.valueOf(0).equals(batch.ackDeadlineSeconds))
+				.hasSize(1)
+				.allSatisfy(batch -> assertThat(batch.ackIds).containsExactlyInAnyOrder("ack3", "ack4"));
+	}
+
+	@Test
+	public void testFailedRequestFailsEveryMessageInBatch() {
+		SettableApiFuture<Empty> apiFuture = SettableApiFuture.create();
+		AckBatcher ackBatcher = new AckBatcher(settings(2L, null, Duration.ofHours(1)), this.scheduler,
+				(subscriptionName, ackIds, ackDeadlineSeconds) -> apiFuture);
+
+		ListenableFuture<Void> future1 = ackBatcher.ack(message("sub1", "ack1"));
+		ListenableFuture<Void> future2 = ackBatcher.ack(message("sub1", "ack2"));
+
+		apiFuture.setException(new IllegalStateException("ack failed"));
+
+		assertThatThrownBy(future1::get).isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(future2::get).isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	private static BatchingSettings settings(Long elementCount, Long requestBytes, Duration delay) {
+		return BatchingSettings.newBuilder()
+				.setElementCountThreshold(elementCount)
+				.setRequestByteThreshold(requestBytes)
+				.setDelayThreshold(delay)
+				.build();
+	}
+
+	private static AcknowledgeablePubsubMessage message(String subscription, String ackId) {
+		AcknowledgeablePubsubMessage message = mock(AcknowledgeablePubsubMessage.class);
+		when(message.getProjectSubscriptionName())
+				.thenReturn(ProjectSubscriptionName.of("test-project", subscription));
+		when(message.getAckId()).thenReturn(ackId);
+		return message;
+	}
+
+	private static final class SentBatch {
+
+		private final String subscriptionName;
+
+		private final List<String> ackIds;
+
+		private final Integer ackDeadlineSeconds;
+
+		SentBatch(String subscriptionName, List<String> ackIds, Integer ackDeadlineSeconds) {
+			this.subscriptionName = subscriptionName;
+			this.ackIds = ackIds;
+			this.ackDeadlineSeconds = ackDeadlineSeconds;
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link AckDeadlineLeaseManager}.
+ */
+public class AckDeadlineLeaseManagerTests {
+
+	private ScheduledExecutorService scheduler;
+
+	private List<List<String>> extendedAckIds;
+
+	private AckDeadlineLeaseManager.ExtendOperation extendOperation;
+
+	@Before
+	public void setUp() {
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		this.extendedAckIds = new ArrayList<>();
+		this.extendOperation = (messages, ackDeadlineSeconds) -> {
+			assertThat(ackDeadlineSeconds).isEqualTo(600);
+			List<String> ackIds = new ArrayList<>();
+			messages.forEach(message -> ackIds.add(message.getAckId()));
+			synchronized (this.extendedAckIds) {
+				this.extendedAckIds.add(ackIds);
+			}
+			SettableListenableFuture<Void> future = new SettableListenableFuture<>();
+			future.set(null);
+			return future;
+		};
+	}
+
+	@After
+	public void tearDown() {
+		this.scheduler.shutdownNow();
+	}
+
+	@Test
+	public void testTrackExtendsImmediately() {
+		AckDeadlineLeaseManager manager = new AckDeadlineLeaseManager(600, Duration.ofHours(1),
+				this.scheduler, this.extendOperation);
+
+		manager.track(Arrays.asList(message("ack1"), message("ack2")));
+
+		assertThat(manager.getLeaseCount()).isEqualTo(2);
+		assertThat(this.extendedAckIds).containsExactly(Arrays.asList("ack1", "ack2"));
+	}
+
+	@Test
+	public void testRenewLeasesSkipsReleasedMessages() {
+		AckDeadlineLeaseManager manager = new AckDeadlineLeaseManager(600, Duration.ofHours(1),
+				this.scheduler, this.extendOperation);
+		AcknowledgeablePubsubMessage message1 = message("ack1");
+		manager.track(Arrays.asList(message1, message("ack2")));
+		this.extendedAckIds.clear();
+
+		manager.release(message1);
+		manager.renewLeases();
+
+		assertThat(manager.getLeaseCount()).isEqualTo(1);
+		assertThat(this.extendedAckIds).containsExactly(Arrays.asList("ack2"));
+	}
+
+	@Test
+	public void testRenewLeasesDropsExpiredLeases() {
+		AckDeadlineLeaseManager manager = new AckDeadlineLeaseManager(600, Duration.ofNanos(1),
+				this.scheduler, this.extendOperation);
+		manager.track(Arrays.asList(message("ack1")));
+		this.extendedAckIds.clear();
+
+		manager.renewLeases();
+
+		assertThat(manager.getLeaseCount()).isZero();
+		assertThat(this.extendedAckIds).isEmpty();
+	}
+
+	@Test
+	public void testFailedExtensionKeepsLeases() {
+		AckDeadlineLeaseManager manager = new AckDeadlineLeaseManager(600, Duration.ofHours(1),
+				this.scheduler, (messages, ackDeadlineSeconds) -> {
+					throw new IllegalStateException("extension failed");
+				});
+
+		manager.track(Arrays.asList(message("ack1")));
+		manager.renewLeases();
+
+		assertThat(manager.getLeaseCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testShutdownClearsLeases() {
+		AckDeadlineLeaseManager manager = new AckDeadlineLeaseManager(600, Duration.ofHours(1),
+				this.scheduler, this.extendOperation);
+		manager.track(Arrays.asList(message("ack1")));
+
+		manager.shutdown();
+
+		assertThat(manager.getLeaseCount()).isZero();
+	}
+
+	private static AcknowledgeablePubsubMessage message(String ackId) {
+		AcknowledgeablePubsubMessage message = mock(AcknowledgeablePubsubMessage.class);
+		when(message.getProjectSubscriptionName())
+				.thenReturn(ProjectSubscriptionName.of("test-project", "sub1"));
+		when(message.getAckId()).thenReturn(ackId);
+		return message;
+	}
+
+}
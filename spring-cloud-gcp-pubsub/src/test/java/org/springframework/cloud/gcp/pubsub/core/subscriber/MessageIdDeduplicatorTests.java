@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Tests for {@link MessageIdDeduplicator}.
+ */
+public class MessageIdDeduplicatorTests {
+
+	private final AckReplyConsumer ackReplyConsumer = mock(AckReplyConsumer.class);
+
+	@Test
+	public void testAcksDuplicatesOfAckedMessages() {
+		MessageIdDeduplicator deduplicator = new MessageIdDeduplicator(1000, Duration.ofMinutes(1));
+
+		for (int i = 0; i < 500; i++) {
+			deduplicator.track(String.valueOf(i), this.ackReplyConsumer).ack();
+		}
+		AckReplyConsumer duplicateAckReplyConsumer = mock(AckReplyConsumer.class);
+		for (int i = 0; i < 500; i++) {
+			assertThat(deduplicator.track(String.valueOf(i), duplicateAckReplyConsumer)).isNull();
+		}
+
+		verify(duplicateAckReplyConsumer, times(500)).ack();
+	}
+
+	@Test
+	public void testInFlightDuplicateIsAckedWithOriginal() {
+		MessageIdDeduplicator deduplicator = new MessageIdDeduplicator(1000, Duration.ofMinutes(1));
+		AckReplyConsumer duplicateAckReplyConsumer = mock(AckReplyConsumer.class);
+
+		AckReplyConsumer trackingConsumer = deduplicator.track("1", this.ackReplyConsumer);
+		assertThat(deduplicator.track("1", duplicateAckReplyConsumer)).isNull();
+		verifyZeroInteractions(duplicateAckReplyConsumer);
+
+		trackingConsumer.ack();
+
+		verify(this.ackReplyConsumer).ack();
+		verify(duplicateAckReplyConsumer).ack();
+	}
+
+	@Test
+	public void testInFlightDuplicateIsNackedWithOriginal() {
+		MessageIdDeduplicator deduplicator = new MessageIdDeduplicator(1000, Duration.ofMinutes(1));
+		AckReplyConsumer duplicateAckReplyConsumer = mock(AckReplyConsumer.class);
+
+		AckReplyConsumer trackingConsumer = deduplicator.track("1", this.ackReplyConsumer);
+		deduplicator.track("1", duplicateAckReplyConsumer);
+		trackingConsumer.nack();
+
+		verify(this.ackReplyConsumer).nack();
+		verify(duplicateAckReplyConsumer).nack();
+		verify(duplicateAckReplyConsumer, never()).ack();
+		assertThat(deduplicator.track("1", this.ackReplyConsumer)).isNotNull();
+	}
+
+	@Test
+	public void testRedeliveryOfUnsettledMessageIsProcessedAfterWindow() {
+		AtomicLong nanoTime = new AtomicLong();
+		MessageIdDeduplicator deduplicator = new MessageIdDeduplicator(1000, Duration.ofMinutes(1), nanoTime::get);
+		AckReplyConsumer heldAckReplyConsumer = mock(AckReplyConsumer.class);
+		AckReplyConsumer redeliveryAckReplyConsumer = mock(AckReplyConsumer.class);
+
+		AckReplyConsumer originalConsumer = deduplicator.track("1", this.ackReplyConsumer);
+		assertThat(deduplicator.track("1", heldAckReplyConsumer)).isNull();
+		nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+		AckReplyConsumer redeliveryConsumer = deduplicator.track("1", redeliveryAckReplyConsumer);
+		assertThat(redeliveryConsumer).isNotNull();
+		verify(heldAckReplyConsumer).nack();
+
+		// The late nack of the original doesn't affect the redelivery being processed.
+		AckReplyConsumer duplicateAckReplyConsumer = mock(AckReplyConsumer.class);
+		originalConsumer.nack();
+		assertThat(deduplicator.track("1", duplicateAckReplyConsumer)).isNull();
+		verifyZeroInteractions(duplicateAckReplyConsumer);
+
+		redeliveryConsumer.ack();
+		verify(redeliveryAckReplyConsumer).ack();
+		verify(duplicateAckReplyConsumer).ack();
+	}
+
+	@Test
+	public void testUnsettledMessagesStopBeingTrackedAfterWindow() {
+		AtomicLong nanoTime = new AtomicLong();
+		MessageIdDeduplicator deduplicator = new MessageIdDeduplicator(1000, Duration.ofMinutes(1), nanoTime::get);
+		AckReplyConsumer heldAckReplyConsumer = mock(AckReplyConsumer.class);
+		String sameStripeId = sameStripeId("1");
+
+		deduplicator.track("1", this.ackReplyConsumer);
+		deduplicator.track("1", heldAckReplyConsumer);
+		nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+		// Any message of the same stripe releases the expired one.
+		deduplicator.track(sameStripeId, mock(AckReplyConsumer.class));
+
+		verify(heldAckReplyConsumer).nack();
+		verify(this.ackReplyConsumer, never()).nack();
+	}
+
+	@Test
+	public void testOldestMessageIdsAreEvictedWhenFull() {
+		MessageIdDeduplicator deduplicator = new MessageIdDeduplicator(16, Duration.ofMinutes(1));
+
+		for (int i = 0; i < 10000; i++) {
+			deduplicator.track(String.valueOf(i), this.ackReplyConsumer).ack();
+		}
+
+		assertThat(deduplicator.track("0", this.ackReplyConsumer)).isNotNull();
+		assertThat(deduplicator.track("9999", this.ackReplyConsumer)).isNull();
+	}
+
+	@Test
+	public void testMessageIdsExpireAfterWindow() throws InterruptedException {
+		MessageIdDeduplicator deduplicator = new MessageIdDeduplicator(1000, Duration.ofMillis(10));
+		deduplicator.track("1", this.ackReplyConsumer).ack();
+
+		Thread.sleep(30L);
+
+		assertThat(deduplicator.track("1", this.ackReplyConsumer)).isNotNull();
+	}
+
+	private static String sameStripeId(String messageId) {
+		long stripe = MessageIdDeduplicator.hash(messageId) >>> 60;
+		for (int i = 0; ; i++) {
+			String candidate = "other-" + i;
+			if (MessageIdDeduplicator.hash(candidate) >>> 60 == stripe) {
+				return candidate;
+			}
+		}
+	}
+
+}
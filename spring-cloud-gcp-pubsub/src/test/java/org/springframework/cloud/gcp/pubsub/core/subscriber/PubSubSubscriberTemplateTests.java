@@ -27,6 +27,8 @@ import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.rpc.UnaryCallable;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.MessageReceiver;
@@ -46,25 +48,31 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.threeten.bp.Duration;
 
 import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.BasicAcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.converter.PayloadNotFoundException;
 import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -199,6 +207,7 @@ public class PubSubSubscriberTemplateTests {
 		assertThat(listenableFuture.isDone()).isTrue();
 
 		verify(this.ackReplyConsumer).ack();
+		verify(this.messageConverter).onAcknowledged(this.pubsubMessage);
 
 		assertThat(testListenableFutureCallback.getThrowable()).isNull();
 	}
@@ -226,6 +235,69 @@ public class PubSubSubscriberTemplateTests {
 		assertThat(testListenableFutureCallback.getThrowable()).isNull();
 	}
 
+	@Test
+	public void testSubscribe_SkipsAndAcksDuplicates() {
+		this.pubsubMessage = PubsubMessage.newBuilder().setMessageId("1234").build();
+		this.pubSubSubscriberTemplate.setMessageDeduplication(100, Duration.ofMinutes(1));
+		this.pubSubSubscriberTemplate.subscribe("sub1", this.consumer);
+		verify(this.consumer).accept(this.message.capture());
+
+		this.message.getValue().ack();
+		this.messageReceiver.receiveMessage(this.pubsubMessage, this.ackReplyConsumer);
+
+		verify(this.consumer, times(1)).accept(any());
+		verify(this.ackReplyConsumer, times(2)).ack();
+	}
+
+	@Test
+	public void testSubscribe_NacksInFlightDuplicateWithOriginal() {
+		AckReplyConsumer duplicateAckReplyConsumer = mock(AckReplyConsumer.class);
+		this.pubsubMessage = PubsubMessage.newBuilder().setMessageId("1234").build();
+		this.pubSubSubscriberTemplate.setMessageDeduplication(100, Duration.ofMinutes(1));
+		this.pubSubSubscriberTemplate.subscribe("sub1", this.consumer);
+		verify(this.consumer).accept(this.message.capture());
+
+		this.messageReceiver.receiveMessage(this.pubsubMessage, duplicateAckReplyConsumer);
+		verifyZeroInteractions(duplicateAckReplyConsumer);
+
+		this.message.getValue().nack();
+
+		verify(this.consumer, times(1)).accept(any());
+		verify(duplicateAckReplyConsumer).nack();
+		verify(duplicateAckReplyConsumer, never()).ack();
+	}
+
+	@Test
+	public void testSubscribe_ProcessesRedeliveryOfNackedMessage() {
+		this.pubsubMessage = PubsubMessage.newBuilder().setMessageId("1234").build();
+		this.pubSubSubscriberTemplate.setMessageDeduplication(100, Duration.ofMinutes(1));
+		this.pubSubSubscriberTemplate.subscribe("sub1", this.consumer);
+		verify(this.consumer).accept(this.message.capture());
+
+		this.message.getValue().nack();
+		this.messageReceiver.receiveMessage(this.pubsubMessage, this.ackReplyConsumer);
+
+		verify(this.consumer, times(2)).accept(any());
+		verify(this.ackReplyConsumer, never()).ack();
+	}
+
+	@Test
+	public void testSubscribe_UsesSubscriptionSubscriberFactory() {
+		SubscriberFactory sub2SubscriberFactory = mock(SubscriberFactory.class);
+		when(sub2SubscriberFactory.createSubscriber(eq("sub2"), any(MessageReceiver.class)))
+				.thenReturn(this.subscriber);
+		this.pubSubSubscriberTemplate.setSubscriberFactory("sub2", sub2SubscriberFactory);
+
+		this.pubSubSubscriberTemplate.subscribe("sub1", this.consumer);
+		this.pubSubSubscriberTemplate.subscribe("sub2", this.consumer);
+		verify(this.subscriberFactory).createSubscriber(eq("sub1"), any(MessageReceiver.class));
+		verify(sub2SubscriberFactory).createSubscriber(eq("sub2"), any(MessageReceiver.class));
+
+		this.pubSubSubscriberTemplate.setSubscriberFactory("sub2", null);
+		this.pubSubSubscriberTemplate.subscribe("sub2", this.consumer);
+		verify(this.subscriberFactory).createSubscriber(eq("sub2"), any(MessageReceiver.class));
+	}
+
 	@Test
 	public void testSubscribeAndConvert_AndManualAck()
 			throws InterruptedException, ExecutionException, TimeoutException {
@@ -309,6 +381,7 @@ public class PubSubSubscriberTemplateTests {
 		assertThat(listenableFuture.isDone()).isTrue();
 
 		assertThat(testListenableFutureCallback.getThrowable()).isNull();
+		verify(this.messageConverter).onAcknowledged(this.pubsubMessage);
 	}
 
 	@Test
@@ -363,6 +436,69 @@ public class PubSubSubscriberTemplateTests {
 		verify(this.ackCallable, times(2)).futureCall(any(AcknowledgeRequest.class));
 	}
 
+	@Test
+	public void testPull_AndBatchedIndividualAcks()
+			throws InterruptedException, ExecutionException, TimeoutException {
+		this.pubSubSubscriberTemplate.setAckBatchingSettings(BatchingSettings.newBuilder()
+				.setElementCountThreshold(2L)
+				.setDelayThreshold(Duration.ofHours(1))
+				.build());
+
+		AcknowledgeablePubsubMessage message1 = this.pubSubSubscriberTemplate.pull("sub1", 1, true).get(0);
+		AcknowledgeablePubsubMessage message2 = this.pubSubSubscriberTemplate.pull("sub1", 1, true).get(0);
+
+		ListenableFuture<Void> future1 = message1.ack();
+		assertThat(future1.isDone()).isFalse();
+		verify(this.ackCallable, never()).futureCall(any(AcknowledgeRequest.class));
+
+		ListenableFuture<Void> future2 = message2.ack();
+		future1.get(10L, TimeUnit.SECONDS);
+		future2.get(10L, TimeUnit.SECONDS);
+
+		ArgumentCaptor<AcknowledgeRequest> ackRequest = ArgumentCaptor.forClass(AcknowledgeRequest.class);
+		verify(this.ackCallable, times(1)).futureCall(ackRequest.capture());
+		assertThat(ackRequest.getValue().getAckIdsCount()).isEqualTo(2);
+		assertThat(ackRequest.getValue().getSubscription()).isEqualTo("sub1");
+
+		this.pubSubSubscriberTemplate.destroy();
+	}
+
+	@Test
+	public void testPull_AndBatchedIndividualNacksFlushedOnDestroy()
+			throws InterruptedException, ExecutionException, TimeoutException {
+		this.pubSubSubscriberTemplate.setAckBatchingSettings(BatchingSettings.newBuilder()
+				.setElementCountThreshold(100L)
+				.setDelayThreshold(Duration.ofHours(1))
+				.build());
+
+		ListenableFuture<Void> future = this.pubSubSubscriberTemplate.pull("sub1", 1, true).get(0).nack();
+		assertThat(future.isDone()).isFalse();
+
+		this.pubSubSubscriberTemplate.destroy();
+		future.get(10L, TimeUnit.SECONDS);
+
+		ArgumentCaptor<ModifyAckDeadlineRequest> modifyAckDeadlineRequest =
+				ArgumentCaptor.forClass(ModifyAckDeadlineRequest.class);
+		verify(this.modifyAckDeadlineCallable, times(1)).futureCall(modifyAckDeadlineRequest.capture());
+		assertThat(modifyAckDeadlineRequest.getValue().getAckDeadlineSeconds()).isEqualTo(0);
+		assertThat(modifyAckDeadlineRequest.getValue().getAckIdsCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testPull_AndIndividualAckAfterDestroyIsSentDirectly()
+			throws InterruptedException, ExecutionException, TimeoutException {
+		this.pubSubSubscriberTemplate.setAckBatchingSettings(BatchingSettings.newBuilder()
+				.setElementCountThreshold(100L)
+				.setDelayThreshold(Duration.ofHours(1))
+				.build());
+		AcknowledgeablePubsubMessage message = this.pubSubSubscriberTemplate.pull("sub1", 1, true).get(0);
+
+		this.pubSubSubscriberTemplate.destroy();
+		message.ack().get(10L, TimeUnit.SECONDS);
+
+		verify(this.ackCallable, times(1)).futureCall(any(AcknowledgeRequest.class));
+	}
+
 	@Test
 	public void testPullAndAck() {
 		List<PubsubMessage> result = this.pubSubSubscriberTemplate.pullAndAck(
@@ -401,6 +537,110 @@ public class PubSubSubscriberTemplateTests {
 		assertThat(result.get(0).getProjectSubscriptionName().getSubscription()).isEqualTo("sub2");
 	}
 
+	@Test
+	public void testPullAndConvert_AcksMessagesWithConsumedPayload() {
+		when(this.messageConverter.fromPubSubMessage(this.pubsubMessage, BigInteger.class))
+				.thenThrow(new PayloadNotFoundException("The payload doesn't exist."));
+
+		List<ConvertedAcknowledgeablePubsubMessage<BigInteger>> result = this.pubSubSubscriberTemplate.pullAndConvert(
+				"sub2", 1, true, BigInteger.class);
+
+		assertThat(result).isEmpty();
+		verify(this.ackCallable).futureCall(any(AcknowledgeRequest.class));
+		verify(this.messageConverter, never()).onAcknowledged(any());
+	}
+
+	@Test
+	public void testSubscribeAndConvert_AcksMessagesWithConsumedPayload() {
+		when(this.messageConverter.fromPubSubMessage(this.pubsubMessage, Boolean.class))
+				.thenThrow(new PayloadNotFoundException("The payload doesn't exist."));
+
+		this.pubSubSubscriberTemplate.subscribeAndConvert("sub1", this.convertedConsumer, Boolean.class);
+
+		verify(this.ackReplyConsumer).ack();
+		verify(this.convertedConsumer, never()).accept(any());
+	}
+
+	@Test
+	public void testPullAsync() throws InterruptedException, ExecutionException, TimeoutException {
+		when(this.pullCallable.futureCall(any(PullRequest.class))).thenReturn(ApiFutures.immediateFuture(
+				PullResponse.newBuilder().addReceivedMessages(
+						ReceivedMessage.newBuilder().setMessage(this.pubsubMessage).setAckId("ack1").build())
+						.build()));
+
+		ListenableFuture<List<AcknowledgeablePubsubMessage>> future =
+				this.pubSubSubscriberTemplate.pullAsync("sub2", 1, true);
+
+		List<AcknowledgeablePubsubMessage> result = future.get(10L, TimeUnit.SECONDS);
+		assertThat(result.size()).isEqualTo(1);
+		assertThat(result.get(0).getPubsubMessage()).isSameAs(this.pubsubMessage);
+		assertThat(result.get(0).getAckId()).isEqualTo("ack1");
+		assertThat(result.get(0).getProjectSubscriptionName().getSubscription()).isEqualTo("sub2");
+
+		verify(this.pullCallable, never()).call(any(PullRequest.class));
+	}
+
+	@Test
+	public void testPullAsync_Failure() throws InterruptedException, TimeoutException {
+		when(this.pullCallable.futureCall(any(PullRequest.class))).thenReturn(
+				ApiFutures.immediateFailedFuture(new IllegalStateException("pull failed")));
+
+		ListenableFuture<List<AcknowledgeablePubsubMessage>> future =
+				this.pubSubSubscriberTemplate.pullAsync("sub2", 1, true);
+
+		try {
+			future.get(10L, TimeUnit.SECONDS);
+			fail("The pull future should have failed.");
+		}
+		catch (ExecutionException ee) {
+			assertThat(ee.getCause()).isInstanceOf(IllegalStateException.class);
+		}
+	}
+
+	@Test
+	public void testPullAndConvertAsync() throws InterruptedException, ExecutionException, TimeoutException {
+		when(this.pullCallable.futureCall(any(PullRequest.class))).thenReturn(ApiFutures.immediateFuture(
+				PullResponse.newBuilder().addReceivedMessages(
+						ReceivedMessage.newBuilder().setMessage(this.pubsubMessage).build()).build()));
+		when(this.messageConverter.fromPubSubMessage(this.pubsubMessage, BigInteger.class))
+				.thenReturn(BigInteger.TEN);
+
+		List<ConvertedAcknowledgeablePubsubMessage<BigInteger>> result = this.pubSubSubscriberTemplate
+				.pullAndConvertAsync("sub2", 1, true, BigInteger.class).get(10L, TimeUnit.SECONDS);
+
+		assertThat(result.size()).isEqualTo(1);
+		assertThat(result.get(0).getPayload()).isEqualTo(BigInteger.TEN);
+		assertThat(result.get(0).getPubsubMessage()).isSameAs(this.pubsubMessage);
+	}
+
+	@Test
+	public void testPullAndAckAsync() throws InterruptedException, ExecutionException, TimeoutException {
+		when(this.pullCallable.futureCall(any(PullRequest.class))).thenReturn(ApiFutures.immediateFuture(
+				PullResponse.newBuilder().addReceivedMessages(
+						ReceivedMessage.newBuilder().setMessage(this.pubsubMessage).build()).build()));
+
+		List<PubsubMessage> result = this.pubSubSubscriberTemplate.pullAndAckAsync("sub2", 1, true)
+				.get(10L, TimeUnit.SECONDS);
+
+		assertThat(result.size()).isEqualTo(1);
+		assertThat(result.get(0)).isSameAs(this.pubsubMessage);
+
+		verify(this.pubSubSubscriberTemplate, times(1)).ack(any());
+	}
+
+	@Test
+	public void testPullAndAckAsync_NoMessages() throws InterruptedException, ExecutionException, TimeoutException {
+		when(this.pullCallable.futureCall(any(PullRequest.class))).thenReturn(ApiFutures.immediateFuture(
+				PullResponse.newBuilder().build()));
+
+		List<PubsubMessage> result = this.pubSubSubscriberTemplate.pullAndAckAsync("sub2", 1, true)
+				.get(10L, TimeUnit.SECONDS);
+
+		assertThat(result.size()).isEqualTo(0);
+
+		verify(this.pubSubSubscriberTemplate, never()).ack(any());
+	}
+
 	private class TestListenableFutureCallback implements ListenableFutureCallback<Void> {
 
 		private Throwable throwable;
@@ -69,4 +69,44 @@ public class PubSubHeaderMapperTests {
 		Map<String, Object> internalHeaders = mapper.toHeaders(originalHeaders);
 		assertThat(internalHeaders.size()).isEqualTo(3);
 	}
+
+	@Test
+	public void testChangingPatternsDiscardsRememberedDecisions() {
+		PubSubHeaderMapper mapper = new PubSubHeaderMapper();
+		Map<String, String> originalHeaders = new HashMap<>();
+		originalHeaders.put("my header", "don't touch it");
+
+		assertThat(mapper.toHeaders(originalHeaders)).containsKey("my header");
+		assertThat(mapper.toHeaders(originalHeaders)).containsKey("my header");
+
+		mapper.setInboundHeaderPatterns("!my header", "*");
+		assertThat(mapper.toHeaders(originalHeaders)).isEmpty();
+	}
+
+	@Test
+	public void testToHeadersReturnsMutableMap() {
+		PubSubHeaderMapper mapper = new PubSubHeaderMapper();
+		Map<String, String> originalHeaders = new HashMap<>();
+		originalHeaders.put("my header", "don't touch it");
+
+		Map<String, Object> internalHeaders = mapper.toHeaders(originalHeaders);
+		internalHeaders.put("another header", "added downstream");
+		assertThat(internalHeaders).hasSize(2);
+	}
+
+	@Test
+	public void testManyHeaderNamesAreStillMatched() {
+		PubSubHeaderMapper mapper = new PubSubHeaderMapper();
+		mapper.setInboundHeaderPatterns("!secret*", "*");
+		Map<String, String> originalHeaders = new HashMap<>();
+		for (int i = 0; i < PubSubHeaderMapper.MAX_CACHED_HEADER_NAMES + 10; i++) {
+			originalHeaders.put("header" + i, "value");
+			originalHeaders.put("secret" + i, "value");
+		}
+
+		Map<String, Object> internalHeaders = mapper.toHeaders(originalHeaders);
+		assertThat(internalHeaders).hasSize(PubSubHeaderMapper.MAX_CACHED_HEADER_NAMES + 10);
+		assertThat(mapper.toHeaders(originalHeaders)).isEqualTo(internalHeaders);
+	}
+
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.integration.inbound;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link KeyOrderedDispatcher}.
+ */
+public class KeyOrderedDispatcherTests {
+
+	@Test
+	public void testSameKeyRunsInDispatchOrder() throws InterruptedException {
+		KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(4, 1000, "test-lane-");
+		List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+
+		for (int i = 0; i < 1000; i++) {
+			int sequence = i;
+			dispatcher.dispatch("key", () -> processed.add(sequence));
+		}
+
+		assertThat(dispatcher.shutdown(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(processed).hasSize(1000).isSorted();
+	}
+
+	@Test
+	public void testDifferentKeysRunInParallel() throws InterruptedException {
+		KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(2, 10, "test-lane-");
+		CountDownLatch bothRunning = new CountDownLatch(2);
+		Runnable waitForOther = () -> {
+			bothRunning.countDown();
+			try {
+				bothRunning.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		};
+
+		// Unkeyed tasks are spread over the lanes in turn, so these land on different lanes.
+		dispatcher.dispatch(null, waitForOther);
+		dispatcher.dispatch(null, waitForOther);
+
+		assertThat(bothRunning.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(dispatcher.shutdown(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void testFailingTaskDoesNotStopLane() throws InterruptedException {
+		KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(1, 10, "test-lane-");
+		CountDownLatch processed = new CountDownLatch(1);
+
+		dispatcher.dispatch("key", () -> {
+			throw new IllegalStateException("boom");
+		});
+		dispatcher.dispatch("key", processed::countDown);
+
+		assertThat(processed.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(dispatcher.shutdown(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void testShutdownDrainsQueuedTasksAndRejectsNewOnes() throws InterruptedException {
+		KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(1, 10, "test-lane-");
+		CountDownLatch release = new CountDownLatch(1);
+		List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+
+		dispatcher.dispatch("key", () -> {
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		dispatcher.dispatch("key", () -> processed.add(1));
+		dispatcher.dispatch("key", () -> processed.add(2));
+		assertThat(dispatcher.getQueuedTaskCount(0)).isEqualTo(2);
+
+		release.countDown();
+		assertThat(dispatcher.shutdown(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(processed).containsExactly(1, 2);
+
+		assertThatThrownBy(() -> dispatcher.dispatch("key", () -> { }))
+				.isInstanceOf(RejectedExecutionException.class);
+	}
+
+}
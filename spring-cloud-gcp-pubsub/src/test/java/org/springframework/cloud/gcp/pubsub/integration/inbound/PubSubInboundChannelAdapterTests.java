@@ -17,8 +17,12 @@
 package org.springframework.cloud.gcp.pubsub.integration.inbound;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.pubsub.v1.PubsubMessage;
 import org.junit.Assert;
 import org.junit.Before;
@@ -29,13 +33,18 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.cloud.gcp.pubsub.core.PubSubOperations;
 import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
 import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -62,6 +71,8 @@ public class PubSubInboundChannelAdapterTests {
 
 	private String value;
 
+	private ConvertedBasicAcknowledgeablePubsubMessage message;
+
 	@Before
 	public void setUp() throws UnsupportedEncodingException {
 		this.pubSubOperations = mock(PubSubOperations.class);
@@ -69,6 +80,7 @@ public class PubSubInboundChannelAdapterTests {
 		this.messageChannel = mock(MessageChannel.class);
 		this.value = null;
 		ConvertedBasicAcknowledgeablePubsubMessage message = mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+		this.message = message;
 
 		doAnswer(invocation -> {
 			this.value = NACK;
@@ -138,4 +150,128 @@ public class PubSubInboundChannelAdapterTests {
 		Assert.assertNull(this.value);
 	}
 
+	@Test
+	public void testBatchModeAckModeAuto() {
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				this.pubSubSubscriberOperations, "testSubscription");
+
+		adapter.setAckMode(AckMode.AUTO);
+		adapter.setBatchingSettings(BatchingSettings.newBuilder().setElementCountThreshold(1L).build());
+		adapter.setOutputChannel(this.messageChannel);
+
+		try {
+			adapter.start();
+
+			Assert.fail(EXPECTED_EXCEPTION);
+		}
+		catch (Throwable t) {
+			Assert.assertEquals(EXCEPTION_MESSAGE, t.getCause().getMessage());
+		}
+
+		Assert.assertEquals(NACK, this.value);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBatchModeSendsListPayloadWithElementHeaders() {
+		when(this.message.getPubsubMessage()).thenReturn(
+				PubsubMessage.newBuilder().putAttributes("key", "value").build());
+		QueueChannel outputChannel = new QueueChannel();
+
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				this.pubSubSubscriberOperations, "testSubscription");
+
+		adapter.setAckMode(AckMode.AUTO);
+		adapter.setBatchingSettings(BatchingSettings.newBuilder().setElementCountThreshold(1L).build());
+		adapter.setOutputChannel(outputChannel);
+		adapter.start();
+
+		Message<?> batchMessage = outputChannel.receive(0);
+		Assert.assertNotNull(batchMessage);
+		Assert.assertEquals(Collections.singletonList("Test message payload."), batchMessage.getPayload());
+
+		List<Map<String, Object>> batchHeaders =
+				(List<Map<String, Object>>) batchMessage.getHeaders().get(GcpPubSubHeaders.BATCH_HEADERS);
+		Assert.assertEquals(1, batchHeaders.size());
+		Assert.assertEquals("value", batchHeaders.get(0).get("key"));
+
+		verify(this.message).ack();
+	}
+
+	@Test
+	public void testContentEncodingOfDecompressedPayloadIsNotMapped() {
+		when(this.message.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder()
+				.putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip")
+				.putAttributes("key", "value")
+				.build());
+		QueueChannel outputChannel = new QueueChannel();
+
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				this.pubSubSubscriberOperations, "testSubscription");
+
+		adapter.setOutputChannel(outputChannel);
+		adapter.start();
+
+		Message<?> message = outputChannel.receive(0);
+		Assert.assertNotNull(message);
+		Assert.assertEquals("value", message.getHeaders().get("key"));
+		Assert.assertFalse(
+				message.getHeaders().containsKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE));
+	}
+
+	@Test
+	public void testUnknownContentEncodingIsMapped() {
+		when(this.message.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder()
+				.putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "br")
+				.build());
+		QueueChannel outputChannel = new QueueChannel();
+
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				this.pubSubSubscriberOperations, "testSubscription");
+
+		adapter.setOutputChannel(outputChannel);
+		adapter.start();
+
+		Message<?> message = outputChannel.receive(0);
+		Assert.assertNotNull(message);
+		Assert.assertEquals("br",
+				message.getHeaders().get(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE));
+	}
+
+	@Test
+	public void testLanesSendMessageAndAck() {
+		when(this.message.getPubsubMessage()).thenReturn(
+				PubsubMessage.newBuilder().putAttributes("customerId", "42").build());
+		QueueChannel outputChannel = new QueueChannel();
+
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				this.pubSubSubscriberOperations, "testSubscription");
+
+		adapter.setAckMode(AckMode.AUTO);
+		adapter.setLaneCount(2);
+		adapter.setOrderingKeyAttribute("customerId");
+		adapter.setOutputChannel(outputChannel);
+		adapter.start();
+		// Stopping waits for the lanes to drain.
+		adapter.stop();
+
+		Message<?> laneMessage = outputChannel.receive(0);
+		Assert.assertNotNull(laneMessage);
+		Assert.assertEquals("Test message payload.", laneMessage.getPayload());
+		Assert.assertEquals("42", laneMessage.getHeaders().get("customerId"));
+
+		verify(this.message).ack();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testLanesCannotBeCombinedWithBatchMode() {
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				this.pubSubSubscriberOperations, "testSubscription");
+
+		adapter.setLaneCount(2);
+		adapter.setBatchingSettings(BatchingSettings.newBuilder().setElementCountThreshold(1L).build());
+		adapter.setOutputChannel(this.messageChannel);
+		adapter.start();
+	}
+
 }
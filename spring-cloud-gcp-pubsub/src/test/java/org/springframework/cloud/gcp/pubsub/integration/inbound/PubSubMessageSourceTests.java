@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.integration.inbound;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
+import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.messaging.Message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PubSubMessageSource}.
+ */
+public class PubSubMessageSourceTests {
+
+	private PubSubSubscriberOperations pubSubSubscriberOperations;
+
+	private List<ConvertedAcknowledgeablePubsubMessage<Object>> pulledMessages;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		this.pubSubSubscriberOperations = mock(PubSubSubscriberOperations.class);
+		this.pulledMessages = Arrays.asList(createMessage("payload1"), createMessage("payload2"),
+				createMessage("payload3"));
+		when(this.pubSubSubscriberOperations.pullAndConvert(eq("sub1"), anyInt(), anyBoolean(), any()))
+				.thenReturn((List) this.pulledMessages, Collections.emptyList());
+	}
+
+	@Test
+	public void testPullsOnceAndServesBufferedMessages() {
+		PubSubMessageSource messageSource = new PubSubMessageSource(this.pubSubSubscriberOperations, "sub1");
+		messageSource.setMaxFetchSize(3);
+
+		assertThat(messageSource.receive().getPayload()).isEqualTo("payload1");
+		assertThat(messageSource.receive().getPayload()).isEqualTo("payload2");
+		assertThat(messageSource.receive().getPayload()).isEqualTo("payload3");
+		verify(this.pubSubSubscriberOperations, times(1)).pullAndConvert("sub1", 3, true, byte[].class);
+
+		assertThat(messageSource.receive()).isNull();
+		verify(this.pubSubSubscriberOperations, times(2)).pullAndConvert("sub1", 3, true, byte[].class);
+	}
+
+	@Test
+	public void testAutoAckOnAccept() {
+		PubSubMessageSource messageSource = new PubSubMessageSource(this.pubSubSubscriberOperations, "sub1");
+
+		Message<?> message = messageSource.receive();
+		AcknowledgmentCallback callback = StaticMessageHeaderAccessor.getAcknowledgmentCallback(message);
+		assertThat(callback.isAutoAck()).isTrue();
+		callback.acknowledge(AcknowledgmentCallback.Status.ACCEPT);
+
+		verify(this.pulledMessages.get(0)).ack();
+		assertThat(callback.isAcknowledged()).isTrue();
+	}
+
+	@Test
+	public void testRejectNacksOnlyInAutoMode() {
+		PubSubMessageSource messageSource = new PubSubMessageSource(this.pubSubSubscriberOperations, "sub1");
+		messageSource.setMaxFetchSize(3);
+
+		StaticMessageHeaderAccessor.getAcknowledgmentCallback(messageSource.receive())
+				.acknowledge(AcknowledgmentCallback.Status.REJECT);
+		messageSource.setAckMode(AckMode.AUTO_ACK);
+		StaticMessageHeaderAccessor.getAcknowledgmentCallback(messageSource.receive())
+				.acknowledge(AcknowledgmentCallback.Status.REJECT);
+
+		verify(this.pulledMessages.get(0)).nack();
+		verify(this.pulledMessages.get(1), never()).nack();
+	}
+
+	@Test
+	public void testRecordsProcessingOnAcknowledge() {
+		PubSubMetrics pubSubMetrics = mock(PubSubMetrics.class);
+		PubSubMessageSource messageSource = new PubSubMessageSource(this.pubSubSubscriberOperations, "sub1");
+		messageSource.setMaxFetchSize(3);
+		messageSource.setPubSubMetrics(pubSubMetrics);
+
+		Message<?> accepted = messageSource.receive();
+		Message<?> rejected = messageSource.receive();
+		verify(pubSubMetrics, never()).recordProcessing(any(), anyLong(), anyBoolean());
+
+		StaticMessageHeaderAccessor.getAcknowledgmentCallback(accepted)
+				.acknowledge(AcknowledgmentCallback.Status.ACCEPT);
+		StaticMessageHeaderAccessor.getAcknowledgmentCallback(rejected)
+				.acknowledge(AcknowledgmentCallback.Status.REJECT);
+
+		verify(pubSubMetrics).recordProcessing(eq("sub1"), anyLong(), eq(true));
+		verify(pubSubMetrics).recordProcessing(eq("sub1"), anyLong(), eq(false));
+	}
+
+	@Test
+	public void testManualAckModeExposesOriginalMessage() {
+		PubSubMessageSource messageSource = new PubSubMessageSource(this.pubSubSubscriberOperations, "sub1");
+		messageSource.setAckMode(AckMode.MANUAL);
+
+		Message<?> message = messageSource.receive();
+
+		assertThat(message.getHeaders().get(GcpPubSubHeaders.ORIGINAL_MESSAGE)).isSameAs(this.pulledMessages.get(0));
+		assertThat(StaticMessageHeaderAccessor.getAcknowledgmentCallback(message).isAutoAck()).isFalse();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testDestroyNacksBufferedMessages() {
+		PubSubMessageSource messageSource = new PubSubMessageSource(this.pubSubSubscriberOperations, "sub1");
+		messageSource.setMaxFetchSize(3);
+		messageSource.receive();
+
+		messageSource.destroy();
+
+		verify(this.pubSubSubscriberOperations).nack((List) this.pulledMessages.subList(1, 3));
+	}
+
+	@Test
+	public void testContentEncodingOfDecompressedPayloadIsNotMapped() {
+		PubsubMessage pubsubMessage = PubsubMessage.newBuilder()
+				.putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip")
+				.putAttributes("key", "value")
+				.build();
+		when(this.pulledMessages.get(0).getPubsubMessage()).thenReturn(pubsubMessage);
+		PubSubMessageSource messageSource = new PubSubMessageSource(this.pubSubSubscriberOperations, "sub1");
+
+		Message<?> message = messageSource.receive();
+
+		assertThat(message.getHeaders()).containsEntry("key", "value")
+				.doesNotContainKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+	}
+
+	@Test
+	public void testUnknownContentEncodingIsMapped() {
+		PubsubMessage pubsubMessage = PubsubMessage.newBuilder()
+				.putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "br")
+				.build();
+		when(this.pulledMessages.get(0).getPubsubMessage()).thenReturn(pubsubMessage);
+		PubSubMessageSource messageSource = new PubSubMessageSource(this.pubSubSubscriberOperations, "sub1");
+
+		Message<?> message = messageSource.receive();
+
+		assertThat(message.getHeaders())
+				.containsEntry(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "br");
+	}
+
+	@SuppressWarnings("unchecked")
+	private ConvertedAcknowledgeablePubsubMessage<Object> createMessage(String payload) {
+		ConvertedAcknowledgeablePubsubMessage<Object> message = mock(ConvertedAcknowledgeablePubsubMessage.class);
+		when(message.getPubsubMessage()).thenReturn(PubsubMessage.getDefaultInstance());
+		when(message.getPayload()).thenReturn(payload);
+		return message;
+	}
+
+}
@@ -28,11 +28,16 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.cloud.gcp.pubsub.core.PubSubOperations;
 import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
 import org.springframework.expression.Expression;
+import org.springframework.integration.channel.QueueChannel;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 import org.springframework.util.concurrent.SettableListenableFuture;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.spy;
@@ -114,4 +119,131 @@ public class PubSubMessageHandlerTests {
 
 		verify(callbackSpy, times(1)).onSuccess(eq("benfica"));
 	}
+
+	@Test
+	public void testPublishSyncPipelinedSendsFailureToFailureChannel() {
+		SettableListenableFuture<String> first = new SettableListenableFuture<>();
+		SettableListenableFuture<String> second = new SettableListenableFuture<>();
+		SettableListenableFuture<String> third = new SettableListenableFuture<>();
+		when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class)))
+				.thenReturn(first, second, third);
+		Message<?> firstMessage = new GenericMessage<>("testPayload".getBytes());
+		QueueChannel failureChannel = new QueueChannel();
+
+		this.adapter.setSync(true);
+		this.adapter.setMaxOutstandingPublishes(3);
+		this.adapter.setFailureChannel(failureChannel);
+
+		// Neither call waits while fewer than 3 publishes are outstanding.
+		this.adapter.handleMessage(firstMessage);
+		this.adapter.handleMessage(this.message);
+
+		first.setException(new IllegalStateException("boom"));
+		second.set("second");
+		// The failure of the first message doesn't fail the third one, which is published.
+		this.adapter.handleMessage(this.message);
+
+		ErrorMessage errorMessage = (ErrorMessage) failureChannel.receive(0);
+		assertThat(errorMessage.getOriginalMessage()).isSameAs(firstMessage);
+		assertThat(errorMessage.getPayload()).isInstanceOf(MessagingException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+		assertThat(((MessagingException) errorMessage.getPayload()).getFailedMessage()).isSameAs(firstMessage);
+
+		third.set("third");
+		this.adapter.flush();
+		assertThat(failureChannel.receive(0)).isNull();
+	}
+
+	@Test
+	public void testPublishSyncPipelinedDoesNotFailLaterMessage() {
+		SettableListenableFuture<String> first = new SettableListenableFuture<>();
+		SettableListenableFuture<String> second = new SettableListenableFuture<>();
+		when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class)))
+				.thenReturn(first, second);
+
+		this.adapter.setSync(true);
+		this.adapter.setMaxOutstandingPublishes(2);
+
+		this.adapter.handleMessage(this.message);
+		first.setException(new IllegalStateException("boom"));
+		second.set("second");
+
+		// Without a failure channel, the failure of the first message is logged.
+		this.adapter.handleMessage(this.message);
+		this.adapter.flush();
+	}
+
+	@Test
+	public void testFlushSuppressesLaterFailures() {
+		SettableListenableFuture<String> first = new SettableListenableFuture<>();
+		SettableListenableFuture<String> second = new SettableListenableFuture<>();
+		when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class)))
+				.thenReturn(first, second);
+		Message<?> firstMessage = new GenericMessage<>("testPayload".getBytes());
+
+		this.adapter.setSync(true);
+		this.adapter.setMaxOutstandingPublishes(10);
+
+		this.adapter.handleMessage(firstMessage);
+		this.adapter.handleMessage(this.message);
+		first.setException(new IllegalStateException("first"));
+		second.setException(new IllegalStateException("second"));
+
+		assertThatThrownBy(() -> this.adapter.flush()).isInstanceOf(MessagingException.class)
+				.satisfies((ex) -> {
+					assertThat(((MessagingException) ex).getFailedMessage()).isSameAs(firstMessage);
+					assertThat(ex.getSuppressed()).hasSize(1);
+					assertThat(((MessagingException) ex.getSuppressed()[0]).getFailedMessage())
+							.isSameAs(this.message);
+				});
+	}
+
+	@Test
+	public void testStopWaitsForOutstandingPublishes() {
+		SettableListenableFuture<String> future = new SettableListenableFuture<>();
+		when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class)))
+				.thenReturn(future);
+
+		this.adapter.setSync(true);
+		this.adapter.setMaxOutstandingPublishes(10);
+		this.adapter.setPublishTimeout(100);
+		this.adapter.start();
+		this.adapter.handleMessage(this.message);
+
+		assertThat(future.isDone()).isFalse();
+		assertThatThrownBy(() -> this.adapter.flush()).isInstanceOf(MessagingException.class)
+				.satisfies((ex) -> assertThat(((MessagingException) ex).getFailedMessage()).isSameAs(this.message));
+
+		// Nothing is outstanding anymore.
+		this.adapter.stop();
+		assertThat(this.adapter.isRunning()).isFalse();
+	}
+
+	@Test
+	public void testStopReturnsWhenInterrupted() {
+		SettableListenableFuture<String> future = new SettableListenableFuture<>();
+		when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class)))
+				.thenReturn(future);
+
+		this.adapter.setSync(true);
+		this.adapter.setMaxOutstandingPublishes(10);
+		this.adapter.start();
+		this.adapter.handleMessage(this.message);
+
+		Thread.currentThread().interrupt();
+		try {
+			this.adapter.stop();
+			assertThat(Thread.currentThread().isInterrupted()).isTrue();
+		}
+		finally {
+			Thread.interrupted();
+		}
+		assertThat(this.adapter.isRunning()).isFalse();
+
+		// The message is still outstanding, so a later flush waits for it.
+		future.setException(new IllegalStateException("boom"));
+		assertThatThrownBy(() -> this.adapter.flush()).isInstanceOf(MessagingException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+	}
+
 }
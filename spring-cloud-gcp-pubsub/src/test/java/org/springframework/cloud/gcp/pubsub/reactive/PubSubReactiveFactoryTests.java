@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.reactive;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PubSubReactiveFactory}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PubSubReactiveFactoryTests {
+
+	@Mock
+	private PubSubSubscriberOperations subscriberOperations;
+
+	private VirtualTimeScheduler scheduler;
+
+	private PubSubReactiveFactory factory;
+
+	@Before
+	public void setUp() {
+		this.scheduler = VirtualTimeScheduler.create();
+		this.factory = new PubSubReactiveFactory(this.subscriberOperations, this.scheduler);
+	}
+
+	@Test
+	public void testPullSizedToDemand() {
+		List<AcknowledgeablePubsubMessage> messages = messages(3);
+		when(this.subscriberOperations.pullAsync("sub", 3, true)).thenReturn(completed(messages));
+
+		StepVerifier.withVirtualTime(() -> this.factory.poll("sub", 100L), () -> this.scheduler, 3)
+				.expectNextSequence(messages)
+				.thenCancel()
+				.verify();
+
+		verify(this.subscriberOperations, times(1)).pullAsync(eq("sub"), anyInt(), eq(true));
+	}
+
+	@Test
+	public void testPullSizeCappedByMaxMessagesPerPull() {
+		this.factory.setMaxMessagesPerPull(2);
+		List<AcknowledgeablePubsubMessage> messages = messages(2);
+		when(this.subscriberOperations.pullAsync("sub", 2, true)).thenReturn(completed(messages));
+
+		StepVerifier.withVirtualTime(() -> this.factory.poll("sub", 100L), () -> this.scheduler, 5)
+				.expectNextSequence(messages)
+				.thenCancel()
+				.verify();
+	}
+
+	@Test
+	public void testIdleSubscriptionPolledAfterPollingPeriod() {
+		List<AcknowledgeablePubsubMessage> messages = messages(1);
+		when(this.subscriberOperations.pullAsync("sub", 1, true))
+				.thenReturn(completed(Collections.emptyList()), completed(messages));
+
+		StepVerifier.withVirtualTime(() -> this.factory.poll("sub", 100L), () -> this.scheduler, 1)
+				.expectSubscription()
+				.expectNoEvent(Duration.ofMillis(99))
+				.then(() -> verify(this.subscriberOperations, times(1)).pullAsync("sub", 1, true))
+				.thenAwait(Duration.ofMillis(1))
+				.expectNextSequence(messages)
+				.thenCancel()
+				.verify();
+	}
+
+	@Test
+	public void testNoPullWithoutDemand() {
+		StepVerifier.withVirtualTime(() -> this.factory.poll("sub", 100L), () -> this.scheduler, 0)
+				.expectSubscription()
+				.thenAwait(Duration.ofSeconds(1))
+				.thenCancel()
+				.verify();
+
+		verify(this.subscriberOperations, never()).pullAsync(eq("sub"), anyInt(), eq(true));
+	}
+
+	@Test
+	public void testPullFailureErrorsStream() {
+		SettableListenableFuture<List<AcknowledgeablePubsubMessage>> future = new SettableListenableFuture<>();
+		future.setException(new PubSubException("pull failed"));
+		when(this.subscriberOperations.pullAsync("sub", 1, true)).thenReturn(future);
+
+		StepVerifier.withVirtualTime(() -> this.factory.poll("sub", 100L), () -> this.scheduler, 1)
+				.expectError(PubSubException.class)
+				.verify();
+	}
+
+	private static List<AcknowledgeablePubsubMessage> messages(int count) {
+		AcknowledgeablePubsubMessage[] messages = new AcknowledgeablePubsubMessage[count];
+		for (int i = 0; i < count; i++) {
+			messages[i] = mock(AcknowledgeablePubsubMessage.class);
+		}
+		return Arrays.asList(messages);
+	}
+
+	private static ListenableFuture<List<AcknowledgeablePubsubMessage>> completed(
+			List<AcknowledgeablePubsubMessage> messages) {
+		SettableListenableFuture<List<AcknowledgeablePubsubMessage>> future = new SettableListenableFuture<>();
+		future.set(messages);
+		return future;
+	}
+
+}
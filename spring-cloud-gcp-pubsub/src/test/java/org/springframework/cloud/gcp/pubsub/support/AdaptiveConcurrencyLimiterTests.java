@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link AdaptiveConcurrencyLimiter}.
+ */
+public class AdaptiveConcurrencyLimiterTests {
+
+	private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final PubSubMetrics pubSubMetrics = mock(PubSubMetrics.class);
+
+	@Test
+	public void testLimitGrowsWhileSaturatedAndLatencyIsStable() throws InterruptedException {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("sub", 2, 10, 2.0, 0.9,
+				this.pubSubMetrics);
+		verify(this.pubSubMetrics).recordConcurrencyLimit("sub", 2, 2);
+
+		for (int i = 0; i < 200; i++) {
+			saturateAndRelease(limiter, LATENCY_NANOS, true);
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(10);
+		verify(this.pubSubMetrics).recordConcurrencyLimit("sub", 3, 2);
+		verify(this.pubSubMetrics).recordConcurrencyLimit("sub", 10, 9);
+	}
+
+	@Test
+	public void testLimitDoesNotGrowWhenUnused() throws InterruptedException {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("sub", 2, 10, 2.0, 0.9,
+				this.pubSubMetrics);
+
+		for (int i = 0; i < 200; i++) {
+			limiter.acquire();
+			limiter.release(LATENCY_NANOS, true);
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(2);
+	}
+
+	@Test
+	public void testLimitBacksOffOnFailuresDownToMinimum() throws InterruptedException {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("sub", 2, 20, 2.0, 0.5,
+				this.pubSubMetrics);
+		for (int i = 0; i < 500; i++) {
+			saturateAndRelease(limiter, LATENCY_NANOS, true);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(20);
+
+		saturateAndRelease(limiter, LATENCY_NANOS, false);
+		assertThat(limiter.getLimit()).isEqualTo(10);
+
+		for (int i = 0; i < 100; i++) {
+			saturateAndRelease(limiter, LATENCY_NANOS, false);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(2);
+	}
+
+	@Test
+	public void testLimitBacksOffWhenLatencyRises() throws InterruptedException {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("sub", 2, 20, 2.0, 0.5,
+				this.pubSubMetrics);
+		for (int i = 0; i < 500; i++) {
+			saturateAndRelease(limiter, LATENCY_NANOS, true);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(20);
+
+		for (int i = 0; i < 20; i++) {
+			saturateAndRelease(limiter, LATENCY_NANOS * 10, true);
+		}
+		assertThat(limiter.getLimit()).isLessThan(20);
+	}
+
+	@Test
+	public void testAcquireWaitsForRoom() throws InterruptedException {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("sub", 1, 1, 2.0, 0.9,
+				this.pubSubMetrics);
+		limiter.acquire();
+
+		CountDownLatch acquired = new CountDownLatch(1);
+		Thread waiter = new Thread(() -> {
+			try {
+				limiter.acquire();
+				acquired.countDown();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		waiter.start();
+
+		assertThat(acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+		limiter.release(LATENCY_NANOS, true);
+		assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+		waiter.join();
+	}
+
+	@Test
+	public void testLimitedReceiverReleasesOnAckAndException() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("sub", 1, 1, 2.0, 0.9,
+				this.pubSubMetrics);
+		AckReplyConsumer consumer = mock(AckReplyConsumer.class);
+
+		MessageReceiver acking = limiter.limit((message, messageConsumer) -> {
+			assertThat(limiter.getInFlight()).isEqualTo(1);
+			messageConsumer.ack();
+			messageConsumer.ack();
+		});
+		acking.receiveMessage(PubsubMessage.getDefaultInstance(), consumer);
+		assertThat(limiter.getInFlight()).isZero();
+
+		MessageReceiver failing = limiter.limit((message, messageConsumer) -> {
+			throw new IllegalStateException("boom");
+		});
+		try {
+			failing.receiveMessage(PubsubMessage.getDefaultInstance(), consumer);
+		}
+		catch (IllegalStateException ise) {
+			// expected
+		}
+		assertThat(limiter.getInFlight()).isZero();
+	}
+
+	private static void saturateAndRelease(AdaptiveConcurrencyLimiter limiter, long latencyNanos,
+			boolean success) throws InterruptedException {
+		int limit = limiter.getLimit();
+		for (int i = 0; i < limit; i++) {
+			limiter.acquire();
+		}
+		for (int i = 0; i < limit; i++) {
+			limiter.release(latencyNanos, success);
+		}
+	}
+
+}
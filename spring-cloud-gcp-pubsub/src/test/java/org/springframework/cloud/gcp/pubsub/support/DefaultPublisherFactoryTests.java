@@ -16,15 +16,32 @@
 
 package org.springframework.cloud.gcp.pubsub.support;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.cloud.pubsub.v1.Publisher;
+import com.google.common.base.Ticker;
 import com.google.pubsub.v1.ProjectTopicName;
+import com.google.pubsub.v1.PubsubMessage;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.threeten.bp.Duration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author João André Martins
@@ -47,6 +64,125 @@ public class DefaultPublisherFactoryTests {
 		assertEquals("projectId", ((ProjectTopicName) publisher.getTopicName()).getProject());
 	}
 
+	@Test
+	public void testGetPublisher_cacheStats() {
+		DefaultPublisherFactory factory = new DefaultPublisherFactory(() -> "projectId");
+		factory.setCredentialsProvider(this.credentialsProvider);
+
+		Publisher publisher = factory.createPublisher("testTopic");
+		assertSame(publisher, factory.createPublisher("testTopic"));
+
+		assertEquals(1, factory.getCacheHitCount());
+		assertEquals(1, factory.getCacheMissCount());
+		assertEquals(0, factory.getCacheEvictionCount());
+	}
+
+	@Test
+	public void testGetPublisher_evictedWhenCacheFull() {
+		DefaultPublisherFactory factory = new DefaultPublisherFactory(() -> "projectId");
+		factory.setCredentialsProvider(this.credentialsProvider);
+		factory.setCacheMaxSize(1L);
+
+		Publisher publisher = factory.createPublisher("testTopic1");
+		factory.createPublisher("testTopic2");
+
+		assertEquals(1, factory.getCache().size());
+		assertEquals(1, factory.getCacheEvictionCount());
+		assertNotSame(publisher, factory.createPublisher("testTopic1"));
+	}
+
+	@Test
+	public void testGetPublisher_evictedWhenIdle() {
+		AtomicLong nanos = new AtomicLong();
+		DefaultPublisherFactory factory = new DefaultPublisherFactory(() -> "projectId");
+		factory.setCredentialsProvider(this.credentialsProvider);
+		factory.setCacheIdleTimeout(Duration.ofMillis(10));
+		factory.setTicker(new Ticker() {
+			@Override
+			public long read() {
+				return nanos.get();
+			}
+		});
+
+		Publisher publisher = factory.createPublisher("testTopic");
+		nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+		assertSame(publisher, factory.createPublisher("testTopic"));
+
+		nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+		assertNotSame(publisher, factory.createPublisher("testTopic"));
+		assertEquals(1, factory.getCacheEvictionCount());
+	}
+
+	@Test
+	public void testWithPublisher_notShutDownWhileInUse() throws Exception {
+		Publisher evictedPublisher = mock(Publisher.class);
+		AtomicBoolean shutDown = new AtomicBoolean();
+		doAnswer((invocation) -> {
+			shutDown.set(true);
+			return null;
+		}).when(evictedPublisher).shutdown();
+		DefaultPublisherFactory factory = createFactory(evictedPublisher, mock(Publisher.class));
+		factory.setCacheMaxSize(1L);
+
+		factory.withPublisher("testTopic1", (publisher) -> {
+			// Evict the publisher between its lookup and its use, and wait for evicted publishers
+			// that aren't in use to be shut down.
+			factory.createPublisher("testTopic2");
+			destroy(factory);
+			assertEquals(1, factory.getCacheEvictionCount());
+			assertFalse(shutDown.get());
+
+			return publisher.publish(PubsubMessage.getDefaultInstance());
+		});
+
+		verify(evictedPublisher).publish(PubsubMessage.getDefaultInstance());
+		assertTrue(shutDown.get());
+	}
+
+	@Test
+	public void testGetPublisher_shutDownRightAwayAfterDestroy() throws Exception {
+		Publisher evictedPublisher = mock(Publisher.class);
+		DefaultPublisherFactory factory = createFactory(evictedPublisher, mock(Publisher.class));
+		factory.setCacheMaxSize(1L);
+		destroy(factory);
+
+		factory.createPublisher("testTopic1");
+		factory.createPublisher("testTopic2");
+
+		verify(evictedPublisher).shutdown();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSetCacheMaxSize_afterPublisherCreated() {
+		DefaultPublisherFactory factory = createFactory(mock(Publisher.class));
+		factory.createPublisher("testTopic");
+
+		factory.setCacheMaxSize(1L);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSetCacheIdleTimeout_afterPublisherCreated() {
+		DefaultPublisherFactory factory = createFactory(mock(Publisher.class));
+		factory.createPublisher("testTopic");
+
+		factory.setCacheIdleTimeout(Duration.ofMinutes(1));
+	}
+
+	@Test
+	public void testGetPublisher_copyHasOwnCache() {
+		DefaultPublisherFactory factory = new DefaultPublisherFactory(() -> "projectId");
+		factory.setCredentialsProvider(this.credentialsProvider);
+		BatchingSettings batchingSettings = BatchingSettings.newBuilder().setElementCountThreshold(10L).build();
+		factory.setBatchingSettings(batchingSettings);
+		Publisher publisher = factory.createPublisher("testTopic");
+
+		DefaultPublisherFactory copy = DefaultPublisherFactory.copyOf(factory);
+
+		assertSame(batchingSettings, copy.getBatchingSettings());
+		assertNotSame(publisher, copy.createPublisher("testTopic"));
+		assertEquals("projectId", ((ProjectTopicName) copy.createPublisher("testTopic").getTopicName()).getProject());
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testNewDefaultPublisherFactory_nullProjectIdProvider() {
 		new DefaultPublisherFactory(null);
@@ -56,4 +192,24 @@ public class DefaultPublisherFactoryTests {
 	public void testNewDefaultPublisherFactory_nullProjectId() {
 		new DefaultPublisherFactory(() -> null);
 	}
+
+	private static DefaultPublisherFactory createFactory(Publisher... publishers) {
+		Iterator<Publisher> iterator = Arrays.asList(publishers).iterator();
+		return new DefaultPublisherFactory(() -> "projectId") {
+			@Override
+			Publisher buildPublisher(String topic) {
+				return iterator.next();
+			}
+		};
+	}
+
+	private static void destroy(DefaultPublisherFactory factory) {
+		try {
+			factory.destroy();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(ex);
+		}
+	}
 }
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.gcp.pubsub.support;
 
+import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.cloud.pubsub.v1.Subscriber;
 import org.junit.Test;
@@ -45,6 +46,21 @@ public class DefaultSubscriberFactoryTests {
 				.isEqualTo("projects/angeldust/subscriptions/midnight cowboy");
 	}
 
+	@Test
+	public void testCopyKeepsSettingsOfOriginal() {
+		DefaultSubscriberFactory factory = new DefaultSubscriberFactory(() -> "angeldust");
+		FlowControlSettings flowControlSettings = FlowControlSettings.newBuilder()
+				.setMaxOutstandingElementCount(10L).build();
+		factory.setFlowControlSettings(flowControlSettings);
+
+		DefaultSubscriberFactory copy = DefaultSubscriberFactory.copyOf(factory);
+		copy.setFlowControlSettings(FlowControlSettings.newBuilder().setMaxOutstandingElementCount(20L).build());
+
+		assertThat(copy.getProjectId()).isEqualTo("angeldust");
+		assertThat(factory.getFlowControlSettings()).isSameAs(flowControlSettings);
+		assertThat(copy.getFlowControlSettings().getMaxOutstandingElementCount()).isEqualTo(20L);
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testNewDefaultSubscriberFactory_nullProjectProvider() {
 		new DefaultSubscriberFactory(null);
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link MicrometerPubSubMetrics}.
+ */
+public class MicrometerPubSubMetricsTests {
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private MicrometerPubSubMetrics pubSubMetrics;
+
+	@Before
+	public void setUp() {
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.pubSubMetrics = new MicrometerPubSubMetrics(this.meterRegistry);
+	}
+
+	@Test
+	public void testPublishMeters() {
+		this.pubSubMetrics.recordPublish("projects/proj/topics/topic1", 3, 300L,
+				TimeUnit.MILLISECONDS.toNanos(20), true);
+		this.pubSubMetrics.recordPublish("topic1", 1, 100L, TimeUnit.MILLISECONDS.toNanos(10), false);
+
+		assertThat(this.meterRegistry.get("gcp.pubsub.publish").tags("topic", "topic1", "result", "success")
+				.timer().count()).isEqualTo(1L);
+		assertThat(this.meterRegistry.get("gcp.pubsub.publish").tags("topic", "topic1", "result", "failure")
+				.timer().count()).isEqualTo(1L);
+		assertThat(this.meterRegistry.get("gcp.pubsub.publish.messages").tags("result", "success")
+				.counter().count()).isEqualTo(3.0);
+		assertThat(this.meterRegistry.get("gcp.pubsub.publish.messages").tags("result", "failure")
+				.counter().count()).isEqualTo(1.0);
+		assertThat(this.meterRegistry.get("gcp.pubsub.publish.bytes").counter().count()).isEqualTo(300.0);
+	}
+
+	@Test
+	public void testSubscriberMeters() {
+		this.pubSubMetrics.recordPull("projects/proj/subscriptions/sub1", 10, 1000L, true);
+		this.pubSubMetrics.recordAck("sub1", PubSubMetrics.AckType.ACK, 10, 1000L, true);
+		this.pubSubMetrics.recordAck("sub1", PubSubMetrics.AckType.NACK, 2, 1000L, false);
+		this.pubSubMetrics.recordFromPubSubConversion("sub1", 1000L);
+		this.pubSubMetrics.recordProcessing("sub1", 1000L, true);
+
+		assertThat(this.meterRegistry.get("gcp.pubsub.pull").tags("subscription", "sub1", "result", "success")
+				.timer().count()).isEqualTo(1L);
+		assertThat(this.meterRegistry.get("gcp.pubsub.pull.messages").summary().totalAmount()).isEqualTo(10.0);
+		assertThat(this.meterRegistry.get("gcp.pubsub.ack").tags("type", "ack", "result", "success")
+				.timer().count()).isEqualTo(1L);
+		assertThat(this.meterRegistry.get("gcp.pubsub.ack").tags("type", "nack", "result", "failure")
+				.timer().count()).isEqualTo(1L);
+		assertThat(this.meterRegistry.get("gcp.pubsub.ack.ids").tags("type", "ack").counter().count())
+				.isEqualTo(10.0);
+		assertThat(this.meterRegistry.get("gcp.pubsub.conversion")
+				.tags("destination", "sub1", "direction", "from_pubsub").timer().count()).isEqualTo(1L);
+		assertThat(this.meterRegistry.get("gcp.pubsub.processing").tags("result", "success")
+				.timer().count()).isEqualTo(1L);
+	}
+
+	@Test
+	public void testConcurrencyLimitMeters() {
+		assertThat(this.meterRegistry.find("gcp.pubsub.subscriber.concurrency.limit").gauge()).isNull();
+
+		this.pubSubMetrics.recordConcurrencyLimit("sub1", 2, 2);
+		this.pubSubMetrics.recordConcurrencyLimit("sub1", 3, 2);
+		this.pubSubMetrics.recordConcurrencyLimit("sub1", 4, 3);
+		this.pubSubMetrics.recordConcurrencyLimit("sub1", 3, 4);
+
+		assertThat(this.meterRegistry.get("gcp.pubsub.subscriber.concurrency.limit").tags("subscription", "sub1")
+				.gauge().value()).isEqualTo(3.0);
+		assertThat(this.meterRegistry.get("gcp.pubsub.subscriber.concurrency.adjustments")
+				.tags("direction", "increase").counter().count()).isEqualTo(2.0);
+		assertThat(this.meterRegistry.get("gcp.pubsub.subscriber.concurrency.adjustments")
+				.tags("direction", "decrease").counter().count()).isEqualTo(1.0);
+	}
+
+}
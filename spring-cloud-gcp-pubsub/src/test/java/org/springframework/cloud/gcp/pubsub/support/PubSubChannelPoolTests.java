@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PubSubChannelPool}.
+ */
+public class PubSubChannelPoolTests {
+
+	private List<ManagedChannel> channels;
+
+	private List<ClientCall<Object, Object>> delegateCalls;
+
+	private MethodDescriptor<Object, Object> methodDescriptor;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		this.channels = new ArrayList<>();
+		this.delegateCalls = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			ManagedChannel channel = mock(ManagedChannel.class);
+			when(channel.newCall(any(), any())).thenAnswer(invocation -> {
+				ClientCall<Object, Object> call = mock(ClientCall.class);
+				this.delegateCalls.add(call);
+				return call;
+			});
+			this.channels.add(channel);
+		}
+		this.methodDescriptor = mock(MethodDescriptor.class);
+	}
+
+	@Test
+	public void testRoundRobin() {
+		PubSubChannelPool pool = createPool(PubSubChannelPool.SelectionStrategy.ROUND_ROBIN);
+
+		for (int i = 0; i < 6; i++) {
+			pool.newCall(this.methodDescriptor, CallOptions.DEFAULT);
+		}
+
+		this.channels.forEach(channel ->
+				verify(channel, times(2)).newCall(this.methodDescriptor, CallOptions.DEFAULT));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLeastLoadedSkipsBusyChannelUntilCallCloses() {
+		PubSubChannelPool pool = createPool(PubSubChannelPool.SelectionStrategy.LEAST_LOADED);
+		ClientCall.Listener<Object> listener = mock(ClientCall.Listener.class);
+
+		pool.newCall(this.methodDescriptor, CallOptions.DEFAULT).start(listener, new Metadata());
+		assertThat(pool.getActiveCallCount(0)).isEqualTo(1);
+
+		for (int i = 0; i < 4; i++) {
+			pool.newCall(this.methodDescriptor, CallOptions.DEFAULT);
+		}
+		verify(this.channels.get(0), times(1)).newCall(this.methodDescriptor, CallOptions.DEFAULT);
+
+		ArgumentCaptor<ClientCall.Listener<Object>> listenerCaptor = ArgumentCaptor.forClass(ClientCall.Listener.class);
+		verify(this.delegateCalls.get(0)).start(listenerCaptor.capture(), any());
+		Metadata trailers = new Metadata();
+		listenerCaptor.getValue().onClose(Status.OK, trailers);
+
+		assertThat(pool.getActiveCallCount(0)).isZero();
+		verify(listener).onClose(Status.OK, trailers);
+	}
+
+	@Test
+	public void testShutdownShutsDownAllChannels() {
+		PubSubChannelPool pool = createPool(PubSubChannelPool.SelectionStrategy.ROUND_ROBIN);
+
+		pool.shutdown();
+
+		this.channels.forEach(channel -> verify(channel).shutdown());
+	}
+
+	private PubSubChannelPool createPool(PubSubChannelPool.SelectionStrategy selectionStrategy) {
+		Iterator<ManagedChannel> channelIterator = this.channels.iterator();
+		return new PubSubChannelPool(this.channels.size(), selectionStrategy, channelIterator::next);
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.contrib.nio.testing.LocalStorageHelper;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Tests for {@link ClaimCheckPubSubMessageConverter}.
+ */
+public class ClaimCheckPubSubMessageConverterTests {
+
+	private static final String LARGE_PAYLOAD = "a payload that is larger than the threshold";
+
+	private final Storage storage = LocalStorageHelper.getOptions().getService();
+
+	private final ClaimCheckPubSubMessageConverter converter = new ClaimCheckPubSubMessageConverter(
+			new SimplePubSubMessageConverter(), this.storage, "test-bucket", 16);
+
+	@Test
+	public void testLargePayloadIsOffloaded() {
+		this.converter.setObjectNamePrefix("pubsub/");
+
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD,
+				Collections.singletonMap("key", "value"));
+
+		assertThat(pubsubMessage.getData().isEmpty()).isTrue();
+		assertThat(pubsubMessage.getAttributesMap()).containsKey("key");
+		assertThat(pubsubMessage.getAttributesOrThrow(ClaimCheckPubSubMessageConverter.CLAIM_CHECK_ATTRIBUTE))
+				.startsWith("gs://test-bucket/pubsub/");
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(LARGE_PAYLOAD);
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, byte[].class))
+				.isEqualTo(LARGE_PAYLOAD.getBytes());
+	}
+
+	@Test
+	public void testSmallPayloadIsNotOffloaded() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage("small",
+				Collections.singletonMap("key", "value"));
+
+		assertThat(pubsubMessage.getData().toStringUtf8()).isEqualTo("small");
+		assertThat(pubsubMessage.getAttributesMap()).containsOnly(entry("key", "value"));
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo("small");
+	}
+
+	@Test
+	public void testOffloadedPayloadIsStreamed() throws IOException {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+
+		try (InputStream inputStream = this.converter.fromPubSubMessage(pubsubMessage, InputStream.class)) {
+			assertThat(ByteString.readFrom(inputStream).toStringUtf8()).isEqualTo(LARGE_PAYLOAD);
+		}
+	}
+
+	@Test
+	public void testCompressedPayloadIsOffloaded() {
+		ClaimCheckPubSubMessageConverter compressingConverter = new ClaimCheckPubSubMessageConverter(
+				new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter(),
+						CompressingPubSubMessageConverter.Codec.GZIP, 0),
+				this.storage, "test-bucket", 16);
+		// Subscribers decompress received messages before resolving their claim check.
+		CompressingPubSubMessageConverter receivingConverter =
+				new CompressingPubSubMessageConverter(compressingConverter);
+		String payload = String.join("", Collections.nCopies(10, LARGE_PAYLOAD));
+
+		PubsubMessage pubsubMessage = compressingConverter.toPubSubMessage(payload, null);
+
+		assertThat(pubsubMessage.getData().isEmpty()).isTrue();
+		assertThat(pubsubMessage.getAttributesMap())
+				.containsKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+		assertThat(receivingConverter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(payload);
+	}
+
+	@Test
+	public void testReadOnlyConverterDoesNotOffload() {
+		ClaimCheckPubSubMessageConverter readOnlyConverter = new ClaimCheckPubSubMessageConverter(
+				new SimplePubSubMessageConverter(), this.storage);
+		PubsubMessage offloaded = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+
+		assertThat(readOnlyConverter.toPubSubMessage(LARGE_PAYLOAD, null).getData().toStringUtf8())
+				.isEqualTo(LARGE_PAYLOAD);
+		assertThat(readOnlyConverter.fromPubSubMessage(offloaded, String.class)).isEqualTo(LARGE_PAYLOAD);
+	}
+
+	@Test
+	public void testOffloadedPayloadIsDeletedAfterAck() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+		BlobId blobId = BlobId.of("test-bucket", pubsubMessage
+				.getAttributesOrThrow(ClaimCheckPubSubMessageConverter.CLAIM_CHECK_ATTRIBUTE)
+				.substring("gs://test-bucket/".length()));
+
+		this.converter.onAcknowledged(pubsubMessage);
+		assertThat(this.storage.get(blobId)).isNotNull();
+
+		this.converter.setDeleteAfterAck(true);
+		this.converter.setDeleteExecutor(Runnable::run);
+		this.converter.onAcknowledged(pubsubMessage);
+		assertThat(this.storage.get(blobId)).isNull();
+	}
+
+	@Test
+	public void testDeletedPayloadIsNotFound() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+		this.converter.setDeleteAfterAck(true);
+		this.converter.setDeleteExecutor(Runnable::run);
+		this.converter.onAcknowledged(pubsubMessage);
+
+		assertThatThrownBy(() -> this.converter.fromPubSubMessage(pubsubMessage, String.class))
+				.isInstanceOf(PayloadNotFoundException.class);
+		assertThatThrownBy(() -> this.converter.fromPubSubMessage(pubsubMessage, InputStream.class))
+				.isInstanceOf(PayloadNotFoundException.class);
+	}
+
+	@Test
+	public void testInvalidLocation() {
+		PubsubMessage pubsubMessage = PubsubMessage.newBuilder()
+				.putAttributes(ClaimCheckPubSubMessageConverter.CLAIM_CHECK_ATTRIBUTE, "gs://test-bucket")
+				.build();
+
+		assertThatThrownBy(() -> this.converter.fromPubSubMessage(pubsubMessage, String.class))
+				.isInstanceOf(PubSubMessageConversionException.class)
+				.hasMessage("Invalid offloaded payload location: gs://test-bucket.");
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.util.Collections;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter.Codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link CompressingPubSubMessageConverter}.
+ */
+public class CompressingPubSubMessageConverterTests {
+
+	private static final String LARGE_PAYLOAD = String.join("", Collections.nCopies(200, "compress me "));
+
+	@Test
+	public void testGzipRoundTrip() {
+		assertRoundTrip(Codec.GZIP);
+	}
+
+	@Test
+	public void testDeflateRoundTrip() {
+		assertRoundTrip(Codec.DEFLATE);
+	}
+
+	@Test
+	public void testPayloadBelowThresholdNotCompressed() {
+		CompressingPubSubMessageConverter converter =
+				new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter(), Codec.GZIP, 1024);
+
+		PubsubMessage message = converter.toPubSubMessage("small", null);
+
+		assertThat(message.getData().toStringUtf8()).isEqualTo("small");
+		assertThat(message.getAttributesMap())
+				.doesNotContainKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+	}
+
+	@Test
+	public void testDecompressOnlyConverter() {
+		PubsubMessage compressed = new CompressingPubSubMessageConverter(
+				new SimplePubSubMessageConverter(), Codec.GZIP).toPubSubMessage(LARGE_PAYLOAD, null);
+		CompressingPubSubMessageConverter converter =
+				new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter());
+
+		assertThat(converter.fromPubSubMessage(compressed, String.class)).isEqualTo(LARGE_PAYLOAD);
+		assertThat(converter.toPubSubMessage(LARGE_PAYLOAD, null).getData().toStringUtf8())
+				.isEqualTo(LARGE_PAYLOAD);
+	}
+
+	@Test
+	public void testUnknownEncodingIsPassedThrough() {
+		PubsubMessage message = PubsubMessage.newBuilder()
+				.setData(ByteString.copyFromUtf8("payload"))
+				.putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "br")
+				.build();
+		CompressingPubSubMessageConverter converter =
+				new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter());
+
+		assertThat(converter.fromPubSubMessage(message, String.class)).isEqualTo("payload");
+		assertThat(CompressingPubSubMessageConverter.isCompressed(message.getAttributesMap())).isFalse();
+	}
+
+	@Test
+	public void testMessageWithoutDataIsPassedThrough() {
+		PubsubMessage message = PubsubMessage.newBuilder()
+				.putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip")
+				.build();
+		PubSubMessageConverter delegate = mock(PubSubMessageConverter.class);
+		when(delegate.fromPubSubMessage(message, String.class)).thenReturn("resolved elsewhere");
+
+		assertThat(new CompressingPubSubMessageConverter(delegate).fromPubSubMessage(message, String.class))
+				.isEqualTo("resolved elsewhere");
+	}
+
+	@Test
+	public void testDecompressedSizeIsLimited() {
+		PubsubMessage compressed = new CompressingPubSubMessageConverter(
+				new SimplePubSubMessageConverter(), Codec.GZIP).toPubSubMessage(new byte[1024 * 1024], null);
+		CompressingPubSubMessageConverter converter =
+				new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter());
+		converter.setMaxDecompressedBytes(64 * 1024);
+
+		assertThat(compressed.getData().size()).isLessThan(64 * 1024);
+		assertThatThrownBy(() -> converter.fromPubSubMessage(compressed, byte[].class))
+				.isInstanceOf(PubSubMessageConversionException.class)
+				.hasMessageContaining("larger than 65536 bytes");
+	}
+
+	private static void assertRoundTrip(Codec codec) {
+		CompressingPubSubMessageConverter converter =
+				new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter(), codec, 64);
+
+		PubsubMessage message = converter.toPubSubMessage(LARGE_PAYLOAD, Collections.singletonMap("key", "value"));
+
+		assertThat(message.getData().size()).isLessThan(LARGE_PAYLOAD.length());
+		assertThat(message.getAttributesMap())
+				.containsEntry(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, codec.getEncoding())
+				.containsEntry("key", "value");
+		assertThat(converter.fromPubSubMessage(message, String.class)).isEqualTo(LARGE_PAYLOAD);
+	}
+
+}
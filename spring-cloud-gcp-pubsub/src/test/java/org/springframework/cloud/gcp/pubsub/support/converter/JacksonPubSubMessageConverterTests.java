@@ -68,6 +68,22 @@ public class JacksonPubSubMessageConverterTests {
 		assertThat(o).as("verify that deserialized object is equal to the original one").isEqualTo(contact);
 	}
 
+	@Test
+	public void testLargePojoWithCachedReaderAndWriter() {
+		StringBuilder lastName = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			lastName.append("Edison");
+		}
+		Contact contact = new Contact("Thomas", lastName.toString(), 8817);
+
+		// Converting twice exercises the cached reader and writer.
+		for (int i = 0; i < 2; i++) {
+			PubsubMessage pubsubMessage = this.converter.toPubSubMessage(contact, null);
+
+			assertThat(this.converter.fromPubSubMessage(pubsubMessage, Contact.class)).isEqualTo(contact);
+		}
+	}
+
 	@Test
 	public void testToPubSubMessageWithNullPayload() throws JSONException {
 		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(null, null);
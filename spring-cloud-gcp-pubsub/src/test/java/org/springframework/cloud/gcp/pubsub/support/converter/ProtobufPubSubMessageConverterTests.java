@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.util.Collections;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Topic;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Tests for {@link ProtobufPubSubMessageConverter}.
+ */
+public class ProtobufPubSubMessageConverterTests {
+
+	private static final Topic TOPIC = Topic.newBuilder()
+			.setName("projects/test-project/topics/test-topic")
+			.putLabels("team", "events")
+			.build();
+
+	private final ProtobufPubSubMessageConverter converter = new ProtobufPubSubMessageConverter();
+
+	@Test
+	public void testBinaryRoundTrip() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(TOPIC,
+				Collections.singletonMap("key", "value"));
+
+		assertThat(pubsubMessage.getData()).isEqualTo(TOPIC.toByteString());
+		assertThat(pubsubMessage.getAttributesMap()).containsOnly(entry("key", "value"));
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, Topic.class)).isEqualTo(TOPIC);
+	}
+
+	@Test
+	public void testJsonRoundTrip() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(TOPIC, Collections.singletonMap(
+				ProtobufPubSubMessageConverter.CONTENT_TYPE_ATTRIBUTE, "application/json;charset=UTF-8"));
+
+		assertThat(pubsubMessage.getData().toStringUtf8()).contains("\"name\": \"projects/test-project/topics/test-topic\"");
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, Topic.class)).isEqualTo(TOPIC);
+	}
+
+	@Test
+	public void testJsonIgnoresUnknownFields() {
+		PubsubMessage pubsubMessage = PubsubMessage.newBuilder()
+				.setData(ByteString.copyFromUtf8("{\"name\": \"projects/p/topics/t\", \"newField\": 1}"))
+				.putAttributes(ProtobufPubSubMessageConverter.CONTENT_TYPE_ATTRIBUTE, "application/json")
+				.build();
+
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, Topic.class).getName())
+				.isEqualTo("projects/p/topics/t");
+	}
+
+	@Test
+	public void testMalformedContentTypeIsBinary() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(TOPIC, Collections.singletonMap(
+				ProtobufPubSubMessageConverter.CONTENT_TYPE_ATTRIBUTE, "json"));
+
+		assertThat(pubsubMessage.getData()).isEqualTo(TOPIC.toByteString());
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, Topic.class)).isEqualTo(TOPIC);
+	}
+
+	@Test
+	public void testOtherPayloadsAreDelegated() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage("plain text", null);
+
+		assertThat(pubsubMessage.getData().toStringUtf8()).isEqualTo("plain text");
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo("plain text");
+	}
+
+	@Test
+	public void testInvalidData() {
+		PubsubMessage pubsubMessage = PubsubMessage.newBuilder()
+				.setData(ByteString.copyFrom(new byte[] { (byte) 0xFF }))
+				.build();
+
+		assertThatThrownBy(() -> this.converter.fromPubSubMessage(pubsubMessage, Topic.class))
+				.isInstanceOf(PubSubMessageConversionException.class)
+				.hasMessageContaining(Topic.class.getName());
+	}
+
+	@Test
+	public void testNonGeneratedMessageType() {
+		assertThatThrownBy(() -> this.converter.fromPubSubMessage(PubsubMessage.getDefaultInstance(), Message.class))
+				.isInstanceOf(PubSubMessageConversionException.class)
+				.hasMessageContaining("isn't a generated Protocol Buffers message class");
+	}
+
+}